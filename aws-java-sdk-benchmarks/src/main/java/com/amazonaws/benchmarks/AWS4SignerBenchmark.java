@@ -0,0 +1,203 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.SignableRequest;
+import com.amazonaws.auth.AWS4Signer;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.auth.SigningAlgorithm;
+import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Measures {@link AWS4Signer#sign} on a JSON protocol request shaped like a
+ * DynamoDB GetItem, and on a GET request with query parameters shaped like an
+ * S3 ListObjects.
+ * <p>
+ * The baseline benchmarks sign the same requests with
+ * {@link BaselineAWS4Signer}, which restores the previous signing path: a new
+ * {@link Mac} and {@link MessageDigest} from the JCA provider for every HMAC
+ * and hash, and regex based whitespace compaction of the headers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AWS4SignerBenchmark {
+    private final AWSCredentials credentials = new BasicAWSCredentials(
+            "AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY");
+
+    private AWS4Signer dynamoDBSigner;
+    private AWS4Signer s3Signer;
+    private AWS4Signer baselineDynamoDBSigner;
+    private AWS4Signer baselineS3Signer;
+    private DefaultRequest<Void> jsonRequest;
+    private DefaultRequest<Void> queryRequest;
+
+    @Setup
+    public void setup() {
+        dynamoDBSigner = new AWS4Signer();
+        dynamoDBSigner.setServiceName("dynamodb");
+        dynamoDBSigner.setRegionName("us-east-1");
+        s3Signer = new AWS4Signer(false);
+        s3Signer.setServiceName("s3");
+        s3Signer.setRegionName("us-east-1");
+        baselineDynamoDBSigner = new BaselineAWS4Signer(true);
+        baselineDynamoDBSigner.setServiceName("dynamodb");
+        baselineDynamoDBSigner.setRegionName("us-east-1");
+        baselineS3Signer = new BaselineAWS4Signer(false);
+        baselineS3Signer.setServiceName("s3");
+        baselineS3Signer.setRegionName("us-east-1");
+
+        jsonRequest = new DefaultRequest<Void>("AmazonDynamoDBv2");
+        jsonRequest.setHttpMethod(HttpMethodName.POST);
+        jsonRequest.setEndpoint(URI.create("https://dynamodb.us-east-1.amazonaws.com"));
+        jsonRequest.setResourcePath("/");
+        jsonRequest.addHeader("X-Amz-Target", "DynamoDB_20120810.GetItem");
+        jsonRequest.addHeader("Content-Type", "application/x-amz-json-1.0");
+        byte[] body = ("{\"TableName\":\"benchmark\",\"Key\":{\"id\":{\"S\":\"item-0001\"}},"
+                + "\"ConsistentRead\":true}").getBytes();
+        jsonRequest.addHeader("Content-Length", Integer.toString(body.length));
+        jsonRequest.setContent(new ByteArrayInputStream(body));
+
+        queryRequest = new DefaultRequest<Void>("Amazon S3");
+        queryRequest.setHttpMethod(HttpMethodName.GET);
+        queryRequest.setEndpoint(URI.create("https://benchmark-bucket.s3.amazonaws.com"));
+        queryRequest.setResourcePath("/");
+        queryRequest.addParameter("prefix", "logs/2015/09/01/");
+        queryRequest.addParameter("delimiter", "/");
+        queryRequest.addParameter("max-keys", "1000");
+        queryRequest.addParameter("marker", "logs/2015/09/01/object-00000fff.gz");
+    }
+
+    @Benchmark
+    public Object signJsonRequest() {
+        dynamoDBSigner.sign(jsonRequest, credentials);
+        return jsonRequest.getHeaders().get("Authorization");
+    }
+
+    @Benchmark
+    public Object signQueryRequest() {
+        s3Signer.sign(queryRequest, credentials);
+        return queryRequest.getHeaders().get("Authorization");
+    }
+
+    @Benchmark
+    public Object signJsonRequestBaseline() {
+        baselineDynamoDBSigner.sign(jsonRequest, credentials);
+        return jsonRequest.getHeaders().get("Authorization");
+    }
+
+    @Benchmark
+    public Object signQueryRequestBaseline() {
+        baselineS3Signer.sign(queryRequest, credentials);
+        return queryRequest.getHeaders().get("Authorization");
+    }
+
+    /**
+     * An AWS4Signer that computes its HMACs and hashes, and canonicalizes the
+     * headers, the way it did before they were optimized. The signing key
+     * cache is still the shared one; it only matters under contention, and
+     * these benchmarks run in a single thread.
+     */
+    static class BaselineAWS4Signer extends AWS4Signer {
+        BaselineAWS4Signer(boolean doubleUrlEncoding) {
+            super(doubleUrlEncoding);
+        }
+
+        @Override
+        protected byte[] sign(byte[] data, byte[] key,
+                SigningAlgorithm algorithm) throws AmazonClientException {
+            try {
+                Mac mac = Mac.getInstance(algorithm.toString());
+                mac.init(new SecretKeySpec(key, algorithm.toString()));
+                return mac.doFinal(data);
+            } catch (Exception e) {
+                throw new AmazonClientException(
+                        "Unable to calculate a request signature: "
+                                + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public byte[] hash(String text) throws AmazonClientException {
+            return hash(text.getBytes(StringUtils.UTF8));
+        }
+
+        @Override
+        public byte[] hash(byte[] data) throws AmazonClientException {
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                md.update(data);
+                return md.digest();
+            } catch (Exception e) {
+                throw new AmazonClientException(
+                        "Unable to compute hash while signing request: "
+                                + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        protected String getCanonicalizedHeaderString(SignableRequest<?> request) {
+            final List<String> sortedHeaders = new ArrayList<String>(request.getHeaders()
+                    .keySet());
+            Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+
+            final Map<String, String> requestHeaders = request.getHeaders();
+            StringBuilder buffer = new StringBuilder();
+            for (String header : sortedHeaders) {
+                String key = header.toLowerCase().replaceAll("\\s+", " ");
+                String value = requestHeaders.get(header);
+
+                buffer.append(key).append(":");
+                if (value != null) {
+                    buffer.append(value.replaceAll("\\s+", " "));
+                }
+
+                buffer.append("\n");
+            }
+
+            return buffer.toString();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+
+/**
+ * Measures the throughput of whole DynamoDB GetItem calls, through
+ * marshalling, signing, {@link AmazonHttpClient#execute} and unmarshalling,
+ * against a local {@link MockServer}. Run with <code>-t</code> to measure
+ * with concurrent callers sharing the client.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmazonHttpClientBenchmark {
+    /** The number of attributes of each type in the returned item. */
+    @Param({"1", "10"})
+    public int attributesPerType;
+
+    private MockServer server;
+    private AmazonDynamoDBClient client;
+    private GetItemRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        server = new MockServer("application/x-amz-json-1.0",
+                Fixtures.getItemResponse(attributesPerType));
+        client = new AmazonDynamoDBClient(
+                new BasicAWSCredentials("AKIDEXAMPLE",
+                        "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY"));
+        client.setEndpoint(server.getEndpoint().toString());
+        request = new GetItemRequest("benchmark", Collections.singletonMap(
+                "id", new AttributeValue().withS("item-0001")));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    @Benchmark
+    public GetItemResult getItem() {
+        return client.getItem(request);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * Measures the {@link Base64} and hex codecs of {@link BinaryUtils}, used for
+ * binary attributes, checksums and signatures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+    @Param({"32", "1024", "65536"})
+    public int size;
+
+    private byte[] bytes;
+    private String base64;
+    private String hex;
+
+    @Setup
+    public void setup() {
+        bytes = Fixtures.randomBytes(size);
+        base64 = Base64.encodeAsString(bytes);
+        hex = BinaryUtils.toHex(bytes);
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return Base64.encodeAsString(bytes);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() {
+        return Base64.decode(base64);
+    }
+
+    @Benchmark
+    public String hexEncode() {
+        return BinaryUtils.toHex(bytes);
+    }
+
+    @Benchmark
+    public byte[] hexDecode() {
+        return BinaryUtils.fromHex(hex);
+    }
+}
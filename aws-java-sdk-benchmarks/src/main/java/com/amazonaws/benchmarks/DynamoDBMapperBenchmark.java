@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.ConversionSchema;
+import com.amazonaws.services.dynamodbv2.datamodeling.ConversionSchemas;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.ItemConverter;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Measures the conversion of an annotated object to and from a DynamoDB item,
+ * with the item converter used by {@link DynamoDBMapper} under the default
+ * conversion schema.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DynamoDBMapperBenchmark {
+    private ItemConverter converter;
+    private Order order;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setup() {
+        converter = ConversionSchemas.V2.getConverter(
+                new ConversionSchema.Dependencies());
+        order = new Order();
+        order.setId("order-0001");
+        order.setCustomer("customer-0042");
+        order.setQuantity(3);
+        order.setPrice(19.99);
+        order.setGift(Boolean.TRUE);
+        order.setCreated(new Date(1441108800000L));
+        order.setTags(new HashSet<String>(Arrays.asList("books", "sale", "prime")));
+        order.setItems(Arrays.asList("isbn-0001", "isbn-0002", "isbn-0003"));
+        order.setPayload(Fixtures.randomBytes(256));
+        item = converter.convert(order);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> marshall() {
+        return converter.convert(order);
+    }
+
+    @Benchmark
+    public Order unmarshall() {
+        return converter.unconvert(Order.class, item);
+    }
+
+    @DynamoDBTable(tableName = "benchmark-orders")
+    public static class Order {
+        private String id;
+        private String customer;
+        private int quantity;
+        private double price;
+        private Boolean gift;
+        private Date created;
+        private Set<String> tags;
+        private List<String> items;
+        private byte[] payload;
+
+        @DynamoDBHashKey
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+
+        public String getCustomer() { return customer; }
+        public void setCustomer(String customer) { this.customer = customer; }
+
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+
+        public double getPrice() { return price; }
+        public void setPrice(double price) { this.price = price; }
+
+        public Boolean getGift() { return gift; }
+        public void setGift(Boolean gift) { this.gift = gift; }
+
+        @DynamoDBAttribute(attributeName = "createdAt")
+        public Date getCreated() { return created; }
+        public void setCreated(Date created) { this.created = created; }
+
+        public Set<String> getTags() { return tags; }
+        public void setTags(Set<String> tags) { this.tags = tags; }
+
+        public List<String> getItems() { return items; }
+        public void setItems(List<String> items) { this.items = items; }
+
+        public byte[] getPayload() { return payload; }
+        public void setPayload(byte[] payload) { this.payload = payload; }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Canned requests and responses shared by the benchmarks, shaped like those of
+ * the services but generated, so that their size can be varied.
+ */
+final class Fixtures {
+    private Fixtures() {}
+
+    /**
+     * Returns random bytes, always the same for a given size.
+     */
+    static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns a DynamoDB item with the given number of attributes of each of
+     * the common types.
+     */
+    static Map<String, AttributeValue> dynamoDBItem(int attributesPerType) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("id", new AttributeValue().withS("item-0001"));
+        for (int i = 0; i < attributesPerType; i++) {
+            item.put("string" + i, new AttributeValue().withS("value of attribute " + i));
+            item.put("number" + i, new AttributeValue().withN(Integer.toString(i * 1000 + 7)));
+            item.put("binary" + i, new AttributeValue().withB(ByteBuffer.wrap(randomBytes(64))));
+            item.put("stringSet" + i, new AttributeValue().withSS(Arrays.asList("a" + i, "b" + i, "c" + i)));
+            Map<String, AttributeValue> nested = new HashMap<String, AttributeValue>();
+            nested.put("flag", new AttributeValue().withBOOL(i % 2 == 0));
+            nested.put("count", new AttributeValue().withN(Integer.toString(i)));
+            item.put("map" + i, new AttributeValue().withM(nested));
+        }
+        return item;
+    }
+
+    /**
+     * Returns the JSON body of a DynamoDB GetItem response with an item of the
+     * given number of attributes of each type.
+     */
+    static byte[] getItemResponse(int attributesPerType) {
+        StringBuilder sb = new StringBuilder("{\"Item\":{\"id\":{\"S\":\"item-0001\"}");
+        for (int i = 0; i < attributesPerType; i++) {
+            sb.append(",\"string").append(i).append("\":{\"S\":\"value of attribute ").append(i).append("\"}")
+              .append(",\"number").append(i).append("\":{\"N\":\"").append(i * 1000 + 7).append("\"}")
+              .append(",\"binary").append(i).append("\":{\"B\":\"")
+              .append(Base64.encodeAsString(randomBytes(64))).append("\"}")
+              .append(",\"stringSet").append(i).append("\":{\"SS\":[\"a").append(i)
+              .append("\",\"b").append(i).append("\",\"c").append(i).append("\"]}")
+              .append(",\"map").append(i).append("\":{\"M\":{\"flag\":{\"BOOL\":")
+              .append(i % 2 == 0).append("},\"count\":{\"N\":\"").append(i).append("\"}}}");
+        }
+        sb.append("}}");
+        return sb.toString().getBytes(StringUtils.UTF8);
+    }
+
+    /**
+     * Returns the XML body of an EC2 DescribeInstances response with the given
+     * number of reservations of two instances each.
+     */
+    static byte[] describeInstancesResponse(int reservations) {
+        StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<DescribeInstancesResponse xmlns=\"http://ec2.amazonaws.com/doc/2015-04-15/\">"
+                + "<requestId>fdcdcab1-ae5c-489e-9c33-4637c5dda355</requestId><reservationSet>");
+        for (int r = 0; r < reservations; r++) {
+            sb.append("<item><reservationId>r-").append(hex8(r)).append("</reservationId>")
+              .append("<ownerId>123456789012</ownerId><groupSet/><instancesSet>");
+            for (int i = 0; i < 2; i++) {
+                String id = hex8(r * 2 + i);
+                sb.append("<item><instanceId>i-").append(id).append("</instanceId>")
+                  .append("<imageId>ami-1a2b3c4d</imageId>")
+                  .append("<instanceState><code>16</code><name>running</name></instanceState>")
+                  .append("<privateDnsName>ip-10-0-").append(r % 256).append('-').append(i)
+                  .append(".ec2.internal</privateDnsName><dnsName/><reason/>")
+                  .append("<keyName>benchmark</keyName><amiLaunchIndex>").append(i).append("</amiLaunchIndex>")
+                  .append("<productCodes/><instanceType>m3.large</instanceType>")
+                  .append("<launchTime>2015-09-01T12:00:00.000Z</launchTime>")
+                  .append("<placement><availabilityZone>us-east-1a</availabilityZone>")
+                  .append("<groupName/><tenancy>default</tenancy></placement>")
+                  .append("<monitoring><state>disabled</state></monitoring>")
+                  .append("<subnetId>subnet-1a2b3c4d</subnetId><vpcId>vpc-1a2b3c4d</vpcId>")
+                  .append("<privateIpAddress>10.0.").append(r % 256).append('.').append(i).append("</privateIpAddress>")
+                  .append("<sourceDestCheck>true</sourceDestCheck>")
+                  .append("<groupSet><item><groupId>sg-1a2b3c4d</groupId><groupName>default</groupName></item></groupSet>")
+                  .append("<architecture>x86_64</architecture><rootDeviceType>ebs</rootDeviceType>")
+                  .append("<rootDeviceName>/dev/xvda</rootDeviceName><blockDeviceMapping><item>")
+                  .append("<deviceName>/dev/xvda</deviceName><ebs><volumeId>vol-").append(id).append("</volumeId>")
+                  .append("<status>attached</status><attachTime>2015-09-01T12:00:01.000Z</attachTime>")
+                  .append("<deleteOnTermination>true</deleteOnTermination></ebs></item></blockDeviceMapping>")
+                  .append("<virtualizationType>hvm</virtualizationType><clientToken/>")
+                  .append("<tagSet><item><key>Name</key><value>benchmark-").append(id).append("</value></item>")
+                  .append("<item><key>Stage</key><value>prod</value></item></tagSet>")
+                  .append("<hypervisor>xen</hypervisor><ebsOptimized>false</ebsOptimized></item>");
+            }
+            sb.append("</instancesSet></item>");
+        }
+        sb.append("</reservationSet></DescribeInstancesResponse>");
+        return sb.toString().getBytes(StringUtils.UTF8);
+    }
+
+    /**
+     * Returns the XML body of an S3 ListObjects response with the given number
+     * of objects.
+     */
+    static byte[] listObjectsResponse(int objects) {
+        StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                + "<Name>benchmark-bucket</Name><Prefix></Prefix><Marker></Marker>"
+                + "<MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated>");
+        for (int i = 0; i < objects; i++) {
+            sb.append("<Contents><Key>logs/2015/09/01/object-").append(hex8(i)).append(".gz</Key>")
+              .append("<LastModified>2015-09-01T12:00:00.000Z</LastModified>")
+              .append("<ETag>&quot;").append(hex8(i)).append("9b2cf535f27731c974343645a3985328&quot;</ETag>")
+              .append("<Size>").append(1024 + i).append("</Size>")
+              .append("<Owner><ID>75aa57f09aa0c8caeab4f8c24e99d10f8e7faeebf76c078efc7c6caea54ba06a</ID>")
+              .append("<DisplayName>benchmark</DisplayName></Owner>")
+              .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        sb.append("</ListBucketResult>");
+        return sb.toString().getBytes(StringUtils.UTF8);
+    }
+
+    private static String hex8(int i) {
+        String hex = Integer.toHexString(i);
+        return "00000000".substring(hex.length()) + hex;
+    }
+}
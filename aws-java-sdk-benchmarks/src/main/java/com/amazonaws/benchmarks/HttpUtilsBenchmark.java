@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.util.HttpUtils;
+
+/**
+ * Measures the encoding of the parameters of query protocol requests, such as
+ * an SQS SendMessageBatch with the given number of entries, and of S3 object
+ * keys. {@link #urlEncodeKeyWithURLEncoder()} is the encoding based on
+ * {@link URLEncoder} the SDK used to do, for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpUtilsBenchmark {
+    @Param({"1", "10", "100"})
+    public int entries;
+
+    private DefaultRequest<Void> request;
+    private String key;
+
+    @Setup
+    public void setup() {
+        request = new DefaultRequest<Void>("AmazonSQS");
+        request.addParameter("Action", "SendMessageBatch");
+        request.addParameter("Version", "2012-11-05");
+        request.addParameter("QueueUrl",
+                "https://sqs.us-east-1.amazonaws.com/123456789012/benchmark-queue");
+        for (int i = 1; i <= entries; i++) {
+            String prefix = "SendMessageBatchRequestEntry." + i + ".";
+            request.addParameter(prefix + "Id", "message-" + i);
+            request.addParameter(prefix + "MessageBody",
+                    "{\"order\":" + i + ",\"note\":\"50% off * all items ~ today/tomorrow\"}");
+            request.addParameter(prefix + "DelaySeconds", "0");
+        }
+        key = "photos/2015/09/01/holiday at the beach (" + entries + ") ~ édité*.jpg";
+    }
+
+    @Benchmark
+    public String encodeParameters() {
+        return HttpUtils.encodeParameters(request);
+    }
+
+    @Benchmark
+    public String urlEncodeKey() {
+        return HttpUtils.urlEncode(key, true);
+    }
+
+    @Benchmark
+    public String urlEncodeKeyWithURLEncoder() throws UnsupportedEncodingException {
+        return URLEncoder.encode(key, "UTF-8")
+                .replace("+", "%20")
+                .replace("*", "%2A")
+                .replace("%7E", "~")
+                .replace("%2F", "/");
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.Request;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.transform.AttributeValueJsonMarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.GetItemResultJsonUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.PutItemRequestMarshaller;
+import com.amazonaws.transform.JsonUnmarshallerContextImpl;
+import com.amazonaws.util.StringUtils;
+import com.amazonaws.util.json.JSONWriter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Measures the JSON marshalling of a DynamoDB PutItem request, both through
+ * the {@link com.amazonaws.util.json.SdkJsonGenerator} used by the request
+ * marshaller and through the original {@link JSONWriter}, and the JSON
+ * unmarshalling of a DynamoDB GetItem response via
+ * {@link JsonUnmarshallerContextImpl}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonBenchmark {
+    /** The number of attributes of each type in the item. */
+    @Param({"1", "10", "50"})
+    public int attributesPerType;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final PutItemRequestMarshaller marshaller = new PutItemRequestMarshaller();
+    private PutItemRequest putItemRequest;
+    private byte[] getItemResponse;
+
+    @Setup
+    public void setup() {
+        Map<String, AttributeValue> item = Fixtures.dynamoDBItem(attributesPerType);
+        putItemRequest = new PutItemRequest("benchmark", item);
+        getItemResponse = Fixtures.getItemResponse(attributesPerType);
+    }
+
+    @Benchmark
+    public Request<PutItemRequest> marshallPutItem() {
+        return marshaller.marshall(putItemRequest);
+    }
+
+    /**
+     * Marshalls the same item the way the request marshallers did before they
+     * wrote through a Jackson generator.
+     */
+    @Benchmark
+    public byte[] marshallPutItemWithJSONWriter() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        JSONWriter jsonWriter = new JSONWriter(stringWriter);
+        jsonWriter.object();
+        jsonWriter.key("TableName").value(putItemRequest.getTableName());
+        jsonWriter.key("Item");
+        jsonWriter.object();
+        for (Map.Entry<String, AttributeValue> entry : putItemRequest.getItem().entrySet()) {
+            jsonWriter.key(entry.getKey());
+            AttributeValueJsonMarshaller.getInstance().marshall(entry.getValue(), jsonWriter);
+        }
+        jsonWriter.endObject();
+        jsonWriter.endObject();
+        return stringWriter.toString().getBytes(StringUtils.UTF8);
+    }
+
+    @Benchmark
+    public GetItemResult unmarshallGetItem() throws Exception {
+        JsonParser jsonParser = jsonFactory.createParser(getItemResponse);
+        try {
+            return GetItemResultJsonUnmarshaller.getInstance().unmarshall(
+                    new JsonUnmarshallerContextImpl(jsonParser));
+        } finally {
+            jsonParser.close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * Measures the cost of the request metrics of a request: the events, counters
+ * and properties recorded by the client for a successful request, and their
+ * reading by a metric collector; and of their recording into the latency
+ * histograms only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestMetricsBenchmark {
+
+    @Benchmark
+    public AWSRequestMetrics recordRequest() {
+        return record(new AWSRequestMetricsFullSupport());
+    }
+
+    @Benchmark
+    public Number recordAndCollectRequest() {
+        AWSRequestMetrics metrics = record(new AWSRequestMetricsFullSupport());
+        TimingInfo ti = metrics.getTimingInfo();
+        long total = ti.getCounter(Field.RequestCount.name()).longValue();
+        total += ti.getAllSubMeasurements(Field.HttpRequestTime.name()).size();
+        total += ti.getLastSubMeasurement(Field.ClientExecuteTime.name()).getEndTimeNano();
+        return total;
+    }
+
+    @Benchmark
+    public AWSRequestMetrics recordRequestIntoHistograms(LatencyHistograms histograms) {
+        return record(AWSRequestMetricsFullSupport.newStreamingMetrics());
+    }
+
+    /** Enables the latency histograms of the SDK for the benchmarks using it. */
+    @State(Scope.Benchmark)
+    public static class LatencyHistograms {
+        @Setup
+        public void enable() {
+            AwsSdkMetrics.setLatencyHistogramsEnabled(true);
+        }
+
+        @TearDown
+        public void disable() {
+            AwsSdkMetrics.setLatencyHistogramsEnabled(false);
+        }
+    }
+
+    private static AWSRequestMetrics record(AWSRequestMetrics metrics) {
+        metrics.startEvent(Field.ClientExecuteTime);
+        metrics.addProperty(Field.ServiceName, "AmazonDynamoDBv2");
+        metrics.addProperty(Field.ServiceEndpoint, "https://dynamodb.us-east-1.amazonaws.com");
+        metrics.startEvent(Field.RequestMarshallTime);
+        metrics.endEvent(Field.RequestMarshallTime);
+        metrics.startEvent(Field.CredentialsRequestTime);
+        metrics.endEvent(Field.CredentialsRequestTime);
+        metrics.incrementCounter(Field.RequestCount);
+        metrics.startEvent(Field.RequestSigningTime);
+        metrics.endEvent(Field.RequestSigningTime);
+        metrics.setCounter(Field.HttpClientPoolAvailableCount, 10);
+        metrics.setCounter(Field.HttpClientPoolLeasedCount, 1);
+        metrics.setCounter(Field.HttpClientPoolPendingCount, 0);
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+        metrics.addProperty(Field.StatusCode, 200);
+        metrics.addProperty(Field.AWSRequestID, "2VP3LPP3U1VB9M9SCS1DM17QI7VV4KQNSO5AEMVJF66Q9ASUAAJG");
+        metrics.startEvent(Field.ResponseProcessingTime);
+        metrics.endEvent(Field.ResponseProcessingTime);
+        metrics.endEvent(Field.ClientExecuteTime);
+        metrics.getTimingInfo().endTiming();
+        return metrics;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.transform.DescribeInstancesResultStaxUnmarshaller;
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+
+/**
+ * Measures the unmarshalling of large XML responses: EC2 DescribeInstances via
+ * {@link StaxUnmarshallerContext}, in both its event reader and cursor modes,
+ * and S3 ListObjects via {@link XmlResponsesSaxParser}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class XmlBenchmark {
+    /**
+     * The number of EC2 reservations, of two instances each, and of S3
+     * objects in the responses.
+     */
+    @Param({"10", "500"})
+    public int size;
+
+    private final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    private byte[] describeInstancesResponse;
+    private byte[] listObjectsResponse;
+
+    @Setup
+    public void setup() {
+        describeInstancesResponse = Fixtures.describeInstancesResponse(size);
+        listObjectsResponse = Fixtures.listObjectsResponse(size);
+    }
+
+    @Benchmark
+    public DescribeInstancesResult unmarshallDescribeInstances() throws Exception {
+        XMLStreamReader streamReader = xmlInputFactory.createXMLStreamReader(
+                new ByteArrayInputStream(describeInstancesResponse));
+        try {
+            return unmarshall(new StaxUnmarshallerContext(streamReader, null));
+        } finally {
+            streamReader.close();
+        }
+    }
+
+    @Benchmark
+    public DescribeInstancesResult unmarshallDescribeInstancesWithEventReader()
+            throws Exception {
+        XMLEventReader eventReader = xmlInputFactory.createXMLEventReader(
+                new ByteArrayInputStream(describeInstancesResponse));
+        try {
+            return unmarshall(new StaxUnmarshallerContext(eventReader, null));
+        } finally {
+            eventReader.close();
+        }
+    }
+
+    private static DescribeInstancesResult unmarshall(
+            StaxUnmarshallerContext context) throws Exception {
+        context.registerMetadataExpression("ResponseMetadata/RequestId", 2,
+                ResponseMetadata.AWS_REQUEST_ID);
+        context.registerMetadataExpression("requestId", 2,
+                ResponseMetadata.AWS_REQUEST_ID);
+        return DescribeInstancesResultStaxUnmarshaller.getInstance().unmarshall(context);
+    }
+
+    @Benchmark
+    public Object parseListObjects() throws Exception {
+        return new XmlResponsesSaxParser().parseListBucketObjectsResponse(
+                new ByteArrayInputStream(listObjectsResponse)).getObjectListing();
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+/**
+ * JMH benchmarks of the request and response hot paths of the SDK.
+ * <p>
+ * Build and run them from the root of the source tree with:
+ *
+ * <pre>
+ * mvn install -pl aws-java-sdk-benchmarks -am -DskipTests
+ * java -jar aws-java-sdk-benchmarks/target/benchmarks.jar [regexp] [JMH options]
+ * </pre>
+ *
+ * For example, <code>java -jar benchmarks.jar Json -p attributesPerType=10
+ * -prof gc</code> runs the JSON benchmarks on items of 10 attributes of each
+ * type, and reports their allocation rates. None of the benchmarks needs
+ * network access or AWS credentials; the end-to-end ones run against a local
+ * {@link com.amazonaws.benchmarks.MockServer}.
+ */
+package com.amazonaws.benchmarks;
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the content ciphers of the S3 encryption client,
+ * streaming 1 MiB of content through a {@link CipherLiteInputStream} with the
+ * given cipher buffer size (see
+ * {@link com.amazonaws.services.s3.model.CryptoConfiguration#setCipherBufferSize}).
+ * The baseline benchmarks process the same content in chunks of the same size
+ * with {@link Cipher#update(byte[], int, int)}, which allocates a new output
+ * array for every chunk, as the stream used to.
+ * <p>
+ * Lives in the package of the ciphers, which are not public.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CipherLiteBenchmark {
+    private static final int CONTENT_LENGTH = 1 << 20;
+
+    @Param({"AES_GCM", "AES_CTR", "AES_CBC"})
+    public String scheme;
+
+    @Param({"2048", "16384"})
+    public int cipherBufferSize;
+
+    private ContentCryptoScheme contentCryptoScheme;
+    private SecretKey cek;
+    private byte[] iv;
+    private byte[] plaintext;
+    private byte[] ciphertext;
+    private final byte[] readBuffer = new byte[64 * 1024];
+
+    @Setup
+    public void setup() throws Exception {
+        CryptoRuntime.enableBouncyCastle();
+        CryptoRuntime.recheckAesGcmAvailablility();
+        if ("AES_GCM".equals(scheme)) {
+            contentCryptoScheme = ContentCryptoScheme.AES_GCM;
+        } else if ("AES_CTR".equals(scheme)) {
+            contentCryptoScheme = ContentCryptoScheme.AES_CTR;
+        } else {
+            contentCryptoScheme = ContentCryptoScheme.AES_CBC;
+        }
+        Random random = new Random(CONTENT_LENGTH);
+        byte[] key = new byte[contentCryptoScheme.getKeyLengthInBits() / 8];
+        random.nextBytes(key);
+        cek = new SecretKeySpec(key, "AES");
+        iv = new byte[contentCryptoScheme.getIVLengthInBytes()];
+        random.nextBytes(iv);
+        plaintext = new byte[CONTENT_LENGTH];
+        random.nextBytes(plaintext);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(CONTENT_LENGTH + 32);
+        InputStream in = newStream(plaintext, Cipher.ENCRYPT_MODE);
+        int read;
+        while ((read = in.read(readBuffer)) != -1)
+            out.write(readBuffer, 0, read);
+        ciphertext = out.toByteArray();
+    }
+
+    private InputStream newStream(byte[] content, int cipherMode)
+            throws Exception {
+        CipherLite cipherLite = contentCryptoScheme.createCipherLite(cek, iv,
+                cipherMode);
+        return new CipherLiteInputStream(new ByteArrayInputStream(content),
+                cipherLite, cipherBufferSize);
+    }
+
+    private long drain(InputStream in) throws Exception {
+        long total = 0;
+        int read;
+        while ((read = in.read(readBuffer)) != -1)
+            total += read;
+        return total;
+    }
+
+    @Benchmark
+    public long encrypt() throws Exception {
+        return drain(newStream(plaintext, Cipher.ENCRYPT_MODE));
+    }
+
+    @Benchmark
+    public long decrypt() throws Exception {
+        return drain(newStream(ciphertext, Cipher.DECRYPT_MODE));
+    }
+
+    @Benchmark
+    public long encryptBaseline() throws Exception {
+        return updateInChunks(plaintext, Cipher.ENCRYPT_MODE);
+    }
+
+    @Benchmark
+    public long decryptBaseline() throws Exception {
+        return updateInChunks(ciphertext, Cipher.DECRYPT_MODE);
+    }
+
+    /**
+     * Processes the given content in chunks of the cipher buffer size, with a
+     * new output array for every chunk.
+     */
+    private long updateInChunks(byte[] content, int cipherMode)
+            throws Exception {
+        Cipher cipher = contentCryptoScheme.createCipherLite(cek, iv,
+                cipherMode).getCipher();
+        long total = 0;
+        for (int offset = 0; offset < content.length; offset += cipherBufferSize) {
+            byte[] output = cipher.update(content, offset,
+                    Math.min(cipherBufferSize, content.length - offset));
+            if (output != null)
+                total += output.length;
+        }
+        return total + cipher.doFinal().length;
+    }
+}
@@ -385,6 +385,25 @@ public abstract class AmazonWebServiceClient {
         client.shutdown();
     }
 
+    /**
+     * Opens the given number of pooled connections to the endpoint of this
+     * client ahead of its first requests, so that they don't wait for DNS
+     * resolution, TCP connection and TLS handshake. Connections already open
+     * count toward the given number. The connections are not used by requests
+     * to other hosts than that of the endpoint, such as the virtual hosted
+     * buckets of Amazon S3.
+     *
+     * @param connections
+     *            The number of connections, which is capped to the maximum
+     *            number of connections of the client.
+     * @return The number of open connections to the endpoint, which is less
+     *         than requested if some connections couldn't be opened within
+     *         the connection timeout.
+     */
+    public int prewarmConnections(int connections) {
+        return client.prewarmConnections(endpoint, connections);
+    }
+
     /**
      * @deprecated by {@link #addRequestHandler(RequestHandler2)}.
      *
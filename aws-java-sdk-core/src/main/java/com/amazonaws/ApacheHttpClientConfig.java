@@ -14,6 +14,8 @@
  */
 package com.amazonaws;
 
+import javax.net.ssl.SSLContext;
+
 import org.apache.http.annotation.NotThreadSafe;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 
@@ -24,11 +26,13 @@ import org.apache.http.conn.ssl.SSLSocketFactory;
 @NotThreadSafe
 public final class ApacheHttpClientConfig {
     private SSLSocketFactory sslSocketFactory;
+    private SSLContext sslContext;
 
     ApacheHttpClientConfig() {}
 
     ApacheHttpClientConfig(ApacheHttpClientConfig that) {
         this.sslSocketFactory = that.sslSocketFactory;
+        this.sslContext = that.sslContext;
     }
 
     /**
@@ -61,4 +65,40 @@ public final class ApacheHttpClientConfig {
         this.sslSocketFactory = sslSocketFactory;
         return this;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the SSL context of the HTTPS connections when no custom SSL
+     * socket factory is set; or null to use the default SSL context.
+     */
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * Sets the SSL context of the HTTPS connections when no custom SSL socket
+     * factory is set. TLS sessions are cached by the SSL context, so that the
+     * connections of all the clients with the same SSL context resume the
+     * sessions previously established with the same host rather than going
+     * through a full TLS handshake. The size and timeout of the cache can be
+     * tuned via {@link SSLContext#getClientSessionContext()}.
+     *
+     * @param sslContext the SSL context; or null to use
+     * {@link SSLContext#getDefault()}, which is shared by all the clients
+     * using it.
+     */
+    public void setSslContext(SSLContext sslContext) {
+        this.sslContext = sslContext;
+    }
+
+    /**
+     * Fluent API for setting the SSL context of the HTTPS connections.
+     *
+     * @param sslContext the SSL context; or null to use the default SSL
+     * context.
+     * @see #setSslContext(SSLContext)
+     */
+    public ApacheHttpClientConfig withSslContext(SSLContext sslContext) {
+        this.sslContext = sslContext;
+        return this;
+    }
+}
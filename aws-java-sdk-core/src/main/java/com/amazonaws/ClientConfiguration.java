@@ -19,7 +19,10 @@ import java.net.InetAddress;
 import org.apache.http.annotation.NotThreadSafe;
 
 import com.amazonaws.http.IdleConnectionReaper;
+import com.amazonaws.http.SharedConnectionPool;
 import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.HedgingPolicy;
+import com.amazonaws.retry.RateLimitPolicy;
 import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.util.VersionInfoUtils;
 
@@ -36,6 +39,15 @@ public class ClientConfiguration {
     /** The default timeout for reading from a connected socket. */
     public static final int DEFAULT_SOCKET_TIMEOUT = 50 * 1000;
 
+    /** The default timeout for an HTTP request attempt; disabled by default. */
+    public static final int DEFAULT_REQUEST_TIMEOUT = 0;
+
+    /**
+     * The default timeout for the execution of a request including its
+     * retries; disabled by default.
+     */
+    public static final int DEFAULT_CLIENT_EXECUTION_TIMEOUT = 0;
+
     /** The default max connection pool size. */
     public static final int DEFAULT_MAX_CONNECTIONS = 50;
 
@@ -105,6 +117,18 @@ public class ClientConfiguration {
     /** The retry policy upon failed requests. **/
     private RetryPolicy retryPolicy = DEFAULT_RETRY_POLICY;
 
+    /**
+     * The client side rate limit policy, or null if requests are sent without
+     * client side rate limiting.
+     */
+    private RateLimitPolicy rateLimitPolicy;
+
+    /**
+     * The policy for hedging slow requests, or null if requests are never
+     * hedged.
+     */
+    private HedgingPolicy hedgingPolicy;
+
     /** Optionally specifies the local address to bind to */
     private InetAddress localAddress;
 
@@ -143,6 +167,12 @@ public class ClientConfiguration {
     /** The maximum number of open HTTP connections. */
     private int maxConnections = DEFAULT_MAX_CONNECTIONS;
 
+    /**
+     * The connection pool shared with other clients, or null if the client
+     * has its own connection pool.
+     */
+    private SharedConnectionPool sharedConnectionPool;
+
     /**
      * The amount of time to wait (in milliseconds) for data to be transfered
      * over an established, open connection before the connection is timed out.
@@ -157,6 +187,20 @@ public class ClientConfiguration {
      */
     private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
 
+    /**
+     * The amount of time to wait (in milliseconds) for a single HTTP request
+     * attempt to complete, including reading and handling the response, before
+     * aborting it. A value of 0 means no timeout.
+     */
+    private int requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+    /**
+     * The amount of time to wait (in milliseconds) for the execution of a
+     * request to complete, including all its retries and the pauses between
+     * them, before giving up. A value of 0 means no timeout.
+     */
+    private int clientExecutionTimeout = DEFAULT_CLIENT_EXECUTION_TIMEOUT;
+
     /**
      * Optional size hint (in bytes) for the low level TCP send buffer. This is
      * an advanced option for advanced users who want to tune low level TCP
@@ -237,9 +281,14 @@ public class ClientConfiguration {
 
     public ClientConfiguration(ClientConfiguration other) {
         this.connectionTimeout           = other.connectionTimeout;
+        this.requestTimeout              = other.requestTimeout;
+        this.clientExecutionTimeout      = other.clientExecutionTimeout;
         this.maxConnections              = other.maxConnections;
+        this.sharedConnectionPool        = other.sharedConnectionPool;
         this.maxErrorRetry               = other.maxErrorRetry;
         this.retryPolicy                 = other.retryPolicy;
+        this.rateLimitPolicy             = other.rateLimitPolicy;
+        this.hedgingPolicy               = other.hedgingPolicy;
         this.localAddress                = other.localAddress;
         this.protocol                    = other.protocol;
         this.proxyDomain                 = other.proxyDomain;
@@ -353,6 +402,47 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the connection pool shared with other clients, or null if the
+     * client has its own connection pool.
+     *
+     * @return The shared connection pool, or null if there is none.
+     */
+    public SharedConnectionPool getSharedConnectionPool() {
+        return sharedConnectionPool;
+    }
+
+    /**
+     * Sets the connection pool to share with the other clients configured
+     * with the same pool, so that they reuse each other's connections and are
+     * subject to a common connection limit. When set, the maximum number of
+     * connections, the connection TTL, the DNS resolver, the SSL socket
+     * factory and the use of the idle connection reaper of this configuration
+     * are ignored in favor of those of the pool. By default, each client has
+     * its own connection pool.
+     *
+     * @param sharedConnectionPool
+     *            The shared connection pool, or null for the client to have
+     *            its own connection pool.
+     */
+    public void setSharedConnectionPool(SharedConnectionPool sharedConnectionPool) {
+        this.sharedConnectionPool = sharedConnectionPool;
+    }
+
+    /**
+     * Sets the connection pool to share with other clients, and returns the
+     * updated ClientConfiguration object.
+     *
+     * @param sharedConnectionPool
+     *            The shared connection pool, or null for the client to have
+     *            its own connection pool.
+     * @see #setSharedConnectionPool(SharedConnectionPool)
+     */
+    public ClientConfiguration withSharedConnectionPool(SharedConnectionPool sharedConnectionPool) {
+        setSharedConnectionPool(sharedConnectionPool);
+        return this;
+    }
+
     /**
      * Returns the HTTP user agent header to send with all requests.
      *
@@ -671,6 +761,84 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the client side rate limit policy, or null if requests are sent
+     * without client side rate limiting.
+     *
+     * @return The client side rate limit policy, or null if there is none.
+     */
+    public RateLimitPolicy getRateLimitPolicy() {
+        return rateLimitPolicy;
+    }
+
+    /**
+     * Sets the client side rate limit policy, which adapts the rate and
+     * concurrency at which requests are sent to the throttling responses
+     * received from the service, either for the whole client or for each of
+     * the endpoints it sends requests to. No client side rate limiting is
+     * performed by default.
+     * <p>
+     * The policy is read by the client when it first sends a request to an
+     * endpoint.
+     *
+     * @param rateLimitPolicy
+     *            The client side rate limit policy, or null to disable client
+     *            side rate limiting.
+     */
+    public void setRateLimitPolicy(RateLimitPolicy rateLimitPolicy) {
+        this.rateLimitPolicy = rateLimitPolicy;
+    }
+
+    /**
+     * Sets the client side rate limit policy, and returns the updated
+     * ClientConfiguration object.
+     *
+     * @param rateLimitPolicy
+     *            The client side rate limit policy, or null to disable client
+     *            side rate limiting.
+     * @see #setRateLimitPolicy(RateLimitPolicy)
+     */
+    public ClientConfiguration withRateLimitPolicy(RateLimitPolicy rateLimitPolicy) {
+        setRateLimitPolicy(rateLimitPolicy);
+        return this;
+    }
+
+    /**
+     * Returns the policy for hedging slow requests, or null if requests are
+     * never hedged.
+     *
+     * @return The hedging policy, or null if there is none.
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Sets the policy for hedging slow requests, which sends a second copy of
+     * an idempotent request of one of the configured types if it has not
+     * received a response after a percentile of the recent latencies of
+     * requests of the same type. No request is hedged by default.
+     *
+     * @param hedgingPolicy
+     *            The hedging policy, or null to disable hedging.
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Sets the policy for hedging slow requests, and returns the updated
+     * ClientConfiguration object.
+     *
+     * @param hedgingPolicy
+     *            The hedging policy, or null to disable hedging.
+     * @see #setHedgingPolicy(HedgingPolicy)
+     */
+    public ClientConfiguration withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        setHedgingPolicy(hedgingPolicy);
+        return this;
+    }
+
     /**
      * Returns the maximum number of retry attempts for failed retryable
      * requests (ex: 5xx error responses from a service). This method returns -1
@@ -805,6 +973,107 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the amount of time to wait (in milliseconds) for a single HTTP
+     * request attempt to complete, including reading and handling the
+     * response, before aborting it. A value of 0 means no timeout.
+     *
+     * @return The request timeout in milliseconds, or 0 if there is none.
+     */
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Sets the amount of time to wait (in milliseconds) for a single HTTP
+     * request attempt to complete, including reading and handling the
+     * response, before aborting it. Unlike the socket timeout, this bounds the
+     * time taken by a response that keeps trickling in. A request attempt
+     * aborted upon timeout fails with an {@link AmazonClientException} caused
+     * by an {@link com.amazonaws.http.HttpRequestTimeoutException}, and is
+     * retried according to the retry policy. A value of 0 means no timeout.
+     * <p>
+     * The HTTP requests are aborted by a single scheduler thread shared by all
+     * the clients.
+     *
+     * @param requestTimeout
+     *            The request timeout in milliseconds, or 0 for no timeout.
+     */
+    public void setRequestTimeout(int requestTimeout) {
+        if (requestTimeout < 0) {
+            throw new IllegalArgumentException("requestTimeout should be non-negative");
+        }
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Sets the amount of time to wait (in milliseconds) for a single HTTP
+     * request attempt to complete, and returns the updated ClientConfiguration
+     * object so that additional method calls may be chained together.
+     *
+     * @param requestTimeout
+     *            The request timeout in milliseconds, or 0 for no timeout.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setRequestTimeout(int)
+     */
+    public ClientConfiguration withRequestTimeout(int requestTimeout) {
+        setRequestTimeout(requestTimeout);
+        return this;
+    }
+
+    /**
+     * Returns the amount of time to wait (in milliseconds) for the execution of
+     * a request to complete, including all its retries and the pauses between
+     * them, before giving up. A value of 0 means no timeout.
+     *
+     * @return The client execution timeout in milliseconds, or 0 if there is
+     *         none.
+     */
+    public int getClientExecutionTimeout() {
+        return clientExecutionTimeout;
+    }
+
+    /**
+     * Sets the amount of time to wait (in milliseconds) for the execution of a
+     * request to complete, including all its retries and the pauses between
+     * them, before giving up. The HTTP request in progress when the timeout
+     * expires is aborted, no retry is attempted if its back-off pause would
+     * extend past the timeout, and the execution fails with a
+     * {@link ClientExecutionTimeoutException}. A value of 0 means no timeout.
+     * <p>
+     * The HTTP requests are aborted by a single scheduler thread shared by all
+     * the clients.
+     *
+     * @param clientExecutionTimeout
+     *            The client execution timeout in milliseconds, or 0 for no
+     *            timeout.
+     */
+    public void setClientExecutionTimeout(int clientExecutionTimeout) {
+        if (clientExecutionTimeout < 0) {
+            throw new IllegalArgumentException("clientExecutionTimeout should be non-negative");
+        }
+        this.clientExecutionTimeout = clientExecutionTimeout;
+    }
+
+    /**
+     * Sets the amount of time to wait (in milliseconds) for the execution of a
+     * request to complete, including all its retries, and returns the updated
+     * ClientConfiguration object so that additional method calls may be
+     * chained together.
+     *
+     * @param clientExecutionTimeout
+     *            The client execution timeout in milliseconds, or 0 for no
+     *            timeout.
+     *
+     * @return The updated ClientConfiguration object.
+     * @see #setClientExecutionTimeout(int)
+     */
+    public ClientConfiguration withClientExecutionTimeout(int clientExecutionTimeout) {
+        setClientExecutionTimeout(clientExecutionTimeout);
+        return this;
+    }
+
     /**
      * Checks if the {@link IdleConnectionReaper} is to be started
      *
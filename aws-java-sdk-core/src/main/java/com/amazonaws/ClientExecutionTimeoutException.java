@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws;
+
+/**
+ * Thrown when the execution of a request, including all its retries and the
+ * pauses between them, did not complete within the client execution timeout.
+ *
+ * @see ClientConfiguration#setClientExecutionTimeout(int)
+ */
+public class ClientExecutionTimeoutException extends AmazonClientException {
+    private static final long serialVersionUID = 1L;
+
+    public ClientExecutionTimeoutException(String message, Throwable t) {
+        super(message, t);
+    }
+
+    public ClientExecutionTimeoutException(String message) {
+        super(message);
+    }
+
+    /**
+     * {@inheritDoc}
+     * A client execution timeout exception is not intended to be retried.
+     */
+    @Override
+    public boolean isRetryable() {
+        return false;
+    }
+}
@@ -32,7 +32,6 @@ import static com.amazonaws.auth.internal.SignerConstants.X_AMZ_SIGNED_HEADER;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -46,12 +45,13 @@ import com.amazonaws.SignableRequest;
 import com.amazonaws.auth.internal.AWS4SignerRequestParams;
 import com.amazonaws.auth.internal.AWS4SignerUtils;
 import com.amazonaws.auth.internal.SignerKey;
-import com.amazonaws.internal.FIFOCache;
+import com.amazonaws.internal.ConcurrentFIFOCache;
 import com.amazonaws.log.InternalLogApi;
 import com.amazonaws.log.InternalLogFactory;
 import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.SdkHttpUtils;
+import com.amazonaws.util.StringUtils;
 
 /**
  * Signer implementation that signs requests with the AWS4 signing protocol.
@@ -61,7 +61,7 @@ public class AWS4Signer extends AbstractAWSSigner implements
 
     protected static final InternalLogApi log = InternalLogFactory.getLog(AWS4Signer.class);
     private static final int SIGNER_CACHE_MAX_SIZE = 300;
-    private static final FIFOCache<SignerKey> signerCache = new FIFOCache<SignerKey>(SIGNER_CACHE_MAX_SIZE);
+    private static final ConcurrentFIFOCache<SignerKey> signerCache = new ConcurrentFIFOCache<SignerKey>(SIGNER_CACHE_MAX_SIZE);
 
     /**
      * Service name override for use when the endpoint can't be used to
@@ -279,10 +279,10 @@ public class AWS4Signer extends AbstractAWSSigner implements
         final String path = SdkHttpUtils.appendUri(
                 request.getEndpoint().getPath(), request.getResourcePath());
 
-        final StringBuilder canonicalRequestBuilder = new StringBuilder(request
-                .getHttpMethod().toString());
+        final StringBuilder canonicalRequestBuilder = new StringBuilder(512);
 
-        canonicalRequestBuilder.append(LINE_SEPARATOR)
+        canonicalRequestBuilder.append(request.getHttpMethod().toString())
+                .append(LINE_SEPARATOR)
                 // This would optionally double url-encode the resource path
                 .append(getCanonicalizedResourcePath(path, doubleUrlEncode))
                 .append(LINE_SEPARATOR)
@@ -384,7 +384,7 @@ public class AWS4Signer extends AbstractAWSSigner implements
      */
     protected final byte[] computeSignature(String stringToSign,
             byte[] signingKey, AWS4SignerRequestParams signerRequestParams) {
-        return sign(stringToSign.getBytes(Charset.forName("UTF-8")), signingKey,
+        return sign(stringToSign.getBytes(StringUtils.UTF8), signingKey,
                 SigningAlgorithm.HmacSHA256);
     }
 
@@ -448,14 +448,14 @@ public class AWS4Signer extends AbstractAWSSigner implements
         Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
 
         final Map<String, String> requestHeaders = request.getHeaders();
-        StringBuilder buffer = new StringBuilder();
+        StringBuilder buffer = new StringBuilder(sortedHeaders.size() * 32);
         for (String header : sortedHeaders) {
-            String key = header.toLowerCase().replaceAll("\\s+", " ");
             String value = requestHeaders.get(header);
 
-            buffer.append(key).append(":");
+            appendCompactedString(buffer, header.toLowerCase());
+            buffer.append(":");
             if (value != null) {
-                buffer.append(value.replaceAll("\\s+", " "));
+                appendCompactedString(buffer, value);
             }
 
             buffer.append("\n");
@@ -464,6 +464,37 @@ public class AWS4Signer extends AbstractAWSSigner implements
         return buffer.toString();
     }
 
+    /**
+     * Appends the given string to the buffer, with every run of whitespace
+     * characters replaced by a single space. This is equivalent to
+     * <code>replaceAll("\\s+", " ")</code>, without compiling a pattern and
+     * allocating an intermediate string for every header.
+     */
+    private static void appendCompactedString(StringBuilder buffer, String source) {
+        boolean previousIsWhiteSpace = false;
+        int length = source.length();
+        for (int i = 0; i < length; i++) {
+            char ch = source.charAt(i);
+            if (isWhiteSpace(ch)) {
+                if (!previousIsWhiteSpace) {
+                    buffer.append(' ');
+                    previousIsWhiteSpace = true;
+                }
+            } else {
+                buffer.append(ch);
+                previousIsWhiteSpace = false;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the character is matched by the regex <code>\s</code>.
+     */
+    private static boolean isWhiteSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000b'
+                || ch == '\r' || ch == '\f';
+    }
+
     protected String getSignedHeadersString(SignableRequest<?> request) {
         final List<String> sortedHeaders = new ArrayList<String>(request
                 .getHeaders().keySet());
@@ -572,7 +603,7 @@ public class AWS4Signer extends AbstractAWSSigner implements
     private byte[] newSigningKey(AWSCredentials credentials,
             String dateStamp, String regionName, String serviceName) {
         byte[] kSecret = ("AWS4" + credentials.getAWSSecretKey())
-                .getBytes(Charset.forName("UTF-8"));
+                .getBytes(StringUtils.UTF8);
         byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
         byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
         byte[] kService = sign(serviceName, kRegion,
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth;
+
+import static com.amazonaws.auth.internal.SignerConstants.X_AMZ_CONTENT_SHA256;
+
+import java.util.Map;
+
+import com.amazonaws.SignableRequest;
+import com.amazonaws.auth.internal.AWS4SignerRequestParams;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * AWS4 signer that signs the request payload as it is being sent, using the
+ * <code>aws-chunked</code> content encoding, instead of reading and hashing
+ * the whole payload before the request is sent.
+ * <p>
+ * This saves a pass over large payloads, and doesn't require the payload
+ * stream to be reset after hashing it. Only requests with a payload of a
+ * known length (as given by the Content-Length header) are streamed; the
+ * payload of any other request is hashed up front, as with
+ * {@link AWS4Signer}.
+ * <p>
+ * The service being called must support the <code>aws-chunked</code> content
+ * encoding. To use this signer for a client, set the signer override of its
+ * {@link com.amazonaws.ClientConfiguration} to
+ * {@value SignerFactory#VERSION_FOUR_STREAMING_SIGNER}.
+ */
+public class AWS4StreamingSigner extends AWS4Signer {
+    private static final String STREAMING_CONTENT_SHA256 = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
+    private static final String AWS_CHUNKED_ENCODING = "aws-chunked";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String X_AMZ_DECODED_CONTENT_LENGTH = "x-amz-decoded-content-length";
+
+    /**
+     * Construct a new streaming AWS4 signer instance. By default, enable
+     * double url-encoding.
+     */
+    public AWS4StreamingSigner() {
+        this(true);
+    }
+
+    /**
+     * Construct a new streaming AWS4 signer instance.
+     *
+     * @param doubleUrlEncoding
+     *            Whether double url-encode the resource path when constructing
+     *            the canonical request.
+     */
+    public AWS4StreamingSigner(boolean doubleUrlEncoding) {
+        super(doubleUrlEncoding);
+    }
+
+    /**
+     * Returns the pre-defined streaming payload hash and sets the headers of
+     * the <code>aws-chunked</code> encoding, if the payload can be streamed.
+     * Otherwise calls the superclass method which calculates the hash of the
+     * whole content for signing.
+     */
+    @Override
+    protected String calculateContentHash(SignableRequest<?> request) {
+        final long originalContentLength = getStreamableContentLength(request);
+        if (originalContentLength < 0) {
+            return super.calculateContentHash(request);
+        }
+        request.addHeader(X_AMZ_CONTENT_SHA256, STREAMING_CONTENT_SHA256);
+        request.addHeader(X_AMZ_DECODED_CONTENT_LENGTH,
+                Long.toString(originalContentLength));
+        removeHeader(request, CONTENT_LENGTH);
+        request.addHeader(CONTENT_LENGTH, Long.toString(AwsChunkedEncodingInputStream
+                .calculateStreamContentLength(originalContentLength)));
+
+        final String contentEncoding = removeHeader(request, CONTENT_ENCODING);
+        request.addHeader(CONTENT_ENCODING, contentEncoding == null
+                ? AWS_CHUNKED_ENCODING
+                : AWS_CHUNKED_ENCODING + "," + contentEncoding);
+        return STREAMING_CONTENT_SHA256;
+    }
+
+    /**
+     * Calculates the payload hash the way {@link AWS4Signer} does, since a
+     * presigned URL can't carry a payload in the <code>aws-chunked</code>
+     * encoding.
+     */
+    @Override
+    protected String calculateContentHashPresign(SignableRequest<?> request) {
+        return super.calculateContentHash(request);
+    }
+
+    /**
+     * Wraps the request payload in a stream that signs each chunk as it is
+     * read, if the payload is being streamed.
+     */
+    @Override
+    protected void processRequestPayload(SignableRequest<?> request,
+            byte[] signature, byte[] signingKey,
+            AWS4SignerRequestParams signerRequestParams) {
+        if (STREAMING_CONTENT_SHA256.equals(request.getHeaders().get(X_AMZ_CONTENT_SHA256))) {
+            request.setContent(new AwsChunkedEncodingInputStream(
+                    request.getContent(), signingKey,
+                    signerRequestParams.getFormattedSigningDateTime(),
+                    signerRequestParams.getScope(),
+                    BinaryUtils.toHex(signature), this));
+        }
+    }
+
+    /**
+     * Returns the length of the request payload if it can be streamed; or -1
+     * if it has to be hashed before the request is sent.
+     */
+    private static long getStreamableContentLength(SignableRequest<?> request) {
+        if (request.getContent() == null) {
+            return -1;
+        }
+        final String contentLength = getHeader(request, CONTENT_LENGTH);
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            final long length = Long.parseLong(contentLength.trim());
+            return length > 0 ? length : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String getHeader(SignableRequest<?> request, String name) {
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given header from the request, whatever the case of its
+     * name, and returns its value.
+     */
+    private static String removeHeader(SignableRequest<?> request, String name) {
+        String value = null;
+        for (String key : request.getHeaders().keySet().toArray(new String[0])) {
+            if (key.equalsIgnoreCase(name)) {
+                value = request.getHeaders().get(key);
+                request.getHeaders().remove(key);
+            }
+        }
+        return value;
+    }
+}
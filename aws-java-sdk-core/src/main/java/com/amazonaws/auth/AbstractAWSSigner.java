@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -53,10 +54,36 @@ import com.amazonaws.util.SdkHttpUtils;
 public abstract class AbstractAWSSigner implements Signer {
     public static final String EMPTY_STRING_SHA256_HEX;
 
+    /**
+     * MessageDigest instances are expensive to create, and not thread safe,
+     * so each thread reuses its own.
+     */
+    private static final ThreadLocal<MessageDigest> SHA256_MESSAGE_DIGEST;
+
     static {
+        SHA256_MESSAGE_DIGEST = new ThreadLocal<MessageDigest>() {
+            @Override
+            protected MessageDigest initialValue() {
+                try {
+                    return MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new AmazonClientException(
+                            "Unable to get SHA256 Function" + e.getMessage(), e);
+                }
+            }
+        };
         EMPTY_STRING_SHA256_HEX = BinaryUtils.toHex(doHash(""));
     }
 
+    /**
+     * Returns the thread local SHA-256 MessageDigest, reset for a new digest.
+     */
+    private static MessageDigest getMessageDigestInstance() {
+        MessageDigest messageDigest = SHA256_MESSAGE_DIGEST.get();
+        messageDigest.reset();
+        return messageDigest;
+    }
+
     /**
      * Computes an RFC 2104-compliant HMAC signature and returns the result as a
      * Base64 encoded string.
@@ -107,7 +134,7 @@ public abstract class AbstractAWSSigner implements Signer {
     protected byte[] sign(byte[] data, byte[] key,
             SigningAlgorithm algorithm) throws AmazonClientException {
         try {
-            Mac mac = Mac.getInstance(algorithm.toString());
+            Mac mac = algorithm.getMac();
             mac.init(new SecretKeySpec(key, algorithm.toString()));
             return mac.doFinal(data);
         } catch (Exception e) {
@@ -135,7 +162,7 @@ public abstract class AbstractAWSSigner implements Signer {
 
     private static byte[] doHash(String text) throws AmazonClientException {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = getMessageDigestInstance();
             md.update(text.getBytes(UTF8));
             return md.digest();
         } catch (Exception e) {
@@ -147,6 +174,8 @@ public abstract class AbstractAWSSigner implements Signer {
 
     protected byte[] hash(InputStream input) throws AmazonClientException {
         try {
+            // Not the thread local instance, as reading the stream may
+            // itself compute hashes
             MessageDigest md = MessageDigest.getInstance("SHA-256");
             @SuppressWarnings("resource")
             DigestInputStream digestInputStream = new SdkDigestInputStream(
@@ -175,7 +204,7 @@ public abstract class AbstractAWSSigner implements Signer {
      */
     public byte[] hash(byte[] data) throws AmazonClientException {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = getMessageDigestInstance();
             md.update(data);
             return md.digest();
         } catch (Exception e) {
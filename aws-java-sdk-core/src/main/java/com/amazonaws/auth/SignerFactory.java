@@ -26,6 +26,11 @@ public final class SignerFactory {
     private static final String QUERY_STRING_SIGNER = "QueryStringSignerType";
     private static final String VERSION_THREE_SIGNER = "AWS3SignerType";
     private static final String VERSION_FOUR_SIGNER = "AWS4SignerType";
+    /**
+     * The signer type of {@link AWS4StreamingSigner}, which signs the request
+     * payload as it is sent, in <code>aws-chunked</code> encoding.
+     */
+    public static final String VERSION_FOUR_STREAMING_SIGNER = "AWS4StreamingSignerType";
     private static final String NO_OP_SIGNER = "NoOpSignerType";
 
     private static final Map<String, Class<? extends Signer>> SIGNERS
@@ -36,6 +41,7 @@ public final class SignerFactory {
         SIGNERS.put(QUERY_STRING_SIGNER, QueryStringSigner.class);
         SIGNERS.put(VERSION_THREE_SIGNER, AWS3Signer.class);
         SIGNERS.put(VERSION_FOUR_SIGNER, AWS4Signer.class);
+        SIGNERS.put(VERSION_FOUR_STREAMING_SIGNER, AWS4StreamingSigner.class);
         SIGNERS.put(NO_OP_SIGNER, NoOpSigner.class);
     }
 
@@ -14,9 +14,44 @@
  */
 package com.amazonaws.auth;
 
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+
+import com.amazonaws.AmazonClientException;
+
 public enum SigningAlgorithm {
-    
+
     HmacSHA1,
     HmacSHA256;
 
+    /**
+     * Mac instances are expensive to create, and not thread safe, so each
+     * thread reuses its own.
+     */
+    private final ThreadLocal<Mac> macReference;
+
+    private SigningAlgorithm() {
+        final String algorithmName = this.toString();
+        macReference = new ThreadLocal<Mac>() {
+            @Override
+            protected Mac initialValue() {
+                try {
+                    return Mac.getInstance(algorithmName);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new AmazonClientException("Unable to fetch Mac instance for Algorithm "
+                            + algorithmName + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the thread local reference for the crypto algorithm. The
+     * caller must initialize it with a key before use. Kept package-private
+     * since the instance is shared by every signer on the calling thread.
+     */
+    Mac getMac() {
+        return macReference.get();
+    }
 }
@@ -21,13 +21,18 @@ import static com.amazonaws.event.SDKProgressPublisher.publishResponseContentLen
 import static com.amazonaws.util.AWSRequestMetrics.Field.AWSErrorCode;
 import static com.amazonaws.util.AWSRequestMetrics.Field.AWSRequestID;
 import static com.amazonaws.util.AWSRequestMetrics.Field.Exception;
+import static com.amazonaws.util.AWSRequestMetrics.Field.HedgedRequestCount;
+import static com.amazonaws.util.AWSRequestMetrics.Field.HedgedRequestWinCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolAvailableCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolLeasedCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolPendingCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpRequestTime;
+import static com.amazonaws.util.AWSRequestMetrics.Field.RateLimiterWaitTime;
 import static com.amazonaws.util.AWSRequestMetrics.Field.RedirectLocation;
 import static com.amazonaws.util.AWSRequestMetrics.Field.RequestCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.RequestSigningTime;
+import static com.amazonaws.util.AWSRequestMetrics.Field.RetryCapacityConsumed;
+import static com.amazonaws.util.AWSRequestMetrics.Field.RetryCapacityExhausted;
 import static com.amazonaws.util.AWSRequestMetrics.Field.RetryPauseTime;
 import static com.amazonaws.util.AWSRequestMetrics.Field.ServiceEndpoint;
 import static com.amazonaws.util.AWSRequestMetrics.Field.ServiceName;
@@ -39,7 +44,6 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -48,23 +52,30 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import javax.net.ssl.SSLContext;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.AbstractHttpClient;
 import org.apache.http.pool.ConnPoolControl;
 import org.apache.http.pool.PoolStats;
 import org.apache.http.protocol.BasicHttpContext;
@@ -76,6 +87,7 @@ import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.AmazonWebServiceResponse;
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.ClientExecutionTimeoutException;
 import com.amazonaws.Request;
 import com.amazonaws.RequestClientOptions;
 import com.amazonaws.RequestClientOptions.Marker;
@@ -97,12 +109,17 @@ import com.amazonaws.internal.ResettableInputStream;
 import com.amazonaws.internal.SdkBufferedInputStream;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.AdaptiveRateLimiter;
+import com.amazonaws.retry.HedgingPolicy;
+import com.amazonaws.retry.RateLimitPolicy;
+import com.amazonaws.retry.RetryCapacity;
 import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.retry.internal.AuthErrorRetryStrategy;
 import com.amazonaws.retry.internal.AuthRetryParameters;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AwsHostNameUtils;
 import com.amazonaws.util.CollectionUtils;
 import com.amazonaws.util.CountingInputStream;
 import com.amazonaws.util.DateUtils;
@@ -156,6 +173,12 @@ public class AmazonHttpClient {
     /** Client configuration options, such as proxy settings, max retries, etc. */
     private final ClientConfiguration config;
 
+    /**
+     * The connection pool this client shares with other clients, or null if
+     * the connection pool of this client is its own.
+     */
+    private final SharedConnectionPool sharedConnectionPool;
+
     /** Cache of metadata for recently executed requests for diagnostic purposes */
     private final ResponseMetadataCache responseMetadataCache;
 
@@ -171,6 +194,30 @@ public class AmazonHttpClient {
     /** The time difference in seconds between this client and AWS. */
     private volatile int timeOffset = SDKGlobalTime.getGlobalTimeOffset();
 
+    /**
+     * The client side rate limiters of this client, created on demand when a
+     * rate limit policy is configured, keyed by the region of the endpoint if
+     * the policy is per endpoint. Keying by region rather than host keeps the
+     * number of rate limiters bounded when each request has its own host, as
+     * with virtual hosted Amazon S3 buckets.
+     */
+    private final ConcurrentMap<String, AdaptiveRateLimiter> rateLimiters =
+        new ConcurrentHashMap<String, AdaptiveRateLimiter>();
+
+    /**
+     * The retry capacity shared by the requests of this client, created on
+     * demand by the retry capacity factory of the retry policy in use.
+     */
+    private final ConcurrentMap<RetryPolicy.RetryCapacityFactory, RetryCapacity> retryCapacities =
+        new ConcurrentHashMap<RetryPolicy.RetryCapacityFactory, RetryCapacity>();
+
+    /**
+     * The latencies of the requests of each type hedged by the hedging policy
+     * in use, created on demand.
+     */
+    private final ConcurrentMap<Class<?>, LatencyTracker> latencyTrackers =
+        new ConcurrentHashMap<Class<?>, LatencyTracker>();
+
     /**
      * Constructs a new AWS client using the specified client configuration
      * options (ex: max retry attempts, proxy settings, etc).
@@ -209,6 +256,7 @@ public class AmazonHttpClient {
             RequestMetricCollector requestMetricCollector) {
 
         this.config = config;
+        this.sharedConnectionPool = config.getSharedConnectionPool();
         this.httpClient = httpClient;
         this.requestMetricCollector = requestMetricCollector;
         this.responseMetadataCache = new ResponseMetadataCache(config.getResponseMetadataCacheSize());
@@ -247,19 +295,25 @@ public class AmazonHttpClient {
             return;
         }
 
-        try {
-            SchemeRegistry schemeRegistry = httpClient.getConnectionManager().getSchemeRegistry();
-            SSLSocketFactory sf = config.getApacheHttpClientConfig().getSslSocketFactory();
-            if (sf == null) {
-                sf = new SdkTLSSocketFactory(
-                        SSLContext.getDefault(),
-                        SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
-            }
-            Scheme https = new Scheme("https", 443, sf);
-            schemeRegistry.register(https);
-        } catch (NoSuchAlgorithmException e) {
-            throw new AmazonClientException("Unable to access default SSL context to disable strict hostname verification");
+        /*
+         * The schemes of a shared connection pool are those of all the clients
+         * using it, which must not be changed for a single client; the client
+         * disables strict hostname verification for its endpoint in the pool
+         * instead, see SharedConnectionPool#disableStrictHostnameVerification.
+         */
+        if (sharedConnectionPool != null) {
+            return;
         }
+
+        SchemeRegistry schemeRegistry = httpClient.getConnectionManager().getSchemeRegistry();
+        SSLSocketFactory sf = config.getApacheHttpClientConfig().getSslSocketFactory();
+        if (sf == null) {
+            sf = new SdkTLSSocketFactory(
+                    HttpClientFactory.getSSLContext(config.getApacheHttpClientConfig()),
+                    SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+        }
+        Scheme https = new Scheme("https", 443, sf);
+        schemeRegistry.register(https);
     }
     /**
      * Executes the request and returns the result.
@@ -305,10 +359,12 @@ public class AmazonHttpClient {
             : ReleasableInputStream.wrap(toBeClosed).disableClose()
             ;
         request.setContent(notCloseable);
+        final HttpRequestTimer executionTimer =
+            HttpRequestTimer.start(config.getClientExecutionTimeout());
         try {
             publishProgress(listener, ProgressEventType.CLIENT_REQUEST_STARTED_EVENT);
             response = executeHelper(request, responseHandler,
-                    errorResponseHandler, executionContext);
+                    errorResponseHandler, executionContext, executionTimer);
             publishProgress(listener, ProgressEventType.CLIENT_REQUEST_SUCCESS_EVENT);
             TimingInfo timingInfo = awsRequestMetrics.getTimingInfo().endTiming();
             afterResponse(request, requestHandler2s, response, timingInfo);
@@ -318,6 +374,8 @@ public class AmazonHttpClient {
             afterError(request, response, requestHandler2s, e);
             throw e;
         } finally {
+            if (executionTimer != null)
+                executionTimer.complete();
             // Always close so any progress tracking would get the final events propagated.
             closeQuietly(toBeClosed, log);
             request.setContent(origContent); // restore the original content
@@ -431,11 +489,17 @@ public class AmazonHttpClient {
 
     /**
      * Internal method to execute the HTTP method given.
+     *
+     * @param executionTimer
+     *            the timer of the client execution timeout, which aborts the
+     *            HTTP request in progress upon timeout; or null if there is
+     *            no client execution timeout
      */
     private <T> Response<T> executeHelper(final Request<?> request,
             HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
             HttpResponseHandler<AmazonServiceException> errorResponseHandler,
-            final ExecutionContext executionContext) {
+            final ExecutionContext executionContext,
+            final HttpRequestTimer executionTimer) {
         /*
          * add the service endpoint to the logs. You can infer service name from
          * service endpoint
@@ -462,6 +526,8 @@ public class AmazonHttpClient {
             originalContent.mark(readLimit);
         }
         final ExecOneRequestParams p = new ExecOneRequestParams();
+        p.retryCapacity = retryCapacityFor(config.getRetryPolicy());
+        p.executionTimer = executionTimer;
         while (true) {
             p.initPerRetry();
             if (p.redirectedURI != null) {
@@ -485,13 +551,36 @@ public class AmazonHttpClient {
                 request.setHeaders(originalHeaders);
                 request.setContent(originalContent);
             }
+            Response<T> response = null;
+            RuntimeException runtimeException = null;
             try {
-                Response<T> response = executeOneRequest(request, responseHandler,
+                response = executeOneRequest(request, responseHandler,
                     errorResponseHandler, executionContext, awsRequestMetrics,
                     p);
-                if (response != null)
+                if (p.completeRequestTimer() && response != null
+                        && p.leaveHttpConnectionOpen) {
+                    // the response content left open to the caller has been
+                    // aborted
+                    throw newRequestTimeoutException(null);
+                }
+                if (response != null) {
+                    if (executionTimer != null && !executionTimer.complete()
+                            && p.leaveHttpConnectionOpen) {
+                        throw newClientExecutionTimeoutException(null);
+                    }
+                    p.retryCapacity.release(p.retryCapacityAcquired);
                     return response;
+                }
             } catch (IOException ioe) {
+                if (p.isExecutionTimedOut()) {
+                    throw lastReset(captureExceptionMetrics(
+                            newClientExecutionTimeoutException(ioe),
+                            awsRequestMetrics), request);
+                }
+                if (p.isRequestTimedOut()
+                        && !(ioe instanceof HttpRequestTimeoutException)) {
+                    ioe = newRequestTimeoutException(ioe);
+                }
                 if (log.isInfoEnabled()) {
                     log.info("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
                 }
@@ -501,15 +590,25 @@ public class AmazonHttpClient {
                         "Unable to execute HTTP request: " + ioe.getMessage(),
                         ioe);
                 if (!shouldRetry(request.getOriginalRequest(),
-                                p.apacheRequest,
+                                p,
                                 ace,
-                                p.requestCount,
-                                config.getRetryPolicy())) {
+                                config.getRetryPolicy(),
+                                awsRequestMetrics)) {
                     throw lastReset(ace, request);
                 }
                 // Cache the retryable exception
                 p.retriedException = ace;
             } catch(RuntimeException e) {
+                runtimeException = e;
+                if (e instanceof ClientExecutionTimeoutException) {
+                    // such as from the pause before the attempt
+                } else if (p.isExecutionTimedOut()) {
+                    e = newClientExecutionTimeoutException(e);
+                } else if (p.isRequestTimedOut()) {
+                    e = new AmazonClientException(
+                            "Unable to execute HTTP request: " + e.getMessage(),
+                            newRequestTimeoutException(e));
+                }
                 throw lastReset(
                         captureExceptionMetrics(e, awsRequestMetrics),
                         request);
@@ -518,6 +617,8 @@ public class AmazonHttpClient {
                         captureExceptionMetrics(e, awsRequestMetrics),
                         request);
             } finally {
+                p.completeRequestTimer();
+                p.releaseRateLimiter(response != null, runtimeException);
                 /*
                  * Some response handlers need to manually manage the HTTP
                  * connection and will take care of releasing the connection on
@@ -541,6 +642,20 @@ public class AmazonHttpClient {
         } /* end while (true) */
     }
 
+    private ClientExecutionTimeoutException newClientExecutionTimeoutException(
+            Throwable cause) {
+        return new ClientExecutionTimeoutException(
+                "Client execution did not complete before the specified timeout configuration: "
+                + config.getClientExecutionTimeout() + " millis", cause);
+    }
+
+    private HttpRequestTimeoutException newRequestTimeoutException(
+            Throwable cause) {
+        return new HttpRequestTimeoutException(
+                "Request did not complete before the specified timeout configuration: "
+                + config.getRequestTimeout() + " millis", cause);
+    }
+
     /**
      * Used to perform a last reset on the content input stream (if
      * mark-supported); this is so that, for backward compatibility reason, any
@@ -583,6 +698,19 @@ public class AmazonHttpClient {
         URI redirectedURI;
 
         AuthRetryParameters authRetryParam;
+
+        /** The retry capacity of the client, fixed for the whole execution. */
+        RetryCapacity retryCapacity;
+        int retryCapacityAcquired; // total acquired for the retries so far
+
+        /** The timer of the client execution timeout, if any. */
+        HttpRequestTimer executionTimer;
+        /** The timer of the request timeout of the current attempt, if any. */
+        HttpRequestTimer requestTimer;
+
+        /** The rate limiter acquired for the current attempt, if any. */
+        AdaptiveRateLimiter rateLimiter;
+        long rateLimiterTicket;
         /*
          * Depending on which response handler we end up choosing to handle the
          * HTTP response, it might require us to leave the underlying HTTP
@@ -602,6 +730,7 @@ public class AmazonHttpClient {
             requestCount++;
             apacheRequest = null;
             apacheResponse = null;
+            requestTimer = null;
             leaveHttpConnectionOpen = false;
         }
 
@@ -631,12 +760,90 @@ public class AmazonHttpClient {
                 final Request<?> request,
                 final ClientConfiguration config,
                 final ExecutionContext execContext) throws FakeIOException {
-            apacheRequest = httpRequestFactory.createHttpRequest(request, config, execContext);
-            if (redirectedURI != null)
-                apacheRequest.setURI(redirectedURI);
+            apacheRequest = newApacheRequestCopy(httpRequestFactory, request,
+                    config, execContext);
+            if (executionTimer != null)
+                executionTimer.setRequest(apacheRequest);
+            requestTimer = HttpRequestTimer.start(config.getRequestTimeout());
+            if (requestTimer != null)
+                requestTimer.setRequest(apacheRequest);
             return apacheRequest;
         }
 
+        /**
+         * Returns a new Apache HTTP request for the current attempt, without
+         * making it the current request.
+         *
+         * @throws FakeIOException thrown only during test simulation
+         */
+        HttpRequestBase newApacheRequestCopy(
+                final HttpRequestFactory httpRequestFactory,
+                final Request<?> request,
+                final ClientConfiguration config,
+                final ExecutionContext execContext) throws FakeIOException {
+            HttpRequestBase copy = httpRequestFactory.createHttpRequest(request, config, execContext);
+            if (redirectedURI != null)
+                copy.setURI(redirectedURI);
+            return copy;
+        }
+
+        /**
+         * Replaces the current request with the given copy, such as a hedged
+         * request that has won, so that the timers abort the copy instead.
+         */
+        void setApacheRequest(HttpRequestBase copy) {
+            apacheRequest = copy;
+            if (executionTimer != null)
+                executionTimer.setRequest(copy);
+            if (requestTimer != null)
+                requestTimer.setRequest(copy);
+        }
+
+        boolean isExecutionTimedOut() {
+            return executionTimer != null && executionTimer.isTimedOut();
+        }
+
+        boolean isRequestTimedOut() {
+            return requestTimer != null && requestTimer.isTimedOut();
+        }
+
+        /**
+         * Completes the request timer of the current attempt, if any.
+         *
+         * @return true if the current attempt has timed out; false otherwise.
+         */
+        boolean completeRequestTimer() {
+            return requestTimer != null && !requestTimer.complete();
+        }
+
+        /**
+         * Releases the rate limiter acquired for the current attempt, if any,
+         * according to the outcome of the attempt.
+         *
+         * @param succeeded
+         *            true if the attempt succeeded
+         * @param thrown
+         *            the runtime exception thrown by the attempt, if any; the
+         *            exception to be retried, if any, is otherwise used to
+         *            determine whether the attempt was throttled
+         */
+        void releaseRateLimiter(boolean succeeded, RuntimeException thrown) {
+            if (rateLimiter == null)
+                return;
+            final AdaptiveRateLimiter.Outcome outcome;
+            if (succeeded) {
+                outcome = AdaptiveRateLimiter.Outcome.SUCCEEDED;
+            } else {
+                Object failure = thrown == null ? retriedException : thrown;
+                outcome = failure instanceof AmazonServiceException
+                       && RetryUtils.isThrottlingException((AmazonServiceException) failure)
+                        ? AdaptiveRateLimiter.Outcome.THROTTLED
+                        : AdaptiveRateLimiter.Outcome.FAILED;
+            }
+            rateLimiter.release(rateLimiterTicket, outcome);
+            rateLimiter = null;
+        }
+
         void resetBeforeHttpRequest() {
             retriedException = null;
             authRetryParam = null;
@@ -683,13 +890,15 @@ public class AmazonHttpClient {
                 if (execParams.retriedException != null) {
                     pauseBeforeNextRetry(request.getOriginalRequest(),
                         execParams.retriedException, execParams.requestCount,
-                        config.getRetryPolicy());
+                        config.getRetryPolicy(), execParams.executionTimer);
                 }
             } finally {
                 awsRequestMetrics.endEvent(RetryPauseTime);
             }
         }
 
+        acquireRateLimiter(request, awsRequestMetrics, execParams);
+
         // Sign the request if a signer was provided
         execParams.newSigner(request, execContext);
         if (execParams.signer != null && credentials != null) {
@@ -725,7 +934,8 @@ public class AmazonHttpClient {
         /////////// Send HTTP request ////////////
         final boolean isHeaderReqIdAvail;
         try {
-            execParams.apacheResponse = httpClient.execute(execParams.apacheRequest, httpContext);
+            execParams.apacheResponse = executeHttpRequest(request, execContext,
+                    awsRequestMetrics, execParams, httpContext);
             isHeaderReqIdAvail = logHeaderRequestId(execParams.apacheResponse);
         } finally {
             awsRequestMetrics.endEvent(HttpRequestTime);
@@ -782,10 +992,10 @@ public class AmazonHttpClient {
         }
         if (execParams.authRetryParam == null &&
             !shouldRetry(request.getOriginalRequest(),
-                execParams.apacheRequest,
+                execParams,
                 ase,
-                execParams.requestCount,
-                config.getRetryPolicy())) {
+                config.getRetryPolicy(),
+                awsRequestMetrics)) {
             throw ase;
         }
         // Comment out for now. Ref: CR2662349
@@ -810,6 +1020,139 @@ public class AmazonHttpClient {
         return null; // => retry
     }
 
+    /**
+     * Blocks until the request can be sent according to the client side rate
+     * limit policy, if any.
+     *
+     * @throws ClientExecutionTimeoutException
+     *             if the client execution timeout would expire before the
+     *             request can be sent.
+     */
+    private void acquireRateLimiter(Request<?> request,
+            AWSRequestMetrics awsRequestMetrics,
+            ExecOneRequestParams execParams) {
+        final AdaptiveRateLimiter rateLimiter = rateLimiterFor(request);
+        if (rateLimiter == null)
+            return;
+        final HttpRequestTimer executionTimer = execParams.executionTimer;
+        long timeoutMillis = 0;
+        if (executionTimer != null) {
+            timeoutMillis = executionTimer.getRemainingMillis();
+            if (timeoutMillis <= 0)
+                throw newClientExecutionTimeoutException(null);
+        }
+        awsRequestMetrics.startEvent(RateLimiterWaitTime);
+        try {
+            Long ticket = rateLimiter.acquire(timeoutMillis);
+            if (ticket == null)
+                throw newClientExecutionTimeoutException(null);
+            execParams.rateLimiterTicket = ticket;
+            execParams.rateLimiter = rateLimiter;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } finally {
+            awsRequestMetrics.endEvent(RateLimiterWaitTime);
+        }
+    }
+
+    /**
+     * Executes the current Apache HTTP request, hedging it if the hedging
+     * policy in use, if any, applies to the request.
+     */
+    private org.apache.http.HttpResponse executeHttpRequest(
+            final Request<?> request,
+            final ExecutionContext execContext,
+            final AWSRequestMetrics awsRequestMetrics,
+            final ExecOneRequestParams execParams,
+            final HttpContext httpContext) throws IOException {
+        final HedgingPolicy policy = config.getHedgingPolicy();
+        final AmazonWebServiceRequest awsreq = request.getOriginalRequest();
+        if (policy == null || !policy.isHedged(awsreq))
+            return httpClient.execute(execParams.apacheRequest, httpContext);
+        final LatencyTracker latencyTracker = latencyTrackerFor(awsreq, policy);
+        final long delayMillis = latencyTracker.getDelayMillis();
+        final long startNanos = System.nanoTime();
+        HttpRequestBase hedge = null;
+        if (delayMillis >= 0) {
+            hedge = execParams.newApacheRequestCopy(httpRequestFactory,
+                    request, config, execContext);
+            if (!HedgedRequest.prepareEntity(execParams.apacheRequest, hedge))
+                hedge = null;
+        }
+        final org.apache.http.HttpResponse response;
+        if (hedge == null) {
+            response = httpClient.execute(execParams.apacheRequest, httpContext);
+        } else {
+            HedgedRequest hedged = new HedgedRequest(httpClient,
+                    execParams.apacheRequest, hedge, rateLimiterFor(request),
+                    execParams.retryCapacity, awsreq);
+            try {
+                response = hedged.execute(httpContext, delayMillis);
+            } finally {
+                if (hedged.isHedgeSent())
+                    awsRequestMetrics.incrementCounter(HedgedRequestCount);
+                final int acquired = hedged.claimRetryCapacity();
+                if (acquired > 0) {
+                    execParams.retryCapacityAcquired += acquired;
+                    awsRequestMetrics.setCounter(RetryCapacityConsumed,
+                                                 execParams.retryCapacityAcquired);
+                }
+            }
+            if (hedged.isHedgeWon()) {
+                awsRequestMetrics.incrementCounter(HedgedRequestWinCount);
+                execParams.setApacheRequest(hedged.getWinningRequest());
+            }
+        }
+        latencyTracker.record(System.nanoTime() - startNanos);
+        return response;
+    }
+
+    /**
+     * Returns the latency tracker for the type of the given request, creating
+     * it if necessary.
+     */
+    private LatencyTracker latencyTrackerFor(AmazonWebServiceRequest awsreq,
+            HedgingPolicy policy) {
+        final Class<?> type = awsreq.getClass();
+        LatencyTracker latencyTracker = latencyTrackers.get(type);
+        if (latencyTracker == null) {
+            LatencyTracker created = new LatencyTracker(policy);
+            latencyTracker = latencyTrackers.putIfAbsent(type, created);
+            if (latencyTracker == null)
+                latencyTracker = created;
+        }
+        return latencyTracker;
+    }
+
+    /**
+     * Returns the client side rate limiter for the given request, creating it
+     * if necessary; or null if no rate limit policy is configured.
+     */
+    private AdaptiveRateLimiter rateLimiterFor(Request<?> request) {
+        final RateLimitPolicy policy = config.getRateLimitPolicy();
+        if (policy == null)
+            return null;
+        final URI endpoint = request.getEndpoint();
+        final String host = endpoint == null ? null : endpoint.getHost();
+        final String key = policy.isPerEndpoint() && host != null
+                         ? AwsHostNameUtils.parseRegionName(host, null)
+                         : "";
+        AdaptiveRateLimiter rateLimiter = rateLimiters.get(key);
+        if (rateLimiter == null) {
+            String name = key.length() == 0
+                        ? request.getServiceName()
+                        : request.getServiceName() + "@" + key;
+            AdaptiveRateLimiter created = new AdaptiveRateLimiter(name, policy);
+            rateLimiter = rateLimiters.putIfAbsent(key, created);
+            if (rateLimiter == null) {
+                rateLimiter = created;
+                AwsSdkMetrics.addRateLimiter(created);
+            }
+        }
+        return rateLimiter;
+    }
+
     /**
      * Used to log the "x-amzn-RequestId" header at DEBUG level, if any, from
      * the response. This method assumes the apache http request/response has
@@ -932,8 +1275,58 @@ public class AmazonHttpClient {
      * Once a client has been shutdown, it cannot be used to make more requests.
      */
     public void shutdown() {
-        IdleConnectionReaper.removeConnectionManager(httpClient.getConnectionManager());
-        httpClient.getConnectionManager().shutdown();
+        for (AdaptiveRateLimiter rateLimiter : rateLimiters.values())
+            AwsSdkMetrics.removeRateLimiter(rateLimiter);
+        // A shared connection pool is shut down by its owner
+        if (sharedConnectionPool == null) {
+            IdleConnectionReaper.removeConnectionManager(httpClient.getConnectionManager());
+            httpClient.getConnectionManager().shutdown();
+        }
+    }
+
+    /**
+     * Opens connections to the given endpoint, via the proxy configured if
+     * any, until the connection pool of this client holds at least the given
+     * number of open connections to the endpoint. The connections are opened
+     * one after the other, so that they can resume the TLS session of the
+     * first one rather than each going through a full TLS handshake.
+     *
+     * @param endpoint
+     *            The endpoint to connect to.
+     * @param connections
+     *            The number of connections, which is capped to the maximum
+     *            number of connections to the endpoint.
+     * @return The number of open connections to the endpoint, which is less
+     *         than requested if some connections couldn't be opened.
+     */
+    @SuppressWarnings("unchecked")
+    public int prewarmConnections(URI endpoint, int connections) {
+        if (!(httpClient instanceof AbstractHttpClient)) {
+            return 0;
+        }
+        AbstractHttpClient client = (AbstractHttpClient) httpClient;
+        HttpHost target = URIUtils.extractHost(endpoint);
+        if (target == null) {
+            throw new IllegalArgumentException("Invalid endpoint: " + endpoint);
+        }
+        // Determine the route the same way as the requests do
+        HttpGet request = new HttpGet(endpoint);
+        request.setParams(client.getParams());
+        HttpRoute route;
+        try {
+            route = client.getRoutePlanner().determineRoute(target, request,
+                    new BasicHttpContext());
+        } catch (HttpException e) {
+            throw new AmazonClientException(
+                    "Unable to determine the route to " + endpoint, e);
+        }
+        ClientConnectionManager connectionManager = client.getConnectionManager();
+        if (connectionManager instanceof ConnPoolControl) {
+            connections = Math.min(connections,
+                    ((ConnPoolControl<HttpRoute>) connectionManager).getMaxPerRoute(route));
+        }
+        return ConnectionPrewarmer.prewarm(connectionManager, route,
+                connections, client.getParams());
     }
 
     /**
@@ -941,21 +1334,24 @@ public class AmazonHttpClient {
      *
      * @param originalRequest
      *            The original service request that is being executed.
-     * @param method
-     *            The current HTTP method being executed.
+     * @param execParams
+     *            The parameters of the current execution, including the
+     *            current HTTP method, the number of times the current request
+     *            has been attempted and the retry capacity of the client.
      * @param exception
      *            The client/service exception from the failed request.
-     * @param requestCount
-     *            The number of times the current request has been attempted.
+     * @param awsRequestMetrics
+     *            The metrics of the current request.
      *
      * @return True if the failed request should be retried.
      */
     private boolean shouldRetry(AmazonWebServiceRequest originalRequest,
-                                HttpRequestBase method,
+                                ExecOneRequestParams execParams,
                                 AmazonClientException exception,
-                                int requestCount,
-                                RetryPolicy retryPolicy) {
-        final int retries = requestCount - 1;
+                                RetryPolicy retryPolicy,
+                                AWSRequestMetrics awsRequestMetrics) {
+        final HttpRequestBase method = execParams.apacheRequest;
+        final int retries = execParams.requestCount - 1;
 
         int maxErrorRetry = config.getMaxErrorRetry();
         // We should use the maxErrorRetry in
@@ -983,9 +1379,45 @@ public class AmazonHttpClient {
 
         // Pass all the context information to the RetryCondition and let it
         // decide whether it should be retried.
-        return retryPolicy.getRetryCondition().shouldRetry(originalRequest,
-                                                           exception,
-                                                           retries);
+        if (!retryPolicy.getRetryCondition().shouldRetry(originalRequest,
+                                                         exception,
+                                                         retries)) {
+            return false;
+        }
+
+        // Fail fast if the retry capacity shared by the requests of this
+        // client has been exhausted.
+        int acquired = execParams.retryCapacity.acquire(originalRequest,
+                                                        exception,
+                                                        retries);
+        if (acquired < 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("Retry capacity exhausted, not retrying");
+            }
+            awsRequestMetrics.incrementCounter(RetryCapacityExhausted);
+            return false;
+        }
+        execParams.retryCapacityAcquired += acquired;
+        awsRequestMetrics.setCounter(RetryCapacityConsumed,
+                                     execParams.retryCapacityAcquired);
+        return true;
+    }
+
+    /**
+     * Returns the retry capacity of this client for the given retry policy,
+     * creating it if necessary.
+     */
+    private RetryCapacity retryCapacityFor(RetryPolicy retryPolicy) {
+        final RetryPolicy.RetryCapacityFactory factory =
+            retryPolicy.getRetryCapacityFactory();
+        RetryCapacity retryCapacity = retryCapacities.get(factory);
+        if (retryCapacity == null) {
+            RetryCapacity created = factory.newRetryCapacity();
+            retryCapacity = retryCapacities.putIfAbsent(factory, created);
+            if (retryCapacity == null)
+                retryCapacity = created;
+        }
+        return retryCapacity;
     }
 
     private static boolean isTemporaryRedirect(org.apache.http.HttpResponse response) {
@@ -1227,11 +1659,18 @@ public class AmazonHttpClient {
      *            current request count (including the next attempt after the delay)
      * @param retryPolicy
      *            The retry policy configured in this http client.
+     * @param executionTimer
+     *            The timer of the client execution timeout, if any.
+     *
+     * @throws ClientExecutionTimeoutException
+     *             if the client execution timeout would expire before the
+     *             end of the pause.
      */
     private void pauseBeforeNextRetry(AmazonWebServiceRequest originalRequest,
                                     AmazonClientException previousException,
                                     int requestCount,
-                                    RetryPolicy retryPolicy) {
+                                    RetryPolicy retryPolicy,
+                                    HttpRequestTimer executionTimer) {
         final int retries = requestCount // including next attempt
                             - 1          // number of attempted requests
                             - 1;         // number of attempted retries
@@ -1239,6 +1678,11 @@ public class AmazonHttpClient {
         long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(
                 originalRequest, previousException, retries);
 
+        if (executionTimer != null
+                && delay >= executionTimer.getRemainingMillis()) {
+            throw newClientExecutionTimeoutException(previousException);
+        }
+
         if (log.isDebugEnabled()) {
             log.debug("Retriable error detected, " +
                     "will retry in " + delay + "ms, attempt number: " + retries);
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+
+/**
+ * Opens pooled connections ahead of the requests that will use them.
+ */
+final class ConnectionPrewarmer {
+
+    private ConnectionPrewarmer() {
+    }
+
+    /**
+     * Leases the given number of connections of the given route from the
+     * given connection manager, opens those which are not open yet, and
+     * returns them all to the pool to be reused. Gives up upon the first
+     * connection which can't be leased or opened within the connection
+     * timeout.
+     *
+     * @return The number of open connections returned to the pool.
+     */
+    static int prewarm(ClientConnectionManager connectionManager,
+            HttpRoute route, int connections, HttpParams params) {
+        if (route.isTunnelled()) {
+            // Opening a tunnel through a proxy takes a CONNECT request
+            AmazonHttpClient.log.debug("Not prewarming tunnelled connections to " + route);
+            return 0;
+        }
+        final int timeout = HttpConnectionParams.getConnectionTimeout(params);
+        final List<ManagedClientConnection> leased =
+                new ArrayList<ManagedClientConnection>(connections);
+        int opened = 0;
+        int open = 0;
+        try {
+            while (leased.size() < connections) {
+                ManagedClientConnection conn = connectionManager
+                        .requestConnection(route, null)
+                        .getConnection(timeout, TimeUnit.MILLISECONDS);
+                leased.add(conn);
+                if (!conn.isOpen()) {
+                    conn.open(route, new BasicHttpContext(), params);
+                    opened++;
+                }
+                conn.markReusable();
+            }
+        } catch (ConnectionPoolTimeoutException e) {
+            AmazonHttpClient.log.debug("Unable to lease a connection to prewarm", e);
+        } catch (IOException e) {
+            AmazonHttpClient.log.debug("Unable to open a connection to " + route, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (ManagedClientConnection conn : leased) {
+                if (conn.isOpen()) {
+                    open++;
+                }
+                connectionManager.releaseConnection(conn, -1, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (AmazonHttpClient.log.isDebugEnabled()) {
+            AmazonHttpClient.log.debug("Opened " + opened + " connections to "
+                    + route + ", " + open + " now open");
+        }
+        return open;
+    }
+}
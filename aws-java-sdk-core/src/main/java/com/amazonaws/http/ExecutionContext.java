@@ -23,6 +23,7 @@ import com.amazonaws.AmazonWebServiceClient;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.retry.internal.AuthErrorRetryStrategy;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetricsFullSupport;
@@ -54,9 +55,13 @@ public class ExecutionContext {
                             boolean isMetricEnabled,
                             AmazonWebServiceClient awsClient) {
         this.requestHandler2s = requestHandler2s;
-        awsRequestMetrics = isMetricEnabled
-                          ? new AWSRequestMetricsFullSupport()
-                          : new AWSRequestMetrics();
+        if (isMetricEnabled) {
+            awsRequestMetrics = new AWSRequestMetricsFullSupport();
+        } else if (AwsSdkMetrics.isLatencyHistogramsEnabled()) {
+            awsRequestMetrics = AWSRequestMetricsFullSupport.newStreamingMetrics();
+        } else {
+            awsRequestMetrics = new AWSRequestMetrics();
+        }
         this.awsClient = awsClient;
     }
 
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.retry.AdaptiveRateLimiter;
+import com.amazonaws.retry.HedgingPolicy;
+import com.amazonaws.retry.RetryCapacity;
+
+/**
+ * Sends a copy of an HTTP request, the hedge, if the original request has not
+ * received a response after a delay. The first of the two requests to receive
+ * a response wins, and the other is aborted.
+ * <p>
+ * The original request is executed in the calling thread, and the hedge in a
+ * thread of a bounded shared pool. Like a retry, the hedge must acquire the
+ * client side rate limiter, if any, and the retry capacity of the client, and
+ * is not sent if either is not available right away, or if all the threads of
+ * the pool are busy. The payload of the original request, if any, is copied
+ * for the hedge only once the hedge is sent.
+ * <p>
+ * If the original request fails before the hedge has won, the hedge is
+ * aborted and the failure of the original request is reported, leaving it to
+ * the retry policy to decide what to do next.
+ */
+@ThreadSafe
+final class HedgedRequest implements Runnable {
+    /** The maximum number of hedges in flight in the JVM. */
+    static final int MAX_CONCURRENT_HEDGES = 32;
+
+    /**
+     * Stands for the cause of a hedge when acquiring the retry capacity,
+     * which is the same as for a retry caused by a service error.
+     */
+    private static final AmazonClientException HEDGE_CAUSE =
+        new AmazonClientException("Hedged request");
+
+    private static final int PENDING = 0;
+    private static final int PRIMARY_WON = 1;
+    private static final int HEDGE_WON = 2;
+    private static final int CANCELLED = 3;
+
+    /** The retry capacity acquired by the hedge once claimed. */
+    private static final int CLAIMED = -1;
+
+    private final HttpClient httpClient;
+    private final HttpRequestBase primary;
+    private final HttpRequestBase hedge;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final RetryCapacity retryCapacity;
+    private final AmazonWebServiceRequest originalRequest;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+    private final AtomicInteger retryCapacityAcquired = new AtomicInteger();
+    private volatile boolean hedgeSent;
+    private volatile HttpResponse hedgeResponse;
+
+    /**
+     * @param httpClient
+     *            the HTTP client used to execute both requests
+     * @param primary
+     *            the original request
+     * @param hedge
+     *            an identical copy of the original request, which must have
+     *            been prepared via {@link #prepareEntity}
+     * @param rateLimiter
+     *            the client side rate limiter of the request, if any
+     * @param retryCapacity
+     *            the retry capacity of the client
+     * @param originalRequest
+     *            the original request object
+     */
+    HedgedRequest(HttpClient httpClient, HttpRequestBase primary,
+            HttpRequestBase hedge, AdaptiveRateLimiter rateLimiter,
+            RetryCapacity retryCapacity, AmazonWebServiceRequest originalRequest) {
+        this.httpClient = httpClient;
+        this.primary = primary;
+        this.hedge = hedge;
+        this.rateLimiter = rateLimiter;
+        this.retryCapacity = retryCapacity;
+        this.originalRequest = originalRequest;
+    }
+
+    /**
+     * Prepares the entity of the original request, if any, to be shared with
+     * the hedge. An entity held in memory is shared as is; a streamed one is
+     * copied into memory only if the hedge is sent.
+     *
+     * @return true if the requests can be hedged; false if the entity of the
+     *         original request is too large, of unknown length or can't be
+     *         repeated, in which case neither request has been modified.
+     */
+    static boolean prepareEntity(HttpRequestBase primary, HttpRequestBase hedge) {
+        if (!(primary instanceof HttpEntityEnclosingRequest))
+            return true;
+        final HttpEntity entity = ((HttpEntityEnclosingRequest) primary).getEntity();
+        if (entity == null)
+            return true;
+        final long length = entity.getContentLength();
+        if (length < 0 || length > HedgingPolicy.MAX_HEDGED_CONTENT_LENGTH
+                || !entity.isRepeatable())
+            return false;
+        if (entity.isStreaming()) {
+            ((HttpEntityEnclosingRequest) primary).setEntity(new HedgeableEntity(entity));
+        } else {
+            ((HttpEntityEnclosingRequest) hedge).setEntity(entity);
+        }
+        return true;
+    }
+
+    /**
+     * Executes the original request, sending the hedge after the given delay
+     * if the original request has not received a response by then.
+     *
+     * @return the response of the winning request
+     */
+    HttpResponse execute(HttpContext context,
+            long delayMillis) throws IOException {
+        final ScheduledFuture<?> future = HttpRequestTimer.schedule(
+            new Runnable() {
+                @Override
+                public void run() {
+                    if (state.get() != PENDING)
+                        return;
+                    try {
+                        Senders.executor.execute(HedgedRequest.this);
+                    } catch (RejectedExecutionException e) {
+                        AmazonHttpClient.log.debug(
+                            "Not hedging the request, too many hedged requests in flight");
+                    }
+                }
+            }, delayMillis);
+        final HttpResponse response;
+        try {
+            response = httpClient.execute(primary, context);
+        } catch (IOException e) {
+            if (cancel(future))
+                throw e;
+            return hedgeResponse;
+        } catch (RuntimeException e) {
+            if (cancel(future))
+                throw e;
+            return hedgeResponse;
+        }
+        if (state.compareAndSet(PENDING, PRIMARY_WON)) {
+            future.cancel(false);
+            hedge.abort();
+            return response;
+        }
+        // the hedge has won in the meantime
+        primary.abort();
+        return hedgeResponse;
+    }
+
+    /**
+     * Cancels the hedge after the original request has failed.
+     *
+     * @return true if the hedge has been cancelled; false if it has already
+     *         won, and the original request failed because it was aborted.
+     */
+    private boolean cancel(ScheduledFuture<?> future) {
+        if (state.compareAndSet(PENDING, CANCELLED)) {
+            future.cancel(false);
+            hedge.abort();
+            return true;
+        }
+        return state.get() != HEDGE_WON;
+    }
+
+    /**
+     * Sends the hedge, if the rate limiter and the retry capacity allow.
+     */
+    @Override
+    public void run() {
+        if (state.get() != PENDING)
+            return;
+        final Long ticket = rateLimiter == null ? null : rateLimiter.tryAcquire();
+        if (rateLimiter != null && ticket == null) {
+            AmazonHttpClient.log.debug("Not hedging the request, rate limited");
+            return;
+        }
+        AdaptiveRateLimiter.Outcome outcome = AdaptiveRateLimiter.Outcome.FAILED;
+        try {
+            if (!acquireRetryCapacity())
+                return;
+            final HttpEntity entity = primary instanceof HttpEntityEnclosingRequest
+                    ? ((HttpEntityEnclosingRequest) primary).getEntity()
+                    : null;
+            if (entity instanceof HedgeableEntity)
+                ((HttpEntityEnclosingRequest) hedge).setEntity(((HedgeableEntity) entity).copy());
+            if (state.get() != PENDING)
+                return;
+            hedgeSent = true;
+            HttpResponse response = httpClient.execute(hedge, new BasicHttpContext());
+            hedgeResponse = response;
+            outcome = outcomeOf(response);
+            if (state.compareAndSet(PENDING, HEDGE_WON)) {
+                primary.abort();
+            } else {
+                hedge.abort();
+            }
+        } catch (IOException e) {
+            if (AmazonHttpClient.log.isDebugEnabled())
+                AmazonHttpClient.log.debug("Hedged request failed", e);
+        } catch (RuntimeException e) {
+            if (AmazonHttpClient.log.isDebugEnabled())
+                AmazonHttpClient.log.debug("Hedged request failed", e);
+        } finally {
+            if (ticket != null)
+                rateLimiter.release(ticket, outcome);
+        }
+    }
+
+    /**
+     * Acquires the retry capacity for the hedge, unless the original request
+     * has already claimed the capacity acquired by the hedge.
+     */
+    private boolean acquireRetryCapacity() {
+        final int acquired = retryCapacity.acquire(originalRequest, HEDGE_CAUSE, 0);
+        if (acquired < 0) {
+            AmazonHttpClient.log.debug("Not hedging the request, retry capacity exhausted");
+            return false;
+        }
+        if (!retryCapacityAcquired.compareAndSet(0, acquired)) {
+            retryCapacity.release(acquired);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the retry capacity acquired by the hedge, for the original
+     * request to release it along with the capacity acquired by its retries.
+     * Once claimed, the hedge no longer acquires any.
+     */
+    int claimRetryCapacity() {
+        return Math.max(0, retryCapacityAcquired.getAndSet(CLAIMED));
+    }
+
+    private static AdaptiveRateLimiter.Outcome outcomeOf(HttpResponse response) {
+        final int status = response.getStatusLine().getStatusCode();
+        if (status < 400)
+            return AdaptiveRateLimiter.Outcome.SUCCEEDED;
+        return status == 429 || status == 503
+             ? AdaptiveRateLimiter.Outcome.THROTTLED
+             : AdaptiveRateLimiter.Outcome.FAILED;
+    }
+
+    /**
+     * Returns true if the hedge has been sent.
+     */
+    boolean isHedgeSent() {
+        return hedgeSent;
+    }
+
+    /**
+     * Returns true if the hedge has won.
+     */
+    boolean isHedgeWon() {
+        return state.get() == HEDGE_WON;
+    }
+
+    /**
+     * Returns the request whose response was returned by
+     * {@link #execute(HttpContext, long)}.
+     */
+    HttpRequestBase getWinningRequest() {
+        return isHedgeWon() ? hedge : primary;
+    }
+
+    /**
+     * The streamed entity of an original request, which is copied into memory
+     * for the hedge only when it is sent, and never while the original request
+     * is writing it.
+     */
+    private static final class HedgeableEntity extends HttpEntityWrapper {
+        HedgeableEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public synchronized void writeTo(OutputStream out) throws IOException {
+            super.writeTo(out);
+        }
+
+        synchronized HttpEntity copy() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) getContentLength());
+            super.writeTo(out);
+            ByteArrayEntity copy = new ByteArrayEntity(out.toByteArray());
+            copy.setContentType(getContentType());
+            copy.setContentEncoding(getContentEncoding());
+            return copy;
+        }
+    }
+
+    /**
+     * Used to avoid creating the pool of hedge threads until hedging is
+     * actually configured.
+     */
+    private static final class Senders {
+        private static final ExecutorService executor = new ThreadPoolExecutor(
+            0, MAX_CONCURRENT_HEDGES, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(),
+            new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName("java-sdk-hedged-request-"
+                            + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    }
+}
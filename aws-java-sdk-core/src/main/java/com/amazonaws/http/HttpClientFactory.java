@@ -57,6 +57,7 @@ import org.apache.http.conn.scheme.SchemeLayeredSocketFactory;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.scheme.SchemeSocketFactory;
 import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.conn.ssl.X509HostnameVerifier;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
@@ -66,6 +67,7 @@ import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.ApacheHttpClientConfig;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.http.conn.SdkConnectionKeepAliveStrategy;
 import com.amazonaws.http.conn.ssl.SdkTLSSocketFactory;
@@ -102,8 +104,10 @@ class HttpClientFactory {
                     Math.max(socketSendBufferSizeHint, socketReceiveBufferSizeHint));
         }
 
-        PoolingClientConnectionManager connectionManager = ConnectionManagerFactory
-                .createPoolingClientConnManager(config, httpClientParams);
+        SharedConnectionPool sharedConnectionPool = config.getSharedConnectionPool();
+        PoolingClientConnectionManager connectionManager = sharedConnectionPool != null
+                ? sharedConnectionPool.getConnectionManager()
+                : ConnectionManagerFactory.createPoolingClientConnManager(config, httpClientParams);
 
         SdkHttpClient httpClient = new SdkHttpClient(connectionManager, httpClientParams);
         httpClient.setHttpRequestRetryHandler(HttpRequestNoRetryHandler.Singleton);
@@ -118,30 +122,10 @@ class HttpClientFactory {
             ConnRouteParams.setLocalAddress(httpClientParams, config.getLocalAddress());
         }
 
-        try {
-            Scheme http = new Scheme("http", 80, PlainSocketFactory.getSocketFactory());
-            SSLSocketFactory sf = config.getApacheHttpClientConfig().getSslSocketFactory();
-            if (sf == null) {
-                sf = new SdkTLSSocketFactory(
-                        SSLContext.getDefault(),
-                        SSLSocketFactory.STRICT_HOSTNAME_VERIFIER);
-            }
-            Scheme https = new Scheme("https", 443, sf);
-            SchemeRegistry sr = connectionManager.getSchemeRegistry();
-            sr.register(http);
-            sr.register(https);
-        } catch (NoSuchAlgorithmException e) {
-            throw new AmazonClientException("Unable to access default SSL context", e);
-        }
-
-        /*
-         * If SSL cert checking for endpoints has been explicitly disabled,
-         * register a new scheme for HTTPS that won't cause self-signed certs to
-         * error out.
-         */
-        if (System.getProperty(DISABLE_CERT_CHECKING_SYSTEM_PROPERTY) != null) {
-            Scheme sch = new Scheme("https", 443, new TrustingSocketFactory());
-            httpClient.getConnectionManager().getSchemeRegistry().register(sch);
+        // The schemes of a shared pool are registered by the pool
+        if (sharedConnectionPool == null) {
+            registerSchemes(connectionManager.getSchemeRegistry(),
+                    config.getApacheHttpClientConfig());
         }
 
         /* Set proxy if configured */
@@ -215,6 +199,72 @@ class HttpClientFactory {
     }
 
 
+    /**
+     * Registers the HTTP and HTTPS schemes to the given registry, with the SSL
+     * socket factory of the given configuration if any; otherwise with one
+     * using its SSL context, or the default one, with strict hostname
+     * verification.
+     */
+    static void registerSchemes(SchemeRegistry sr, ApacheHttpClientConfig config) {
+        registerSchemes(sr, config, true);
+    }
+
+    /**
+     * Registers the HTTP and HTTPS schemes to the given registry, with the SSL
+     * socket factory of the given configuration if any; otherwise with one
+     * using its SSL context, or the default one, with strict or browser
+     * compatible hostname verification.
+     */
+    static void registerSchemes(SchemeRegistry sr, ApacheHttpClientConfig config,
+            boolean strictHostnameVerification) {
+        registerSchemes(sr, config, strictHostnameVerification
+                ? SSLSocketFactory.STRICT_HOSTNAME_VERIFIER
+                : SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+    }
+
+    /**
+     * Registers the HTTP and HTTPS schemes to the given registry, with the SSL
+     * socket factory of the given configuration if any; otherwise with one
+     * using its SSL context, or the default one, with the given hostname
+     * verifier.
+     */
+    static void registerSchemes(SchemeRegistry sr, ApacheHttpClientConfig config,
+            X509HostnameVerifier hostnameVerifier) {
+        Scheme http = new Scheme("http", 80, PlainSocketFactory.getSocketFactory());
+        SSLSocketFactory sf = config.getSslSocketFactory();
+        if (sf == null) {
+            sf = new SdkTLSSocketFactory(getSSLContext(config), hostnameVerifier);
+        }
+        Scheme https = new Scheme("https", 443, sf);
+        sr.register(http);
+        sr.register(https);
+
+        /*
+         * If SSL cert checking for endpoints has been explicitly disabled,
+         * register a new scheme for HTTPS that won't cause self-signed certs to
+         * error out.
+         */
+        if (System.getProperty(DISABLE_CERT_CHECKING_SYSTEM_PROPERTY) != null) {
+            Scheme sch = new Scheme("https", 443, new TrustingSocketFactory());
+            sr.register(sch);
+        }
+    }
+
+    /**
+     * Returns the SSL context of the given configuration if any; otherwise the
+     * default one, so that all the clients share its TLS session cache.
+     */
+    static SSLContext getSSLContext(ApacheHttpClientConfig config) {
+        if (config.getSslContext() != null) {
+            return config.getSslContext();
+        }
+        try {
+            return SSLContext.getDefault();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AmazonClientException("Unable to access default SSL context", e);
+        }
+    }
+
     /**
      * Disable http redirect inside Apache HttpClient.
      */
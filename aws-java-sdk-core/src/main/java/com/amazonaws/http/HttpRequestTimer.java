@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Aborts the HTTP request in progress when a deadline passes, so that a
+ * request blocked reading a slowly trickling response is interrupted. All the
+ * timers share a single scheduler thread.
+ * <p>
+ * A timer either completes, if {@link #complete()} is called before the
+ * deadline, or times out, but never both; so a request can tell whether it
+ * has been aborted by the timer once it has completed.
+ */
+@ThreadSafe
+final class HttpRequestTimer implements Runnable {
+    private static final int RUNNING = 0;
+    private static final int COMPLETED = 1;
+    private static final int TIMED_OUT = 2;
+
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private final long deadlineNanos;
+    private final ScheduledFuture<?> future;
+    /** The HTTP request currently in progress, if any. */
+    private volatile HttpRequestBase request;
+
+    private HttpRequestTimer(long timeoutMillis) {
+        this.deadlineNanos = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.future = Scheduler.executor.schedule(this, timeoutMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a new timer with the given timeout; or returns null if the timeout
+     * is not positive.
+     */
+    static HttpRequestTimer start(int timeoutMillis) {
+        return timeoutMillis > 0 ? new HttpRequestTimer(timeoutMillis) : null;
+    }
+
+    /**
+     * Sets the HTTP request to be aborted upon timeout, aborting it right away
+     * if the timer has already timed out.
+     */
+    void setRequest(HttpRequestBase request) {
+        this.request = request;
+        if (request != null && isTimedOut())
+            request.abort();
+    }
+
+    @Override
+    public void run() {
+        if (state.compareAndSet(RUNNING, TIMED_OUT)) {
+            HttpRequestBase req = request;
+            if (req != null)
+                req.abort();
+        }
+    }
+
+    /**
+     * Completes this timer, unless it has already timed out.
+     *
+     * @return true if this timer has completed; false if it has timed out.
+     */
+    boolean complete() {
+        future.cancel(false);
+        return state.compareAndSet(RUNNING, COMPLETED)
+            || state.get() == COMPLETED;
+    }
+
+    /**
+     * Returns true if this timer has timed out.
+     */
+    boolean isTimedOut() {
+        return state.get() == TIMED_OUT;
+    }
+
+    /**
+     * Returns the number of milliseconds left before the deadline, which is
+     * negative if the deadline has passed.
+     */
+    long getRemainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * Schedules a short task to run after the given delay on the thread shared
+     * by all the timers.
+     */
+    static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return Scheduler.executor.schedule(task, delayMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Used to avoid creating the scheduler thread until a timeout is actually
+     * configured.
+     */
+    private static final class Scheduler {
+        private static final ScheduledThreadPoolExecutor executor = createExecutor();
+
+        private static ScheduledThreadPoolExecutor createExecutor() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("java-sdk-http-request-timer");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            // Remove the timers of completed requests from the queue right
+            // away, rather than when they would have timed out (JDK 7+).
+            try {
+                Method m = ScheduledThreadPoolExecutor.class.getMethod(
+                        "setRemoveOnCancelPolicy", boolean.class);
+                m.invoke(executor, Boolean.TRUE);
+            } catch (Exception e) {
+                AmazonHttpClient.log.debug(
+                        "Cancelled request timers are removed upon expiry", e);
+            }
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.annotation.GuardedBy;
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.retry.HedgingPolicy;
+
+/**
+ * Keeps track of the recent latencies of the requests of one type, to
+ * determine how long a request of that type is left alone before it is
+ * hedged.
+ */
+@ThreadSafe
+final class LatencyTracker {
+    /** The number of most recent latencies kept. */
+    static final int WINDOW_SIZE = 256;
+    /** The number of samples after which the hedge delay is recomputed. */
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private final HedgingPolicy policy;
+
+    @GuardedBy("this")
+    private final long[] latencyNanos = new long[WINDOW_SIZE];
+    @GuardedBy("this")
+    private long count;
+    /** The current hedge delay; or -1 if there are not enough samples yet. */
+    private volatile long delayMillis = -1;
+
+    LatencyTracker(HedgingPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Records the latency of a request.
+     */
+    synchronized void record(long nanos) {
+        latencyNanos[(int) (count % WINDOW_SIZE)] = nanos;
+        count++;
+        if (count >= policy.getMinSamples()
+                && (delayMillis < 0 || count % RECOMPUTE_INTERVAL == 0)) {
+            delayMillis = computeDelayMillis();
+        }
+    }
+
+    @GuardedBy("this")
+    private long computeDelayMillis() {
+        final int n = (int) Math.min(count, WINDOW_SIZE);
+        final long[] sorted = Arrays.copyOf(latencyNanos, n);
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(policy.getPercentile() / 100 * n) - 1;
+        final long millis = TimeUnit.NANOSECONDS.toMillis(
+                sorted[Math.max(0, Math.min(n - 1, index))]);
+        return Math.max(policy.getMinDelayMillis(), millis);
+    }
+
+    /**
+     * Returns the delay in milliseconds after which a request is to be hedged;
+     * or a negative value if the request is not to be hedged, as not enough
+     * latencies have been recorded yet.
+     */
+    long getDelayMillis() {
+        return delayMillis;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLException;
+
+import org.apache.http.HttpHost;
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.ssl.AbstractVerifier;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * A pool of HTTP connections shared by all the clients configured with it via
+ * {@link ClientConfiguration#setSharedConnectionPool(SharedConnectionPool)},
+ * so that an application using many clients has a single connection limit,
+ * and a single idle connection per host and TLS handshake where it would
+ * otherwise have one per client.
+ * <p>
+ * The limits of the pool can be tuned while it is in use, globally, per route
+ * and per host; and the pool reports the number of leased, idle and pending
+ * connections of each route. A route is the combination of a target host and
+ * port, and of the proxy if any.
+ * <p>
+ * By default, the pool verifies the host names of HTTPS connections strictly,
+ * as the clients do, except for the endpoints of the Amazon S3 clients using
+ * it and their subdomains. Those are verified in a browser compatible way, as
+ * the virtual host style endpoints of buckets whose names contain dots don't
+ * match the wildcard of the S3 certificates. For example:
+ * <pre>
+ * SharedConnectionPool pool = new SharedConnectionPool();
+ * ClientConfiguration config = new ClientConfiguration()
+ *         .withSharedConnectionPool(pool);
+ * AmazonS3 s3 = new AmazonS3Client(config);
+ * AmazonDynamoDB dynamoDB = new AmazonDynamoDBClient(config);
+ * </pre>
+ * <p>
+ * Unlike the connection pool of a client, a shared pool is not shut down by
+ * the clients using it, but by {@link #shutdown()} once none of them is used
+ * anymore.
+ */
+@ThreadSafe
+public class SharedConnectionPool {
+    private final RouteTrackingConnectionManager connectionManager;
+    private final int connectionTimeout;
+    private final boolean useReaper;
+    private final boolean strictHostnameVerification;
+    /**
+     * The hosts whose HTTPS connections, and those of their subdomains, are
+     * verified in a browser compatible way despite strict hostname
+     * verification.
+     */
+    private final Set<String> browserCompatibleHosts = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** The maximum number of connections of each route, by host name. */
+    private final ConcurrentMap<String, Integer> maxConnectionsPerHost =
+            new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Constructs a pool with the default maximum number of connections,
+     * connection TTL, DNS resolver and SSL socket factory.
+     */
+    public SharedConnectionPool() {
+        this(new ClientConfiguration());
+    }
+
+    /**
+     * Constructs a pool with the maximum number of connections, connection
+     * TTL, connection timeout, DNS resolver, SSL socket factory or context and
+     * use of the idle connection reaper of the given configuration. The maximum number of
+     * connections applies to the pool as a whole as well as to each route.
+     *
+     * @param config
+     *            The configuration of the pool.
+     */
+    public SharedConnectionPool(ClientConfiguration config) {
+        this(config, true);
+    }
+
+    /**
+     * Constructs a pool as with {@link #SharedConnectionPool(ClientConfiguration)},
+     * with strict or browser compatible hostname verification (i.e. cert
+     * hostname wildcards are evaluated more liberally) for all hosts. The
+     * hostname verification is that of the SSL socket factory of the
+     * configuration instead, if it has one.
+     *
+     * @param config
+     *            The configuration of the pool.
+     * @param strictHostnameVerification
+     *            True for strict hostname verification, except for the
+     *            endpoints of Amazon S3 clients; false for browser compatible
+     *            hostname verification of all hosts.
+     */
+    public SharedConnectionPool(ClientConfiguration config,
+            boolean strictHostnameVerification) {
+        connectionManager = new RouteTrackingConnectionManager(config);
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+        connectionManager.setMaxTotal(config.getMaxConnections());
+        HttpClientFactory.registerSchemes(connectionManager.getSchemeRegistry(),
+                config.getApacheHttpClientConfig(), strictHostnameVerification
+                    ? new PerHostHostnameVerifier()
+                    : SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+        this.strictHostnameVerification = strictHostnameVerification
+                && config.getApacheHttpClientConfig().getSslSocketFactory() == null;
+        connectionTimeout = config.getConnectionTimeout();
+        useReaper = config.useReaper();
+        if (useReaper) {
+            IdleConnectionReaper.registerConnectionManager(connectionManager);
+        }
+    }
+
+    /**
+     * Returns true if the host names of the HTTPS connections of the pool are
+     * verified strictly, except for the hosts passed to
+     * {@link #disableStrictHostnameVerification(String)}; false if they are
+     * verified in a browser compatible way, or by the SSL socket factory the
+     * pool was configured with.
+     */
+    public boolean isStrictHostnameVerification() {
+        return strictHostnameVerification;
+    }
+
+    /**
+     * Returns true if the host name of the HTTPS connections to the given host
+     * is verified strictly; false if it is verified in a browser compatible
+     * way, or by the SSL socket factory the pool was configured with.
+     *
+     * @param host
+     *            The host name of a connection.
+     */
+    public boolean isStrictHostnameVerification(String host) {
+        return strictHostnameVerification && !isBrowserCompatibleHost(host);
+    }
+
+    /**
+     * Verifies the host names of the HTTPS connections to the given host and
+     * its subdomains in a browser compatible way, as Amazon S3 clients do for
+     * their endpoint. Has no effect if the host names are not verified
+     * strictly in the first place.
+     *
+     * @param host
+     *            The host name, as in the endpoint of a client.
+     */
+    public void disableStrictHostnameVerification(String host) {
+        if (strictHostnameVerification) {
+            browserCompatibleHosts.add(host.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * Returns the maximum number of connections of the pool.
+     */
+    public int getMaxConnections() {
+        return connectionManager.getMaxTotal();
+    }
+
+    /**
+     * Sets the maximum number of connections of the pool.
+     */
+    public void setMaxConnections(int maxConnections) {
+        connectionManager.setMaxTotal(maxConnections);
+    }
+
+    /**
+     * Returns the maximum number of connections of each route for which no
+     * other limit has been set for its host.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return connectionManager.getDefaultMaxPerRoute();
+    }
+
+    /**
+     * Sets the maximum number of connections of each route for which no other
+     * limit has been set for its host.
+     */
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    }
+
+    /**
+     * Sets the maximum number of connections of each route to the given host,
+     * such as the endpoint of a service with a higher request rate than the
+     * others sharing the pool.
+     *
+     * @param host
+     *            The host name, as in the endpoints of the clients.
+     * @param maxConnections
+     *            The maximum number of connections of each route to the host.
+     */
+    public void setMaxConnectionsForHost(String host, int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+        maxConnectionsPerHost.put(host, maxConnections);
+        for (HttpRoute route : connectionManager.routes.keySet()) {
+            if (host.equals(route.getTargetHost().getHostName())) {
+                connectionManager.setMaxPerRoute(route, maxConnections);
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics of the whole pool.
+     */
+    public PoolStats getTotalStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Returns the number of leased, idle and pending connections, and the
+     * maximum number of connections, of each route that has been used.
+     */
+    public Map<HttpRoute, PoolStats> getRouteStats() {
+        Map<HttpRoute, PoolStats> stats = new HashMap<HttpRoute, PoolStats>();
+        for (HttpRoute route : connectionManager.routes.keySet()) {
+            stats.put(route, connectionManager.getStats(route));
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Resolves the host of the given endpoint and opens connections to it
+     * until the pool holds at least the given number of open connections to
+     * the endpoint, so that the first requests to the endpoint don't wait for
+     * them. The connections are opened without a proxy; use
+     * {@link com.amazonaws.AmazonWebServiceClient#prewarmConnections(int)}
+     * for the clients configured with a proxy.
+     *
+     * @param endpoint
+     *            The endpoint of a service, as configured on its clients.
+     * @param connections
+     *            The number of connections; which is capped to the maximum
+     *            number of connections of the route to the endpoint.
+     * @return The number of open connections to the endpoint, which is less
+     *         than requested if some connections couldn't be opened.
+     */
+    public int warmUp(URI endpoint, int connections) {
+        HttpHost target = URIUtils.extractHost(endpoint);
+        if (target == null) {
+            throw new IllegalArgumentException("Invalid endpoint: " + endpoint);
+        }
+        boolean secure = connectionManager.getSchemeRegistry()
+                .getScheme(target).isLayered();
+        HttpRoute route = new HttpRoute(target, null, secure);
+        HttpParams params = new BasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(params, connectionTimeout);
+        HttpConnectionParams.setTcpNoDelay(params, true);
+        return ConnectionPrewarmer.prewarm(connectionManager, route,
+                Math.min(connections, connectionManager.getMaxPerRoute(route)),
+                params);
+    }
+
+    /**
+     * Closes all the connections of the pool. The clients using the pool
+     * can't be used anymore afterwards.
+     */
+    public void shutdown() {
+        if (useReaper) {
+            IdleConnectionReaper.removeConnectionManager(connectionManager);
+        }
+        connectionManager.shutdown();
+    }
+
+    /**
+     * Returns the connection manager for the clients to use.
+     */
+    PoolingClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Returns true if the given host, or one of its parent domains, has been
+     * passed to {@link #disableStrictHostnameVerification(String)}.
+     */
+    private boolean isBrowserCompatibleHost(String host) {
+        if (browserCompatibleHosts.isEmpty())
+            return false;
+        String domain = host.toLowerCase(Locale.ENGLISH);
+        for (;;) {
+            if (browserCompatibleHosts.contains(domain))
+                return true;
+            int dot = domain.indexOf('.');
+            if (dot < 0)
+                return false;
+            domain = domain.substring(dot + 1);
+        }
+    }
+
+    /**
+     * A hostname verifier that verifies the hosts registered via
+     * {@link SharedConnectionPool#disableStrictHostnameVerification(String)},
+     * and their subdomains, in a browser compatible way; and all the other
+     * hosts strictly.
+     */
+    private final class PerHostHostnameVerifier extends AbstractVerifier {
+        @Override
+        public void verify(String host, String[] cns, String[] subjectAlts)
+                throws SSLException {
+            verify(host, cns, subjectAlts, !isBrowserCompatibleHost(host));
+        }
+
+        @Override
+        public String toString() {
+            return "PER_HOST";
+        }
+    }
+
+    /**
+     * A pooling connection manager that keeps track of the routes for which
+     * connections have been requested, which Apache HttpClient 4.3 doesn't
+     * expose, and applies the per host limits to new routes.
+     */
+    private final class RouteTrackingConnectionManager extends PoolingClientConnectionManager {
+        private final ConcurrentMap<HttpRoute, Boolean> routes =
+                new ConcurrentHashMap<HttpRoute, Boolean>();
+
+        RouteTrackingConnectionManager(ClientConfiguration config) {
+            super(SchemeRegistryFactory.createDefault(),
+                  config.getConnectionTTL(),
+                  TimeUnit.MILLISECONDS,
+                  new DelegatingDnsResolver(config.getDnsResolver()));
+        }
+
+        @Override
+        public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+            if (routes.putIfAbsent(route, Boolean.TRUE) == null) {
+                Integer max = maxConnectionsPerHost.get(route.getTargetHost().getHostName());
+                if (max != null) {
+                    setMaxPerRoute(route, max);
+                }
+            }
+            return super.requestConnection(route, state);
+        }
+    }
+}
@@ -18,9 +18,9 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Map;
 
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,7 +47,7 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
     /** Shared logger for profiling information */
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
 
-    /** Shared factory for creating XML event readers */
+    /** Shared factory for creating XML stream readers */
     private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
 
 
@@ -84,14 +84,16 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         InputStream content = response.getContent();
         if (content == null) content = new ByteArrayInputStream("<eof/>".getBytes());
 
-        XMLEventReader eventReader;
+        // Use the cursor-based stream reader, so no event object gets
+        // allocated for every tag and text node of the response
+        XMLStreamReader streamReader;
         synchronized (xmlInputFactory) {
-            eventReader = xmlInputFactory.createXMLEventReader(content);
+            streamReader = xmlInputFactory.createXMLStreamReader(content);
         }
 
         try {
             AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
-            StaxUnmarshallerContext unmarshallerContext = new StaxUnmarshallerContext(eventReader, response.getHeaders());
+            StaxUnmarshallerContext unmarshallerContext = new StaxUnmarshallerContext(streamReader, response.getHeaders());
             unmarshallerContext.registerMetadataExpression("ResponseMetadata/RequestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             unmarshallerContext.registerMetadataExpression("requestId", 2, ResponseMetadata.AWS_REQUEST_ID);
             registerAdditionalMetadataExpressions(unmarshallerContext);
@@ -113,7 +115,7 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             return awsResponse;
         } finally {
             try {
-                eventReader.close();
+                streamReader.close();
             } catch (XMLStreamException e) {
                 log.warn("Error closing xml parser", e);
             }
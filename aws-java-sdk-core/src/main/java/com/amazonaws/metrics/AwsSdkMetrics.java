@@ -23,7 +23,10 @@ import java.net.InetAddress;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +38,7 @@ import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.auth.PropertiesCredentials;
 import com.amazonaws.jmx.spi.SdkMBeanRegistry;
 import com.amazonaws.regions.Regions;
+import com.amazonaws.retry.AdaptiveRateLimiter;
 import com.amazonaws.util.AWSRequestMetrics.Field;
 import com.amazonaws.util.AWSServiceMetrics;
 
@@ -305,6 +309,13 @@ public enum AwsSdkMetrics {
     }
 
     private static final MetricRegistry registry = new MetricRegistry();
+    /** The client side rate limiters currently in use. */
+    private static final Set<AdaptiveRateLimiter> rateLimiters =
+        Collections.newSetFromMap(new ConcurrentHashMap<AdaptiveRateLimiter, Boolean>());
+    private static volatile boolean latencyHistogramsEnabled;
+    /** The latency histograms of the AWS SDK, by metric name. */
+    private static final ConcurrentMap<String, LatencyHistogram> latencyHistograms =
+        new ConcurrentHashMap<String, LatencyHistogram>();
     private static volatile MetricCollector mc;
     /**
      * Used to disallow re-entrancy in enabling the default metric collection system. 
@@ -630,6 +641,92 @@ public enum AwsSdkMetrics {
         return registry.predefinedMetrics();
     }
 
+    /**
+     * Adds the given client side rate limiter to the rate limiters whose
+     * current limits are exposed at the AWS SDK level.
+     */
+    public static void addRateLimiter(AdaptiveRateLimiter rateLimiter) {
+        rateLimiters.add(rateLimiter);
+    }
+    /**
+     * Removes the given client side rate limiter from the rate limiters whose
+     * current limits are exposed at the AWS SDK level.
+     */
+    public static void removeRateLimiter(AdaptiveRateLimiter rateLimiter) {
+        rateLimiters.remove(rateLimiter);
+    }
+    /**
+     * Returns an unmodifiable view of the client side rate limiters currently
+     * in use.
+     */
+    public static Set<AdaptiveRateLimiter> getRateLimiters() {
+        return Collections.unmodifiableSet(rateLimiters);
+    }
+
+    /**
+     * Returns true if the latencies of all the requests are recorded into the
+     * latency histograms of the AWS SDK; false otherwise.
+     */
+    public static boolean isLatencyHistogramsEnabled() {
+        return latencyHistogramsEnabled;
+    }
+
+    /**
+     * Used to set whether the latencies of all the requests, such as their
+     * {@link Field#ClientExecuteTime} and {@link Field#HttpRequestTime}, are
+     * recorded into the latency histograms of the AWS SDK. Unlike the
+     * collection of request metrics, this doesn't retain any measurement per
+     * request, so that the latency percentiles can be tracked at any request
+     * rate. The histograms recorded so far are kept when disabled.
+     *
+     * @param latencyHistogramsEnabled
+     *            true if the latencies are to be recorded; false otherwise.
+     */
+    public static void setLatencyHistogramsEnabled(boolean latencyHistogramsEnabled) {
+        AwsSdkMetrics.latencyHistogramsEnabled = latencyHistogramsEnabled;
+    }
+
+    /**
+     * Records the given latency of the given metric into its latency
+     * histogram, but only if latency histograms are enabled.
+     *
+     * @param metricName
+     *            The name of the metric, such as the name of a
+     *            {@link MetricType}.
+     * @param nanos
+     *            The latency in nanoseconds.
+     */
+    public static void recordLatency(String metricName, long nanos) {
+        if (!latencyHistogramsEnabled) {
+            return;
+        }
+        LatencyHistogram histogram = latencyHistograms.get(metricName);
+        if (histogram == null) {
+            histogram = new LatencyHistogram(metricName);
+            LatencyHistogram existing = latencyHistograms.putIfAbsent(metricName, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        histogram.recordNanos(nanos);
+    }
+
+    /**
+     * Returns the latency histogram of the given metric; or null if no latency
+     * has been recorded for it.
+     */
+    public static LatencyHistogram getLatencyHistogram(MetricType type) {
+        return latencyHistograms.get(type.name());
+    }
+
+    /**
+     * Returns an unmodifiable view of the latency histograms of the AWS SDK,
+     * by metric name.
+     */
+    public static Map<String, LatencyHistogram> getLatencyHistograms() {
+        return Collections.unmodifiableMap(latencyHistograms);
+    }
+
     /**
      * Returns the credential provider for the default AWS SDK metric implementation.
      * This method is restricted to calls from the default AWS SDK metric implementation.
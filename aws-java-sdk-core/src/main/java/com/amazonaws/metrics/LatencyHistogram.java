@@ -0,0 +1,201 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * A lock-free histogram of latencies, in microseconds, which records each
+ * latency into a fixed set of counters without allocating, so that the
+ * latency percentiles of all the requests can be tracked at any request rate.
+ * <p>
+ * As in an HDR histogram, the counters are log-linear: latencies below 128
+ * microseconds are recorded exactly, and larger ones in one of 64 buckets per
+ * power of two, so that the reported percentiles are within 1.6% of the
+ * recorded latencies, up to about 38 hours.
+ * <p>
+ * Reading the histogram while latencies are recorded gives approximate
+ * results, which are never off by more than the concurrently recorded
+ * latencies.
+ *
+ * @see AwsSdkMetrics#setLatencyHistogramsEnabled(boolean)
+ */
+@ThreadSafe
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+    /** The number of latencies recorded exactly. */
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT << 1;
+    /** The largest shift of the latencies to their bucket. */
+    private static final int MAX_SHIFT = 30;
+    private static final int BUCKET_COUNT =
+        SUB_BUCKET_COUNT + MAX_SHIFT * SUB_BUCKET_HALF_COUNT;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * @param name
+     *            The name of the latency, such as the name of a metric type.
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a latency in nanoseconds.
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Records a latency in microseconds. Negative latencies, which are the
+     * result of the clock being adjusted, are recorded as zero.
+     */
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(indexOf(micros));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Returns the mean latency in microseconds, or zero if none has been
+     * recorded.
+     */
+    public double getMeanMicros() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalMicros.get() / count;
+    }
+
+    /**
+     * Returns the largest latency recorded, in microseconds.
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Returns the latency in microseconds below or at which the given
+     * percentage of the recorded latencies are, or zero if none has been
+     * recorded.
+     *
+     * @param percentile
+     *            The percentage, from 0 to 100.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= rank) {
+                return Math.min(highestValueOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Clears the recorded latencies, such as at the start of a reporting
+     * interval.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /**
+     * Returns the index of the bucket of the given non-negative latency.
+     */
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKET_COUNT - 1;
+        }
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT
+            + (int) (micros >>> shift) - SUB_BUCKET_HALF_COUNT;
+    }
+
+    /**
+     * Returns the largest latency recorded in the bucket of the given index.
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT
+            + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the name, count, mean, median, 90th, 99th and 99.9th percentiles
+     * and maximum of the recorded latencies, in milliseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format(
+            "%s: count=%d, mean=%.3f, p50=%.3f, p90=%.3f, p99=%.3f, p99.9=%.3f, max=%.3f ms",
+            name, getCount(), getMeanMicros() / 1000,
+            getValueAtPercentile(50) / 1000.0,
+            getValueAtPercentile(90) / 1000.0,
+            getValueAtPercentile(99) / 1000.0,
+            getValueAtPercentile(99.9) / 1000.0,
+            getMaxMicros() / 1000.0);
+    }
+}
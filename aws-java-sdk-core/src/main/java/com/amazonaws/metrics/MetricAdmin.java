@@ -16,8 +16,11 @@ package com.amazonaws.metrics;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.amazonaws.regions.Regions;
+import com.amazonaws.retry.AdaptiveRateLimiter;
 
 /**
  *  Administration of AwsSdkMetrics as an MBean.
@@ -144,4 +147,26 @@ public class MetricAdmin implements MetricAdminMBean {
     public void setSingleMetricNamespace(boolean singleMetricNamespace) {
         AwsSdkMetrics.setSingleMetricNamespace(singleMetricNamespace);
     }
+    @Override
+    public String[] getRateLimiters() {
+        List<String> list = new ArrayList<String>();
+        for (AdaptiveRateLimiter rateLimiter : AwsSdkMetrics.getRateLimiters())
+            list.add(rateLimiter.toString());
+        return list.toArray(new String[list.size()]);
+    }
+    @Override
+    public boolean isLatencyHistogramsEnabled() {
+        return AwsSdkMetrics.isLatencyHistogramsEnabled();
+    }
+    @Override
+    public void setLatencyHistogramsEnabled(boolean latencyHistogramsEnabled) {
+        AwsSdkMetrics.setLatencyHistogramsEnabled(latencyHistogramsEnabled);
+    }
+    @Override
+    public String[] getLatencyHistograms() {
+        List<String> list = new ArrayList<String>();
+        for (LatencyHistogram histogram : AwsSdkMetrics.getLatencyHistograms().values())
+            list.add(histogram.toString());
+        return list.toArray(new String[list.size()]);
+    }
 }
\ No newline at end of file
@@ -184,4 +184,28 @@ public interface MetricAdminMBean {
      * Used to set whether a single metric name space is to be used.
      */
     public void setSingleMetricNamespace(boolean singleMetricNamespace);
+
+    /**
+     * Returns the current limits of the client side rate limiters in use, one
+     * rate limiter per element.
+     */
+    public String[] getRateLimiters();
+
+    /**
+     * Returns true if the latencies of all the requests are recorded into the
+     * latency histograms of the AWS SDK; false otherwise.
+     */
+    public boolean isLatencyHistogramsEnabled();
+
+    /**
+     * Used to set whether the latencies of all the requests are recorded into
+     * the latency histograms of the AWS SDK.
+     */
+    public void setLatencyHistogramsEnabled(boolean latencyHistogramsEnabled);
+
+    /**
+     * Returns the count, mean, percentiles and maximum of the latencies
+     * recorded so far, one metric per element.
+     */
+    public String[] getLatencyHistograms();
 }
\ No newline at end of file
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.annotation.GuardedBy;
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.metrics.AwsSdkMetrics;
+
+/**
+ * A token bucket rate limiter combined with an AIMD (additive increase,
+ * multiplicative decrease) concurrency limiter, which adapts the rate at which
+ * a client sends requests according to the throttling responses it receives.
+ * <p>
+ * Each request attempt must {@link #acquire()} the limiter before it is sent,
+ * and {@link #release(long, Outcome)} it once its outcome is known. When a
+ * request is throttled, the current send rate and concurrency limit are
+ * multiplied by the decrease factor of the {@link RateLimitPolicy}, but at most
+ * once for all the requests that were in flight when the limits were last
+ * decreased. When a request succeeds, the concurrency limit grows by one per
+ * full window of successful requests, and the send rate by 5% of its maximum
+ * per second of successful requests, until both reach their maximum.
+ * <p>
+ * The current limits of the rate limiters in use can be inspected via
+ * {@link AwsSdkMetrics#getRateLimiters()} and JMX.
+ *
+ * @see RateLimitPolicy
+ */
+@ThreadSafe
+public final class AdaptiveRateLimiter {
+    /**
+     * The fraction of the maximum send rate regained per second of successful
+     * requests sent at the current rate.
+     */
+    private static final double RATE_INCREASE_FRACTION = 0.05;
+    /** The lowest send rate the limiter would decrease to. */
+    private static final double MIN_REQUESTS_PER_SECOND = 1;
+    /** The lowest concurrency limit the limiter would decrease to. */
+    private static final double MIN_CONCURRENCY = 1;
+
+    /**
+     * The outcome of a request attempt.
+     */
+    public static enum Outcome {
+        /** The request succeeded. */
+        SUCCEEDED,
+        /** The request was throttled by the service. */
+        THROTTLED,
+        /** The request failed for a reason other than throttling. */
+        FAILED,
+        ;
+    }
+
+    private final String name;
+    private final RateLimitPolicy policy;
+    private final double maxRequestsPerSecond;
+    private final double minRequestsPerSecond;
+    private final int maxConcurrency;
+
+    @GuardedBy("this")
+    private double requestsPerSecond;
+    /** The available tokens; negative if tokens have been reserved. */
+    @GuardedBy("this")
+    private double tokens;
+    @GuardedBy("this")
+    private long lastRefillNanos;
+    @GuardedBy("this")
+    private double concurrencyLimit;
+    @GuardedBy("this")
+    private int inFlight;
+    /** The time the limits were last decreased. */
+    @GuardedBy("this")
+    private long lastDecreaseNanos;
+    @GuardedBy("this")
+    private long throttleCount;
+
+    /**
+     * @param name
+     *            the name of the rate limiter, identifying the client and
+     *            possibly the endpoint it is used for
+     * @param policy
+     *            the rate limit policy
+     */
+    public AdaptiveRateLimiter(String name, RateLimitPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.maxRequestsPerSecond = policy.getMaxRequestsPerSecond();
+        this.minRequestsPerSecond = Math.min(maxRequestsPerSecond,
+                MIN_REQUESTS_PER_SECOND);
+        this.maxConcurrency = policy.getMaxConcurrency();
+        this.requestsPerSecond = maxRequestsPerSecond;
+        this.tokens = policy.getBurstCapacity();
+        this.concurrencyLimit = maxConcurrency;
+        this.lastRefillNanos = this.lastDecreaseNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until a request can be sent without exceeding the current send
+     * rate and concurrency limit.
+     *
+     * @return the ticket to be passed to {@link #release(long, Outcome)} once
+     *         the outcome of the request is known
+     */
+    public long acquire() throws InterruptedException {
+        return acquire(0);
+    }
+
+    /**
+     * Blocks until a request can be sent without exceeding the current send
+     * rate and concurrency limit, or until the given timeout would expire.
+     *
+     * @param timeoutMillis
+     *            the maximum time to wait in milliseconds; or a non-positive
+     *            value to wait for as long as necessary
+     * @return the ticket to be passed to {@link #release(long, Outcome)} once
+     *         the outcome of the request is known; or null if the request
+     *         can't be sent before the timeout expires
+     */
+    public Long acquire(long timeoutMillis) throws InterruptedException {
+        final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        final long startNanos = System.nanoTime();
+        long waitNanos = 0;
+        if (isRateLimited()) {
+            synchronized (this) {
+                refill();
+                tokens -= 1;
+                if (tokens < 0)
+                    waitNanos = (long) (-tokens / requestsPerSecond * 1e9);
+                if (timeoutNanos > 0 && waitNanos >= timeoutNanos) {
+                    tokens += 1;
+                    return null;
+                }
+            }
+        }
+        if (waitNanos > 0)
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        synchronized (this) {
+            if (isConcurrencyLimited()) {
+                while (inFlight >= (int) concurrencyLimit) {
+                    if (timeoutNanos <= 0) {
+                        wait();
+                        continue;
+                    }
+                    long remainingNanos = timeoutNanos
+                            - (System.nanoTime() - startNanos);
+                    if (remainingNanos <= 0) {
+                        if (isRateLimited())
+                            tokens = Math.min(policy.getBurstCapacity(), tokens + 1);
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                }
+            }
+            inFlight++;
+            return System.nanoTime();
+        }
+    }
+
+    /**
+     * Acquires the limiter for a request only if it can be sent right away
+     * without exceeding the current send rate and concurrency limit, such as
+     * an optional request that is not worth waiting for.
+     *
+     * @return the ticket to be passed to {@link #release(long, Outcome)} once
+     *         the outcome of the request is known; or null if the request
+     *         can't be sent right away
+     */
+    public synchronized Long tryAcquire() {
+        if (isConcurrencyLimited() && inFlight >= (int) concurrencyLimit)
+            return null;
+        if (isRateLimited()) {
+            refill();
+            if (tokens < 1)
+                return null;
+            tokens -= 1;
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Releases the limiter acquired for a request, adapting the limits to the
+     * outcome of the request.
+     *
+     * @param ticket
+     *            the ticket returned by {@link #acquire()}
+     * @param outcome
+     *            the outcome of the request
+     */
+    public synchronized void release(long ticket, Outcome outcome) {
+        inFlight--;
+        if (outcome == Outcome.SUCCEEDED) {
+            increase();
+        } else if (outcome == Outcome.THROTTLED) {
+            throttleCount++;
+            // Requests sent before the last decrease have already been
+            // accounted for.
+            if (ticket - lastDecreaseNanos >= 0) {
+                decrease();
+                lastDecreaseNanos = System.nanoTime();
+            }
+        }
+        notifyAll();
+    }
+
+    @GuardedBy("this")
+    private void refill() {
+        long now = System.nanoTime();
+        double refilled = tokens + (now - lastRefillNanos) / 1e9 * requestsPerSecond;
+        tokens = Math.min(policy.getBurstCapacity(), refilled);
+        lastRefillNanos = now;
+    }
+
+    @GuardedBy("this")
+    private void increase() {
+        if (isRateLimited() && requestsPerSecond < maxRequestsPerSecond) {
+            refill();
+            requestsPerSecond = Math.min(maxRequestsPerSecond, requestsPerSecond
+                    + maxRequestsPerSecond * RATE_INCREASE_FRACTION / requestsPerSecond);
+        }
+        if (isConcurrencyLimited() && concurrencyLimit < maxConcurrency) {
+            concurrencyLimit = Math.min(maxConcurrency,
+                    concurrencyLimit + 1 / concurrencyLimit);
+        }
+    }
+
+    @GuardedBy("this")
+    private void decrease() {
+        if (isRateLimited()) {
+            refill();
+            requestsPerSecond = Math.max(minRequestsPerSecond,
+                    requestsPerSecond * policy.getDecreaseFactor());
+        }
+        if (isConcurrencyLimited()) {
+            concurrencyLimit = Math.max(MIN_CONCURRENCY,
+                    concurrencyLimit * policy.getDecreaseFactor());
+        }
+    }
+
+    private boolean isRateLimited() {
+        return maxRequestsPerSecond > 0;
+    }
+
+    private boolean isConcurrencyLimited() {
+        return maxConcurrency > 0;
+    }
+
+    /**
+     * Returns the name of this rate limiter.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the rate limit policy of this rate limiter.
+     */
+    public RateLimitPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the current maximum number of requests per second; or a
+     * non-positive value if the send rate is not limited.
+     */
+    public synchronized double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Returns the current maximum number of requests in flight; or a
+     * non-positive value if the concurrency is not limited.
+     */
+    public synchronized int getConcurrencyLimit() {
+        return (int) concurrencyLimit;
+    }
+
+    /**
+     * Returns the number of requests currently in flight.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the number of throttled requests so far.
+     */
+    public synchronized long getThrottleCount() {
+        return throttleCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name
+            + ": requestsPerSecond=" + (isRateLimited() ? requestsPerSecond : "unlimited")
+            + ", concurrencyLimit=" + (isConcurrencyLimited() ? (int) concurrencyLimit : "unlimited")
+            + ", inFlight=" + inFlight
+            + ", throttleCount=" + throttleCount
+            ;
+    }
+}
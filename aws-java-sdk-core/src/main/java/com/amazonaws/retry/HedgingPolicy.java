@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.annotation.Immutable;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * Request hedging policy that can be configured on a specific service client
+ * using {@link ClientConfiguration}. This class is immutable, therefore safe to
+ * be shared by multiple clients; each client keeps track of the latencies of
+ * its own requests.
+ * <p>
+ * When a request of one of the configured types has not received a response
+ * after the configured percentile of the recent latencies of requests of the
+ * same type, an identical copy of the signed request is sent on another
+ * connection from the pool. Whichever of the two receives a response first is
+ * used, and the other is aborted. Hedging trades a small amount of extra load
+ * for a shorter tail latency, and must only be configured for idempotent
+ * requests, such as reads, with small or no payload.
+ * <p>
+ * Like a retry, a hedged request is sent only if the client side rate limiter,
+ * if any, and the retry capacity of the client allow it right away; and at
+ * most {@code 32} hedged requests are in flight in the JVM at any time.
+ *
+ * @see ClientConfiguration#setHedgingPolicy(HedgingPolicy)
+ */
+@Immutable
+public final class HedgingPolicy {
+    /** The default latency percentile after which a request is hedged. */
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    /** The default minimum delay before a request is hedged. */
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 5;
+
+    /**
+     * The default number of latency samples collected for a request type
+     * before its requests start to be hedged.
+     */
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+
+    /** The maximum size of a request payload that can be hedged. */
+    public static final int MAX_HEDGED_CONTENT_LENGTH = 64 * 1024;
+
+    private final List<Class<? extends AmazonWebServiceRequest>> requestTypes;
+
+    /** The latency percentile, in (0, 100), after which a request is hedged. */
+    private final double percentile;
+
+    /** The minimum delay before a request is hedged. */
+    private final long minDelayMillis;
+
+    /**
+     * The number of latency samples collected for a request type before its
+     * requests start to be hedged.
+     */
+    private final int minSamples;
+
+    /**
+     * Constructs a new hedging policy with the default percentile, minimum
+     * delay and minimum number of samples.
+     *
+     * @param requestTypes
+     *            The types of the idempotent requests to be hedged, including
+     *            their subtypes.
+     */
+    public HedgingPolicy(
+            Collection<Class<? extends AmazonWebServiceRequest>> requestTypes) {
+        this(requestTypes, DEFAULT_PERCENTILE, DEFAULT_MIN_DELAY_MILLIS,
+                DEFAULT_MIN_SAMPLES);
+    }
+
+    /**
+     * Constructs a new hedging policy.
+     *
+     * @param requestTypes
+     *            The types of the idempotent requests to be hedged, including
+     *            their subtypes.
+     * @param percentile
+     *            The percentile, strictly between 0 and 100, of the recent
+     *            latencies of requests of the same type after which a request
+     *            is hedged.
+     * @param minDelayMillis
+     *            The minimum delay in milliseconds before a request is hedged.
+     * @param minSamples
+     *            The number of latency samples to be collected for a request
+     *            type before its requests start to be hedged. Must be positive.
+     */
+    public HedgingPolicy(
+            Collection<Class<? extends AmazonWebServiceRequest>> requestTypes,
+            double percentile, long minDelayMillis, int minSamples) {
+        if (requestTypes == null) {
+            throw new IllegalArgumentException("requestTypes must not be null");
+        }
+        if (!(percentile > 0 && percentile < 100)) {
+            throw new IllegalArgumentException(
+                    "percentile must be strictly between 0 and 100");
+        }
+        if (minDelayMillis < 0) {
+            throw new IllegalArgumentException("minDelayMillis must be non-negative");
+        }
+        if (minSamples <= 0) {
+            throw new IllegalArgumentException("minSamples must be positive");
+        }
+        this.requestTypes = Collections.unmodifiableList(
+                new ArrayList<Class<? extends AmazonWebServiceRequest>>(requestTypes));
+        this.percentile = percentile;
+        this.minDelayMillis = minDelayMillis;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * Returns true if the given request is of one of the types to be hedged;
+     * false otherwise.
+     */
+    public boolean isHedged(AmazonWebServiceRequest originalRequest) {
+        if (originalRequest == null)
+            return false;
+        for (Class<? extends AmazonWebServiceRequest> type : requestTypes) {
+            if (type.isInstance(originalRequest))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the types of the requests to be hedged.
+     */
+    public List<Class<? extends AmazonWebServiceRequest>> getRequestTypes() {
+        return requestTypes;
+    }
+
+    /**
+     * Returns the percentile of the recent latencies of requests of the same
+     * type after which a request is hedged.
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Returns the minimum delay in milliseconds before a request is hedged.
+     */
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    /**
+     * Returns the number of latency samples collected for a request type
+     * before its requests start to be hedged.
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+}
@@ -85,6 +85,20 @@ public class PredefinedRetryPolicies {
      */
     public static final RetryPolicy.BackoffStrategy DYNAMODB_DEFAULT_BACKOFF_STRATEGY = new DynamoDBDefaultBackoffStrategy();
 
+    /**
+     * A retry capacity that is a token bucket per client with the default
+     * capacity and costs of {@link RetryTokenBucket}. It bounds the number of
+     * retries of a client when most of its requests fail, except for the
+     * retries of throttled requests, which are free.
+     * <p>
+     * The predefined retry policies don't limit retries by any retry capacity;
+     * this one can be opted into with
+     * {@link #getDefaultRetryPolicyWithRetryCapacity(RetryPolicy.RetryCapacityFactory)}
+     * or by passing it to
+     * {@link RetryPolicy#RetryPolicy(RetryPolicy.RetryCondition, RetryPolicy.BackoffStrategy, int, boolean, RetryPolicy.RetryCapacityFactory)}.
+     */
+    public static final RetryPolicy.RetryCapacityFactory TOKEN_BUCKET_RETRY_CAPACITY_FACTORY = new RetryTokenBucket.Factory();
+
     static {
         DEFAULT = getDefaultRetryPolicy();
         DYNAMODB_DEFAULT = getDynamoDBDefaultRetryPolicy();
@@ -116,6 +130,25 @@ public class PredefinedRetryPolicies {
                                true);
     }
 
+    /**
+     * Returns the SDK default retry policy, whose retries are also limited by
+     * the given retry capacity shared by the requests of each client. This
+     * policy will honor the maxErrorRetry set in ClientConfiguration.
+     *
+     * @param retryCapacityFactory
+     *            Factory of the retry capacity of each client using the
+     *            policy, such as {@link #TOKEN_BUCKET_RETRY_CAPACITY_FACTORY}.
+     * @see ClientConfiguration#setMaxErrorRetry(int)
+     */
+    public static RetryPolicy getDefaultRetryPolicyWithRetryCapacity(
+            RetryPolicy.RetryCapacityFactory retryCapacityFactory) {
+        return new RetryPolicy(DEFAULT_RETRY_CONDITION,
+                               DEFAULT_BACKOFF_STRATEGY,
+                               DEFAULT_MAX_ERROR_RETRY,
+                               true,
+                               retryCapacityFactory);
+    }
+
     /**
      * Returns the SDK default retry policy with the specified max retry count.
      */
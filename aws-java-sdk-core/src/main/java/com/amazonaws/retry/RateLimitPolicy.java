@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import org.apache.http.annotation.Immutable;
+
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * Client side rate limiting policy that can be configured on a specific
+ * service client using {@link ClientConfiguration}. This class is immutable,
+ * therefore safe to be shared by multiple clients; each client keeps the
+ * state of its own {@link AdaptiveRateLimiter}s.
+ * <p>
+ * Requests are sent at no more than the current send rate, enforced by a token
+ * bucket, and with no more than the current concurrency limit in flight. Both
+ * limits start at the configured maximum, are multiplicatively decreased
+ * whenever a request is throttled by the service (as determined by
+ * {@link RetryUtils#isThrottlingException}), and additively increased back
+ * toward the maximum as requests succeed.
+ *
+ * @see ClientConfiguration#setRateLimitPolicy(RateLimitPolicy)
+ * @see AdaptiveRateLimiter
+ */
+@Immutable
+public final class RateLimitPolicy {
+    /** The default multiplicative decrease factor applied upon throttling. */
+    public static final double DEFAULT_DECREASE_FACTOR = 0.5;
+
+    /**
+     * The maximum number of requests per second, or a non-positive value if
+     * the send rate is not limited.
+     */
+    private final double maxRequestsPerSecond;
+
+    /** The maximum number of requests that can be sent in a burst. */
+    private final int burstCapacity;
+
+    /**
+     * The maximum number of requests in flight, or a non-positive value if the
+     * concurrency is not limited.
+     */
+    private final int maxConcurrency;
+
+    /** The factor by which the limits are multiplied upon throttling. */
+    private final double decreaseFactor;
+
+    /**
+     * Whether a separate rate limiter is used for each endpoint the client
+     * sends requests to.
+     */
+    private final boolean perEndpoint;
+
+    /**
+     * Constructs a new rate limit policy with a single rate limiter per client
+     * and the default decrease factor.
+     *
+     * @param maxRequestsPerSecond
+     *            The maximum number of requests per second; or a non-positive
+     *            value if the send rate is not to be limited.
+     * @param maxConcurrency
+     *            The maximum number of requests in flight; or a non-positive
+     *            value if the concurrency is not to be limited.
+     */
+    public RateLimitPolicy(double maxRequestsPerSecond, int maxConcurrency) {
+        this(maxRequestsPerSecond,
+             (int) Math.max(1, Math.ceil(maxRequestsPerSecond)),
+             maxConcurrency,
+             DEFAULT_DECREASE_FACTOR,
+             false);
+    }
+
+    /**
+     * Constructs a new rate limit policy.
+     *
+     * @param maxRequestsPerSecond
+     *            The maximum number of requests per second; or a non-positive
+     *            value if the send rate is not to be limited.
+     * @param burstCapacity
+     *            The maximum number of requests that can be sent in a burst
+     *            after the client has been idle. Must be positive.
+     * @param maxConcurrency
+     *            The maximum number of requests in flight; or a non-positive
+     *            value if the concurrency is not to be limited.
+     * @param decreaseFactor
+     *            The factor, strictly between 0 and 1, by which the current
+     *            send rate and concurrency limit are multiplied when a request
+     *            is throttled.
+     * @param perEndpoint
+     *            True if a separate rate limiter is to be used for each
+     *            endpoint the client sends requests to, as identified by the
+     *            region of its host; false if a single rate limiter is to be
+     *            shared by all the requests of the client.
+     */
+    public RateLimitPolicy(double maxRequestsPerSecond,
+                           int burstCapacity,
+                           int maxConcurrency,
+                           double decreaseFactor,
+                           boolean perEndpoint) {
+        if (burstCapacity <= 0) {
+            throw new IllegalArgumentException("burstCapacity must be positive");
+        }
+        if (!(decreaseFactor > 0 && decreaseFactor < 1)) {
+            throw new IllegalArgumentException(
+                    "decreaseFactor must be strictly between 0 and 1");
+        }
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.burstCapacity = burstCapacity;
+        this.maxConcurrency = maxConcurrency;
+        this.decreaseFactor = decreaseFactor;
+        this.perEndpoint = perEndpoint;
+    }
+
+    /**
+     * Returns the maximum number of requests per second, or a non-positive
+     * value if the send rate is not limited.
+     */
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    /**
+     * Returns the maximum number of requests that can be sent in a burst.
+     */
+    public int getBurstCapacity() {
+        return burstCapacity;
+    }
+
+    /**
+     * Returns the maximum number of requests in flight, or a non-positive value
+     * if the concurrency is not limited.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the factor by which the current send rate and concurrency limit
+     * are multiplied when a request is throttled.
+     */
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    /**
+     * Returns true if a separate rate limiter is used for each endpoint the
+     * client sends requests to; false otherwise.
+     */
+    public boolean isPerEndpoint() {
+        return perEndpoint;
+    }
+}
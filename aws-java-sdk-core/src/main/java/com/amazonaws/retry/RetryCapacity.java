@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+
+/**
+ * The capacity for retrying failed requests shared by all the requests of a
+ * client. Retries consume capacity and successful requests replenish it, so
+ * that when most requests fail, as during a service outage, requests fail fast
+ * instead of multiplying the load on the service with their retries.
+ * <p>
+ * Implementations must be thread safe. A new instance is created for each
+ * client via the {@link RetryPolicy.RetryCapacityFactory} of its retry policy.
+ *
+ * @see RetryTokenBucket
+ */
+public interface RetryCapacity {
+    /**
+     * A retry capacity that never runs out.
+     */
+    public static final RetryCapacity UNLIMITED = new RetryCapacity() {
+        @Override
+        public int acquire(AmazonWebServiceRequest originalRequest,
+                AmazonClientException exception, int retriesAttempted) {
+            return 0;
+        }
+
+        @Override
+        public void release(int acquired) {
+        }
+
+        @Override
+        public int getAvailableCapacity() {
+            return Integer.MAX_VALUE;
+        }
+    };
+
+    /**
+     * Acquires the capacity needed to retry a failed request. Called only once
+     * the retry condition of the retry policy has decided that the request
+     * should be retried.
+     *
+     * @param originalRequest
+     *            The original request object being executed. For performance
+     *            reason, this object is not a defensive copy, and caller
+     *            should not attempt to modify its data.
+     * @param exception
+     *            The exception from the failed request.
+     * @param retriesAttempted
+     *            The number of times the current request has been retried.
+     *
+     * @return The non-negative amount of capacity acquired, to be released if
+     *         the request eventually succeeds; or a negative value if there is
+     *         not enough capacity left, in which case the request is not
+     *         retried.
+     */
+    public int acquire(AmazonWebServiceRequest originalRequest,
+            AmazonClientException exception, int retriesAttempted);
+
+    /**
+     * Replenishes the capacity upon the success of a request.
+     *
+     * @param acquired
+     *            The total amount of capacity acquired for retrying the
+     *            request; zero if the request succeeded without any retry.
+     */
+    public void release(int acquired);
+
+    /**
+     * Returns the capacity currently available for retries.
+     */
+    public int getAvailableCapacity();
+}
@@ -54,6 +54,12 @@ public final class RetryPolicy {
      */
     private final boolean honorMaxErrorRetryInClientConfig;
 
+    /**
+     * Factory of the retry capacity shared by the requests of each client
+     * using this retry policy. This field should not be null.
+     */
+    private final RetryCapacityFactory retryCapacityFactory;
+
     /**
      * Constructs a new retry policy. See {@link PredefinedRetryPolicies} for
      * some pre-defined policy components, and also the default policies used by
@@ -79,6 +85,38 @@ public final class RetryPolicy {
                        BackoffStrategy backoffStrategy,
                        int maxErrorRetry,
                        boolean honorMaxErrorRetryInClientConfig) {
+        this(retryCondition, backoffStrategy, maxErrorRetry,
+             honorMaxErrorRetryInClientConfig, RetryCapacityFactory.UNLIMITED);
+    }
+
+    /**
+     * Constructs a new retry policy, whose retries are limited by a retry
+     * capacity shared by the requests of each client using the policy.
+     *
+     * @param retryCondition
+     *            Retry condition on whether a specific request and exception
+     *            should be retried. If null value is specified, the SDK'
+     *            default retry condition is used.
+     * @param backoffStrategy
+     *            Back-off strategy for controlling how long the next retry
+     *            should wait. If null value is specified, the SDK' default
+     *            exponential back-off strategy is used.
+     * @param maxErrorRetry
+     *            Maximum number of retry attempts for failed requests.
+     * @param honorMaxErrorRetryInClientConfig
+     *            Whether this retry policy should honor the max error retry set
+     *            by {@link ClientConfiguration#setMaxErrorRetry(int)}
+     * @param retryCapacityFactory
+     *            Factory of the retry capacity of each client using this
+     *            policy. If null value is specified, retries are not limited
+     *            by any retry capacity.
+     * @see RetryTokenBucket.Factory
+     */
+    public RetryPolicy(RetryCondition retryCondition,
+                       BackoffStrategy backoffStrategy,
+                       int maxErrorRetry,
+                       boolean honorMaxErrorRetryInClientConfig,
+                       RetryCapacityFactory retryCapacityFactory) {
         if (retryCondition == null) {
             retryCondition = PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION;
         }
@@ -88,11 +126,15 @@ public final class RetryPolicy {
         if (maxErrorRetry < 0) {
             throw new IllegalArgumentException("Please provide a non-negative value for maxErrorRetry.");
         }
+        if (retryCapacityFactory == null) {
+            retryCapacityFactory = RetryCapacityFactory.UNLIMITED;
+        }
         
         this.retryCondition = retryCondition;
         this.backoffStrategy = backoffStrategy;
         this.maxErrorRetry = maxErrorRetry;
         this.honorMaxErrorRetryInClientConfig = honorMaxErrorRetryInClientConfig;
+        this.retryCapacityFactory = retryCapacityFactory;
     };
 
     /**
@@ -133,6 +175,16 @@ public final class RetryPolicy {
     public boolean isMaxErrorRetryInClientConfigHonored() {
         return honorMaxErrorRetryInClientConfig;
     }
+
+    /**
+     * Returns the factory of the retry capacity shared by the requests of each
+     * client using this retry policy.
+     * 
+     * @return The factory of the retry capacity of each client.
+     */
+    public RetryCapacityFactory getRetryCapacityFactory() {
+        return retryCapacityFactory;
+    }
     
     /**
      * The hook for providing custom condition on whether a failed request
@@ -232,4 +284,22 @@ public final class RetryPolicy {
                                          AmazonClientException exception,
                                          int retriesAttempted);
     }
+
+    /**
+     * The hook for providing the retry capacity shared by all the requests of
+     * a client, which limits the number of retries across requests.
+     */
+    public static interface RetryCapacityFactory {
+        public static final RetryCapacityFactory UNLIMITED = new RetryCapacityFactory() {
+            @Override
+            public RetryCapacity newRetryCapacity() {
+                return RetryCapacity.UNLIMITED;
+            }
+        };
+
+        /**
+         * Returns the retry capacity for a new client.
+         */
+        public RetryCapacity newRetryCapacity();
+    }
 }
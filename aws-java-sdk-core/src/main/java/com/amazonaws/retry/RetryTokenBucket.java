@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.Immutable;
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+
+/**
+ * A {@link RetryCapacity} implemented as a token bucket. Each retry costs a
+ * number of tokens, higher for retries caused by an I/O error such as a
+ * timeout than for retries caused by a service error. A request that succeeds
+ * after having been retried returns the tokens its retries cost, and one that
+ * succeeds at the first attempt returns a single token, up to the capacity of
+ * the bucket.
+ * <p>
+ * Retries caused by a throttling error are free, as their back-off already
+ * adapts to the throttling; so that sustained throttling, such as exceeding
+ * the provisioned throughput of a DynamoDB table, doesn't stop the requests
+ * from being retried.
+ */
+@ThreadSafe
+public final class RetryTokenBucket implements RetryCapacity {
+    /** The default number of tokens in a full bucket. */
+    public static final int DEFAULT_CAPACITY = 500;
+    /** The default cost of a retry caused by a service error. */
+    public static final int DEFAULT_RETRY_COST = 5;
+    /** The default cost of a retry caused by an I/O error. */
+    public static final int DEFAULT_IO_ERROR_RETRY_COST = 10;
+
+    private final int capacity;
+    private final int retryCost;
+    private final int ioErrorRetryCost;
+    private final AtomicInteger tokens;
+
+    /**
+     * Constructs a full token bucket with the default capacity and costs.
+     */
+    public RetryTokenBucket() {
+        this(DEFAULT_CAPACITY, DEFAULT_RETRY_COST, DEFAULT_IO_ERROR_RETRY_COST);
+    }
+
+    /**
+     * Constructs a full token bucket.
+     *
+     * @param capacity
+     *            The number of tokens in a full bucket.
+     * @param retryCost
+     *            The number of tokens a retry caused by a service error costs.
+     * @param ioErrorRetryCost
+     *            The number of tokens a retry caused by an I/O error costs.
+     */
+    public RetryTokenBucket(int capacity, int retryCost, int ioErrorRetryCost) {
+        if (capacity < 0 || retryCost < 0 || ioErrorRetryCost < 0) {
+            throw new IllegalArgumentException(
+                    "capacity and costs must be non-negative");
+        }
+        this.capacity = capacity;
+        this.retryCost = retryCost;
+        this.ioErrorRetryCost = ioErrorRetryCost;
+        this.tokens = new AtomicInteger(capacity);
+    }
+
+    @Override
+    public int acquire(AmazonWebServiceRequest originalRequest,
+            AmazonClientException exception, int retriesAttempted) {
+        if (exception instanceof AmazonServiceException
+                && RetryUtils.isThrottlingException((AmazonServiceException) exception)) {
+            return 0;
+        }
+        final int cost = exception.getCause() instanceof IOException
+                       ? ioErrorRetryCost
+                       : retryCost;
+        for (;;) {
+            int available = tokens.get();
+            if (available < cost)
+                return -1;
+            if (tokens.compareAndSet(available, available - cost))
+                return cost;
+        }
+    }
+
+    @Override
+    public void release(int acquired) {
+        final int refill = acquired > 0 ? acquired : 1;
+        for (;;) {
+            int available = tokens.get();
+            if (available >= capacity)
+                return;
+            if (tokens.compareAndSet(available,
+                    Math.min(capacity, available + refill)))
+                return;
+        }
+    }
+
+    @Override
+    public int getAvailableCapacity() {
+        return tokens.get();
+    }
+
+    /**
+     * Returns the number of tokens in a full bucket.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Creates a new full {@link RetryTokenBucket} for each client.
+     */
+    @Immutable
+    public static final class Factory implements RetryPolicy.RetryCapacityFactory {
+        private final int capacity;
+        private final int retryCost;
+        private final int ioErrorRetryCost;
+
+        /**
+         * Constructs a factory of token buckets with the default capacity and
+         * costs.
+         */
+        public Factory() {
+            this(DEFAULT_CAPACITY, DEFAULT_RETRY_COST, DEFAULT_IO_ERROR_RETRY_COST);
+        }
+
+        /**
+         * Constructs a factory of token buckets with the given capacity and
+         * costs.
+         *
+         * @see RetryTokenBucket#RetryTokenBucket(int, int, int)
+         */
+        public Factory(int capacity, int retryCost, int ioErrorRetryCost) {
+            // fail early on invalid arguments
+            new RetryTokenBucket(capacity, retryCost, ioErrorRetryCost);
+            this.capacity = capacity;
+            this.retryCost = retryCost;
+            this.ioErrorRetryCost = ioErrorRetryCost;
+        }
+
+        @Override
+        public RetryCapacity newRetryCapacity() {
+            return new RetryTokenBucket(capacity, retryCost, ioErrorRetryCost);
+        }
+    }
+}
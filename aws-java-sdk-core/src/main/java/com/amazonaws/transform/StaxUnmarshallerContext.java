@@ -21,10 +21,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
+import java.io.Writer;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
 /**
@@ -34,12 +44,40 @@ import javax.xml.stream.events.XMLEvent;
  * response. It also tracks the current position and element depth of the
  * document being parsed and provides utilties for accessing the next XML event
  * from the parser, reading element text, handling attribute XML events, etc.
+ * <p>
+ * A context can be backed either by an {@link XMLEventReader}, or by a
+ * cursor-based {@link XMLStreamReader}. In the cursor mode no event object is
+ * allocated per tag or text node; {@link #nextEvent()} instead returns one
+ * immutable event per event type, which is all the generated StAX
+ * unmarshallers look at. Element names and text are available through this
+ * context as usual, and attributes are visited in document order. The full
+ * details of an event, such as from {@link XMLEvent#asStartElement()}, are
+ * only available until the context moves past it.
  */
 public class StaxUnmarshallerContext {
 
     private XMLEvent currentEvent;
     private final XMLEventReader eventReader;
 
+    /** Cursor mode only: the source of XML events; or null in event mode. */
+    private final XMLStreamReader streamReader;
+    /**
+     * Cursor mode only: true if the current event of the stream reader has
+     * not yet been returned by {@link #nextEvent()}.
+     */
+    private boolean pendingEvent = true;
+    /** Cursor mode only: type of the event last returned. */
+    private int currentEventType = -1;
+    /** Cursor mode only: index of the next attribute to return. */
+    private int attributeIndex;
+    /** Cursor mode only: number of attributes of the last start element. */
+    private int attributeCount;
+    /** Cursor mode only: the events returned so far, by type. */
+    private final CursorEvent[] cursorEvents =
+            new CursorEvent[XMLStreamConstants.ENTITY_DECLARATION + 1];
+    /** Cursor mode only: the factory of the events built on demand. */
+    private XMLEventFactory eventFactory;
+
     public final Stack<String> stack = new Stack<String>();
     private String stackString = "";
 
@@ -71,6 +109,24 @@ public class StaxUnmarshallerContext {
      */
     public StaxUnmarshallerContext(XMLEventReader eventReader, Map<String, String> headers) {
         this.eventReader = eventReader;
+        this.streamReader = null;
+        this.headers = headers;
+    }
+
+    /**
+     * Constructs a new unmarshaller context in the cursor mode, using the
+     * specified stream reader positioned at the start of the document, and a
+     * set of response headers.
+     *
+     * @param streamReader
+     *            The source of XML events for this unmarshalling context.
+     * @param headers
+     *            The set of response headers associated with this unmarshaller
+     *            context; or null if there is none.
+     */
+    public StaxUnmarshallerContext(XMLStreamReader streamReader, Map<String, String> headers) {
+        this.eventReader = null;
+        this.streamReader = streamReader;
         this.headers = headers;
     }
 
@@ -97,6 +153,9 @@ public class StaxUnmarshallerContext {
      * @throws XMLStreamException
      */
     public String readText() throws XMLStreamException {
+        if (streamReader != null) {
+            return readCursorText();
+        }
         if (currentEvent.isAttribute()) {
             Attribute attribute = (Attribute)currentEvent;
             return attribute.getValue();
@@ -180,6 +239,10 @@ public class StaxUnmarshallerContext {
      *         yet).
      */
     public boolean isStartOfDocument() throws XMLStreamException {
+        if (streamReader != null) {
+            return pendingEvent
+                    && streamReader.getEventType() == XMLStreamConstants.START_DOCUMENT;
+        }
         return eventReader.peek().isStartDocument();
     }
 
@@ -191,6 +254,9 @@ public class StaxUnmarshallerContext {
      * @throws XMLStreamException
      */
     public XMLEvent nextEvent() throws XMLStreamException {
+        if (streamReader != null) {
+            return nextCursorEvent();
+        }
         if (attributeIterator != null && attributeIterator.hasNext()) {
             currentEvent = (XMLEvent)attributeIterator.next();
         } else {
@@ -206,17 +272,105 @@ public class StaxUnmarshallerContext {
         if (eventReader.hasNext()) {
             XMLEvent nextEvent = eventReader.peek();
             if (nextEvent != null && nextEvent.isCharacters()) {
-                for (MetadataExpression metadataExpression : metadataExpressions) {
-                    if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
-                        metadata.put(metadataExpression.key, nextEvent.asCharacters().getData());
-                    }
-                }
+                captureMetadata(nextEvent.asCharacters().getData());
             }
         }
 
         return currentEvent;
     }
 
+    /**
+     * Cursor mode counterpart of {@link #nextEvent()}.
+     */
+    private XMLEvent nextCursorEvent() throws XMLStreamException {
+        if (attributeIndex < attributeCount) {
+            currentEventType = XMLStreamConstants.ATTRIBUTE;
+            updateContext(currentEventType,
+                    streamReader.getAttributeLocalName(attributeIndex++));
+            return cursorEvent(XMLStreamConstants.ATTRIBUTE);
+        }
+        final boolean afterAttribute =
+                currentEventType == XMLStreamConstants.ATTRIBUTE;
+        if (pendingEvent) {
+            pendingEvent = false;
+        } else {
+            streamReader.next();
+        }
+        currentEventType = streamReader.getEventType();
+        attributeIndex = 0;
+        attributeCount = 0;
+
+        switch (currentEventType) {
+        case XMLStreamConstants.START_ELEMENT:
+            attributeCount = streamReader.getAttributeCount();
+            updateContext(currentEventType, streamReader.getLocalName());
+            break;
+        case XMLStreamConstants.END_ELEMENT:
+            updateContext(currentEventType, null);
+            break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+            // The event reader mode matches the metadata expressions when
+            // peeking at the text after an element (or attribute); the stream
+            // reader can't peek, so match on reaching the text instead.
+            if (afterAttribute) {
+                captureElementMetadata();
+            }
+            captureCursorMetadata();
+            break;
+        }
+        return cursorEvent(currentEventType);
+    }
+
+    /**
+     * Cursor mode counterpart of {@link #readText()}.
+     */
+    private String readCursorText() throws XMLStreamException {
+        if (currentEventType == XMLStreamConstants.ATTRIBUTE) {
+            return streamReader.getAttributeValue(attributeIndex - 1);
+        }
+        StringBuilder sb = null;
+        String text = null;
+        while (true) {
+            int eventType;
+            if (pendingEvent) {
+                pendingEvent = false;
+                eventType = streamReader.getEventType();
+            } else {
+                eventType = streamReader.next();
+            }
+            switch (eventType) {
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (text == null) {
+                    text = streamReader.getText();
+                    captureMetadata(text);
+                } else {
+                    if (sb == null) {
+                        sb = new StringBuilder(text);
+                    }
+                    sb.append(streamReader.getTextCharacters(),
+                            streamReader.getTextStart(),
+                            streamReader.getTextLength());
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                // Leave the end element for the next call to nextEvent
+                pendingEvent = true;
+                if (sb != null) {
+                    return sb.toString();
+                }
+                return text == null ? "" : text;
+            default:
+                pendingEvent = true;
+                throw new RuntimeException("Encountered unexpected event: "
+                        + eventTypeName(eventType));
+            }
+        }
+    }
+
     /**
      * Returns any metadata collected through metadata expressions while this
      * context was reading the XML events from the XML document.
@@ -271,22 +425,261 @@ public class StaxUnmarshallerContext {
         if (event == null) return;
 
         if (event.isEndElement()) {
-            stack.pop();
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
-            }
+            updateContext(XMLStreamConstants.END_ELEMENT, null);
         } else if (event.isStartElement()) {
-            stack.push(event.asStartElement().getName().getLocalPart());
-            stackString += "/" + event.asStartElement().getName().getLocalPart();
+            updateContext(XMLStreamConstants.START_ELEMENT,
+                    event.asStartElement().getName().getLocalPart());
         } else if (event.isAttribute()) {
-            Attribute attribute = (Attribute)event;
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
+            updateContext(XMLStreamConstants.ATTRIBUTE,
+                    ((Attribute)event).getName().getLocalPart());
+        }
+    }
+
+    private void updateContext(int eventType, String localName) {
+        if (eventType == XMLStreamConstants.END_ELEMENT) {
+            stack.pop();
+            stackString = elementPath();
+        } else if (eventType == XMLStreamConstants.START_ELEMENT) {
+            stack.push(localName);
+            stackString += "/" + localName;
+        } else if (eventType == XMLStreamConstants.ATTRIBUTE) {
+            stackString = elementPath() + "/@" + localName;
+        }
+    }
+
+    private String elementPath() {
+        String path = "";
+        for (String s : stack) {
+            path += "/" + s;
+        }
+        return path;
+    }
+
+    /**
+     * Stores the given text under the key of every metadata expression that
+     * matches the current position in the document.
+     */
+    private void captureMetadata(String text) {
+        for (MetadataExpression metadataExpression : metadataExpressions) {
+            if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
+                metadata.put(metadataExpression.key, text);
+            }
+        }
+    }
+
+    /**
+     * Cursor mode only: same as {@link #captureMetadata(String)} for the
+     * current text of the stream reader, which is only materialized on a
+     * match.
+     */
+    private void captureCursorMetadata() {
+        for (MetadataExpression metadataExpression : metadataExpressions) {
+            if (testExpression(metadataExpression.expression, metadataExpression.targetDepth)) {
+                metadata.put(metadataExpression.key, streamReader.getText());
+            }
+        }
+    }
+
+    /**
+     * Cursor mode only: same as {@link #captureCursorMetadata()}, but matches
+     * the metadata expressions against the enclosing element rather than its
+     * last attribute.
+     */
+    private void captureElementMetadata() {
+        if (metadataExpressions.isEmpty()) return;
+        final String attributePath = stackString;
+        stackString = elementPath();
+        try {
+            captureCursorMetadata();
+        } finally {
+            stackString = attributePath;
+        }
+    }
+
+    /**
+     * Cursor mode only: returns the event of the given type, which is created
+     * once per context and returned for every event of that type.
+     */
+    private CursorEvent cursorEvent(int eventType) {
+        final int type = normalize(eventType);
+        final int index = type < 0 || type >= cursorEvents.length ? 0 : type;
+        CursorEvent event = cursorEvents[index];
+        if (event == null) {
+            event = cursorEvents[index] = new CursorEvent(type);
+        }
+        return event;
+    }
+
+    /**
+     * Cursor mode only: returns the event type as reported by the event
+     * reader mode, where all text is reported as characters.
+     */
+    private static int normalize(int eventType) {
+        switch (eventType) {
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+            return XMLStreamConstants.CHARACTERS;
+        default:
+            return eventType;
+        }
+    }
+
+    private static String eventTypeName(int eventType) {
+        switch (normalize(eventType)) {
+        case XMLStreamConstants.START_DOCUMENT: return "START_DOCUMENT";
+        case XMLStreamConstants.END_DOCUMENT: return "END_DOCUMENT";
+        case XMLStreamConstants.START_ELEMENT: return "START_ELEMENT";
+        case XMLStreamConstants.END_ELEMENT: return "END_ELEMENT";
+        case XMLStreamConstants.ATTRIBUTE: return "ATTRIBUTE";
+        case XMLStreamConstants.CHARACTERS: return "CHARACTERS";
+        case XMLStreamConstants.COMMENT: return "COMMENT";
+        case XMLStreamConstants.PROCESSING_INSTRUCTION: return "PROCESSING_INSTRUCTION";
+        case XMLStreamConstants.DTD: return "DTD";
+        case XMLStreamConstants.ENTITY_REFERENCE: return "ENTITY_REFERENCE";
+        default: return "OTHER";
+        }
+    }
+
+    /**
+     * Events returned by {@link #nextEvent()} in the cursor mode, one per event
+     * type and context. Their type never changes, and answers the is* methods
+     * without any allocation. The as* methods, which the generated
+     * unmarshallers don't use, build a full event from the stream reader, as
+     * long as the event is still the current one of the context.
+     */
+    private final class CursorEvent implements XMLEvent {
+        private final int eventType;
+
+        private CursorEvent(int eventType) {
+            this.eventType = eventType;
+        }
+
+        @Override public int getEventType() { return eventType; }
+        @Override public boolean isStartElement() { return eventType == XMLStreamConstants.START_ELEMENT; }
+        @Override public boolean isAttribute() { return eventType == XMLStreamConstants.ATTRIBUTE; }
+        @Override public boolean isNamespace() { return false; }
+        @Override public boolean isEndElement() { return eventType == XMLStreamConstants.END_ELEMENT; }
+        @Override public boolean isEntityReference() { return eventType == XMLStreamConstants.ENTITY_REFERENCE; }
+        @Override public boolean isProcessingInstruction() { return eventType == XMLStreamConstants.PROCESSING_INSTRUCTION; }
+        @Override public boolean isCharacters() { return eventType == XMLStreamConstants.CHARACTERS; }
+        @Override public boolean isStartDocument() { return eventType == XMLStreamConstants.START_DOCUMENT; }
+        @Override public boolean isEndDocument() { return eventType == XMLStreamConstants.END_DOCUMENT; }
+        @Override public QName getSchemaType() { return null; }
+
+        @Override
+        public Location getLocation() {
+            return isCurrent() ? streamReader.getLocation() : null;
+        }
+
+        @Override
+        public StartElement asStartElement() {
+            if (!isStartElement()) {
+                throw new ClassCastException(this + " is not a start element");
+            }
+            checkCurrent();
+            XMLEventFactory factory = getEventFactory();
+            List<Attribute> attributes = new ArrayList<Attribute>();
+            for (int i = 0; i < streamReader.getAttributeCount(); i++) {
+                attributes.add(factory.createAttribute(
+                        streamReader.getAttributeName(i),
+                        streamReader.getAttributeValue(i)));
+            }
+            QName name = streamReader.getName();
+            return factory.createStartElement(name.getPrefix(),
+                    name.getNamespaceURI(), name.getLocalPart(),
+                    attributes.iterator(), namespaces().iterator());
+        }
+
+        @Override
+        public EndElement asEndElement() {
+            if (!isEndElement()) {
+                throw new ClassCastException(this + " is not an end element");
             }
-            stackString += "/@" + attribute.getName().getLocalPart();
+            checkCurrent();
+            QName name = streamReader.getName();
+            return getEventFactory().createEndElement(name.getPrefix(),
+                    name.getNamespaceURI(), name.getLocalPart(),
+                    namespaces().iterator());
+        }
+
+        @Override
+        public Characters asCharacters() {
+            if (!isCharacters()) {
+                throw new ClassCastException(this + " is not characters");
+            }
+            checkCurrent();
+            switch (streamReader.getEventType()) {
+            case XMLStreamConstants.CDATA:
+                return getEventFactory().createCData(streamReader.getText());
+            case XMLStreamConstants.SPACE:
+                return getEventFactory().createSpace(streamReader.getText());
+            default:
+                return getEventFactory().createCharacters(streamReader.getText());
+            }
+        }
+
+        @Override
+        public void writeAsEncodedUnicode(Writer writer) throws XMLStreamException {
+            if (isStartElement()) {
+                asStartElement().writeAsEncodedUnicode(writer);
+            } else if (isEndElement()) {
+                asEndElement().writeAsEncodedUnicode(writer);
+            } else if (isCharacters()) {
+                asCharacters().writeAsEncodedUnicode(writer);
+            } else {
+                throw new UnsupportedOperationException(
+                        "Unable to write " + this + " in cursor mode");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return eventTypeName(eventType);
+        }
+
+        /**
+         * Returns true if the stream reader is still positioned on this event;
+         * attributes are read from the start element they belong to.
+         */
+        private boolean isCurrent() {
+            int current = currentEventType == XMLStreamConstants.ATTRIBUTE
+                        ? XMLStreamConstants.START_ELEMENT
+                        : normalize(currentEventType);
+            return current == eventType
+                && normalize(streamReader.getEventType()) == eventType;
+        }
+
+        private void checkCurrent() {
+            if (!isCurrent()) {
+                throw new IllegalStateException("The details of a " + this
+                        + " event are only available in cursor mode until the"
+                        + " unmarshaller context moves past it");
+            }
+        }
+
+        private List<Namespace> namespaces() {
+            XMLEventFactory factory = getEventFactory();
+            List<Namespace> namespaces = new ArrayList<Namespace>();
+            for (int i = 0; i < streamReader.getNamespaceCount(); i++) {
+                String prefix = streamReader.getNamespacePrefix(i);
+                String uri = streamReader.getNamespaceURI(i);
+                namespaces.add(prefix == null
+                        ? factory.createNamespace(uri)
+                        : factory.createNamespace(prefix, uri));
+            }
+            return namespaces;
+        }
+    }
+
+    /**
+     * Cursor mode only: returns the factory of the events built on demand by
+     * the as* methods of the events of this context.
+     */
+    private XMLEventFactory getEventFactory() {
+        if (eventFactory == null) {
+            eventFactory = XMLEventFactory.newInstance();
         }
+        return eventFactory;
     }
 
 }
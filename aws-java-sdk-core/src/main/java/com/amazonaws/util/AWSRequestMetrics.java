@@ -131,6 +131,31 @@ public class AWSRequestMetrics {
          */
         HttpClientPoolPendingCount,
         RetryPauseTime,
+        /**
+         * Amount of the client's retry capacity consumed by the retries of a
+         * request.
+         */
+        RetryCapacityConsumed,
+        /**
+         * Number of times a request was not retried because the client's retry
+         * capacity was exhausted.
+         */
+        RetryCapacityExhausted,
+        /**
+         * Number of milliseconds a request waited for the client side rate
+         * limiter before being sent.
+         */
+        RateLimiterWaitTime,
+        /**
+         * Number of hedged copies of a request sent because the request was
+         * slow to receive a response.
+         */
+        HedgedRequestCount,
+        /**
+         * Number of hedged copies of a request that received a response before
+         * the request they were hedging.
+         */
+        HedgedRequestWinCount,
 //      S3DownloadThroughput, // migrated to S3RequestMetric in the S3 clint library
 //      S3UploadThroughput,   // migrated to S3RequestMetric in the S3 clint library
         ServiceEndpoint,
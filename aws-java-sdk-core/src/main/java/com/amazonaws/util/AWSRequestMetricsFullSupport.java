@@ -15,6 +15,9 @@
 
 package com.amazonaws.util;
 
+import static com.amazonaws.util.TimingInfoFullSupport.INDEXED_FIELD_COUNT;
+import static com.amazonaws.util.TimingInfoFullSupport.indexOf;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -37,14 +40,33 @@ import com.amazonaws.metrics.RequestMetricCollector;
  * This class is instantiated instead of {@link AWSRequestMetrics} when request
  * metric collection is required during a particular service request/response
  * cycle.
+ * <p>
+ * The events, counters and properties of the request metric {@link Field}s
+ * are held in arrays indexed by the field ordinals, so that recording them
+ * allocates no object but the values of the properties; those of any other
+ * name are held in maps. The latency of every event is also recorded into the
+ * latency histograms of the AWS SDK when enabled.
+ *
+ * @see AwsSdkMetrics#setLatencyHistogramsEnabled(boolean)
  */
 @NotThreadSafe
 public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
-    /* Stores some key value pairs. */
-    private final Map<String, List<Object>> properties = new HashMap<String, List<Object>>();
-    
-    /* A map to store events that are being profiled. */
-    private final Map<String, TimingInfo> eventsBeingProfiled = new HashMap<String, TimingInfo>();
+    private static final Field[] FIELDS = Field.values();
+
+    /* The timing info, which holds the sub-events and the counters. */
+    private final TimingInfoFullSupport fullTimingInfo;
+    /* Whether the sub-events and properties are kept, rather than only the latencies recorded into the histograms. */
+    private final boolean retained;
+    /* Stores some key value pairs; for each field, either its value or all its values. */
+    private Object[] fieldProperties;
+    private Map<String, List<Object>> properties;
+
+    /* The start time in nanosecond of the field events that are being profiled. */
+    private final long[] fieldEventStartTimes = new long[INDEXED_FIELD_COUNT];
+    /* The bit mask of the field events that have been started. */
+    private long fieldEventsStarted;
+    /* The start time in nanosecond of any other events that are being profiled. */
+    private Map<String, Long> eventStartTimes;
     /* Latency Logger */
     private static final Log latencyLogger = LogFactory.getLog("com.amazonaws.latency");
     private static final Object KEY_VALUE_SEPARATOR = "=";
@@ -57,9 +79,26 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      * @see AWSRequestMetricsFullSupport
      */
     public AWSRequestMetricsFullSupport() {
+        this(true);
+    }
+
+    private AWSRequestMetricsFullSupport(boolean retained) {
         super(TimingInfo.startTimingFullSupport());
+        this.fullTimingInfo = (TimingInfoFullSupport) timingInfo;
+        this.retained = retained;
     }
-    
+
+    /**
+     * Returns request metrics which only record the latencies of the events
+     * into the latency histograms of the AWS SDK, and keep the counters; but
+     * neither the sub-events nor the properties, so that recording them
+     * allocates no object. This is used in the case when the latency
+     * histograms are enabled but no metric collector is.
+     */
+    public static AWSRequestMetricsFullSupport newStreamingMetrics() {
+        return new AWSRequestMetricsFullSupport(false);
+    }
+
     /**
      * Start an event which will be timed. The startTime and endTime are added
      * to timingInfo only after endEvent is called. For every startEvent there
@@ -81,14 +120,31 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void startEvent(String eventName) {
+        int field = indexOf(eventName);
+        if (field >= 0) {
+            startEvent(field);
+            return;
+        }
+        if (eventStartTimes == null) {
+            eventStartTimes = new HashMap<String, Long>();
+        }
         /* This will overwrite past events */
-        eventsBeingProfiled.put // ignoring the wall clock time
-            (eventName, TimingInfo.startTimingFullSupport(System.nanoTime()));
+        eventStartTimes.put(eventName, System.nanoTime());
     }
 
     @Override
     public void startEvent(MetricType f) {
-        startEvent(f.name());
+        int field = indexOf(f);
+        if (field >= 0) {
+            startEvent(field);
+        } else {
+            startEvent(f.name());
+        }
+    }
+
+    private void startEvent(int field) {
+        fieldEventStartTimes[field] = System.nanoTime();
+        fieldEventsStarted |= 1L << field;
     }
 
     /**
@@ -101,24 +157,52 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void endEvent(String eventName) {
-        TimingInfo event = eventsBeingProfiled.get(eventName);
+        int field = indexOf(eventName);
+        if (field >= 0) {
+            endEvent(field);
+            return;
+        }
+        Long startTime = eventStartTimes == null ? null : eventStartTimes.get(eventName);
         /* Somebody tried to end an event that was not started. */
-        if (event == null) {
-            LogFactory.getLog(getClass()).warn
-                ("Trying to end an event which was never started: " + eventName);
+        if (startTime == null) {
+            warnNotStarted(eventName);
             return;
         }
-        event.endTiming();
-        this.timingInfo.addSubMeasurement(
-            eventName,
-            TimingInfo.unmodifiableTimingInfo(
-                event.getStartTimeNano(),
-                event.getEndTimeNano()));
+        long endTime = System.nanoTime();
+        if (retained) {
+            timingInfo.addSubMeasurement(eventName,
+                TimingInfo.unmodifiableTimingInfo(startTime, endTime));
+        }
+        AwsSdkMetrics.recordLatency(eventName, endTime - startTime);
     }
 
     @Override
     public void endEvent(MetricType f) {
-        endEvent(f.name());
+        int field = indexOf(f);
+        if (field >= 0) {
+            endEvent(field);
+        } else {
+            endEvent(f.name());
+        }
+    }
+
+    private void endEvent(int field) {
+        /* Somebody tried to end an event that was not started. */
+        if ((fieldEventsStarted & 1L << field) == 0) {
+            warnNotStarted(FIELDS[field].name());
+            return;
+        }
+        long startTime = fieldEventStartTimes[field];
+        long endTime = System.nanoTime();
+        if (retained) {
+            fullTimingInfo.addSubMeasurement(field, startTime, endTime);
+        }
+        AwsSdkMetrics.recordLatency(FIELDS[field].name(), endTime - startTime);
+    }
+
+    private void warnNotStarted(String eventName) {
+        LogFactory.getLog(getClass()).warn
+            ("Trying to end an event which was never started: " + eventName);
     }
 
     /**
@@ -140,9 +224,14 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void incrementCounter(MetricType f) {
-        incrementCounter(f.name());
+        int field = indexOf(f);
+        if (field >= 0) {
+            fullTimingInfo.incrementCounter(field);
+        } else {
+            incrementCounter(f.name());
+        }
     }
-    
+
     @Override
     public void setCounter(String counterName, long count) {
         timingInfo.setCounter(counterName, count);
@@ -150,9 +239,14 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void setCounter(MetricType f, long count) {
-        setCounter(f.name(), count);
+        int field = indexOf(f);
+        if (field >= 0) {
+            fullTimingInfo.setCounter(field, count);
+        } else {
+            setCounter(f.name(), count);
+        }
     }
-    
+
     /**
      * Add a property. If you add the same property more than once, it stores
      * all values a list.
@@ -169,6 +263,17 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void addProperty(String propertyName, Object value) {
+        if (!retained) {
+            return;
+        }
+        int field = indexOf(propertyName);
+        if (field >= 0) {
+            addProperty(field, value);
+            return;
+        }
+        if (properties == null) {
+            properties = new HashMap<String, List<Object>>();
+        }
         List<Object> propertyList = properties.get(propertyName);
         if (propertyList == null) {
             propertyList = new ArrayList<Object>();
@@ -180,7 +285,33 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void addProperty(MetricType f, Object value) {
-        addProperty(f.name(), value);
+        int field = indexOf(f);
+        if (field >= 0) {
+            if (retained) {
+                addProperty(field, value);
+            }
+        } else {
+            addProperty(f.name(), value);
+        }
+    }
+
+    private void addProperty(int field, Object value) {
+        if (fieldProperties == null) {
+            fieldProperties = new Object[INDEXED_FIELD_COUNT];
+        }
+        Object values = fieldProperties[field];
+        if (values == null && value != null) {
+            fieldProperties[field] = value;
+        } else if (values instanceof PropertyValues) {
+            ((PropertyValues) values).add(value);
+        } else {
+            PropertyValues propertyList = new PropertyValues();
+            if (values != null) {
+                propertyList.add(values);
+            }
+            propertyList.add(value);
+            fieldProperties[field] = propertyList;
+        }
     }
 
     @Override
@@ -188,8 +319,15 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
         if (latencyLogger.isInfoEnabled()) {
             StringBuilder builder = new StringBuilder();
 
-            for (Entry<String, List<Object>> entry : properties.entrySet()) {
-                keyValueFormat(entry.getKey(), entry.getValue(), builder);
+            for (int i = 0; fieldProperties != null && i < INDEXED_FIELD_COUNT; i++) {
+                if (fieldProperties[i] != null) {
+                    keyValueFormat(FIELDS[i].name(), getFieldProperty(i), builder);
+                }
+            }
+            if (properties != null) {
+                for (Entry<String, List<Object>> entry : properties.entrySet()) {
+                    keyValueFormat(entry.getKey(), entry.getValue(), builder);
+                }
             }
 
             for (Entry<String, Number> entry : timingInfo.getAllCounters()
@@ -210,17 +348,52 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public List<Object> getProperty(String propertyName){
-    	return properties.get(propertyName);
+        int field = indexOf(propertyName);
+        if (field >= 0) {
+            return getFieldProperty(field);
+        }
+        return properties == null ? null : properties.get(propertyName);
     }
 
     @Override
     public List<Object> getProperty(MetricType f){
-        return getProperty(f.name());
+        int field = indexOf(f);
+        return field >= 0 ? getFieldProperty(field) : getProperty(f.name());
     }
 
-    /** Always returns true. */
+    /**
+     * Returns the values of the given field property, as a mutable list that
+     * the property keeps its values in from then on, as for the other
+     * properties.
+     */
+    private List<Object> getFieldProperty(int field) {
+        Object values = fieldProperties == null ? null : fieldProperties[field];
+        if (values == null) {
+            return null;
+        } else if (values instanceof PropertyValues) {
+            return (PropertyValues) values;
+        }
+        PropertyValues propertyList = new PropertyValues();
+        propertyList.add(values);
+        fieldProperties[field] = propertyList;
+        return propertyList;
+    }
+
+    /**
+     * Returns true if the sub-events and properties of the request are
+     * collected; false if only the latency histograms are recorded.
+     */
     @Override
     public final boolean isEnabled() {
-        return true;
+        return retained;
+    }
+
+    /** All the values of a field property, unless it has a single non-null value. */
+    private static final class PropertyValues extends ArrayList<Object> {
+        private static final long serialVersionUID = 1L;
+
+        PropertyValues() {
+            super(4);
+        }
     }
 }
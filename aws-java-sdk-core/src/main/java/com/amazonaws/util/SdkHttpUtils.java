@@ -14,89 +14,125 @@
  */
 package com.amazonaws.util;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
-import java.net.URLEncoder;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.amazonaws.SignableRequest;
 import com.amazonaws.http.HttpMethodName;
 
 public class SdkHttpUtils {
 
-    private static final String DEFAULT_ENCODING = "UTF-8";
-
     /**
-     * Regex which matches any of the sequences that we need to fix up after
-     * URLEncoder.encode().
+     * For each ASCII character, true if it is unreserved as defined by RFC
+     * 3986, and is therefore never percent-encoded.
      */
-    private static final Pattern ENCODED_CHARACTERS_PATTERN;
+    private static final boolean[] UNRESERVED = new boolean[128];
     static {
-        StringBuilder pattern = new StringBuilder();
-
-        pattern
-            .append(Pattern.quote("+"))
-            .append("|")
-            .append(Pattern.quote("*"))
-            .append("|")
-            .append(Pattern.quote("%7E"))
-            .append("|")
-            .append(Pattern.quote("%2F"));
-
-        ENCODED_CHARACTERS_PATTERN = Pattern.compile(pattern.toString());
+        for (char c = 'a'; c <= 'z'; c++)
+            UNRESERVED[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++)
+            UNRESERVED[c] = true;
+        for (char c = '0'; c <= '9'; c++)
+            UNRESERVED[c] = true;
+        UNRESERVED['-'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['~'] = true;
     }
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     /**
-     * Encode a string for use in the path of a URL; uses URLEncoder.encode,
-     * (which encodes a string for use in the query portion of a URL), then
-     * applies some postfilters to fix things up per the RFC. Can optionally
-     * handle strings which are meant to encode a path (ie include '/'es
-     * which should NOT be escaped).
+     * Encode a string for use in the path of a URL, or in a query string,
+     * percent-encoding the UTF-8 bytes of all the characters but the
+     * unreserved ones as defined by RFC 3986. Can optionally handle strings
+     * which are meant to encode a path (ie include '/'es which should NOT be
+     * escaped).
      *
      * @param value the value to encode
      * @param path true if the value is intended to represent a path
-     * @return the encoded value
+     * @return the encoded value; the value itself if there is nothing to
+     *         encode
      */
     public static String urlEncode(final String value, final boolean path) {
         if (value == null) {
             return "";
         }
+        final int length = value.length();
+        int i = 0;
+        while (i < length && isUnencoded(value.charAt(i), path)) {
+            i++;
+        }
+        if (i == length) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(length + 16);
+        sb.append(value, 0, i);
+        appendEncoded(sb, value, i, path);
+        return sb.toString();
+    }
 
-        try {
-            String encoded = URLEncoder.encode(value, DEFAULT_ENCODING);
-
-            Matcher matcher = ENCODED_CHARACTERS_PATTERN.matcher(encoded);
-            StringBuffer buffer = new StringBuffer(encoded.length());
-
-            while (matcher.find()) {
-                String replacement = matcher.group(0);
+    /**
+     * Appends the given string to the given builder, encoded as by
+     * {@link #urlEncode(String, boolean)}, so that an encoded string can be
+     * built without creating intermediate strings.
+     *
+     * @param sb the builder to append to
+     * @param value the value to encode; nothing is appended if null
+     * @param path true if the value is intended to represent a path
+     * @return the given builder
+     */
+    public static StringBuilder appendUrlEncoded(final StringBuilder sb,
+            final String value, final boolean path) {
+        if (value != null) {
+            appendEncoded(sb, value, 0, path);
+        }
+        return sb;
+    }
 
-                if ("+".equals(replacement)) {
-                    replacement = "%20";
-                } else if ("*".equals(replacement)) {
-                    replacement = "%2A";
-                } else if ("%7E".equals(replacement)) {
-                    replacement = "~";
-                } else if (path && "%2F".equals(replacement)) {
-                    replacement = "/";
-                }
+    private static boolean isUnencoded(char c, boolean path) {
+        return c < 128 && (UNRESERVED[c] || (path && c == '/'));
+    }
 
-                matcher.appendReplacement(buffer, replacement);
+    private static void appendEncoded(StringBuilder sb, String value,
+            int start, boolean path) {
+        final int length = value.length();
+        for (int i = start; i < length; i++) {
+            final char c = value.charAt(i);
+            if (isUnencoded(c, path)) {
+                sb.append(c);
+            } else if (c < 0x80) {
+                appendPercentEncoded(sb, c);
+            } else if (c < 0x800) {
+                appendPercentEncoded(sb, 0xC0 | (c >> 6));
+                appendPercentEncoded(sb, 0x80 | (c & 0x3F));
+            } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                appendPercentEncoded(sb, 0xE0 | (c >> 12));
+                appendPercentEncoded(sb, 0x80 | ((c >> 6) & 0x3F));
+                appendPercentEncoded(sb, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, value.charAt(++i));
+                appendPercentEncoded(sb, 0xF0 | (cp >> 18));
+                appendPercentEncoded(sb, 0x80 | ((cp >> 12) & 0x3F));
+                appendPercentEncoded(sb, 0x80 | ((cp >> 6) & 0x3F));
+                appendPercentEncoded(sb, 0x80 | (cp & 0x3F));
+            } else {
+                // Unpaired surrogate; replaced by '?' like the UTF-8 encoder
+                // of the JDK does
+                appendPercentEncoded(sb, '?');
             }
-
-            matcher.appendTail(buffer);
-            return buffer.toString();
-
-        } catch (UnsupportedEncodingException ex) {
-            throw new RuntimeException(ex);
         }
     }
 
+    private static void appendPercentEncoded(StringBuilder sb, int b) {
+        sb.append('%')
+          .append(HEX_DIGITS[(b >> 4) & 0xF])
+          .append(HEX_DIGITS[b & 0xF]);
+    }
+
     /**
      * Returns true if the specified URI is using a non-standard port (i.e. any
      * port other than 80 for HTTP URIs or any port other than 443 for HTTPS
@@ -141,17 +177,22 @@ public class SdkHttpUtils {
 
         if (requestParams.isEmpty()) return null;
 
-        final List<NameValuePair> nameValuePairs = new ArrayList<NameValuePair>();
+        final StringBuilder sb = new StringBuilder(requestParams.size() * 32);
 
         for (Entry<String, List<String>> entry : requestParams.entrySet()) {
-            String parameterName = entry.getKey();
+            final String parameterName = entry.getKey();
             for (String value : entry.getValue()) {
-                nameValuePairs
-                    .add(new BasicNameValuePair(parameterName, value));
+                if (sb.length() > 0) {
+                    sb.append('&');
+                }
+                appendUrlEncoded(sb, parameterName, false);
+                if (value != null) {
+                    appendUrlEncoded(sb.append('='), value, false);
+                }
             }
         }
 
-        return URLEncodedUtils.format(nameValuePairs, DEFAULT_ENCODING);
+        return sb.toString();
     }
 
     /**
@@ -15,13 +15,18 @@
 package com.amazonaws.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.annotation.NotThreadSafe;
 
+import com.amazonaws.metrics.MetricType;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
 /**
  * In contrast to {@link TimingInfo}, which is intended to be a minimal support
  * of the timing info, this class is the full support of timing info including
@@ -30,11 +35,40 @@ import org.apache.http.annotation.NotThreadSafe;
  * This class is instantiated instead of {@link TimingInfo} when
  * request metric collection is required during a particular service
  * request/response cycle.
+ * <p>
+ * The sub-measurements and counters of the request metric {@link Field}s are
+ * held in arrays indexed by the field ordinals, the sub-measurements as their
+ * start and end times, so that recording them allocates no object; their
+ * {@link TimingInfo} and {@link Number} views are created when read. Those of
+ * any other name are held in maps.
  */
 @NotThreadSafe
 class TimingInfoFullSupport extends TimingInfo {
-    private final Map<String, List<TimingInfo>> subMeasurementsByName = new HashMap<String, List<TimingInfo>>();
-    private final Map<String, Number> countersByName = new HashMap<String, Number>();
+    private static final Field[] FIELDS = Field.values();
+    /**
+     * The number of request metric fields held in arrays, which is limited by
+     * the bit masks of the fields that have been set.
+     */
+    static final int INDEXED_FIELD_COUNT = Math.min(FIELDS.length, Long.SIZE);
+    private static final Map<String, Field> INDEXED_FIELDS_BY_NAME = new HashMap<String, Field>();
+    static {
+        for (int i = 0; i < INDEXED_FIELD_COUNT; i++) {
+            INDEXED_FIELDS_BY_NAME.put(FIELDS[i].name(), FIELDS[i]);
+        }
+    }
+    private static final int INITIAL_SUB_MEASUREMENT_CAPACITY = 8;
+
+    /**
+     * The field ordinal, start time and end time in nanoseconds of each
+     * sub-measurement of a field, in the order they have been added.
+     */
+    private long[] fieldSubMeasurements;
+    private int fieldSubMeasurementCount;
+    private long[] fieldCounters;
+    /** The bit mask of the fields whose counter has been set. */
+    private long fieldCountersSet;
+    private Map<String, List<TimingInfo>> subMeasurementsByName;
+    private Map<String, Number> countersByName;
 
     /**
      * A private ctor to facilitate the deprecation of using millisecond and
@@ -53,22 +87,75 @@ class TimingInfoFullSupport extends TimingInfo {
         super(startEpochTimeMilli, startTimeNano, endTimeNano);
     }
 
+    /**
+     * Returns the index of the given metric type in the arrays of the fields;
+     * or -1 if it is held in a map.
+     */
+    static int indexOf(MetricType type) {
+        if (type instanceof Field) {
+            int ordinal = ((Field) type).ordinal();
+            return ordinal < INDEXED_FIELD_COUNT ? ordinal : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the given name in the arrays of the fields; or -1
+     * if it is held in a map.
+     */
+    static int indexOf(String name) {
+        Field field = INDEXED_FIELDS_BY_NAME.get(name);
+        return field == null ? -1 : field.ordinal();
+    }
+
     @Override
     public void addSubMeasurement(String subMeasurementName, TimingInfo ti) {
-        List<TimingInfo> timings = subMeasurementsByName.get(subMeasurementName);
-        if (timings == null) {
-            timings = new ArrayList<TimingInfo>();
-            subMeasurementsByName.put(subMeasurementName, timings);
+        int field = indexOf(subMeasurementName);
+        List<TimingInfo> timings = null;
+        if (field < 0) {
+            if (subMeasurementsByName == null) {
+                subMeasurementsByName = new LinkedHashMap<String, List<TimingInfo>>();
+            }
+            timings = subMeasurementsByName.get(subMeasurementName);
+            if (timings == null) {
+                timings = new ArrayList<TimingInfo>();
+                subMeasurementsByName.put(subMeasurementName, timings);
+            }
         }
-        if (ti.isEndTimeKnown()) {
-            timings.add(ti);
-        } else {
+        if (!ti.isEndTimeKnown()) {
             LogFactory.getLog(getClass()).debug(
                 "Skip submeasurement timing info with no end time for "
                 + subMeasurementName);
+        } else if (timings == null) {
+            addSubMeasurement(field, ti.getStartTimeNano(), ti.getEndTimeNano());
+        } else {
+            timings.add(ti);
         }
     }
 
+    /**
+     * Adds a sub-measurement of the field of the given index.
+     */
+    void addSubMeasurement(int field, long startTimeNano, long endTimeNano) {
+        int offset = fieldSubMeasurementCount * 3;
+        if (fieldSubMeasurements == null) {
+            fieldSubMeasurements = new long[INITIAL_SUB_MEASUREMENT_CAPACITY * 3];
+        } else if (offset == fieldSubMeasurements.length) {
+            long[] grown = new long[offset * 2];
+            System.arraycopy(fieldSubMeasurements, 0, grown, 0, offset);
+            fieldSubMeasurements = grown;
+        }
+        fieldSubMeasurements[offset] = field;
+        fieldSubMeasurements[offset + 1] = startTimeNano;
+        fieldSubMeasurements[offset + 2] = endTimeNano;
+        fieldSubMeasurementCount++;
+    }
+
+    private TimingInfo fieldSubMeasurement(int i) {
+        return new TimingInfoUnmodifiable(null,
+            fieldSubMeasurements[i * 3 + 1], fieldSubMeasurements[i * 3 + 2]);
+    }
+
     @Override
     public TimingInfo getSubMeasurement(String subMeasurementName) {
         return getSubMeasurement(subMeasurementName, 0);
@@ -76,66 +163,153 @@ class TimingInfoFullSupport extends TimingInfo {
 
     @Override
     public TimingInfo getSubMeasurement(String subMesurementName, int index) {
-
-        List<TimingInfo> timings = subMeasurementsByName.get(subMesurementName);
-        if (index < 0 || timings == null || timings.size() == 0
-                || index >= timings.size()) {
+        if (index < 0) {
+            return null;
+        }
+        int field = indexOf(subMesurementName);
+        if (field >= 0) {
+            for (int i = 0; i < fieldSubMeasurementCount; i++) {
+                if (fieldSubMeasurements[i * 3] == field && index-- == 0) {
+                    return fieldSubMeasurement(i);
+                }
+            }
+            return null;
+        }
+        List<TimingInfo> timings = subMeasurementsByName == null
+            ? null : subMeasurementsByName.get(subMesurementName);
+        if (timings == null || index >= timings.size()) {
             return null;
         }
-
         return timings.get(index);
     }
 
     @Override
     public TimingInfo getLastSubMeasurement(String subMeasurementName) {
-
-        if (subMeasurementsByName == null || subMeasurementsByName.size() == 0) {
+        int field = indexOf(subMeasurementName);
+        if (field >= 0) {
+            for (int i = fieldSubMeasurementCount - 1; i >= 0; i--) {
+                if (fieldSubMeasurements[i * 3] == field) {
+                    return fieldSubMeasurement(i);
+                }
+            }
             return null;
         }
-
-        List<TimingInfo> timings = subMeasurementsByName.get(subMeasurementName);
+        List<TimingInfo> timings = subMeasurementsByName == null
+            ? null : subMeasurementsByName.get(subMeasurementName);
         if (timings == null || timings.size() == 0) {
             return null;
         }
-
         return timings.get(timings.size() - 1);
     }
 
     @Override
     public List<TimingInfo> getAllSubMeasurements(String subMeasurementName) {
-        return subMeasurementsByName.get(subMeasurementName);
+        int field = indexOf(subMeasurementName);
+        if (field >= 0) {
+            List<TimingInfo> timings = null;
+            for (int i = 0; i < fieldSubMeasurementCount; i++) {
+                if (fieldSubMeasurements[i * 3] == field) {
+                    if (timings == null) {
+                        timings = new ArrayList<TimingInfo>();
+                    }
+                    timings.add(fieldSubMeasurement(i));
+                }
+            }
+            return timings;
+        }
+        return subMeasurementsByName == null
+            ? null : subMeasurementsByName.get(subMeasurementName);
     }
 
     @Override
     public Map<String, List<TimingInfo>> getSubMeasurementsByName() {
-        return subMeasurementsByName;
+        if (fieldSubMeasurementCount == 0 && subMeasurementsByName == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<TimingInfo>> timingsByName = new LinkedHashMap<String, List<TimingInfo>>();
+        for (int i = 0; i < fieldSubMeasurementCount; i++) {
+            String name = FIELDS[(int) fieldSubMeasurements[i * 3]].name();
+            List<TimingInfo> timings = timingsByName.get(name);
+            if (timings == null) {
+                timings = new ArrayList<TimingInfo>();
+                timingsByName.put(name, timings);
+            }
+            timings.add(fieldSubMeasurement(i));
+        }
+        if (subMeasurementsByName != null) {
+            timingsByName.putAll(subMeasurementsByName);
+        }
+        return timingsByName;
     }
 
     @Override
     public Number getCounter(String key) {
-        return countersByName.get(key);
+        int field = indexOf(key);
+        if (field >= 0) {
+            return (fieldCountersSet & 1L << field) == 0
+                ? null : Long.valueOf(fieldCounters[field]);
+        }
+        return countersByName == null ? null : countersByName.get(key);
     }
 
     @Override
     public Map<String, Number> getAllCounters() {
-        return countersByName;
+        if (fieldCountersSet == 0 && countersByName == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Number> counters = new LinkedHashMap<String, Number>();
+        for (int i = 0; i < INDEXED_FIELD_COUNT; i++) {
+            if ((fieldCountersSet & 1L << i) != 0) {
+                counters.put(FIELDS[i].name(), fieldCounters[i]);
+            }
+        }
+        if (countersByName != null) {
+            counters.putAll(countersByName);
+        }
+        return counters;
     }
 
     @Override
     public void setCounter(String key, long count) {
+        int field = indexOf(key);
+        if (field >= 0) {
+            setCounter(field, count);
+            return;
+        }
+        if (countersByName == null) {
+            countersByName = new LinkedHashMap<String, Number>();
+        }
         countersByName.put(key, count);
     }
 
+    /**
+     * Sets the counter of the field of the given index.
+     */
+    void setCounter(int field, long count) {
+        if (fieldCounters == null) {
+            fieldCounters = new long[INDEXED_FIELD_COUNT];
+        }
+        fieldCounters[field] = count;
+        fieldCountersSet |= 1L << field;
+    }
+
     @Override
     public void incrementCounter(String key) {
-
-        int count = 0;
-        Number counter = getCounter(key);
-
-        if (counter != null) {
-            count = counter.intValue();
+        int field = indexOf(key);
+        if (field >= 0) {
+            incrementCounter(field);
+            return;
         }
+        Number counter = getCounter(key);
+        setCounter(key, counter == null ? 1 : counter.longValue() + 1);
+    }
 
-        setCounter(key, ++count);
+    /**
+     * Adds 1 to the counter of the field of the given index, which is
+     * initialized to 1 if not set.
+     */
+    void incrementCounter(int field) {
+        long count = (fieldCountersSet & 1L << field) == 0 ? 0 : fieldCounters[field];
+        setCounter(field, count + 1);
     }
 }
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2011-2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.util.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import com.amazonaws.util.DateUtils;
+import com.amazonaws.util.StringUtils;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A {@link JSONWriter} that streams the JSON text through a Jackson
+ * {@link JsonGenerator} directly into an in-memory UTF-8 byte buffer.
+ * <p>
+ * Unlike writing to a {@link java.io.StringWriter}, the marshalled payload is
+ * never materialized as a <code>String</code>, and the buffer is exposed to the
+ * request entity via {@link #getContent()} without being copied again. Since
+ * it is a drop-in subclass, the existing nested <code>*JsonMarshaller</code>
+ * classes can write into it unchanged.
+ * <p>
+ * Unlike {@link JSONWriter}, this class does not check for duplicate keys
+ * within an object. Each instance can produce one JSON text, and is not
+ * thread safe.
+ */
+public class SdkJsonGenerator extends JSONWriter {
+
+    /**
+     * Shared factory; Jackson factories are thread safe, and recycle the
+     * generators' internal buffers across instances.
+     */
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final ExposedByteArrayOutputStream out;
+    private final JsonGenerator generator;
+
+    public SdkJsonGenerator() {
+        this(128);
+    }
+
+    /**
+     * @param initialSize
+     *            the initial capacity of the output buffer in bytes
+     */
+    public SdkJsonGenerator(int initialSize) {
+        super(null);
+        this.out = new ExposedByteArrayOutputStream(initialSize);
+        try {
+            this.generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public SdkJsonGenerator array() throws JSONException {
+        try {
+            generator.writeStartArray();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SdkJsonGenerator endArray() throws JSONException {
+        try {
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SdkJsonGenerator object() throws JSONException {
+        try {
+            generator.writeStartObject();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SdkJsonGenerator endObject() throws JSONException {
+        try {
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SdkJsonGenerator key(String s) throws JSONException {
+        if (s == null) {
+            throw new JSONException("Null key.");
+        }
+        try {
+            generator.writeFieldName(s);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SdkJsonGenerator value(boolean b) throws JSONException {
+        try {
+            generator.writeBoolean(b);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SdkJsonGenerator value(double d) throws JSONException {
+        return writeNumber(Double.valueOf(d));
+    }
+
+    @Override
+    public SdkJsonGenerator value(long l) throws JSONException {
+        try {
+            generator.writeNumber(l);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a date value, as epoch seconds.
+     */
+    @Override
+    public SdkJsonGenerator value(Date date) throws JSONException {
+        try {
+            // See https://forums.aws.amazon.com/thread.jspa?threadID=158756
+            generator.writeNumber(DateUtils.formatServiceSpecificDate(date));
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a ByteBuffer value as a Base64 string, without copying the
+     * remaining bytes out of an array-backed buffer first.
+     */
+    @Override
+    public SdkJsonGenerator value(ByteBuffer b) throws JSONException {
+        try {
+            if (b.hasArray()) {
+                generator.writeBinary(b.array(),
+                        b.arrayOffset() + b.position(), b.remaining());
+            } else {
+                b.mark();
+                byte[] bytes = new byte[b.remaining()];
+                b.get(bytes, 0, bytes.length);
+                b.reset();
+                generator.writeBinary(bytes);
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public SdkJsonGenerator value(Object o) throws JSONException {
+        try {
+            if (o == null || JSONObject.NULL.equals(o)) {
+                generator.writeNull();
+            } else if (o instanceof String) {
+                generator.writeString((String) o);
+            } else if (o instanceof Boolean) {
+                generator.writeBoolean((Boolean) o);
+            } else if (o instanceof Number) {
+                return writeNumber((Number) o);
+            } else if (o instanceof Date) {
+                return value((Date) o);
+            } else if (o instanceof ByteBuffer) {
+                return value((ByteBuffer) o);
+            } else {
+                generator.writeRawValue(JSONObject.valueToString(o));
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    private SdkJsonGenerator writeNumber(Number n) throws JSONException {
+        try {
+            if (n instanceof Integer || n instanceof Long
+                    || n instanceof Short || n instanceof Byte) {
+                generator.writeNumber(n.longValue());
+            } else if (n instanceof BigInteger) {
+                generator.writeNumber((BigInteger) n);
+            } else {
+                // Same textual form (and validity check) as JSONWriter
+                generator.writeNumber(JSONObject.numberToString(n));
+            }
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes of JSON text written so far.
+     */
+    public int getContentLength() {
+        flush();
+        return out.size();
+    }
+
+    /**
+     * Returns a mark-and-resettable input stream over the JSON text written
+     * so far. The returned stream reads directly from the internal buffer.
+     */
+    public InputStream getContent() {
+        flush();
+        return out.toInputStream();
+    }
+
+    /**
+     * Returns a copy of the JSON text written so far, as UTF-8 bytes.
+     */
+    public byte[] getBytes() {
+        flush();
+        return out.toByteArray();
+    }
+
+    private void flush() {
+        try {
+            generator.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        flush();
+        return new String(out.toByteArray(), StringUtils.UTF8);
+    }
+
+    /**
+     * Exposes the internal buffer so the request entity can read it in place.
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -24,9 +24,13 @@ import static org.junit.Assert.assertNull;
 import java.io.ByteArrayInputStream;
 import java.net.URI;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
 import java.util.SimpleTimeZone;
 import java.util.TimeZone;
 
@@ -176,4 +180,54 @@ public class AWS4SignerTest {
         String old = getOldDateStamp(now);
         assertEquals(old, dateStamp);
     }
+
+    private String getOldCanonicalizedHeaderString(Request<?> request) {
+        final List<String> sortedHeaders = new ArrayList<String>(request.getHeaders()
+                .keySet());
+        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+
+        StringBuilder buffer = new StringBuilder();
+        for (String header : sortedHeaders) {
+            String key = header.toLowerCase().replaceAll("\\s+", " ");
+            String value = request.getHeaders().get(header);
+
+            buffer.append(key).append(":");
+            if (value != null) {
+                buffer.append(value.replaceAll("\\s+", " "));
+            }
+
+            buffer.append("\n");
+        }
+        return buffer.toString();
+    }
+
+    @Test
+    public void getCanonicalizedHeaderString() {
+        String[] values = {
+                "", " ", "value", "a b", "a  b", "a\tb", "a\nb", "a\r\nb",
+                "a \t\n\u000b\f\r b", "  leading", "trailing  ",
+                "\t\tboth ends\n", "many     spaces   between  words",
+                "a\u00a0b", "a\u2003b" };
+        Request<?> request = new DefaultRequest<Void>("foo");
+        for (int i = 0; i < values.length; i++) {
+            request.addHeader("Header-" + i, values[i]);
+        }
+        request.addHeader(" Spaced \t Name ", "x");
+        request.addHeader("Null-Value", null);
+        assertEquals(getOldCanonicalizedHeaderString(request),
+                signer.getCanonicalizedHeaderString(request));
+
+        char[] alphabet = { 'a', 'Z', '0', ' ', '\t', '\n', '\u000b', '\f', '\r', '\u00a0' };
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            char[] value = new char[random.nextInt(16)];
+            for (int j = 0; j < value.length; j++) {
+                value[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            request = new DefaultRequest<Void>("foo");
+            request.addHeader("Random", new String(value));
+            assertEquals(getOldCanonicalizedHeaderString(request),
+                    signer.getCanonicalizedHeaderString(request));
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.util.IOUtils;
+
+public class AWS4StreamingSignerTest {
+
+    private static final AWSCredentials credentials =
+            new BasicAWSCredentials("access", "secret");
+
+    @Test
+    public void testPayloadIsStreamed() throws Exception {
+        byte[] payload = new byte[300 * 1024];
+        Arrays.fill(payload, (byte) 'a');
+        Request<?> request = generateBasicRequest(payload);
+        request.addHeader("content-length", Integer.toString(payload.length));
+        request.addHeader("Content-Encoding", "gzip");
+
+        AWS4StreamingSigner signer = new AWS4StreamingSigner();
+        signer.setServiceName("demo");
+        signer.sign(request, credentials);
+
+        assertEquals("STREAMING-AWS4-HMAC-SHA256-PAYLOAD",
+                request.getHeaders().get("x-amz-content-sha256"));
+        assertEquals(Integer.toString(payload.length),
+                request.getHeaders().get("x-amz-decoded-content-length"));
+        assertEquals("aws-chunked,gzip", request.getHeaders().get("Content-Encoding"));
+        assertNull(request.getHeaders().get("content-length"));
+        assertTrue(request.getContent() instanceof AwsChunkedEncodingInputStream);
+
+        long expectedLength = AwsChunkedEncodingInputStream
+                .calculateStreamContentLength(payload.length);
+        assertEquals(Long.toString(expectedLength),
+                request.getHeaders().get("Content-Length"));
+        assertEquals(expectedLength,
+                IOUtils.toByteArray(request.getContent()).length);
+    }
+
+    @Test
+    public void testPayloadOfUnknownLengthIsHashed() throws Exception {
+        Request<?> request = generateBasicRequest("{\"TableName\": \"foo\"}".getBytes());
+
+        AWS4StreamingSigner signer = new AWS4StreamingSigner();
+        signer.setServiceName("demo");
+        signer.sign(request, credentials);
+
+        assertNull(request.getHeaders().get("x-amz-decoded-content-length"));
+        assertNull(request.getHeaders().get("Content-Encoding"));
+        assertFalse(request.getContent() instanceof AwsChunkedEncodingInputStream);
+    }
+
+    @Test
+    public void testPresignDoesNotStreamPayload() throws Exception {
+        byte[] payload = new byte[1024];
+        Request<?> request = generateBasicRequest(payload);
+        request.addHeader("Content-Length", Integer.toString(payload.length));
+
+        AWS4StreamingSigner signer = new AWS4StreamingSigner();
+        signer.setServiceName("demo");
+        signer.presignRequest(request, credentials,
+                new Date(System.currentTimeMillis() + 60 * 1000));
+
+        assertNull(request.getHeaders().get("x-amz-content-sha256"));
+        assertNull(request.getHeaders().get("x-amz-decoded-content-length"));
+        assertNull(request.getHeaders().get("Content-Encoding"));
+        assertEquals(Integer.toString(payload.length),
+                request.getHeaders().get("Content-Length"));
+        assertFalse(request.getContent() instanceof AwsChunkedEncodingInputStream);
+        assertTrue(request.getParameters().containsKey("X-Amz-Signature"));
+    }
+
+    @Test
+    public void testRegisteredWithSignerFactory() {
+        assertTrue(SignerFactory.getSignerByTypeAndService(
+                SignerFactory.VERSION_FOUR_STREAMING_SIGNER, "demo")
+                instanceof AWS4StreamingSigner);
+    }
+
+    private static Request<?> generateBasicRequest(byte[] payload) {
+        Request<?> request = new DefaultRequest<Void>("Foo");
+        request.setContent(new ByteArrayInputStream(payload));
+        request.addHeader("Host", "demo.us-east-1.amazonaws.com");
+        request.setResourcePath("/");
+        request.setEndpoint(URI.create("http://demo.us-east-1.amazonaws.com"));
+        return request;
+    }
+}
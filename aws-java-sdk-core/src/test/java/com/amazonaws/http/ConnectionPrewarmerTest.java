@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.ClientConfiguration;
+
+public class ConnectionPrewarmerTest {
+
+    private ServerSocket server;
+    private final List<Socket> accepted = new CopyOnWriteArrayList<Socket>();
+    private URI endpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        accepted.add(server.accept());
+                    }
+                } catch (IOException expected) {
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+        endpoint = URI.create("http://localhost:" + server.getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testPrewarmConnections() {
+        AmazonHttpClient client = new AmazonHttpClient(new ClientConfiguration()
+                .withMaxConnections(5)
+                .withReaper(false));
+        try {
+            assertEquals(2, client.prewarmConnections(endpoint, 2));
+            // Capped to the maximum number of connections
+            assertEquals(5, client.prewarmConnections(endpoint, 10));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrewarmConnectionsOfSharedPool() {
+        SharedConnectionPool pool = new SharedConnectionPool(
+                new ClientConfiguration().withReaper(false));
+        try {
+            AmazonHttpClient client = new AmazonHttpClient(new ClientConfiguration()
+                    .withSharedConnectionPool(pool));
+            assertEquals(3, client.prewarmConnections(endpoint, 3));
+
+            assertEquals(3, pool.getTotalStats().getAvailable());
+            assertEquals(1, pool.getRouteStats().size());
+            // The connections of the client are those warmed up by the pool
+            assertEquals(3, pool.warmUp(endpoint, 3));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrewarmConnectionsRefused() throws IOException {
+        server.close();
+        AmazonHttpClient client = new AmazonHttpClient(new ClientConfiguration()
+                .withConnectionTimeout(1000)
+                .withReaper(false));
+        try {
+            assertEquals(0, client.prewarmConnections(endpoint, 2));
+        } finally {
+            client.shutdown();
+        }
+    }
+}
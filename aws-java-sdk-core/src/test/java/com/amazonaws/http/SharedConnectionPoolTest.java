@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.net.ssl.SSLException;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.conn.ssl.X509HostnameVerifier;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.ClientConfiguration;
+
+public class SharedConnectionPoolTest {
+
+    private ServerSocket server;
+    private final List<Socket> accepted = new CopyOnWriteArrayList<Socket>();
+    private URI endpoint;
+    private SharedConnectionPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+        Thread acceptor = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        accepted.add(server.accept());
+                    }
+                } catch (IOException expected) {
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+        endpoint = URI.create("http://localhost:" + server.getLocalPort());
+        pool = new SharedConnectionPool(new ClientConfiguration()
+                .withMaxConnections(10)
+                .withReaper(false));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        server.close();
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Waits for the server to have accepted the given number of connections,
+     * and returns the number it has accepted.
+     */
+    private int awaitAccepted(int connections) throws InterruptedException {
+        for (int i = 0; i < 100 && accepted.size() < connections; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(10);
+        return accepted.size();
+    }
+
+    @Test
+    public void testWarmUpOpensPooledConnections() throws InterruptedException {
+        assertEquals(3, pool.warmUp(endpoint, 3));
+        assertEquals(3, awaitAccepted(3));
+
+        Map<HttpRoute, PoolStats> routeStats = pool.getRouteStats();
+        assertEquals(1, routeStats.size());
+        PoolStats stats = routeStats.values().iterator().next();
+        assertEquals(3, stats.getAvailable());
+        assertEquals(0, stats.getLeased());
+        assertEquals(0, stats.getPending());
+        assertEquals(10, stats.getMax());
+
+        // The connections already open are reused
+        assertEquals(4, pool.warmUp(endpoint, 4));
+        assertEquals(4, awaitAccepted(4));
+        assertEquals(4, pool.getTotalStats().getAvailable());
+    }
+
+    @Test
+    public void testMaxConnectionsForHost() {
+        pool.warmUp(endpoint, 1);
+        pool.setMaxConnectionsForHost("localhost", 2);
+
+        assertEquals(2, pool.warmUp(endpoint, 5));
+        assertEquals(2, pool.getRouteStats().values().iterator().next().getMax());
+        assertEquals(10, pool.getMaxConnectionsPerRoute());
+    }
+
+    @Test
+    public void testClientsShareThePool() {
+        ClientConfiguration config = new ClientConfiguration()
+                .withSharedConnectionPool(pool);
+        HttpClientFactory factory = new HttpClientFactory();
+        HttpClient client1 = factory.createHttpClient(config);
+        HttpClient client2 = factory.createHttpClient(config);
+        pool.warmUp(endpoint, 2);
+
+        assertEquals(2, ((ConnPoolControl<?>) client1.getConnectionManager())
+                .getTotalStats().getAvailable());
+        assertEquals(2, ((ConnPoolControl<?>) client2.getConnectionManager())
+                .getTotalStats().getAvailable());
+        assertSame(pool.getConnectionManager().getSchemeRegistry(),
+                client1.getConnectionManager().getSchemeRegistry());
+    }
+
+    @Test
+    public void testClientShutdownLeavesThePoolOpen() {
+        new AmazonHttpClient(new ClientConfiguration()
+                .withSharedConnectionPool(pool)).shutdown();
+
+        assertEquals(2, pool.warmUp(endpoint, 2));
+    }
+
+    @Test
+    public void testHostnameVerification() {
+        assertTrue(pool.isStrictHostnameVerification());
+        assertFalse(isVerified(pool, "my.bucket.s3.amazonaws.com", "*.s3.amazonaws.com"));
+
+        SharedConnectionPool browserCompatiblePool = new SharedConnectionPool(
+                new ClientConfiguration().withReaper(false), false);
+        try {
+            assertFalse(browserCompatiblePool.isStrictHostnameVerification());
+            assertSame(SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER,
+                    hostnameVerifier(browserCompatiblePool));
+        } finally {
+            browserCompatiblePool.shutdown();
+        }
+    }
+
+    @Test
+    public void testHostnameVerificationDisabledPerHost() {
+        pool.disableStrictHostnameVerification("S3.amazonaws.com");
+
+        assertTrue(isVerified(pool, "my.bucket.s3.amazonaws.com", "*.s3.amazonaws.com"));
+        assertTrue(isVerified(pool, "bucket.s3.amazonaws.com", "*.s3.amazonaws.com"));
+        // other hosts are still verified strictly
+        assertFalse(isVerified(pool, "my.queue.example.amazonaws.com", "*.example.amazonaws.com"));
+        assertTrue(pool.isStrictHostnameVerification());
+        assertFalse(pool.isStrictHostnameVerification("bucket.s3.amazonaws.com"));
+        assertTrue(pool.isStrictHostnameVerification("sqs.us-east-1.amazonaws.com"));
+    }
+
+    private static boolean isVerified(SharedConnectionPool pool, String host,
+            String cn) {
+        try {
+            hostnameVerifier(pool).verify(host, new String[] {cn}, null);
+            return true;
+        } catch (SSLException e) {
+            return false;
+        }
+    }
+
+    private static X509HostnameVerifier hostnameVerifier(SharedConnectionPool pool) {
+        SSLSocketFactory sf = (SSLSocketFactory) pool.getConnectionManager()
+                .getSchemeRegistry().getScheme("https").getSchemeSocketFactory();
+        return sf.getHostnameVerifier();
+    }
+}
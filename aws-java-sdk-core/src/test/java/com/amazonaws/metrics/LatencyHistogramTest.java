@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreContiguous() {
+        assertEquals(0, LatencyHistogram.indexOf(0));
+        long previousHighest = -1;
+        for (int i = 0; LatencyHistogram.highestValueOf(i) < 1L << 36; i++) {
+            long highest = LatencyHistogram.highestValueOf(i);
+            assertEquals(i, LatencyHistogram.indexOf(previousHighest + 1));
+            assertEquals(i, LatencyHistogram.indexOf(highest));
+            // Each bucket is within 1/64 of its values
+            assertTrue(highest - previousHighest <= Math.max(1, highest / 64));
+            previousHighest = highest;
+        }
+        assertEquals(LatencyHistogram.indexOf(Long.MAX_VALUE),
+                LatencyHistogram.indexOf(1L << 40));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram("HttpRequestTime");
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordMicros(i * 100);
+        }
+        histogram.recordNanos(-1);
+
+        assertEquals(1001, histogram.getCount());
+        assertEquals(100000, histogram.getMaxMicros());
+        assertEquals(50000, histogram.getValueAtPercentile(50), 50000 / 64);
+        assertEquals(99000, histogram.getValueAtPercentile(99), 99000 / 64);
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+        assertEquals(50000, histogram.getMeanMicros(), 100);
+        assertTrue(histogram.toString().startsWith("HttpRequestTime: count=1001, "));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+}
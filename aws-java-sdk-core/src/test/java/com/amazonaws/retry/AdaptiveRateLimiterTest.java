@@ -0,0 +1,161 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.amazonaws.retry.AdaptiveRateLimiter.Outcome;
+
+public class AdaptiveRateLimiterTest {
+
+    @Test
+    public void testThrottlingDecreasesLimitsOncePerWindow() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test",
+                new RateLimitPolicy(1000, 1000, 16, 0.5, false));
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+        assertEquals(2, limiter.getInFlight());
+
+        limiter.release(first, Outcome.THROTTLED);
+        assertEquals(500, limiter.getRequestsPerSecond(), 0);
+        assertEquals(8, limiter.getConcurrencyLimit());
+
+        // sent before the decrease, so it must not decrease the limits again
+        limiter.release(second, Outcome.THROTTLED);
+        assertEquals(500, limiter.getRequestsPerSecond(), 0);
+        assertEquals(8, limiter.getConcurrencyLimit());
+        assertEquals(2, limiter.getThrottleCount());
+        assertEquals(0, limiter.getInFlight());
+
+        limiter.release(limiter.acquire(), Outcome.THROTTLED);
+        assertEquals(250, limiter.getRequestsPerSecond(), 0);
+        assertEquals(4, limiter.getConcurrencyLimit());
+    }
+
+    @Test
+    public void testSuccessIncreasesLimitsUpToMaximum() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test",
+                new RateLimitPolicy(100, 100, 4, 0.5, false));
+        limiter.release(limiter.acquire(), Outcome.THROTTLED);
+        assertEquals(50, limiter.getRequestsPerSecond(), 0);
+        assertEquals(2, limiter.getConcurrencyLimit());
+
+        limiter.release(limiter.acquire(), Outcome.FAILED);
+        assertEquals(50, limiter.getRequestsPerSecond(), 0);
+        assertEquals(2, limiter.getConcurrencyLimit());
+
+        limiter.release(limiter.acquire(), Outcome.SUCCEEDED);
+        assertTrue(limiter.getRequestsPerSecond() > 50);
+        for (int i = 0; i < 1000; i++)
+            limiter.release(limiter.acquire(), Outcome.SUCCEEDED);
+        assertEquals(100, limiter.getRequestsPerSecond(), 0);
+        assertEquals(4, limiter.getConcurrencyLimit());
+    }
+
+    @Test
+    public void testLimitsDoNotDecreaseBelowMinimum() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test",
+                new RateLimitPolicy(10, 10, 2, 0.1, false));
+        for (int i = 0; i < 5; i++)
+            limiter.release(limiter.acquire(), Outcome.THROTTLED);
+        assertEquals(1, limiter.getRequestsPerSecond(), 0);
+        assertEquals(1, limiter.getConcurrencyLimit());
+    }
+
+    @Test
+    public void testTokenBucketDelaysRequestsBeyondBurst() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test",
+                new RateLimitPolicy(20, 2, 0, 0.5, false));
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++)
+            limiter.release(limiter.acquire(), Outcome.FAILED);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 2 requests in the burst, then 2 more at 20 requests per second
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 90);
+    }
+
+    @Test
+    public void testConcurrencyLimitBlocksUntilReleased() throws Exception {
+        final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test",
+                new RateLimitPolicy(0, 1));
+        long ticket = limiter.acquire();
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    limiter.acquire();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        t.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.release(ticket, Outcome.SUCCEEDED);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testTryAcquireDoesNotWait() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test",
+                new RateLimitPolicy(1, 1, 0, 0.5, false));
+        Long ticket = limiter.tryAcquire();
+        assertNotNull(ticket);
+        // the burst has been used up
+        assertNull(limiter.tryAcquire());
+        limiter.release(ticket, Outcome.SUCCEEDED);
+
+        limiter = new AdaptiveRateLimiter("test", new RateLimitPolicy(0, 1));
+        ticket = limiter.tryAcquire();
+        assertNotNull(ticket);
+        // the concurrency limit has been reached
+        assertNull(limiter.tryAcquire());
+        limiter.release(ticket, Outcome.SUCCEEDED);
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testAcquireGivesUpAtTimeout() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test",
+                new RateLimitPolicy(1, 1, 0, 0.5, false));
+        limiter.release(limiter.acquire(), Outcome.SUCCEEDED);
+        // the next token is a second away
+        assertNull(limiter.acquire(100));
+        assertEquals(0, limiter.getInFlight());
+
+        limiter = new AdaptiveRateLimiter("test", new RateLimitPolicy(0, 1));
+        long ticket = limiter.acquire();
+        long start = System.nanoTime();
+        // the concurrency limit has been reached
+        assertNull(limiter.acquire(100));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 90);
+        assertEquals(1, limiter.getInFlight());
+        limiter.release(ticket, Outcome.SUCCEEDED);
+        assertNotNull(limiter.acquire(100));
+    }
+}
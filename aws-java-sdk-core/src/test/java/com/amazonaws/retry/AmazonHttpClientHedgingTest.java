@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpResponseHandler;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * Tests that {@link AmazonHttpClient} hedges the slow requests of the types
+ * configured in its {@link HedgingPolicy}.
+ */
+public class AmazonHttpClientHedgingTest extends RetryPolicyTestBase {
+
+    @Test(timeout = 10 * 1000)
+    public void testHedgeWinsOverSlowRequest() {
+        AmazonHttpClient client = newClient(TestAmazonWebServiceRequest.class);
+        SlowSecondRequestHttpClient httpClient = new SlowSecondRequestHttpClient();
+        injectMockHttpClient(client, httpClient);
+
+        // the first request is not hedged, as there is no latency sample yet
+        ExecutionContext context = new ExecutionContext(true);
+        client.execute(newRequest(), new NoOpResponseHandler(),
+                errorResponseHandler, context);
+        Assert.assertNull(counter(context, Field.HedgedRequestCount));
+
+        context = new ExecutionContext(true);
+        client.execute(newRequest(), new NoOpResponseHandler(),
+                errorResponseHandler, context);
+        Assert.assertEquals(3, httpClient.requestCount.get());
+        Assert.assertEquals(1, counter(context, Field.HedgedRequestCount).intValue());
+        Assert.assertEquals(1, counter(context, Field.HedgedRequestWinCount).intValue());
+        Assert.assertTrue(httpClient.slowRequest.isAborted());
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testOtherRequestTypesAreNotHedged() {
+        AmazonHttpClient client = newClient(OtherRequest.class);
+        SlowSecondRequestHttpClient httpClient = new SlowSecondRequestHttpClient();
+        httpClient.requestCount.set(2); // no slow request
+        injectMockHttpClient(client, httpClient);
+        for (int i = 0; i < 3; i++) {
+            ExecutionContext context = new ExecutionContext(true);
+            client.execute(newRequest(), new NoOpResponseHandler(),
+                    errorResponseHandler, context);
+            Assert.assertNull(counter(context, Field.HedgedRequestCount));
+        }
+        Assert.assertEquals(5, httpClient.requestCount.get());
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testNoHedgeWithoutRetryCapacity() {
+        // not enough capacity for a hedge, but I/O errors are retried for free
+        ClientConfiguration config = newConfig(TestAmazonWebServiceRequest.class)
+            .withRetryPolicy(new RetryPolicy(null,
+                    RetryPolicy.BackoffStrategy.NO_DELAY, 3, false,
+                    new RetryTokenBucket.Factory(4, 5, 0)))
+            .withRequestTimeout(500);
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        SlowSecondRequestHttpClient httpClient = new SlowSecondRequestHttpClient();
+        injectMockHttpClient(client, httpClient);
+
+        client.execute(newRequest(), new NoOpResponseHandler(),
+                errorResponseHandler, new ExecutionContext(true));
+        // the slow request times out and is retried, instead of being hedged
+        ExecutionContext context = new ExecutionContext(true);
+        client.execute(newRequest(), new NoOpResponseHandler(),
+                errorResponseHandler, context);
+        Assert.assertEquals(3, httpClient.requestCount.get());
+        Assert.assertNull(counter(context, Field.HedgedRequestCount));
+    }
+
+    private static AmazonHttpClient newClient(
+            Class<? extends AmazonWebServiceRequest> hedgedType) {
+        return new AmazonHttpClient(newConfig(hedgedType));
+    }
+
+    private static ClientConfiguration newConfig(
+            Class<? extends AmazonWebServiceRequest> hedgedType) {
+        return new ClientConfiguration()
+            .withHedgingPolicy(new HedgingPolicy(
+                    Collections.<Class<? extends AmazonWebServiceRequest>>singleton(hedgedType),
+                    HedgingPolicy.DEFAULT_PERCENTILE, 10, 1));
+    }
+
+    private static Request<?> newRequest() {
+        Request<?> request = getSampleRequestWithRepeatableContent(
+                new TestAmazonWebServiceRequest());
+        request.addHeader("Content-Length", "51");
+        return request;
+    }
+
+    private static Number counter(ExecutionContext context, Field field) {
+        TimingInfo timingInfo = context.getAwsRequestMetrics().getTimingInfo();
+        return timingInfo.getCounter(field.name());
+    }
+
+    private static class OtherRequest extends AmazonWebServiceRequest {}
+
+    /**
+     * Returns a successful response right away, except for the second request,
+     * which blocks until aborted.
+     */
+    private static class SlowSecondRequestHttpClient extends MockHttpClient {
+        final AtomicInteger requestCount = new AtomicInteger();
+        volatile HttpRequestBase slowRequest;
+
+        @Override
+        public HttpResponse execute(HttpUriRequest request) throws IOException,
+                ClientProtocolException {
+            if (requestCount.incrementAndGet() == 2) {
+                slowRequest = (HttpRequestBase) request;
+                while (!slowRequest.isAborted()) {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("interrupted");
+                    }
+                }
+                throw new IOException("Request aborted");
+            }
+            return new BasicHttpResponse(new BasicStatusLine(
+                    HttpVersion.HTTP_1_1, 200, "OK"));
+        }
+    }
+
+    private static class NoOpResponseHandler implements
+            HttpResponseHandler<AmazonWebServiceResponse<Object>> {
+        @Override
+        public AmazonWebServiceResponse<Object> handle(
+                com.amazonaws.http.HttpResponse response) throws Exception {
+            return new AmazonWebServiceResponse<Object>();
+        }
+
+        @Override
+        public boolean needsConnectionLeftOpen() {
+            return false;
+        }
+    }
+}
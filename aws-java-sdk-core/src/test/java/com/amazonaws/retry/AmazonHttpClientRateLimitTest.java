@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.metrics.AwsSdkMetrics;
+
+/**
+ * Tests that {@link AmazonHttpClient} adapts its client side rate limiter to
+ * throttling responses.
+ */
+public class AmazonHttpClientRateLimitTest extends RetryPolicyTestBase {
+
+    @Test
+    public void testThrottlingDecreasesLimits() {
+        ClientConfiguration config = new ClientConfiguration()
+            .withRetryPolicy(new RetryPolicy(null,
+                    RetryPolicy.BackoffStrategy.NO_DELAY, 3, false))
+            .withRateLimitPolicy(new RateLimitPolicy(1000, 1000, 64, 0.5, true));
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        injectMockHttpClient(client, new ReturnServiceErrorHttpClient(400, "Throttling"));
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                           null,
+                           errorResponseHandler,
+                           new ExecutionContext(true));
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals("Throttling", ase.getErrorCode());
+        }
+
+        AdaptiveRateLimiter limiter = findRateLimiter(
+                "non-existent-service@us-east-1");
+        Assert.assertNotNull(limiter);
+        Assert.assertEquals(4, limiter.getThrottleCount());
+        Assert.assertEquals(0, limiter.getInFlight());
+        // each attempt was sent after the previous decrease
+        Assert.assertEquals(1000 / 16.0, limiter.getRequestsPerSecond(), 0);
+        Assert.assertEquals(64 / 16, limiter.getConcurrencyLimit());
+    }
+
+    private static AdaptiveRateLimiter findRateLimiter(String name) {
+        for (AdaptiveRateLimiter limiter : AwsSdkMetrics.getRateLimiters()) {
+            if (name.equals(limiter.getName()))
+                return limiter;
+        }
+        return null;
+    }
+}
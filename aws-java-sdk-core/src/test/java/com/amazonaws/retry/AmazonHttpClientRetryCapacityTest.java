@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * Tests that {@link AmazonHttpClient} fails fast once the retry capacity
+ * shared by its requests has been exhausted.
+ */
+public class AmazonHttpClientRetryCapacityTest extends RetryPolicyTestBase {
+
+    @Test
+    public void testRetriesStopWhenCapacityExhausted() {
+        ClientConfiguration config = new ClientConfiguration()
+            .withRetryPolicy(new RetryPolicy(null,
+                    RetryPolicy.BackoffStrategy.NO_DELAY, 5, false,
+                    new RetryTokenBucket.Factory(10, 5, 10)));
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        injectMockHttpClient(client, new ReturnServiceErrorHttpClient(500, "InternalFailure"));
+
+        // two retries exhaust the capacity
+        TimingInfo timingInfo = executeAndFail(client);
+        Assert.assertEquals(3, counter(timingInfo, AWSRequestMetrics.Field.RequestCount));
+        Assert.assertEquals(10, counter(timingInfo, AWSRequestMetrics.Field.RetryCapacityConsumed));
+        Assert.assertEquals(1, counter(timingInfo, AWSRequestMetrics.Field.RetryCapacityExhausted));
+
+        // no capacity left for any retry
+        timingInfo = executeAndFail(client);
+        Assert.assertEquals(1, counter(timingInfo, AWSRequestMetrics.Field.RequestCount));
+        Assert.assertEquals(1, counter(timingInfo, AWSRequestMetrics.Field.RetryCapacityExhausted));
+    }
+
+    @Test
+    public void testThrottlingDoesNotExhaustCapacity() {
+        ClientConfiguration config = new ClientConfiguration()
+            .withRetryPolicy(new RetryPolicy(null,
+                    RetryPolicy.BackoffStrategy.NO_DELAY, 5, false,
+                    new RetryTokenBucket.Factory(10, 5, 10)));
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        injectMockHttpClient(client, new ReturnServiceErrorHttpClient(400,
+                "ProvisionedThroughputExceededException"));
+
+        for (int i = 0; i < 10; i++) {
+            TimingInfo timingInfo = executeAndFail(client, 400);
+            Assert.assertEquals(6, counter(timingInfo, AWSRequestMetrics.Field.RequestCount));
+            Assert.assertEquals(0, counter(timingInfo, AWSRequestMetrics.Field.RetryCapacityConsumed));
+            Assert.assertNull(timingInfo.getCounter(
+                    AWSRequestMetrics.Field.RetryCapacityExhausted.name()));
+        }
+    }
+
+    @Test
+    public void testPredefinedPoliciesHaveNoRetryCapacity() {
+        Assert.assertSame(RetryPolicy.RetryCapacityFactory.UNLIMITED,
+                PredefinedRetryPolicies.DEFAULT.getRetryCapacityFactory());
+        Assert.assertSame(RetryPolicy.RetryCapacityFactory.UNLIMITED,
+                PredefinedRetryPolicies.DYNAMODB_DEFAULT.getRetryCapacityFactory());
+        Assert.assertSame(RetryPolicy.RetryCapacityFactory.UNLIMITED,
+                PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(5)
+                    .getRetryCapacityFactory());
+        Assert.assertSame(PredefinedRetryPolicies.TOKEN_BUCKET_RETRY_CAPACITY_FACTORY,
+                PredefinedRetryPolicies.getDefaultRetryPolicyWithRetryCapacity(
+                        PredefinedRetryPolicies.TOKEN_BUCKET_RETRY_CAPACITY_FACTORY)
+                    .getRetryCapacityFactory());
+    }
+
+    private static TimingInfo executeAndFail(AmazonHttpClient client) {
+        return executeAndFail(client, 500);
+    }
+
+    private static TimingInfo executeAndFail(AmazonHttpClient client, int statusCode) {
+        ExecutionContext context = new ExecutionContext(true);
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                           null,
+                           errorResponseHandler,
+                           context);
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals(statusCode, ase.getStatusCode());
+        }
+        return context.getAwsRequestMetrics().getTimingInfo();
+    }
+
+    private static int counter(TimingInfo timingInfo, AWSRequestMetrics.Field field) {
+        return timingInfo.getCounter(field.toString()).intValue();
+    }
+}
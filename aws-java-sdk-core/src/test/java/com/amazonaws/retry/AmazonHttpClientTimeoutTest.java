@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.ClientExecutionTimeoutException;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpRequestTimeoutException;
+
+/**
+ * Tests that {@link AmazonHttpClient} aborts the HTTP requests that exceed the
+ * request timeout or the client execution timeout.
+ */
+public class AmazonHttpClientTimeoutTest extends RetryPolicyTestBase {
+
+    @Test(timeout = 10 * 1000)
+    public void testRequestTimeoutIsRetried() {
+        ClientConfiguration config = new ClientConfiguration()
+            .withRetryPolicy(new RetryPolicy(null,
+                    RetryPolicy.BackoffStrategy.NO_DELAY, 2, false))
+            .withRequestTimeout(100);
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        HangingHttpClient httpClient = new HangingHttpClient();
+        injectMockHttpClient(client, httpClient);
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                           null,
+                           errorResponseHandler,
+                           new ExecutionContext(true));
+            Assert.fail("AmazonClientException is expected.");
+        } catch (AmazonClientException ace) {
+            Assert.assertFalse(ace instanceof ClientExecutionTimeoutException);
+            Assert.assertTrue(ace.getCause() instanceof HttpRequestTimeoutException);
+        }
+        Assert.assertEquals(3, httpClient.requestCount.get());
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testClientExecutionTimeoutIsNotRetried() {
+        ClientConfiguration config = new ClientConfiguration()
+            .withRetryPolicy(new RetryPolicy(null,
+                    RetryPolicy.BackoffStrategy.NO_DELAY, 2, false))
+            .withClientExecutionTimeout(100);
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        HangingHttpClient httpClient = new HangingHttpClient();
+        injectMockHttpClient(client, httpClient);
+        long start = System.currentTimeMillis();
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                           null,
+                           errorResponseHandler,
+                           new ExecutionContext(true));
+            Assert.fail("ClientExecutionTimeoutException is expected.");
+        } catch (ClientExecutionTimeoutException expected) {
+            Assert.assertFalse(expected.isRetryable());
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 5 * 1000);
+        Assert.assertEquals(1, httpClient.requestCount.get());
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testClientExecutionTimeoutCutsRetryPauseShort() {
+        ClientConfiguration config = new ClientConfiguration()
+            .withRetryPolicy(new RetryPolicy(null,
+                    new RetryPolicy.BackoffStrategy() {
+                        @Override
+                        public long delayBeforeNextRetry(
+                                com.amazonaws.AmazonWebServiceRequest originalRequest,
+                                AmazonClientException exception,
+                                int retriesAttempted) {
+                            return 60 * 1000;
+                        }
+                    }, 2, false))
+            .withClientExecutionTimeout(1000);
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        ReturnServiceErrorHttpClient httpClient =
+            new ReturnServiceErrorHttpClient(500, "fake 500 service error");
+        injectMockHttpClient(client, httpClient);
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                           null,
+                           errorResponseHandler,
+                           new ExecutionContext(true));
+            Assert.fail("ClientExecutionTimeoutException is expected.");
+        } catch (ClientExecutionTimeoutException expected) {
+        }
+    }
+
+    @Test(timeout = 10 * 1000)
+    public void testClientExecutionTimeoutDuringRetryPauseAfterRequestTimeout() {
+        ClientConfiguration config = new ClientConfiguration()
+            .withRetryPolicy(new RetryPolicy(null,
+                    new RetryPolicy.BackoffStrategy() {
+                        @Override
+                        public long delayBeforeNextRetry(
+                                com.amazonaws.AmazonWebServiceRequest originalRequest,
+                                AmazonClientException exception,
+                                int retriesAttempted) {
+                            return 60 * 1000;
+                        }
+                    }, 2, false))
+            .withRequestTimeout(100)
+            .withClientExecutionTimeout(5000);
+        AmazonHttpClient client = new AmazonHttpClient(config);
+        HangingHttpClient httpClient = new HangingHttpClient();
+        injectMockHttpClient(client, httpClient);
+        try {
+            client.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                           null,
+                           errorResponseHandler,
+                           new ExecutionContext(true));
+            Assert.fail("ClientExecutionTimeoutException is expected.");
+        } catch (ClientExecutionTimeoutException expected) {
+            // The request timeout of the first attempt is the cause
+            Assert.assertTrue(expected.getCause().getCause()
+                    instanceof HttpRequestTimeoutException);
+        }
+        Assert.assertEquals(1, httpClient.requestCount.get());
+    }
+
+    /**
+     * Blocks each request until it is aborted.
+     */
+    private static class HangingHttpClient extends MockHttpClient {
+        final AtomicInteger requestCount = new AtomicInteger();
+
+        @Override
+        public HttpResponse execute(HttpUriRequest request) throws IOException,
+                ClientProtocolException {
+            requestCount.incrementAndGet();
+            HttpRequestBase req = (HttpRequestBase) request;
+            while (!req.isAborted()) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted");
+                }
+            }
+            throw new IOException("Request aborted");
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+
+public class RetryTokenBucketTest {
+    private static final AmazonServiceException SERVICE_ERROR =
+        new AmazonServiceException("Fake service exception.");
+    private static final AmazonClientException IO_ERROR =
+        new AmazonClientException("Unable to execute HTTP request",
+                                  new IOException("fake IOException"));
+    private static final AmazonServiceException THROTTLING_ERROR =
+        new AmazonServiceException("Fake throttling exception.");
+    static {
+        THROTTLING_ERROR.setErrorCode("ProvisionedThroughputExceededException");
+    }
+
+    @Test
+    public void testRetriesConsumeTokensUntilExhausted() {
+        RetryTokenBucket bucket = new RetryTokenBucket(20, 5, 10);
+        assertEquals(10, bucket.acquire(null, IO_ERROR, 0));
+        assertEquals(5, bucket.acquire(null, SERVICE_ERROR, 1));
+        assertEquals(5, bucket.getAvailableCapacity());
+        assertEquals(-1, bucket.acquire(null, IO_ERROR, 2));
+        assertEquals(5, bucket.acquire(null, SERVICE_ERROR, 2));
+        assertEquals(-1, bucket.acquire(null, SERVICE_ERROR, 3));
+        assertEquals(0, bucket.getAvailableCapacity());
+    }
+
+    @Test
+    public void testSuccessesRefillTokensUpToCapacity() {
+        RetryTokenBucket bucket = new RetryTokenBucket(20, 5, 10);
+        int acquired = bucket.acquire(null, SERVICE_ERROR, 0)
+                     + bucket.acquire(null, IO_ERROR, 1);
+        assertEquals(5, bucket.getAvailableCapacity());
+        bucket.release(0);
+        assertEquals(6, bucket.getAvailableCapacity());
+        bucket.release(acquired);
+        assertEquals(20, bucket.getAvailableCapacity());
+        bucket.release(0);
+        assertEquals(20, bucket.getAvailableCapacity());
+    }
+
+    @Test
+    public void testThrottlingDoesNotExhaustTokens() {
+        RetryTokenBucket bucket = new RetryTokenBucket(20, 5, 10);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, bucket.acquire(null, THROTTLING_ERROR, 0));
+        }
+        assertEquals(20, bucket.getAvailableCapacity());
+        assertEquals(5, bucket.acquire(null, SERVICE_ERROR, 0));
+    }
+
+    @Test
+    public void testFactoryCreatesFullBucketPerClient() {
+        RetryPolicy.RetryCapacityFactory factory = new RetryTokenBucket.Factory(20, 5, 10);
+        RetryCapacity first = factory.newRetryCapacity();
+        first.acquire(null, SERVICE_ERROR, 0);
+        RetryCapacity second = factory.newRetryCapacity();
+        assertNotSame(first, second);
+        assertEquals(15, first.getAvailableCapacity());
+        assertEquals(20, second.getAvailableCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new RetryTokenBucket.Factory(-1, 5, 10);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.junit.Test;
+
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Tests that the cursor mode of {@link StaxUnmarshallerContext} yields the
+ * same results as the event reader mode.
+ */
+public class StaxUnmarshallerContextTest {
+
+    private static final String XML =
+          "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<DescribeThingsResponse xmlns=\"http://example.com/doc/\">\n"
+        + "  <requestId>req-1</requestId>\n"
+        + "  <thingSet>\n"
+        + "    <item id=\"i-1\"><name>first &amp; only</name><empty/></item>\n"
+        + "    <item id=\"i-2\"><name><![CDATA[<second>]]></name><!-- comment --></item>\n"
+        + "  </thingSet>\n"
+        + "  <ResponseMetadata><RequestId>req-2</RequestId></ResponseMetadata>\n"
+        + "</DescribeThingsResponse>";
+
+    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+    @Test
+    public void testCursorModeMatchesEventMode() throws Exception {
+        StaxUnmarshallerContext eventContext = new StaxUnmarshallerContext(
+                xmlInputFactory.createXMLEventReader(content()));
+        StaxUnmarshallerContext cursorContext = new StaxUnmarshallerContext(
+                xmlInputFactory.createXMLStreamReader(content()), null);
+
+        List<String> expected = walk(eventContext);
+        List<String> actual = walk(cursorContext);
+
+        assertEquals(expected, actual);
+        assertEquals(eventContext.getMetadata(), cursorContext.getMetadata());
+        assertEquals("req-1", cursorContext.getMetadata().get("requestId"));
+        assertEquals("req-2", cursorContext.getMetadata().get("RequestId"));
+    }
+
+    @Test
+    public void testStartOfDocument() throws Exception {
+        StaxUnmarshallerContext context = new StaxUnmarshallerContext(
+                xmlInputFactory.createXMLStreamReader(content()), null);
+        assertTrue(context.isStartOfDocument());
+        assertTrue(context.nextEvent().isStartDocument());
+        assertFalse(context.isStartOfDocument());
+    }
+
+    @Test
+    public void testEventDetailsInCursorMode() throws Exception {
+        StaxUnmarshallerContext context = new StaxUnmarshallerContext(
+                xmlInputFactory.createXMLStreamReader(content()), null);
+        XMLEvent xmlEvent;
+        while (!(xmlEvent = context.nextEvent()).isStartElement()
+                || !context.testExpression("item")) {
+        }
+        StartElement item = xmlEvent.asStartElement();
+        assertEquals(new QName("http://example.com/doc/", "item"), item.getName());
+        assertEquals("i-1", item.getAttributeByName(new QName("id")).getValue());
+
+        assertTrue(context.nextEvent().isAttribute());
+        // still the start element the attribute belongs to
+        assertEquals("item", xmlEvent.asStartElement().getName().getLocalPart());
+
+        while (!(xmlEvent = context.nextEvent()).isCharacters()) {
+        }
+        // the parser may split the text at the entity reference
+        assertTrue(xmlEvent.asCharacters().getData().startsWith("first"));
+
+        while (!(xmlEvent = context.nextEvent()).isEndElement()) {
+        }
+        assertEquals("name", xmlEvent.asEndElement().getName().getLocalPart());
+
+        context.nextEvent();
+        try {
+            xmlEvent.asEndElement();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    /**
+     * Walks the document the way the generated StAX unmarshallers do, and
+     * records what they would observe.
+     */
+    private static List<String> walk(StaxUnmarshallerContext context) throws Exception {
+        context.registerMetadataExpression("requestId", 2, "requestId");
+        context.registerMetadataExpression("ResponseMetadata/RequestId", 2, "RequestId");
+        List<String> observed = new ArrayList<String>();
+        while (true) {
+            XMLEvent xmlEvent = context.nextEvent();
+            if (xmlEvent.isEndDocument()) return observed;
+
+            if (xmlEvent.isAttribute() || xmlEvent.isStartElement()) {
+                String type = xmlEvent.isAttribute() ? "attribute" : "start";
+                observed.add(type + " " + context.getCurrentDepth()
+                        + " item=" + context.testExpression("thingSet/item", 2)
+                        + " name=" + context.testExpression("item/name")
+                        + " id=" + context.testExpression("item/@id"));
+                if (context.testExpression("name")
+                        || context.testExpression("@id")
+                        || context.testExpression("empty")) {
+                    observed.add("text " + context.readText());
+                }
+            } else if (xmlEvent.isEndElement()) {
+                observed.add("end " + context.getCurrentDepth());
+            }
+        }
+    }
+
+    private static ByteArrayInputStream content() {
+        return new ByteArrayInputStream(XML.getBytes(StringUtils.UTF8));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.metrics.LatencyHistogram;
+import com.amazonaws.metrics.SimpleMetricType;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+public class AWSRequestMetricsFullSupportTest {
+    private static final SimpleMetricType CUSTOM = new SimpleMetricType() {
+        @Override
+        public String name() {
+            return "CustomTime";
+        }
+    };
+
+    @After
+    public void tearDown() {
+        AwsSdkMetrics.setLatencyHistogramsEnabled(false);
+    }
+
+    @Test
+    public void testEvents() {
+        AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+        metrics.startEvent(CUSTOM);
+        metrics.endEvent(CUSTOM);
+        metrics.startEvent(Field.HttpRequestTime.name());
+        metrics.endEvent(Field.HttpRequestTime.name());
+        // Never started
+        metrics.endEvent(Field.ResponseProcessingTime);
+
+        TimingInfo ti = metrics.getTimingInfo();
+        List<TimingInfo> timings = ti.getAllSubMeasurements(Field.HttpRequestTime.name());
+        assertEquals(2, timings.size());
+        for (TimingInfo timing : timings) {
+            assertTrue(timing.isEndTimeKnown());
+            assertTrue(timing.getEndTimeNano() >= timing.getStartTimeNano());
+        }
+        assertEquals(timings.get(1).getStartTimeNano(),
+                ti.getLastSubMeasurement(Field.HttpRequestTime.name()).getStartTimeNano());
+        assertEquals(timings.get(0).getStartTimeNano(),
+                ti.getSubMeasurement(Field.HttpRequestTime.name()).getStartTimeNano());
+        assertNull(ti.getSubMeasurement(Field.HttpRequestTime.name(), 2));
+        assertEquals(1, ti.getAllSubMeasurements(CUSTOM.name()).size());
+        assertNull(ti.getAllSubMeasurements(Field.ResponseProcessingTime.name()));
+        assertNull(ti.getLastSubMeasurement(Field.ResponseProcessingTime.name()));
+
+        Map<String, List<TimingInfo>> timingsByName = ti.getSubMeasurementsByName();
+        assertEquals(Arrays.asList(Field.HttpRequestTime.name(), CUSTOM.name()),
+                Arrays.asList(timingsByName.keySet().toArray()));
+        assertEquals(2, timingsByName.get(Field.HttpRequestTime.name()).size());
+    }
+
+    @Test
+    public void testCounters() {
+        AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.incrementCounter(Field.RequestCount);
+        metrics.incrementCounter(Field.RequestCount.name());
+        metrics.setCounter(Field.HttpClientPoolLeasedCount, 0);
+        metrics.incrementCounter("CustomCount");
+
+        TimingInfo ti = metrics.getTimingInfo();
+        assertEquals(2, ti.getCounter(Field.RequestCount.name()).intValue());
+        assertEquals(0, ti.getCounter(Field.HttpClientPoolLeasedCount.name()).intValue());
+        assertEquals(1, ti.getCounter("CustomCount").intValue());
+        assertNull(ti.getCounter(Field.RetryCapacityConsumed.name()));
+        assertEquals(3, ti.getAllCounters().size());
+    }
+
+    @Test
+    public void testProperties() {
+        AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.addProperty(Field.StatusCode, 200);
+        metrics.addProperty(Field.AWSErrorCode, null);
+        metrics.addProperty(Field.Exception, "first");
+        metrics.addProperty(Field.Exception.name(), "second");
+        metrics.addProperty("Custom", "value");
+
+        assertEquals(Arrays.<Object>asList(200), metrics.getProperty(Field.StatusCode));
+        assertEquals(Arrays.<Object>asList((Object) null), metrics.getProperty(Field.AWSErrorCode));
+        assertEquals(Arrays.<Object>asList("first", "second"), metrics.getProperty(Field.Exception));
+        assertEquals(Arrays.<Object>asList("value"), metrics.getProperty("Custom"));
+        assertNull(metrics.getProperty(Field.ServiceName));
+        assertNull(metrics.getProperty("Other"));
+
+        // The lists of values are mutable, and keep the values added later
+        List<Object> statusCodes = metrics.getProperty(Field.StatusCode);
+        statusCodes.add(500);
+        metrics.addProperty(Field.StatusCode, 503);
+        assertEquals(Arrays.<Object>asList(200, 500, 503), metrics.getProperty(Field.StatusCode));
+        assertTrue(metrics.isEnabled());
+    }
+
+    @Test
+    public void testLatencyHistograms() {
+        AwsSdkMetrics.setLatencyHistogramsEnabled(true);
+        LatencyHistogram histogram = AwsSdkMetrics.getLatencyHistogram(Field.RequestSigningTime);
+        long count = histogram == null ? 0 : histogram.getCount();
+
+        AWSRequestMetricsFullSupport metrics = AWSRequestMetricsFullSupport.newStreamingMetrics();
+        metrics.startEvent(Field.RequestSigningTime);
+        metrics.endEvent(Field.RequestSigningTime);
+        metrics.incrementCounter(Field.RequestCount);
+        metrics.addProperty(Field.StatusCode, 200);
+
+        histogram = AwsSdkMetrics.getLatencyHistogram(Field.RequestSigningTime);
+        assertNotNull(histogram);
+        assertEquals(count + 1, histogram.getCount());
+        // Only the counters are kept
+        TimingInfo ti = metrics.getTimingInfo();
+        assertNull(ti.getAllSubMeasurements(Field.RequestSigningTime.name()));
+        assertEquals(1, ti.getCounter(Field.RequestCount.name()).intValue());
+        assertNull(metrics.getProperty(Field.StatusCode));
+        assertFalse(metrics.isEnabled());
+    }
+}
@@ -18,8 +18,12 @@
  */
 package com.amazonaws.util;
 
+import java.net.URLEncoder;
+
 import org.junit.*;
 
+import com.amazonaws.DefaultRequest;
+
 public class SdkHttpUtilsTest {
     @Test
     public void testEncodeNull() {
@@ -95,4 +99,48 @@ public class SdkHttpUtilsTest {
                             expected,
                             SdkHttpUtils.urlEncode(test, false));
     }
+
+    @Test
+    public void testEncodingNonAscii() throws Exception {
+        String test = "caf\u00e9 \u00fcber \u4e2d\u6587/\ud83d\ude00";
+
+        Assert.assertEquals("caf%C3%A9%20%C3%BCber%20%E4%B8%AD%E6%96%87%2F%F0%9F%98%80",
+                            SdkHttpUtils.urlEncode(test, false));
+        Assert.assertEquals(URLEncoder.encode(test, "UTF-8")
+                                      .replace("+", "%20"),
+                            SdkHttpUtils.urlEncode(test, false));
+    }
+
+    @Test
+    public void testEncodingUnpairedSurrogate() {
+        Assert.assertEquals("a%3Fb%3F",
+                            SdkHttpUtils.urlEncode("a\ud83db\ude00", false));
+    }
+
+    @Test
+    public void testNoEncodingReturnsSameString() {
+        String test = "unreserved-path/to/key.txt";
+        Assert.assertSame(test, SdkHttpUtils.urlEncode(test, true));
+    }
+
+    @Test
+    public void testAppendUrlEncoded() {
+        StringBuilder sb = new StringBuilder("key=");
+        SdkHttpUtils.appendUrlEncoded(sb, "a b/c", false);
+        SdkHttpUtils.appendUrlEncoded(sb, null, false);
+        Assert.assertEquals("key=a%20b%2Fc", sb.toString());
+    }
+
+    @Test
+    public void testEncodeParameters() {
+        DefaultRequest<Void> request = new DefaultRequest<Void>("test");
+        Assert.assertNull(SdkHttpUtils.encodeParameters(request));
+
+        request.addParameter("Action", "Put Item");
+        request.addParameter("Key*", "a+b=c&d~");
+        request.addParameter("Flag", null);
+
+        Assert.assertEquals("Action=Put%20Item&Key%2A=a%2Bb%3Dc%26d~&Flag",
+                            SdkHttpUtils.encodeParameters(request));
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights
+ * Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is
+ * distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either
+ * express or implied. See the License for the specific language
+ * governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Unit tests for the SdkJsonGenerator class.
+ */
+public class SdkJsonGeneratorTest {
+
+    /**
+     * Tests that SdkJsonGenerator produces the same JSON text as the
+     * JSONWriter it replaces in the request marshallers.
+     */
+    @Test
+    public void testSameOutputAsJSONWriter() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        JSONWriter expected = new JSONWriter(stringWriter);
+        write(expected);
+        SdkJsonGenerator actual = new SdkJsonGenerator();
+        write(actual);
+
+        assertEquals(stringWriter.toString(), actual.toString());
+    }
+
+    @Test
+    public void testContentIsResettable() throws Exception {
+        SdkJsonGenerator generator = new SdkJsonGenerator(4);
+        write(generator);
+        byte[] expected = generator.toString().getBytes(StringUtils.UTF8);
+
+        assertEquals(expected.length, generator.getContentLength());
+        InputStream content = generator.getContent();
+        assertTrue(content.markSupported());
+        content.mark(expected.length);
+        assertEquals(expected.length, IOUtils.toByteArray(content).length);
+        content.reset();
+        assertEquals(new String(expected, StringUtils.UTF8),
+                IOUtils.toString(content));
+    }
+
+    @Test(expected = JSONException.class)
+    public void testInvalidNumber() throws Exception {
+        new SdkJsonGenerator().array().value(Double.NaN);
+    }
+
+    private static void write(JSONWriter writer) throws JSONException {
+        writer.object()
+              .key("String").value("a-string")
+              .key("Integer").value(Integer.valueOf(42))
+              .key("Long").value(Long.MAX_VALUE)
+              .key("Double").value(Double.valueOf(1.5d))
+              .key("Boolean").value(Boolean.TRUE)
+              .key("Date").value(new Date(1234567L))
+              .key("Blob").value(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}, 1, 3))
+              .key("List").array()
+                  .object().key("Nested").value(false).endObject()
+                  .value(7)
+              .endArray()
+              .endObject();
+    }
+}
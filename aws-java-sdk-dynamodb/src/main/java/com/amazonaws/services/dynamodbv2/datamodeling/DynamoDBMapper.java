@@ -29,6 +29,15 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -55,6 +64,7 @@ import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
@@ -67,6 +77,7 @@ import com.amazonaws.services.dynamodbv2.model.PutItemResult;
 import com.amazonaws.services.dynamodbv2.model.PutRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ReturnValue;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
@@ -194,6 +205,9 @@ public class DynamoDBMapper {
 
     private final AttributeTransformer transformer;
 
+    /** The threads writing batches in parallel, created on first use. */
+    private ExecutorService batchWriteExecutor;
+
     /**
      * The max back off time for batch get. The configuration for batch write
      * has been moved to DynamoDBMapperConfig
@@ -202,6 +216,12 @@ public class DynamoDBMapper {
 
     /** The max number of items allowed in a BatchWrite request */
     static final int MAX_ITEMS_PER_BATCH = 25;
+
+    /**
+     * The max number of threads writing batches in parallel for a mapper;
+     * more concurrent batches wait for one of them to be available.
+     */
+    static final int MAX_BATCH_WRITE_THREADS = 32;
     /**
      * This retry count is applicable only when every batch get item request
      * results in no data retrieved from server and the un processed keys is
@@ -221,6 +241,9 @@ public class DynamoDBMapper {
 
     private static final Log log = LogFactory.getLog(DynamoDBMapper.class);
 
+    /** Source of the back off jitter, shared by every thread of every mapper. */
+    private static final Random JITTER = new Random();
+
     /**
      * Fail fast when trying to create a subclass of the DynamoDBMapper that
      * attempts to override one of the old {@code transformAttributes} methods.
@@ -1543,11 +1566,275 @@ public class DynamoDBMapper {
 
         List<FailedBatch> totalFailedBatches = new LinkedList<FailedBatch>();
 
+        List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
+        Map<String, List<WriteRequest>> requestItems = toBatchWriteRequestItems(
+                objectsToWrite, objectsToDelete, config, inMemoryUpdates);
+
+        // Break into chunks of 25 items and make service requests to DynamoDB
+        int consecutiveThrottledBatches = 0;
+        while ( !requestItems.isEmpty() ) {
+
+            HashMap<String, List<WriteRequest>> batch =
+                    new HashMap<String, List<WriteRequest>>();
+
+            int i = 0;
+
+            Iterator<Entry<String, List<WriteRequest>>> tableIter = requestItems.entrySet().iterator();
+            while ( tableIter.hasNext() && i < MAX_ITEMS_PER_BATCH ) {
+
+                Entry<String, List<WriteRequest>> tableRequest = tableIter.next();
+
+                batch.put(tableRequest.getKey(), new LinkedList<WriteRequest>());
+                Iterator<WriteRequest> writeRequestIter = tableRequest.getValue().iterator();
+
+                while ( writeRequestIter.hasNext() && i++ < MAX_ITEMS_PER_BATCH ) {
+                    WriteRequest writeRequest = writeRequestIter.next();
+                    batch.get(tableRequest.getKey()).add(writeRequest);
+                    writeRequestIter.remove();
+                }
+
+                // If we've processed all the write requests for this table,
+                // remove it from the parent iterator.
+                if ( !writeRequestIter.hasNext() ) {
+                    tableIter.remove();
+                }
+            }
+
+            List<FailedBatch> failedBatches = writeOneBatch(batch, config.getBatchWriteRetryStrategy(), null);
+            totalFailedBatches.addAll(failedBatches);
+
+            // If contains throttling exception, we do a backoff
+            if (containsThrottlingException(failedBatches)) {
+                pauseWithJitter(++consecutiveThrottledBatches);
+            } else {
+                consecutiveThrottledBatches = 0;
+            }
+        }
+
+        // Once the entire batch is processed, update assigned keys in memory
+        for ( ValueUpdate update : inMemoryUpdates ) {
+            update.apply();
+        }
+
+        return totalFailedBatches;
+    }
+
+    /**
+     * Saves and deletes the objects given using concurrent calls to the
+     * {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)} API.
+     *
+     * @see DynamoDBMapper#parallelBatchWrite(List, List, int, BatchWriteListener, DynamoDBMapperConfig)
+     */
+    public List<FailedBatch> parallelBatchWrite(List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete,
+            int maxConcurrentBatchesPerTable, BatchWriteListener listener) {
+        return parallelBatchWrite(objectsToWrite, objectsToDelete, maxConcurrentBatchesPerTable, listener, this.config);
+    }
+
+    /**
+     * Saves and deletes the objects given using concurrent calls to the
+     * {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)} API.
+     * <p>
+     * The write requests of each table are sent in batches of up to 25 items,
+     * and up to <code>maxConcurrentBatchesPerTable</code> batches are written
+     * to each table at the same time. As with
+     * {@link #batchWrite(List, List, DynamoDBMapperConfig)}, UnprocessedItems
+     * are resent according to the BatchWriteRetryStrategy of the config, and
+     * each thread writing the batches of a table backs off when its requests
+     * get throttled.
+     * <p>
+     * This method blocks until all the batches have been processed, but the
+     * capacity consumed by each batch and each failed batch are reported to
+     * the listener as soon as they are known. The batches are written by up
+     * to 32 daemon threads owned by this mapper, which are released by
+     * {@link #shutdown()}.
+     * <p>
+     * Since the batches of a table are written concurrently, there is no
+     * ordering guarantee between them: if an object to save and an object to
+     * delete have the same key and end up in different batches, the put and
+     * the delete may be applied in either order. Callers that need a
+     * particular outcome should not pass the same key in both lists.
+     *
+     * @param objectsToWrite
+     *            A list of objects to save to DynamoDB. <b>No version checks
+     *            are performed</b>, as required by the
+     *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
+     *            API.
+     * @param objectsToDelete
+     *            A list of objects to delete from DynamoDB. <b>No version
+     *            checks are performed</b>, as required by the
+     *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
+     *            API.
+     * @param maxConcurrentBatchesPerTable
+     *            The maximum number of BatchWriteItem calls in flight for each
+     *            table.
+     * @param listener
+     *            The listener to notify of the progress of the batches; or
+     *            null. It is called from several threads at the same time.
+     * @param config
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} and
+     *            {@link DynamoDBMapperConfig#getBatchWriteRetryStrategy()} are
+     *            considered. This method <b>always acts as if
+     *            SaveBehavior.CLOBBER was specified</b> regardless of the value
+     *            of the config parameter.
+     * @return A list of failed batches which includes the unprocessed items and
+     *         the exceptions causing the failure.
+     *
+     * @see DynamoDBMapper#batchWrite(List, List, DynamoDBMapperConfig)
+     */
+    public List<FailedBatch> parallelBatchWrite(List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete,
+            int maxConcurrentBatchesPerTable, final BatchWriteListener listener, DynamoDBMapperConfig config) {
+        if (maxConcurrentBatchesPerTable < 1) {
+            throw new IllegalArgumentException("Parameter maxConcurrentBatchesPerTable must be greater than zero.");
+        }
+        config = mergeConfig(config);
+        final BatchWriteRetryStrategy batchWriteRetryStrategy = config.getBatchWriteRetryStrategy();
+
+        List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
+        Map<String, List<WriteRequest>> requestItems = toBatchWriteRequestItems(
+                objectsToWrite, objectsToDelete, config, inMemoryUpdates);
+
+        final List<FailedBatch> totalFailedBatches =
+                Collections.synchronizedList(new LinkedList<FailedBatch>());
+        List<Runnable> writers = new ArrayList<Runnable>();
+        for (Entry<String, List<WriteRequest>> tableRequests : requestItems.entrySet()) {
+            final String tableName = tableRequests.getKey();
+            List<WriteRequest> writeRequests = new ArrayList<WriteRequest>(tableRequests.getValue());
+
+            final ConcurrentLinkedQueue<List<WriteRequest>> batches =
+                    new ConcurrentLinkedQueue<List<WriteRequest>>();
+            for (int i = 0; i < writeRequests.size(); i += MAX_ITEMS_PER_BATCH) {
+                batches.add(writeRequests.subList(i,
+                        Math.min(i + MAX_ITEMS_PER_BATCH, writeRequests.size())));
+            }
+
+            int numberOfWriters = Math.min(maxConcurrentBatchesPerTable, batches.size());
+            for (int i = 0; i < numberOfWriters; i++) {
+                writers.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        int consecutiveThrottledBatches = 0;
+                        List<WriteRequest> batch;
+                        while ((batch = batches.poll()) != null) {
+                            Map<String, List<WriteRequest>> batchRequestItems =
+                                    new HashMap<String, List<WriteRequest>>();
+                            batchRequestItems.put(tableName, batch);
+                            List<FailedBatch> failedBatches = writeOneBatch(
+                                    batchRequestItems, batchWriteRetryStrategy, listener);
+                            totalFailedBatches.addAll(failedBatches);
+
+                            if (containsThrottlingException(failedBatches)) {
+                                pauseWithJitter(++consecutiveThrottledBatches);
+                            } else {
+                                consecutiveThrottledBatches = 0;
+                            }
+                        }
+                    }
+                });
+            }
+        }
+
+        if (!writers.isEmpty()) {
+            runAll(writers);
+        }
+
+        // Once the entire batch is processed, update assigned keys in memory
+        for ( ValueUpdate update : inMemoryUpdates ) {
+            update.apply();
+        }
+
+        return new ArrayList<FailedBatch>(totalFailedBatches);
+    }
+
+    /**
+     * Runs the given tasks in the batch write threads of this mapper, and
+     * waits for all of them to complete. The first failure of a task is
+     * rethrown, after cancelling the others.
+     */
+    private void runAll(List<Runnable> tasks) {
+        ExecutorService executorService = getBatchWriteExecutor();
+        List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+        try {
+            for (Runnable task : tasks) {
+                futures.add(executorService.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AmazonClientException(cause.getMessage(), cause);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Returns the threads writing batches in parallel, which are created as
+     * needed, up to {@link #MAX_BATCH_WRITE_THREADS}, and released once idle.
+     */
+    private synchronized ExecutorService getBatchWriteExecutor() {
+        if (batchWriteExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_BATCH_WRITE_THREADS, MAX_BATCH_WRITE_THREADS,
+                    60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r);
+                            t.setName("dynamodb-mapper-batch-write-"
+                                    + threadCount.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            batchWriteExecutor = executor;
+        }
+        return batchWriteExecutor;
+    }
+
+    /**
+     * Releases the threads used by this mapper to write batches in parallel;
+     * the batches being written are interrupted. The mapper can still be used
+     * afterwards, but a new pool of threads is then created as needed. This
+     * method doesn't shut down the underlying DynamoDB client.
+     *
+     * @see #parallelBatchWrite(List, List, int, BatchWriteListener, DynamoDBMapperConfig)
+     */
+    public synchronized void shutdown() {
+        if (batchWriteExecutor != null) {
+            batchWriteExecutor.shutdownNow();
+            batchWriteExecutor = null;
+        }
+    }
+
+    /**
+     * Converts the objects given into the write requests of a BatchWriteItem
+     * call, grouped by table name. The assignments of auto-generated keys to
+     * apply once the objects are saved are added to inMemoryUpdates.
+     */
+    private Map<String, List<WriteRequest>> toBatchWriteRequestItems(
+            List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete,
+            DynamoDBMapperConfig config, List<ValueUpdate> inMemoryUpdates) {
+
         HashMap<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
 
         ItemConverter converter = getConverter(config);
 
-        List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
         for ( Object toWrite : objectsToWrite ) {
             Class<?> clazz = toWrite.getClass();
             String tableName = getTableName(clazz, toWrite, config);
@@ -1602,59 +1889,7 @@ public class DynamoDBMapper {
                     new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
         }
 
-        // Break into chunks of 25 items and make service requests to DynamoDB
-        while ( !requestItems.isEmpty() ) {
-
-            HashMap<String, List<WriteRequest>> batch =
-                    new HashMap<String, List<WriteRequest>>();
-
-            int i = 0;
-
-            Iterator<Entry<String, List<WriteRequest>>> tableIter = requestItems.entrySet().iterator();
-            while ( tableIter.hasNext() && i < MAX_ITEMS_PER_BATCH ) {
-
-                Entry<String, List<WriteRequest>> tableRequest = tableIter.next();
-
-                batch.put(tableRequest.getKey(), new LinkedList<WriteRequest>());
-                Iterator<WriteRequest> writeRequestIter = tableRequest.getValue().iterator();
-
-                while ( writeRequestIter.hasNext() && i++ < MAX_ITEMS_PER_BATCH ) {
-                    WriteRequest writeRequest = writeRequestIter.next();
-                    batch.get(tableRequest.getKey()).add(writeRequest);
-                    writeRequestIter.remove();
-                }
-
-                // If we've processed all the write requests for this table,
-                // remove it from the parent iterator.
-                if ( !writeRequestIter.hasNext() ) {
-                    tableIter.remove();
-                }
-            }
-
-            List<FailedBatch> failedBatches = writeOneBatch(batch, config.getBatchWriteRetryStrategy());
-            if (failedBatches != null) {
-                totalFailedBatches.addAll(failedBatches);
-
-                // If contains throttling exception, we do a backoff
-                if (containsThrottlingException(failedBatches)) {
-                    try {
-                        Thread.sleep(1000 * 2);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new AmazonClientException(e.getMessage(), e);
-                    }
-                }
-            }
-        }
-
-
-
-        // Once the entire batch is processed, update assigned keys in memory
-        for ( ValueUpdate update : inMemoryUpdates ) {
-            update.apply();
-        }
-
-        return totalFailedBatches;
+        return requestItems;
     }
 
     /**
@@ -1663,12 +1898,13 @@ public class DynamoDBMapper {
      */
     private List<FailedBatch> writeOneBatch(
             Map<String, List<WriteRequest>> batch,
-            BatchWriteRetryStrategy batchWriteRetryStrategy) {
+            BatchWriteRetryStrategy batchWriteRetryStrategy,
+            BatchWriteListener listener) {
 
         List<FailedBatch> failedBatches = new LinkedList<FailedBatch>();
         Map<String, List<WriteRequest>> firstHalfBatch = new HashMap<String, List<WriteRequest>>();
         Map<String, List<WriteRequest>> secondHalfBatch = new HashMap<String, List<WriteRequest>>();
-        FailedBatch failedBatch = doBatchWriteItemWithRetry(batch, batchWriteRetryStrategy);
+        FailedBatch failedBatch = doBatchWriteItemWithRetry(batch, batchWriteRetryStrategy, listener);
 
         if (failedBatch != null) {
             // If the exception is request entity too large, we divide the batch
@@ -1682,20 +1918,28 @@ public class DynamoDBMapper {
 
                 if (computeFailedBatchSize(failedBatch) == 1) {
                     failedBatches.add(failedBatch);
+                    notifyFailedBatch(listener, failedBatch);
                 } else {
                     divideBatch(batch, firstHalfBatch, secondHalfBatch);
-                    failedBatches.addAll(writeOneBatch(firstHalfBatch, batchWriteRetryStrategy));
-                    failedBatches.addAll(writeOneBatch(secondHalfBatch, batchWriteRetryStrategy));
+                    failedBatches.addAll(writeOneBatch(firstHalfBatch, batchWriteRetryStrategy, listener));
+                    failedBatches.addAll(writeOneBatch(secondHalfBatch, batchWriteRetryStrategy, listener));
                 }
 
             } else {
                 failedBatches.add(failedBatch);
+                notifyFailedBatch(listener, failedBatch);
             }
 
         }
         return failedBatches;
     }
 
+    private static void notifyFailedBatch(BatchWriteListener listener, FailedBatch failedBatch) {
+        if (listener != null) {
+            listener.onFailedBatch(failedBatch);
+        }
+    }
+
     /**
      * Check whether there are throttling exception in the failed batches.
      */
@@ -1750,7 +1994,8 @@ public class DynamoDBMapper {
      */
     private FailedBatch doBatchWriteItemWithRetry(
             Map<String, List<WriteRequest>> batch,
-            BatchWriteRetryStrategy batchWriteRetryStrategy) {
+            BatchWriteRetryStrategy batchWriteRetryStrategy,
+            BatchWriteListener listener) {
 
         BatchWriteItemResult result = null;
         int retries = 0;
@@ -1763,14 +2008,21 @@ public class DynamoDBMapper {
 
         while (true) {
             try {
-                result = db.batchWriteItem(applyBatchOperationUserAgent(
-                        new BatchWriteItemRequest().withRequestItems(pendingItems)));
+                BatchWriteItemRequest batchWriteItemRequest =
+                        new BatchWriteItemRequest().withRequestItems(pendingItems);
+                if (listener != null) {
+                    batchWriteItemRequest.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                }
+                result = db.batchWriteItem(applyBatchOperationUserAgent(batchWriteItemRequest));
             } catch (Exception e) {
                 failedBatch = new FailedBatch();
                 failedBatch.setUnprocessedItems(pendingItems);
                 failedBatch.setException(e);
                 return failedBatch;
             }
+            if (listener != null && result.getConsumedCapacity() != null) {
+                listener.onConsumedCapacity(result.getConsumedCapacity());
+            }
             pendingItems = result.getUnprocessedItems();
 
             if (pendingItems.size() > 0) {
@@ -3007,6 +3259,22 @@ public class DynamoDBMapper {
         pause(delay);
     }
 
+    /**
+     * Pauses for an exponentially growing delay, of which a random half is
+     * skipped so that concurrent writers don't retry in lockstep.
+     */
+    private void pauseWithJitter(int retries) {
+        if (retries == 0) {
+            return;
+        }
+
+        long delay = (long) (Math.pow(2, retries - 1) * 1000);
+        delay = Math.min(delay, MAX_BACKOFF_IN_MILLISECONDS);
+        delay = delay / 2 + (long) (JITTER.nextDouble() * (delay / 2));
+
+        pause(delay);
+    }
+
     private void pause(long delay) {
         if (delay <= 0) {
             return;
@@ -3107,6 +3375,27 @@ public class DynamoDBMapper {
 
     }
 
+    /**
+     * Listener notified of the progress of
+     * {@link DynamoDBMapper#parallelBatchWrite(List, List, int, BatchWriteListener, DynamoDBMapperConfig)}.
+     * Its methods may be called from several threads at the same time.
+     */
+    public static interface BatchWriteListener {
+
+        /**
+         * Called after each BatchWriteItem call, with the capacity consumed
+         * by the call in each table.
+         */
+        public void onConsumedCapacity(List<ConsumedCapacity> consumedCapacity);
+
+        /**
+         * Called as soon as a batch has failed, either because of an
+         * exception or because its UnprocessedItems could not be written
+         * within the retries allowed by the BatchWriteRetryStrategy.
+         */
+        public void onFailedBatch(FailedBatch failedBatch);
+    }
+
     /**
      * Returns the underlying {@link S3ClientCache} for accessing S3.
      */
@@ -15,12 +15,10 @@
 
 package com.amazonaws.services.dynamodbv2.model.transform;
 
-import static com.amazonaws.util.StringUtils.UTF8;
 import static com.amazonaws.util.StringUtils.COMMA_SEPARATOR;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Collections;
 import java.util.HashMap;
@@ -36,7 +34,6 @@ import com.amazonaws.services.dynamodbv2.model.*;
 import com.amazonaws.transform.Marshaller;
 import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.StringUtils;
-import com.amazonaws.util.StringInputStream;
 import com.amazonaws.util.json.*;
 
 /**
@@ -62,8 +59,7 @@ public class CreateTableRequestMarshaller implements
         request.setResourcePath("");
 
         try {
-            StringWriter stringWriter = new StringWriter();
-            JSONWriter jsonWriter = new JSONWriter(stringWriter);
+            SdkJsonGenerator jsonWriter = new SdkJsonGenerator();
 
             jsonWriter.object();
 
@@ -151,11 +147,9 @@ public class CreateTableRequestMarshaller implements
 
             jsonWriter.endObject();
 
-            String snippet = stringWriter.toString();
-            byte[] content = snippet.getBytes(UTF8);
-            request.setContent(new StringInputStream(snippet));
+            request.setContent(jsonWriter.getContent());
             request.addHeader("Content-Length",
-                    Integer.toString(content.length));
+                    Integer.toString(jsonWriter.getContentLength()));
             request.addHeader("Content-Type", "application/x-amz-json-1.0");
         } catch (Throwable t) {
             throw new AmazonClientException(
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.BatchWriteListener;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.FailedBatch;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+public class ParallelBatchWriteTest {
+
+    private static final String TABLE_NAME = "tableName";
+
+    private AmazonDynamoDB ddbMock;
+    private DynamoDBMapper mapper;
+    private CountingListener listener;
+
+    @Before
+    public void setup() {
+        ddbMock = createMock(AmazonDynamoDB.class);
+        mapper = new DynamoDBMapper(ddbMock);
+        listener = new CountingListener();
+    }
+
+    @Test
+    public void testItemsWrittenInBatchesOfTwentyFive() {
+        final AtomicInteger itemsWritten = new AtomicInteger();
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class)))
+                .andAnswer(new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() {
+                        BatchWriteItemRequest request =
+                                (BatchWriteItemRequest) getCurrentArguments()[0];
+                        Assert.assertEquals(ReturnConsumedCapacity.TOTAL.toString(),
+                                request.getReturnConsumedCapacity());
+                        int size = request.getRequestItems().get(TABLE_NAME).size();
+                        Assert.assertTrue(size <= 25);
+                        itemsWritten.addAndGet(size);
+                        return new BatchWriteItemResult()
+                                .withUnprocessedItems(Collections.<String, List<WriteRequest>>emptyMap())
+                                .withConsumedCapacity(new ConsumedCapacity()
+                                        .withTableName(TABLE_NAME)
+                                        .withCapacityUnits((double) size));
+                    }
+                }).times(3);
+
+        replay(ddbMock);
+        List<FailedBatch> failedBatches = mapper.parallelBatchWrite(
+                items(60), Collections.emptyList(), 3, listener);
+        verify(ddbMock);
+
+        Assert.assertEquals(0, failedBatches.size());
+        Assert.assertEquals(60, itemsWritten.get());
+        Assert.assertEquals(3, listener.consumedCapacityNotifications.get());
+        Assert.assertEquals(60, (int) listener.consumedCapacityUnits);
+        Assert.assertEquals(0, listener.failedBatches.get());
+    }
+
+    @Test
+    public void testFailedBatchesReportedToListener() {
+        RuntimeException exception = new RuntimeException("BOOM");
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class)))
+                .andThrow(exception).times(2);
+
+        replay(ddbMock);
+        List<FailedBatch> failedBatches = mapper.parallelBatchWrite(
+                items(30), Collections.emptyList(), 2, listener);
+        verify(ddbMock);
+
+        Assert.assertEquals(2, failedBatches.size());
+        Assert.assertEquals(2, listener.failedBatches.get());
+        int unprocessedItems = 0;
+        for (FailedBatch failedBatch : failedBatches) {
+            Assert.assertSame(exception, failedBatch.getException());
+            unprocessedItems += failedBatch.getUnprocessedItems().get(TABLE_NAME).size();
+        }
+        Assert.assertEquals(30, unprocessedItems);
+    }
+
+    @Test
+    public void testBatchesWrittenByBoundedDaemonThreads() {
+        final Set<Thread> writerThreads =
+                Collections.synchronizedSet(new HashSet<Thread>());
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class)))
+                .andAnswer(new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() {
+                        writerThreads.add(Thread.currentThread());
+                        return new BatchWriteItemResult()
+                                .withUnprocessedItems(Collections.<String, List<WriteRequest>>emptyMap());
+                    }
+                }).times(40);
+
+        replay(ddbMock);
+        List<FailedBatch> failedBatches = mapper.parallelBatchWrite(
+                items(1000), Collections.emptyList(), 40, listener);
+        verify(ddbMock);
+
+        Assert.assertEquals(0, failedBatches.size());
+        Assert.assertTrue(writerThreads.size() <= DynamoDBMapper.MAX_BATCH_WRITE_THREADS);
+        for (Thread thread : writerThreads) {
+            Assert.assertTrue(thread.isDaemon());
+        }
+
+        mapper.shutdown();
+        for (Thread thread : writerThreads) {
+            try {
+                thread.join(10 * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Assert.assertFalse(thread.isAlive());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidConcurrency() {
+        mapper.parallelBatchWrite(items(1), Collections.emptyList(), 0, null);
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Item("item-" + i));
+        }
+        return items;
+    }
+
+    private static class CountingListener implements BatchWriteListener {
+        private final AtomicInteger consumedCapacityNotifications = new AtomicInteger();
+        private final AtomicInteger failedBatches = new AtomicInteger();
+        private double consumedCapacityUnits;
+
+        @Override
+        public synchronized void onConsumedCapacity(List<ConsumedCapacity> consumedCapacity) {
+            consumedCapacityNotifications.incrementAndGet();
+            for (ConsumedCapacity capacity : consumedCapacity) {
+                consumedCapacityUnits += capacity.getCapacityUnits();
+            }
+        }
+
+        @Override
+        public void onFailedBatch(FailedBatch failedBatch) {
+            failedBatches.incrementAndGet();
+        }
+    }
+
+    @DynamoDBTable(tableName = TABLE_NAME)
+    public static class Item {
+
+        private String hash;
+
+        public Item(String hash) {
+            this.hash = hash;
+        }
+
+        @DynamoDBAttribute(attributeName = "hash")
+        public String getHash() {
+            return hash;
+        }
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+    }
+}
@@ -27,9 +27,17 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.NoSuchAlgorithmException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -87,6 +95,15 @@ public class ArchiveTransferManager {
     /** Default retry time when downloading in multiple chunks using range retrieval */
     private static final int DEFAULT_MAX_RETRIES = 3;
 
+    /** The default maximum number of parts of a multipart upload sent at the same time */
+    private static final int DEFAULT_MAX_CONCURRENT_PART_UPLOADS = 4;
+
+    /** The default maximum number of chunks of a job output downloaded at the same time */
+    private static final int DEFAULT_MAX_CONCURRENT_CHUNK_DOWNLOADS = 4;
+
+    /** The maximum number of tries to upload each part of a multipart upload */
+    private static final int MAX_PART_UPLOAD_TRIES = 5;
+
     /** Glacier client used for making all requests. */
     private final AmazonGlacier glacier;
 
@@ -98,6 +115,18 @@ public class ArchiveTransferManager {
 
     private final AmazonSNSClient sns;
 
+    /** Runs the parts and chunks of the transfers */
+    private final ExecutorService executorService;
+
+    /** Whether the executor was created by this manager, and is shut down by it */
+    private final boolean shutDownExecutorService;
+
+    /** The maximum number of parts of a multipart upload sent at the same time */
+    private volatile int maxConcurrentPartUploads = DEFAULT_MAX_CONCURRENT_PART_UPLOADS;
+
+    /** The maximum number of chunks of a job output downloaded at the same time */
+    private volatile int maxConcurrentChunkDownloads = DEFAULT_MAX_CONCURRENT_CHUNK_DOWNLOADS;
+
     private static final Log log = LogFactory.getLog(ArchiveTransferManager.class);
 
     /**
@@ -163,11 +192,44 @@ public class ArchiveTransferManager {
      *            timeouts.
      */
     public ArchiveTransferManager(AmazonGlacierClient glacier, AWSCredentialsProvider credentialsProvider, ClientConfiguration clientConfiguration) {
+        this(glacier, credentialsProvider, clientConfiguration, null);
+    }
+
+    /**
+     * Constructs a new ArchiveTransferManager, using the specified Amazon
+     * Glacier client, AWS credentials provider and client configuration, and
+     * running the parts of uploads and the chunks of downloads on the
+     * specified executor.
+     * <p>
+     * The executor is shared by all the transfers of this manager, and isn't
+     * shut down by {@link #shutdownNow()}. The number of parts or chunks of a
+     * single transfer running at the same time is still bounded by
+     * {@link #setMaxConcurrentPartUploads(int)} and
+     * {@link #setMaxConcurrentChunkDownloads(int)}.
+     *
+     * @param glacier
+     *            The client for working with Amazon Glacier.
+     * @param credentialsProvider
+     *            The AWS credentials provider used to authenticate requests.
+     * @param clientConfiguration
+     *            Client specific options, such as proxy settings, retries, and
+     *            timeouts.
+     * @param executorService
+     *            The executor running the parts and chunks of the transfers; or
+     *            null to have this manager create its own.
+     */
+    public ArchiveTransferManager(AmazonGlacierClient glacier,
+            AWSCredentialsProvider credentialsProvider,
+            ClientConfiguration clientConfiguration,
+            ExecutorService executorService) {
         this.credentialsProvider = credentialsProvider;
         this.clientConfiguration = clientConfiguration;
         this.glacier = glacier;
         this.sns = null;
         this.sqs = null;
+        this.shutDownExecutorService = executorService == null;
+        this.executorService = executorService == null
+                ? createDefaultExecutorService() : executorService;
     }
 
     /**
@@ -195,6 +257,40 @@ public class ArchiveTransferManager {
         this.glacier = glacier;
         this.sqs = sqs;
         this.sns = sns;
+        this.shutDownExecutorService = true;
+        this.executorService = createDefaultExecutorService();
+    }
+
+    /**
+     * Returns the executor created for the transfers of a manager when none is
+     * specified. Its threads are created as transfers need them, up to the
+     * number of parts and chunks running at the same time, and are daemon
+     * threads so that a manager that is never shut down doesn't keep the JVM
+     * alive.
+     */
+    private static ExecutorService createDefaultExecutorService() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "glacier-transfer-manager-worker-"
+                        + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Shuts down the executor created by this manager for its transfers,
+     * interrupting the transfers in progress. An executor specified when
+     * constructing the manager isn't shut down.
+     */
+    public void shutdownNow() {
+        if (shutDownExecutorService) {
+            executorService.shutdownNow();
+        }
     }
 
     /**
@@ -308,15 +404,120 @@ public class ArchiveTransferManager {
             final String archiveDescription, final File file,
             ProgressListener progressListener) throws AmazonServiceException,
             AmazonClientException {
-        if (file.length() > MULTIPART_UPLOAD_SIZE_THRESHOLD) {
+        return upload(accountId, vaultName, archiveDescription, file,
+                progressListener, null);
+    }
+
+    /**
+     * Uploads the specified file to Amazon Glacier for archival storage in the
+     * specified vault in the specified user's account, as
+     * {@link #upload(String, String, String, File, ProgressListener)} does, and
+     * records the progress of the multipart upload of a large archive in the
+     * given checkpoint.
+     * <p>
+     * If the multipart upload fails, it is not aborted, so that it can be
+     * resumed by calling this method again with the same checkpoint, or with
+     * one created from its persisted state. Only the parts that haven't been
+     * uploaded yet are then sent. A checkpoint recorded for another vault, or
+     * for a file of another length, is rejected. Once the upload is completed,
+     * the checkpoint is cleared.
+     *
+     * @param accountId
+     *            The ID for the account which owns the Glacier vault being
+     *            uploaded to. To use the same account the developer is using to
+     *            make requests to AWS, the value <code>"-"</code> can be used
+     *            instead of the full account ID.
+     * @param vaultName
+     *            The name of the vault to upload to.
+     * @param archiveDescription
+     *            The description of the new archive being uploaded.
+     * @param file
+     *            The file to upload to Amazon Glacier.
+     * @param progressListener
+     *            The optional progress listener for receiving updates about
+     *            the upload status.
+     * @param checkpoint
+     *            The optional checkpoint in which to record the progress of a
+     *            multipart upload, or from which to resume it.
+     *
+     * @return The result of the upload, including the archive ID needed to
+     *         access the upload later.
+     *
+     * @throws AmazonServiceException
+     *             If any problems were encountered while communicating with
+     *             AWS.
+     * @throws AmazonClientException
+     *             If any problems were encountered inside the AWS SDK for Java
+     *             client code in making requests or processing responses from
+     *             AWS.
+     */
+    public UploadResult upload(final String accountId, final String vaultName,
+            final String archiveDescription, final File file,
+            ProgressListener progressListener,
+            MultipartUploadCheckpoint checkpoint)
+            throws AmazonServiceException, AmazonClientException {
+        progressListener = SerialProgressListener.wrap(progressListener);
+        if (file.length() > MULTIPART_UPLOAD_SIZE_THRESHOLD
+                || (checkpoint != null && checkpoint.getUploadId() != null)) {
             return uploadInMultipleParts(accountId, vaultName,
-                    archiveDescription, file, progressListener);
+                    archiveDescription, file, progressListener, checkpoint);
         } else {
             return uploadInSinglePart(accountId, vaultName, archiveDescription,
                     file, progressListener);
         }
     }
 
+    /**
+     * Returns the maximum number of parts of a multipart upload that are
+     * uploaded at the same time.
+     */
+    public int getMaxConcurrentPartUploads() {
+        return maxConcurrentPartUploads;
+    }
+
+    /**
+     * Sets the maximum number of parts of a multipart upload that are uploaded
+     * at the same time. Each part is read from the file and hashed by the
+     * thread uploading it, so this also bounds the number of threads used by
+     * an upload.
+     *
+     * @param maxConcurrentPartUploads
+     *            The maximum number of parts uploaded at the same time; must be
+     *            positive.
+     */
+    public void setMaxConcurrentPartUploads(int maxConcurrentPartUploads) {
+        if (maxConcurrentPartUploads < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of concurrent part uploads must be positive");
+        }
+        this.maxConcurrentPartUploads = maxConcurrentPartUploads;
+    }
+
+    /**
+     * Returns the maximum number of chunks of a job output that are downloaded
+     * at the same time.
+     */
+    public int getMaxConcurrentChunkDownloads() {
+        return maxConcurrentChunkDownloads;
+    }
+
+    /**
+     * Sets the maximum number of chunks of a job output that are downloaded at
+     * the same time. Each chunk is written to its position in the file, and
+     * its tree hash verified, by the thread downloading it.
+     *
+     * @param maxConcurrentChunkDownloads
+     *            The maximum number of chunks downloaded at the same time; must
+     *            be positive.
+     */
+    public void setMaxConcurrentChunkDownloads(int maxConcurrentChunkDownloads) {
+        if (maxConcurrentChunkDownloads < 1) {
+            throw new IllegalArgumentException(
+                    "The maximum number of concurrent chunk downloads must be positive");
+        }
+        this.maxConcurrentChunkDownloads = maxConcurrentChunkDownloads;
+    }
+
     /**
      * Downloads an archive from Amazon Glacier in the specified vault for the
      * current user's account, and saves it to the specified file. Amazon
@@ -420,6 +621,7 @@ public class ArchiveTransferManager {
             final String archiveId, final File file,
             ProgressListener progressListener) throws AmazonServiceException,
             AmazonClientException {
+        progressListener = SerialProgressListener.wrap(progressListener);
         JobStatusMonitor jobStatusMonitor = null;
         String jobId = null;
         publishProgress(progressListener, ProgressEventType.TRANSFER_PREPARING_EVENT);
@@ -460,8 +662,9 @@ public class ArchiveTransferManager {
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
-     * transient errors along the way.
+     * individual chunks of the data, several at a time (see
+     * {@link #setMaxConcurrentChunkDownloads(int)}), and retry only the chunks
+     * that encounter transient errors along the way.
      *
      * @param accountId
      *            The account ID containing the job output to download (or null
@@ -482,8 +685,9 @@ public class ArchiveTransferManager {
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
-     * transient errors along the way. You can also add an optional progress
+     * individual chunks of the data, several at a time (see
+     * {@link #setMaxConcurrentChunkDownloads(int)}), and retry only the chunks
+     * that encounter transient errors along the way. You can also add an optional progress
      * listener for receiving updates about the download status.
      *
      * @param accountId
@@ -500,12 +704,12 @@ public class ArchiveTransferManager {
      *            The optional progress listener for receiving updates about the
      *            download status.
      */
-    public void downloadJobOutput(String accountId, String vaultName,
-            String jobId, File file, ProgressListener progressListener) {
+    public void downloadJobOutput(final String accountId, final String vaultName,
+            final String jobId, File file, ProgressListener progressListener) {
+        // The chunks publish their progress from several threads
+        final ProgressListener listener = SerialProgressListener.wrap(progressListener);
         long archiveSize = 0;
         long chunkSize = DEFAULT_DOWNLOAD_CHUNK_SIZE;
-        long currentPosition = 0;
-        long endPosition = 0;
 
         RandomAccessFile output = null;
         String customizedChunkSize = null;
@@ -518,7 +722,7 @@ public class ArchiveTransferManager {
             try {
                 chunkSize = Long.parseLong(customizedChunkSize) * 1024 * 1024;
             } catch (NumberFormatException e) {
-                publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+                publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
                 throw new AmazonClientException("Invalid chunk size: " + e.getMessage());
             }
             validateChunkSize(chunkSize);
@@ -526,31 +730,45 @@ public class ArchiveTransferManager {
 
         try {
             output = new RandomAccessFile(file, "rw");
-        } catch (FileNotFoundException e) {
-            publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            output.setLength(archiveSize);
+        } catch (IOException e) {
+            closeQuietly(output, log);
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
             throw new AmazonClientException("Unable to open the output file " + file.getPath(), e);
         }
 
+        final int numberOfChunks = (int) ((archiveSize + chunkSize - 1) / chunkSize);
         try {
-            publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            while (currentPosition < archiveSize) {
-                if (currentPosition + chunkSize > archiveSize) {
-                    endPosition = archiveSize - 1;
-                } else {
-                    endPosition = currentPosition + chunkSize - 1;
-                }
-    
-                // Download the chunk
-                try {
-                    downloadOneChunk(accountId, vaultName, jobId, output,
-                            currentPosition, endPosition, progressListener);
-                } catch (Throwable t) {
-                    publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
-                    throw failure(t);
-                }
-                currentPosition += chunkSize;
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+            // The chunks are downloaded concurrently, each one written to its
+            // own range of the file by the thread downloading it.
+            final FileChannel channel = output.getChannel();
+            List<Callable<Void>> chunks = new ArrayList<Callable<Void>>(numberOfChunks);
+            for (int i = 0; i < numberOfChunks; i++) {
+                final long currentPosition = i * chunkSize;
+                final long endPosition = Math.min(currentPosition + chunkSize, archiveSize) - 1;
+                chunks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        downloadOneChunk(accountId, vaultName, jobId, channel,
+                                currentPosition, endPosition, listener);
+                        return null;
+                    }
+                });
             }
-            publishProgress(progressListener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+            // The chunk downloads have all stopped when this returns, so the
+            // file isn't written to once it is closed
+            new TransferTaskRunner<Void>(executorService, chunks,
+                    maxConcurrentChunkDownloads).invokeAll();
+            publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        } catch (Throwable t) {
+            if (t instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else if (t instanceof ExecutionException) {
+                t = t.getCause();
+            }
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw failure(t);
         } finally {
             closeQuietly(output, log);
         }
@@ -572,7 +790,7 @@ public class ArchiveTransferManager {
      * errors are encountered while streaming the data from Amazon Glacier.
      */
     private void downloadOneChunk(String accountId, String vaultName,
-            String jobId, RandomAccessFile output, long currentPosition,
+            String jobId, FileChannel output, long currentPosition,
             long endPosition, ProgressListener progressListener) {
         final long chunkSize = endPosition - currentPosition + 1;
         TreeHashInputStream input = null;
@@ -589,7 +807,7 @@ public class ArchiveTransferManager {
                 GetJobOutputResult jobOutputResult = glacier.getJobOutput(req);
                 try {
                     input = new TreeHashInputStream(new BufferedInputStream(jobOutputResult.getBody()));
-                    appendToFile(output, input);
+                    writeToFile(output, currentPosition, input);
                 } catch (NoSuchAlgorithmException e) {
                     throw failure(e, "Unable to compute hash for data integrity");
                 } finally {
@@ -614,7 +832,7 @@ public class ArchiveTransferManager {
                 return;
                 // We will retry IO exception
             } catch (IOException ioe) {
-                if (retries < DEFAULT_MAX_RETRIES) {
+                if (retries < DEFAULT_MAX_RETRIES && !Thread.currentThread().isInterrupted()) {
                     retries++;
                     if (log.isDebugEnabled()) {
                         log.debug(retries
@@ -624,11 +842,6 @@ public class ArchiveTransferManager {
                                 + currentPosition + " endPosition="
                                 + endPosition);
                     }
-                    try {
-                        output.seek(currentPosition);
-                    } catch (IOException e) {
-                        throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), e);
-                    }
                 } else {
                     throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), ioe);
                 }
@@ -637,9 +850,10 @@ public class ArchiveTransferManager {
     }
 
     /**
-     * Writes the data from the given input stream to the given output stream.
+     * Writes the data from the given input stream to the given file channel,
+     * starting at the given position.
      */
-    private void appendToFile(RandomAccessFile output, InputStream input)
+    private void writeToFile(FileChannel output, long position, InputStream input)
             throws IOException {
         byte[] buffer = new byte[1024 * 1024];
         int bytesRead = 0;
@@ -647,7 +861,10 @@ public class ArchiveTransferManager {
             bytesRead = input.read(buffer);
             if (bytesRead < 0)
                 break;
-            output.write(buffer, 0, bytesRead);
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bytesRead);
+            while (byteBuffer.hasRemaining()) {
+                position += output.write(byteBuffer, position);
+            }
         } while (bytesRead > 0);
         return;
     }
@@ -676,78 +893,76 @@ public class ArchiveTransferManager {
 
     private UploadResult uploadInMultipleParts(final String accountId,
             final String vaultName, final String archiveDescription,
-            final File file, ProgressListener progressListener) {
-        final long partSize = calculatePartSize(file.length());
-        String partSizeString = Long.toString(partSize);
+            final File file, final ProgressListener progressListener,
+            final MultipartUploadCheckpoint checkpoint) {
+        final long fileLength = file.length();
+        final long partSize;
+        String uploadId = null;
 
         publishProgress(progressListener, ProgressEventType.TRANSFER_PREPARING_EVENT);
-        String uploadId = null;
-        try {
-            InitiateMultipartUploadResult initiateResult = glacier.initiateMultipartUpload(new InitiateMultipartUploadRequest()
-                .withAccountId(accountId)
-                .withArchiveDescription(archiveDescription)
-                .withVaultName(vaultName)
-                .withPartSize(partSizeString));
-            uploadId = initiateResult.getUploadId();
-        } catch (Throwable t) {
-            publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
-            throw failure(t);
+        if (checkpoint != null && checkpoint.getUploadId() != null) {
+            try {
+                validateCheckpoint(checkpoint, vaultName, fileLength);
+            } catch (AmazonClientException e) {
+                publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+                throw e;
+            }
+            uploadId = checkpoint.getUploadId();
+            partSize = checkpoint.getPartSize();
+        } else {
+            partSize = calculatePartSize(fileLength);
+            try {
+                InitiateMultipartUploadResult initiateResult = glacier.initiateMultipartUpload(new InitiateMultipartUploadRequest()
+                    .withAccountId(accountId)
+                    .withArchiveDescription(archiveDescription)
+                    .withVaultName(vaultName)
+                    .withPartSize(Long.toString(partSize)));
+                uploadId = initiateResult.getUploadId();
+            } catch (Throwable t) {
+                publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+                throw failure(t);
+            }
+            if (checkpoint != null) {
+                checkpoint.initiated(uploadId, vaultName, fileLength, partSize);
+            }
         }
         publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-        final String fileNotFoundMsg = "Unable to find file '"
-                + file.getAbsolutePath() + "'";
-        try {
-            List<byte[]> binaryChecksums = new LinkedList<byte[]>();
-
-            long currentPosition = 0;
-            while (currentPosition < file.length()) {
-                long length = partSize;
-                if (currentPosition + partSize > file.length()) {
-                    length = file.length() - currentPosition;
-                }
 
-                Exception failedException = null;
-                boolean completed = false;
-                int tries = 0;
-                    while (!completed && tries < 5){
-                        tries++;
-                        InputSubstream inputSubStream = null;
-                        try {
-                            inputSubStream = new InputSubstream(
-                                    newResettableInputStream(file, fileNotFoundMsg)
-                                        .disableClose(), // requires explicit release
-                                    currentPosition, length, true);
-                            String checksum = TreeHashGenerator.calculateTreeHash(inputSubStream);
-                            byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
-                            inputSubStream.reset();
-                            UploadMultipartPartRequest req = new UploadMultipartPartRequest()
-                                .withAccountId(accountId)
-                                .withChecksum(checksum)
-                                .withBody(inputSubStream)
-                                .withRange("bytes " + currentPosition + "-" + (currentPosition + length - 1) + "/*")
-                                .withUploadId(uploadId)
-                                .withVaultName(vaultName)
-                                .withGeneralProgressListener(progressListener)
-                                ;
-                            
-                            glacier.uploadMultipartPart(req);
-                            completed = true;
-                            binaryChecksums.add(binaryChecksum);
-                        } catch (Exception e){
-                            failedException = e;
-                        } finally {
-                            // We opened the file underneath; so need to release it
-                            release(inputSubStream, log);
+        final int numberOfParts = (int) ((fileLength + partSize - 1) / partSize);
+        try {
+            // Each part is hashed and uploaded by a thread of the executor,
+            // and the tree hash of the archive is computed from the part hashes.
+            List<Callable<byte[]>> parts = new ArrayList<Callable<byte[]>>(numberOfParts);
+            final String partsUploadId = uploadId;
+            for (int i = 0; i < numberOfParts; i++) {
+                final long position = i * partSize;
+                final long length = Math.min(partSize, fileLength - position);
+                final boolean isUploaded = checkpoint != null
+                        && checkpoint.isPartCompleted(position);
+                parts.add(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        if (isUploaded) {
+                            return calculatePartChecksum(file, position, length);
+                        }
+                        byte[] checksum = uploadPart(accountId, vaultName,
+                                partsUploadId, file, position, length,
+                                progressListener);
+                        if (checkpoint != null) {
+                            checkpoint.partCompleted(position);
                         }
-                    } // end inner while
-                if (!completed && failedException!=null)
-                    throw failedException;
-                currentPosition += partSize;
-            } // end outer while
+                        return checksum;
+                    }
+                });
+            }
+            // The part uploads have all stopped when this returns, even if
+            // one of them failed
+            List<byte[]> binaryChecksums = new TransferTaskRunner<byte[]>(
+                    executorService, parts, maxConcurrentPartUploads).invokeAll();
 
             String checksum = TreeHashGenerator.calculateTreeHash(binaryChecksums);
 
-            String archiveSize = Long.toString(file.length());
+            String archiveSize = Long.toString(fileLength);
             CompleteMultipartUploadResult completeMultipartUploadResult =
                 glacier.completeMultipartUpload(new CompleteMultipartUploadRequest()
                     .withAccountId(accountId)
@@ -756,16 +971,125 @@ public class ArchiveTransferManager {
                     .withChecksum(checksum)
                     .withUploadId(uploadId));
 
+            if (checkpoint != null) {
+                checkpoint.completed();
+            }
             String artifactId = completeMultipartUploadResult.getArchiveId();
             publishProgress(progressListener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
             return new UploadResult(artifactId);
         } catch (Throwable t) {
+            if (t instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            } else if (t instanceof ExecutionException) {
+                t = t.getCause();
+            }
             publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
-            glacier.abortMultipartUpload(new AbortMultipartUploadRequest(accountId, vaultName, uploadId));
+            // Keep the upload open if it may be resumed from the checkpoint
+            if (checkpoint == null) {
+                glacier.abortMultipartUpload(new AbortMultipartUploadRequest(accountId, vaultName, uploadId));
+            }
             throw failure(t, "Unable to finish the upload");
         }
     }
 
+    /**
+     * Checks that the upload recorded in the checkpoint can be resumed for the
+     * given vault and file, so that parts of another file, or parts at
+     * offsets that don't match the part size, aren't taken as uploaded.
+     */
+    private void validateCheckpoint(MultipartUploadCheckpoint checkpoint,
+            String vaultName, long fileLength) {
+        final String upload = "The checkpoint of upload " + checkpoint.getUploadId();
+        if (!vaultName.equals(checkpoint.getVaultName())) {
+            throw new AmazonClientException(upload + " was recorded for vault "
+                    + checkpoint.getVaultName() + ", not " + vaultName);
+        }
+        if (fileLength != checkpoint.getFileLength()) {
+            throw new AmazonClientException(upload + " was recorded for a file of "
+                    + checkpoint.getFileLength() + " bytes, not " + fileLength + " bytes");
+        }
+        long partSize = checkpoint.getPartSize();
+        // Part sizes are aligned on 2^n MB boundaries
+        if (partSize < MINIMUM_PART_SIZE || partSize > MAXIMUM_UPLOAD_PART_SIZE
+                || (partSize & (partSize - 1)) != 0) {
+            throw new AmazonClientException(upload + " has an invalid part size of "
+                    + partSize + " bytes");
+        }
+        for (long offset : checkpoint.getCompletedPartOffsets()) {
+            if (offset < 0 || offset >= fileLength || offset % partSize != 0) {
+                throw new AmazonClientException(upload + " has a completed part at "
+                        + "offset " + offset + ", which isn't the start of a part");
+            }
+        }
+    }
+
+    /**
+     * Uploads the given range of the file as a part of the multipart upload,
+     * trying up to {@link #MAX_PART_UPLOAD_TRIES} times.
+     * <p>
+     * The range is read twice: once for its tree hash, which is sent in a
+     * header ahead of the body, and once as the body. Reading it only once
+     * would mean holding whole parts, of up to 4 GB each, in memory.
+     *
+     * @return the binary tree hash of the part.
+     */
+    private byte[] uploadPart(String accountId, String vaultName,
+            String uploadId, File file, long position, long length,
+            ProgressListener progressListener) throws Exception {
+        final String fileNotFoundMsg = "Unable to find file '"
+                + file.getAbsolutePath() + "'";
+        Exception failedException = null;
+        for (int tries = 0; tries < MAX_PART_UPLOAD_TRIES; tries++) {
+            InputSubstream inputSubStream = null;
+            try {
+                inputSubStream = new InputSubstream(
+                        newResettableInputStream(file, fileNotFoundMsg)
+                            .disableClose(), // requires explicit release
+                        position, length, true);
+                String checksum = TreeHashGenerator.calculateTreeHash(inputSubStream);
+                byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
+                inputSubStream.reset();
+                UploadMultipartPartRequest req = new UploadMultipartPartRequest()
+                    .withAccountId(accountId)
+                    .withChecksum(checksum)
+                    .withBody(inputSubStream)
+                    .withRange("bytes " + position + "-" + (position + length - 1) + "/*")
+                    .withUploadId(uploadId)
+                    .withVaultName(vaultName)
+                    .withGeneralProgressListener(progressListener)
+                    ;
+
+                glacier.uploadMultipartPart(req);
+                return binaryChecksum;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                failedException = e;
+            } finally {
+                // We opened the file underneath; so need to release it
+                release(inputSubStream, log);
+            }
+        }
+        throw failedException;
+    }
+
+    /**
+     * Returns the binary tree hash of the given range of the file, for a part
+     * that has already been uploaded.
+     */
+    private byte[] calculatePartChecksum(File file, long position, long length)
+            throws Exception {
+        InputSubstream inputSubStream = new InputSubstream(
+                newResettableInputStream(file).disableClose(),
+                position, length, true);
+        try {
+            return BinaryUtils.fromHex(TreeHashGenerator.calculateTreeHash(inputSubStream));
+        } finally {
+            release(inputSubStream, log);
+        }
+    }
+
     private UploadResult uploadInSinglePart(final String accountId,
             final String vaultName, final String archiveDescription,
             final File file, ProgressListener progressListener) {
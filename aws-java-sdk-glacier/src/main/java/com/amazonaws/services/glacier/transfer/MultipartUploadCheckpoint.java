@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The progress of a multipart archive upload made by
+ * {@link ArchiveTransferManager}, which allows an interrupted upload to be
+ * resumed.
+ * <p>
+ * Pass an empty checkpoint to
+ * {@link ArchiveTransferManager#upload(String, String, String, java.io.File, com.amazonaws.event.ProgressListener, MultipartUploadCheckpoint)}
+ * to have it record the upload ID and the parts uploaded so far. If the upload
+ * fails, the multipart upload is left open, and passing the same checkpoint (or
+ * one created from its persisted state) again uploads only the missing parts.
+ * The checkpoint is only accepted for the vault and the file length it was
+ * recorded for. Once the upload is completed, the checkpoint is cleared, and
+ * can be used for another upload.
+ */
+public class MultipartUploadCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The ID of the multipart upload; or null if it hasn't been initiated */
+    private String uploadId;
+
+    /** The name of the vault the archive is uploaded to */
+    private String vaultName;
+
+    /** The length of the file being uploaded */
+    private long fileLength;
+
+    /** The size of each part of the upload, except the last one */
+    private long partSize;
+
+    /** The offsets in the file of the parts that have been uploaded */
+    private final SortedSet<Long> completedPartOffsets = new TreeSet<Long>();
+
+    /**
+     * Constructs a new checkpoint for an upload that hasn't been initiated.
+     */
+    public MultipartUploadCheckpoint() {
+    }
+
+    /**
+     * Constructs a checkpoint from the persisted state of an interrupted
+     * upload.
+     *
+     * @param uploadId
+     *            The ID of the multipart upload.
+     * @param vaultName
+     *            The name of the vault the archive is uploaded to.
+     * @param fileLength
+     *            The length of the file being uploaded.
+     * @param partSize
+     *            The size of the parts of the multipart upload.
+     * @param completedPartOffsets
+     *            The offsets in the file of the parts that have already been
+     *            uploaded.
+     */
+    public MultipartUploadCheckpoint(String uploadId, String vaultName,
+            long fileLength, long partSize, Collection<Long> completedPartOffsets) {
+        if (uploadId == null || vaultName == null) {
+            throw new IllegalArgumentException(
+                    "An upload ID and a vault name must be specified");
+        }
+        if (fileLength < 0 || partSize <= 0) {
+            throw new IllegalArgumentException(
+                    "A file length and a positive part size must be specified");
+        }
+        this.uploadId = uploadId;
+        this.vaultName = vaultName;
+        this.fileLength = fileLength;
+        this.partSize = partSize;
+        if (completedPartOffsets != null) {
+            this.completedPartOffsets.addAll(completedPartOffsets);
+        }
+    }
+
+    /**
+     * Returns the ID of the multipart upload; or null if it hasn't been
+     * initiated yet.
+     */
+    public synchronized String getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * Returns the name of the vault the archive is uploaded to; or null if the
+     * upload hasn't been initiated yet.
+     */
+    public synchronized String getVaultName() {
+        return vaultName;
+    }
+
+    /**
+     * Returns the length of the file being uploaded; or 0 if the upload hasn't
+     * been initiated yet.
+     */
+    public synchronized long getFileLength() {
+        return fileLength;
+    }
+
+    /**
+     * Returns the size of the parts of the multipart upload; or 0 if it hasn't
+     * been initiated yet.
+     */
+    public synchronized long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Returns the offsets in the file of the parts that have been uploaded, in
+     * ascending order.
+     */
+    public synchronized List<Long> getCompletedPartOffsets() {
+        return new ArrayList<Long>(completedPartOffsets);
+    }
+
+    /**
+     * Returns whether the part starting at the given offset has been uploaded.
+     */
+    public synchronized boolean isPartCompleted(long offset) {
+        return completedPartOffsets.contains(offset);
+    }
+
+    synchronized void initiated(String uploadId, String vaultName,
+            long fileLength, long partSize) {
+        this.uploadId = uploadId;
+        this.vaultName = vaultName;
+        this.fileLength = fileLength;
+        this.partSize = partSize;
+        completedPartOffsets.clear();
+    }
+
+    synchronized void partCompleted(long offset) {
+        completedPartOffsets.add(offset);
+    }
+
+    /**
+     * Clears the checkpoint once the upload has been completed, since the
+     * upload can't be resumed anymore.
+     */
+    synchronized void completed() {
+        uploadId = null;
+        vaultName = null;
+        fileLength = 0;
+        partSize = 0;
+        completedPartOffsets.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "{uploadId: " + uploadId + ", vaultName: " + vaultName
+                + ", fileLength: " + fileLength + ", partSize: " + partSize
+                + ", completedPartOffsets: " + completedPartOffsets + "}";
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import com.amazonaws.event.DeliveryMode;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressListener;
+
+/**
+ * Passes the progress events of a transfer to the user's listener one at a
+ * time, although the parts or chunks of the transfer publish them from several
+ * threads.
+ */
+final class SerialProgressListener implements ProgressListener, DeliveryMode {
+
+    private final ProgressListener listener;
+
+    private SerialProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns a listener that calls the given one a single event at a time; or
+     * the given listener itself if it doesn't need to be wrapped.
+     */
+    static ProgressListener wrap(ProgressListener listener) {
+        if (listener == null || listener == ProgressListener.NOOP
+                || listener instanceof SerialProgressListener) {
+            return listener;
+        }
+        return new SerialProgressListener(listener);
+    }
+
+    @Override
+    public synchronized void progressChanged(ProgressEvent progressEvent) {
+        listener.progressChanged(progressEvent);
+    }
+
+    @Override
+    public boolean isSyncCallSafe() {
+        return DeliveryMode.Check.isSyncCallSafe(listener);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs the parts or chunks of a single transfer on the executor of an
+ * {@link ArchiveTransferManager}, which is shared by all its transfers, with
+ * at most a given number of them running at the same time.
+ * <p>
+ * The tasks are taken in order by up to that many workers. If a task fails, or
+ * the calling thread is interrupted, the tasks that haven't started are
+ * skipped and the running ones are interrupted; {@link #invokeAll()} only
+ * returns once none of them is running anymore, so that the transfer can be
+ * cleaned up safely. A runner is used for a single transfer.
+ */
+final class TransferTaskRunner<T> {
+
+    private final ExecutorService executor;
+    private final List<? extends Callable<T>> tasks;
+    private final int maxConcurrentTasks;
+
+    /** The index of the next task to run */
+    private final AtomicInteger nextTask = new AtomicInteger();
+
+    /** Whether the tasks that haven't started are skipped; guarded by this */
+    private boolean cancelled;
+
+    /** The number of workers running tasks; guarded by this */
+    private int activeWorkers;
+
+    TransferTaskRunner(ExecutorService executor,
+            List<? extends Callable<T>> tasks, int maxConcurrentTasks) {
+        this.executor = executor;
+        this.tasks = tasks;
+        this.maxConcurrentTasks = maxConcurrentTasks;
+    }
+
+    /**
+     * Runs all the tasks, and returns their results in the order of the tasks.
+     *
+     * @throws ExecutionException
+     *             with the failure of the first task that failed.
+     * @throws InterruptedException
+     *             if the calling thread was interrupted.
+     */
+    List<T> invokeAll() throws InterruptedException, ExecutionException {
+        final int numberOfTasks = tasks.size();
+        final AtomicReferenceArray<T> results = new AtomicReferenceArray<T>(numberOfTasks);
+        int numberOfWorkers = Math.min(maxConcurrentTasks, numberOfTasks);
+        CompletionService<Void> completionService = new ExecutorCompletionService<Void>(executor);
+        List<Future<Void>> workers = new ArrayList<Future<Void>>(numberOfWorkers);
+        boolean completed = false;
+        try {
+            for (int i = 0; i < numberOfWorkers; i++) {
+                workers.add(completionService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (!workerStarted()) {
+                            return null;
+                        }
+                        try {
+                            int task;
+                            while (!isCancelled()
+                                    && (task = nextTask.getAndIncrement()) < numberOfTasks) {
+                                results.set(task, tasks.get(task).call());
+                            }
+                        } finally {
+                            workerStopped();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (int i = 0; i < numberOfWorkers; i++) {
+                completionService.take().get();
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                cancel(workers);
+            }
+        }
+
+        List<T> list = new ArrayList<T>(numberOfTasks);
+        for (int i = 0; i < numberOfTasks; i++) {
+            list.add(results.get(i));
+        }
+        return list;
+    }
+
+    private synchronized boolean workerStarted() {
+        if (cancelled) {
+            return false;
+        }
+        activeWorkers++;
+        return true;
+    }
+
+    private synchronized void workerStopped() {
+        activeWorkers--;
+        notifyAll();
+    }
+
+    private synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Skips the remaining tasks, interrupts the running ones, and waits for
+     * them to stop, even if the calling thread has been interrupted.
+     */
+    private void cancel(List<Future<Void>> workers) {
+        synchronized (this) {
+            cancelled = true;
+        }
+        for (Future<Void> worker : workers) {
+            worker.cancel(true);
+        }
+        boolean interrupted = Thread.interrupted();
+        try {
+            synchronized (this) {
+                while (activeWorkers > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.SDKProgressPublisher;
+import com.amazonaws.event.SyncProgressListener;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.services.glacier.AmazonGlacierClient;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.amazonaws.services.glacier.model.UploadMultipartPartResult;
+
+public class ArchiveTransferManagerTest {
+
+    private static final String VAULT = "vault";
+    private static final String UPLOAD_ID = "upload-id";
+    private static final String ARCHIVE_ID = "archive-id";
+    private static final long MB = 1024L * 1024;
+    private static final String WORKER_PREFIX = "test-transfer-worker-";
+    private static final String JOB_ID = "job-id";
+    private static final String CHUNK_SIZE_PROPERTY =
+            "com.amazonaws.services.glacier.transfer.downloadChunkSizeInMB";
+
+    /** The start of the uploaded part ranges, in bytes. */
+    private final Set<Long> uploadedParts = Collections.synchronizedSet(new HashSet<Long>());
+    /** The names of the threads that transferred parts or chunks. */
+    private final Set<String> partThreads = Collections.synchronizedSet(new HashSet<String>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    /** The part starting at this offset always fails to upload, if set. */
+    private volatile long failingPart = -1;
+    private volatile boolean initiated;
+    private volatile String completedChecksum;
+    private volatile String abortedUploadId;
+    /** The number of part uploads still running when the upload was aborted. */
+    private volatile int inFlightWhenAborted = -1;
+    /** The output of the job to download. */
+    private volatile byte[] archive;
+    /** The start of the requested chunk ranges, in request order. */
+    private final List<Long> requestedChunks = Collections.synchronizedList(new ArrayList<Long>());
+    /** The first download of the chunk starting at this offset is corrupted, if set. */
+    private volatile long corruptChunk = -1;
+    /** Every download of the chunk starting at this offset is corrupted, if set. */
+    private volatile long failingChunk = -1;
+
+    private ExecutorService executor;
+    private ArchiveTransferManager atm;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, WORKER_PREFIX + count.incrementAndGet());
+            }
+        });
+        atm = new ArchiveTransferManager(glacier(),
+                new StaticCredentialsProvider(new BasicAWSCredentials("access", "secret")),
+                new ClientConfiguration(), executor);
+        file = File.createTempFile("archive-transfer", ".tmp");
+    }
+
+    @After
+    public void tearDown() {
+        atm.shutdownNow();
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    @Test
+    public void testMultipartUploadSendsTreeHashAndClearsCheckpoint() throws Exception {
+        // just above the multipart threshold: 7 parts of 16 MB
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(100 * MB + 1);
+            raf.seek(50 * MB);
+            raf.write(randomBytes((int) MB));
+        } finally {
+            raf.close();
+        }
+        MultipartUploadCheckpoint checkpoint = new MultipartUploadCheckpoint();
+
+        UploadResult result = atm.upload(null, VAULT, "description", file, null, checkpoint);
+
+        assertEquals(ARCHIVE_ID, result.getArchiveId());
+        assertTrue(initiated);
+        assertEquals(7, uploadedParts.size());
+        assertEquals(TreeHashGenerator.calculateTreeHash(file), completedChecksum);
+        assertNull(checkpoint.getUploadId());
+        assertTrue(checkpoint.getCompletedPartOffsets().isEmpty());
+        assertTrue("Parts in flight: " + maxInFlight.get(),
+                maxInFlight.get() <= atm.getMaxConcurrentPartUploads());
+        assertPartsRanOn(WORKER_PREFIX);
+    }
+
+    @Test
+    public void testResumedUploadSendsOnlyMissingParts() throws Exception {
+        writeFile(3 * MB + MB / 2);
+        MultipartUploadCheckpoint checkpoint = new MultipartUploadCheckpoint(UPLOAD_ID,
+                VAULT, file.length(), MB, Arrays.asList(0L, 2 * MB));
+
+        atm.upload(null, VAULT, "description", file, null, checkpoint);
+
+        assertFalse(initiated);
+        assertEquals(new HashSet<Long>(Arrays.asList(MB, 3 * MB)), uploadedParts);
+        assertEquals(TreeHashGenerator.calculateTreeHash(file), completedChecksum);
+        assertNull(checkpoint.getUploadId());
+    }
+
+    @Test
+    public void testCheckpointOfAnotherUploadIsRejected() throws Exception {
+        writeFile(3 * MB + MB / 2);
+        long length = file.length();
+        List<MultipartUploadCheckpoint> checkpoints = new ArrayList<MultipartUploadCheckpoint>();
+        checkpoints.add(new MultipartUploadCheckpoint(UPLOAD_ID, "other-vault", length, MB, null));
+        checkpoints.add(new MultipartUploadCheckpoint(UPLOAD_ID, VAULT, length + 1, MB, null));
+        checkpoints.add(new MultipartUploadCheckpoint(UPLOAD_ID, VAULT, length, 3 * MB, null));
+        checkpoints.add(new MultipartUploadCheckpoint(UPLOAD_ID, VAULT, length, MB / 2, null));
+        checkpoints.add(new MultipartUploadCheckpoint(UPLOAD_ID, VAULT, length, MB,
+                Arrays.asList(MB / 2)));
+        checkpoints.add(new MultipartUploadCheckpoint(UPLOAD_ID, VAULT, length, MB,
+                Arrays.asList(4 * MB)));
+
+        for (MultipartUploadCheckpoint checkpoint : checkpoints) {
+            String before = checkpoint.toString();
+            try {
+                atm.upload(null, VAULT, "description", file, null, checkpoint);
+                fail("Expected an AmazonClientException for " + checkpoint);
+            } catch (AmazonClientException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("The checkpoint of upload"));
+            }
+            assertEquals(before, checkpoint.toString());
+        }
+        assertTrue(uploadedParts.isEmpty());
+        assertNull(completedChecksum);
+        assertNull(abortedUploadId);
+    }
+
+    @Test
+    public void testFailedUploadKeepsCheckpoint() throws Exception {
+        writeFile(6 * MB);
+        failingPart = 2 * MB;
+        MultipartUploadCheckpoint checkpoint = new MultipartUploadCheckpoint(UPLOAD_ID,
+                VAULT, file.length(), MB, null);
+        try {
+            atm.upload(null, VAULT, "description", file, null, checkpoint);
+            fail("Expected an AmazonClientException");
+        } catch (AmazonClientException e) {
+            // expected
+        }
+        assertEquals(0, inFlight.get());
+        assertNull(abortedUploadId);
+        assertEquals(UPLOAD_ID, checkpoint.getUploadId());
+        assertEquals(new HashSet<Long>(checkpoint.getCompletedPartOffsets()), uploadedParts);
+        assertFalse(uploadedParts.contains(failingPart));
+
+        // the upload is resumed once the part can be uploaded
+        failingPart = -1;
+        uploadedParts.clear();
+        Set<Long> completed = new HashSet<Long>(checkpoint.getCompletedPartOffsets());
+        atm.upload(null, VAULT, "description", file, null, checkpoint);
+        for (long offset : uploadedParts) {
+            assertFalse(completed.contains(offset));
+        }
+        assertTrue(uploadedParts.contains(2 * MB));
+        assertEquals(TreeHashGenerator.calculateTreeHash(file), completedChecksum);
+    }
+
+    @Test
+    public void testFailedUploadIsAbortedOnceThePartsHaveStopped() throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(100 * MB + 1);
+        } finally {
+            raf.close();
+        }
+        failingPart = 16 * MB;
+        try {
+            atm.upload(VAULT, "description", file);
+            fail("Expected an AmazonClientException");
+        } catch (AmazonClientException e) {
+            // expected
+        }
+        assertEquals(UPLOAD_ID, abortedUploadId);
+        assertEquals(0, inFlightWhenAborted);
+    }
+
+    @Test
+    public void testProgressListenerIsCalledOneEventAtATime() throws Exception {
+        writeFile(8 * MB);
+        atm.setMaxConcurrentPartUploads(8);
+        ConcurrencyCheckingListener listener = new ConcurrencyCheckingListener();
+        MultipartUploadCheckpoint checkpoint = new MultipartUploadCheckpoint(UPLOAD_ID,
+                VAULT, file.length(), MB, null);
+
+        atm.upload(null, VAULT, "description", file, listener, checkpoint);
+
+        assertEquals(8, uploadedParts.size());
+        // preparing, started, completed, and ten events for each part
+        assertEquals(3 + 8 * 10, listener.events.get());
+        assertEquals(1, listener.maxConcurrentCalls.get());
+    }
+
+    @Test
+    public void testDefaultExecutorRunsTheParts() throws Exception {
+        writeFile(3 * MB);
+        ArchiveTransferManager defaultAtm = new ArchiveTransferManager(glacier(),
+                new BasicAWSCredentials("access", "secret"));
+        try {
+            defaultAtm.upload(null, VAULT, "description", file, null,
+                    new MultipartUploadCheckpoint(UPLOAD_ID, VAULT, file.length(), MB, null));
+        } finally {
+            defaultAtm.shutdownNow();
+        }
+        assertEquals(3, uploadedParts.size());
+        assertPartsRanOn("glacier-transfer-manager-worker-");
+    }
+
+    @Test
+    public void testRangedChunksAreReassembledIntoFile() throws Exception {
+        byte[] content = randomBytes((int) (4 * MB + MB / 2));
+        archive = content;
+        corruptChunk = 2 * MB;
+        atm.setMaxConcurrentChunkDownloads(2);
+        ConcurrencyCheckingListener listener = new ConcurrencyCheckingListener();
+
+        System.setProperty(CHUNK_SIZE_PROPERTY, "1");
+        try {
+            atm.downloadJobOutput(null, VAULT, JOB_ID, file, listener);
+        } finally {
+            System.clearProperty(CHUNK_SIZE_PROPERTY);
+        }
+
+        // five chunks, one of them downloaded twice
+        assertEquals(6, requestedChunks.size());
+        assertEquals(5, new HashSet<Long>(requestedChunks).size());
+        assertEquals(1, listener.discardEvents.get());
+        assertEquals(content.length, file.length());
+        assertEquals(TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(content)),
+                TreeHashGenerator.calculateTreeHash(file));
+        assertTrue("Chunks in flight: " + maxInFlight.get(), maxInFlight.get() <= 2);
+        assertEquals(1, listener.maxConcurrentCalls.get());
+        assertPartsRanOn(WORKER_PREFIX);
+    }
+
+    @Test
+    public void testFailedChunkStopsTheDownload() throws Exception {
+        archive = randomBytes((int) (8 * MB));
+        failingChunk = MB;
+        // the chunks are downloaded in order, one at a time
+        atm.setMaxConcurrentChunkDownloads(1);
+
+        System.setProperty(CHUNK_SIZE_PROPERTY, "1");
+        try {
+            atm.downloadJobOutput(null, VAULT, JOB_ID, file, null);
+            fail("Expected an AmazonClientException");
+        } catch (AmazonClientException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("possible data corruption"));
+        } finally {
+            System.clearProperty(CHUNK_SIZE_PROPERTY);
+        }
+        assertEquals(0, inFlight.get());
+        // the chunk is tried four times, and no chunk is started once it failed
+        assertEquals(Arrays.asList(0L, MB, MB, MB, MB), requestedChunks);
+    }
+
+    private void assertPartsRanOn(String threadPrefix) {
+        assertFalse(partThreads.isEmpty());
+        for (String name : partThreads) {
+            assertTrue(name, name.startsWith(threadPrefix));
+        }
+    }
+
+    private void writeFile(long length) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(randomBytes((int) length));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private UploadMultipartPartResult uploadPart(UploadMultipartPartRequest req) throws Exception {
+        int n = inFlight.incrementAndGet();
+        try {
+            synchronized (maxInFlight) {
+                maxInFlight.set(Math.max(maxInFlight.get(), n));
+            }
+            partThreads.add(Thread.currentThread().getName());
+            // "bytes <start>-<end>/*"
+            String range = req.getRange();
+            long start = Long.parseLong(range.substring(6, range.indexOf('-')));
+            if (start == failingPart) {
+                Thread.sleep(10);
+                throw new AmazonClientException("Unable to upload part " + start);
+            }
+            String checksum = TreeHashGenerator.calculateTreeHash(req.getBody());
+            assertEquals(req.getChecksum(), checksum);
+            for (int i = 0; i < 10; i++) {
+                SDKProgressPublisher.publishRequestBytesTransferred(
+                        req.getGeneralProgressListener(), 100);
+            }
+            uploadedParts.add(start);
+            return new UploadMultipartPartResult().withChecksum(checksum);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private GetJobOutputResult getChunk(GetJobOutputRequest req) throws Exception {
+        int n = inFlight.incrementAndGet();
+        try {
+            synchronized (maxInFlight) {
+                maxInFlight.set(Math.max(maxInFlight.get(), n));
+            }
+            partThreads.add(Thread.currentThread().getName());
+            // "bytes=<start>-<end>"
+            String range = req.getRange();
+            int start = Integer.parseInt(range.substring(6, range.indexOf('-')));
+            int end = Integer.parseInt(range.substring(range.indexOf('-') + 1));
+            byte[] chunk = Arrays.copyOfRange(archive, start, end + 1);
+            String checksum = TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(chunk));
+            boolean corrupt;
+            synchronized (requestedChunks) {
+                corrupt = start == failingChunk
+                        || (start == corruptChunk && !requestedChunks.contains((long) start));
+                requestedChunks.add((long) start);
+            }
+            if (corrupt) {
+                chunk[chunk.length / 2] ^= 1;
+            }
+            for (int i = 0; i < 10; i++) {
+                SDKProgressPublisher.publishResponseBytesTransferred(
+                        req.getGeneralProgressListener(), chunk.length / 10);
+            }
+            return new GetJobOutputResult()
+                    .withBody(new ByteArrayInputStream(chunk))
+                    .withChecksum(checksum);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a client that records the multipart uploads and serves the
+     * {@link #archive} as the output of a job, without sending any request.
+     */
+    private AmazonGlacierClient glacier() {
+        return new AmazonGlacierClient(new BasicAWSCredentials("access", "secret")) {
+            @Override
+            public InitiateMultipartUploadResult initiateMultipartUpload(
+                    InitiateMultipartUploadRequest req) {
+                initiated = true;
+                return new InitiateMultipartUploadResult().withUploadId(UPLOAD_ID);
+            }
+
+            @Override
+            public UploadMultipartPartResult uploadMultipartPart(UploadMultipartPartRequest req) {
+                try {
+                    return uploadPart(req);
+                } catch (AmazonClientException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new AmazonClientException("Unable to upload the part", e);
+                }
+            }
+
+            @Override
+            public CompleteMultipartUploadResult completeMultipartUpload(
+                    CompleteMultipartUploadRequest req) {
+                completedChecksum = req.getChecksum();
+                return new CompleteMultipartUploadResult().withArchiveId(ARCHIVE_ID);
+            }
+
+            @Override
+            public DescribeJobResult describeJob(DescribeJobRequest req) {
+                return new DescribeJobResult().withArchiveSizeInBytes((long) archive.length);
+            }
+
+            @Override
+            public GetJobOutputResult getJobOutput(GetJobOutputRequest req) {
+                try {
+                    return getChunk(req);
+                } catch (Exception e) {
+                    throw new AmazonClientException("Unable to get the chunk", e);
+                }
+            }
+
+            @Override
+            public void abortMultipartUpload(AbortMultipartUploadRequest req) {
+                inFlightWhenAborted = inFlight.get();
+                abortedUploadId = req.getUploadId();
+            }
+        };
+    }
+
+    /**
+     * Counts the events it receives, and how many of them it received at the
+     * same time.
+     */
+    private static class ConcurrencyCheckingListener extends SyncProgressListener {
+        final AtomicInteger events = new AtomicInteger();
+        final AtomicInteger discardEvents = new AtomicInteger();
+        final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+        private final AtomicInteger concurrentCalls = new AtomicInteger();
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            int n = concurrentCalls.incrementAndGet();
+            try {
+                synchronized (maxConcurrentCalls) {
+                    maxConcurrentCalls.set(Math.max(maxConcurrentCalls.get(), n));
+                }
+                events.incrementAndGet();
+                if (progressEvent.getEventType() == ProgressEventType.RESPONSE_BYTE_DISCARD_EVENT) {
+                    discardEvents.incrementAndGet();
+                }
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentCalls.decrementAndGet();
+            }
+        }
+    }
+}
@@ -84,6 +84,7 @@ import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.http.ExecutionContext;
 import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.http.HttpResponseHandler;
+import com.amazonaws.http.SharedConnectionPool;
 import com.amazonaws.internal.DefaultServiceEndpointBuilder;
 import com.amazonaws.internal.FIFOCache;
 import com.amazonaws.internal.IdentityEndpointBuilder;
@@ -501,7 +502,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
 
     private void init() {
         // Because of S3's virtual host style addressing, we need to change the
-        // default, strict hostname verification to be more lenient.
+        // default, strict hostname verification to be more lenient; which for
+        // a shared connection pool is done for the endpoint of the client.
         client.disableStrictHostnameVerification();
 
         // calling this.setEndpoint(...) will also modify the signer accordingly
@@ -533,12 +535,28 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
          */
         hasExplicitRegion = !(Constants.S3_HOSTNAME.equals(endpoint));
         super.setEndpoint(endpoint);
+        disableStrictHostnameVerificationInSharedPool();
     }
 
     @Override
     public void setRegion(com.amazonaws.regions.Region region) {
         hasExplicitRegion = true;
         super.setRegion(region);
+        disableStrictHostnameVerificationInSharedPool();
+    }
+
+    /**
+     * Disables the strict hostname verification of the shared connection pool
+     * of this client, if any, for the current endpoint and the virtual host
+     * style endpoints of its buckets; the other clients sharing the pool keep
+     * their hostname verification.
+     */
+    private void disableStrictHostnameVerificationInSharedPool() {
+        SharedConnectionPool sharedConnectionPool =
+                clientConfiguration.getSharedConnectionPool();
+        if (sharedConnectionPool != null && endpoint.getHost() != null) {
+            sharedConnectionPool.disableStrictHostnameVerification(endpoint.getHost());
+        }
     }
 
     /**
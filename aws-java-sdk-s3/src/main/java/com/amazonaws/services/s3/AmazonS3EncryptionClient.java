@@ -546,7 +546,10 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
      * N-1 in order to encrypt block N, parts uploaded with the
      * AmazonS3EncryptionClient (as opposed to the normal AmazonS3Client) must
      * be uploaded serially, and in order. Otherwise, the previous encryption
-     * context isn't available to use when encrypting the current part.
+     * context isn't available to use when encrypting the current part. The
+     * exception is an upload initiated with
+     * {@link EncryptedInitiateMultipartUploadRequest#setParallelPartUpload(boolean)}
+     * in the authenticated encryption modes.
      */
     @Override
     public UploadPartResult uploadPart(UploadPartRequest uploadPartRequest)
@@ -579,6 +582,16 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
         return crypto.putInstructionFileSecurely(req);
     }
 
+    /**
+     * Returns true if the parts of a multipart upload initiated with
+     * {@link EncryptedInitiateMultipartUploadRequest#setParallelPartUpload(boolean)}
+     * can be encrypted and uploaded in parallel, which is the case in the
+     * authenticated encryption modes; false otherwise.
+     */
+    public boolean isParallelPartUploadSupported() {
+        return crypto.isParallelPartUploadSupported();
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.amazonaws.internal.SdkFilterInputStream;
+
+/**
+ * Input stream that replaces every carriage return (\r) character of a UTF-8
+ * encoded XML document with an explicit XML character entity, while the
+ * document is being read. This prevents the SAX parser from misinterpreting
+ * 0x0D characters as 0x0A (which would change the object keys), without having
+ * to buffer the whole document in memory first.
+ * <p>
+ * The byte 0x0D never occurs within a multi-byte UTF-8 sequence, so it is
+ * safe to do the replacement on the raw bytes.
+ */
+public class CarriageReturnEscapingInputStream extends SdkFilterInputStream {
+    private static final byte CR = '\r';
+    private static final byte[] ENTITY = {'&', '#', '0', '1', '3', ';'};
+
+    private final byte[] buffer = new byte[8192];
+    /** Position of the next unprocessed byte in the buffer. */
+    private int pos;
+    /** Number of bytes read into the buffer. */
+    private int limit;
+    /** Index of the next byte of the entity to return; or ENTITY.length if none. */
+    private int entityIndex = ENTITY.length;
+    private boolean eof;
+    /** Scratch buffer for skipped bytes; allocated on the first skip. */
+    private byte[] skipBuffer;
+    /** The buffer of {@link #read()}. */
+    private final byte[] singleByte = new byte[1];
+
+    public CarriageReturnEscapingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n;
+        while ((n = read(singleByte, 0, 1)) == 0)
+            ;
+        return n == -1 ? -1 : singleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            if (entityIndex < ENTITY.length) {
+                int n = Math.min(ENTITY.length - entityIndex, len - count);
+                System.arraycopy(ENTITY, entityIndex, b, off + count, n);
+                entityIndex += n;
+                count += n;
+                continue;
+            }
+            if (pos == limit) {
+                // Return what we have rather than block on the next read
+                if (count > 0 || !fill()) {
+                    break;
+                }
+            }
+            // Copy everything up to the next carriage return as is
+            int end = Math.min(limit, pos + len - count);
+            int i = pos;
+            while (i < end && buffer[i] != CR) {
+                i++;
+            }
+            System.arraycopy(buffer, pos, b, off + count, i - pos);
+            count += i - pos;
+            pos = i;
+            if (i < end) {
+                // skip the carriage return, and emit the entity instead
+                pos++;
+                entityIndex = 0;
+            }
+        }
+        return count == 0 && eof ? -1 : count;
+    }
+
+    /**
+     * Reads the next chunk of the underlying stream into the buffer.
+     *
+     * @return false if the end of the underlying stream has been reached
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int n = in.read(buffer, 0, buffer.length);
+        if (n == -1) {
+            eof = true;
+            pos = limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        if (skipBuffer == null) {
+            skipBuffer = new byte[buffer.length];
+        }
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(skipBuffer, 0,
+                    (int) Math.min(n - skipped, skipBuffer.length));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return (ENTITY.length - entityIndex) + (limit - pos);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        // mark/reset not supported
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -50,8 +50,8 @@ import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.transfer.exception.FileLockException;
 import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.DateUtils;
-import com.amazonaws.util.HttpUtils;
 import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.SdkHttpUtils;
 
 /**
  * General utility methods used throughout the AWS S3 Java client.
@@ -165,7 +165,7 @@ public class ServiceUtils {
      *             If the request cannot be converted to a well formed URL.
      */
     public static URL convertRequestToUrl(Request<?> request, boolean removeLeadingSlashInResourcePath) {
-        String resourcePath = HttpUtils.urlEncode(request.getResourcePath(), true);
+        String resourcePath = SdkHttpUtils.urlEncode(request.getResourcePath(), true);
 
         // Removed the padding "/" that was already added into the request's resource path.
         if (removeLeadingSlashInResourcePath
@@ -179,22 +179,23 @@ public class ServiceUtils {
         // we treat consecutive "/"s in AmazonS3Client#presignRequest(...)
 
         String urlPath = "/" + resourcePath;
-        urlPath = urlPath.replaceAll("(?<=/)/", "%2F");
+        if (urlPath.contains("//")) {
+            urlPath = urlPath.replaceAll("(?<=/)/", "%2F");
+        }
         StringBuilder url = new StringBuilder(request.getEndpoint().toString());
         url.append(urlPath);
 
-        StringBuilder queryParams = new StringBuilder();
+        boolean firstParam = true;
         Map<String, List<String>> requestParams = request.getParameters();
         for (Map.Entry<String, List<String>> entry : requestParams.entrySet()) {
             for (String value : entry.getValue()) {
-                queryParams = queryParams.length() > 0 ? queryParams
-                        .append("&") : queryParams.append("?");
-                queryParams.append(entry.getKey())
-                           .append("=")
-                           .append(HttpUtils.urlEncode(value, false));
+                url.append(firstParam ? '?' : '&')
+                   .append(entry.getKey())
+                   .append('=');
+                SdkHttpUtils.appendUrlEncoded(url, value, false);
+                firstParam = false;
             }
         }
-        url.append(queryParams.toString());
 
         try {
             return new URL(url.toString());
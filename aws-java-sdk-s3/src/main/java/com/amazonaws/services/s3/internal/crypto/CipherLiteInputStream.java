@@ -19,6 +19,7 @@ import java.io.InputStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 
 import com.amazonaws.internal.SdkFilterInputStream;
 
@@ -31,6 +32,7 @@ import com.amazonaws.internal.SdkFilterInputStream;
 public class CipherLiteInputStream extends SdkFilterInputStream {
     private static final int MAX_RETRY = 1000;
     private static final int DEFAULT_IN_BUFFER_SIZE = 512;
+    private static final int OUT_BUFFER_PADDING = 32;
     private CipherLite cipherLite;
     /**
      * True if this input stream is currently involved in a multipart uploads;
@@ -51,6 +53,12 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
     private byte[] bufout;
     private int curr_pos;
     private int max_pos;
+    /**
+     * Reusable buffer for the output of the cipher, with room for the bytes
+     * held back by a block cipher from a previous chunk, and for the tag held
+     * back by AES/GCM when decrypting.
+     */
+    private final byte[] obuffer;
 
     public CipherLiteInputStream(InputStream is, CipherLite cipherLite) {
         this(is, cipherLite, DEFAULT_IN_BUFFER_SIZE, false, false);
@@ -74,6 +82,7 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
                     + DEFAULT_IN_BUFFER_SIZE);
         }
         this.bufin = new byte[buffsize];
+        this.obuffer = new byte[buffsize + OUT_BUFFER_PADDING];
     }
 
     protected CipherLiteInputStream(InputStream is) {
@@ -215,7 +224,6 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
         abortIfNeeded();
         if (eof)
             return -1;
-        bufout = null;
         int len = in.read(bufin);
         if (len == -1) {
             eof = true;
@@ -239,8 +247,16 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
             }
             return -1;
         }
-        bufout = cipherLite.update(bufin, 0, len);
         curr_pos = 0;
+        try {
+            max_pos = cipherLite.update(bufin, 0, len, obuffer, 0);
+            bufout = obuffer;
+            return max_pos;
+        } catch (ShortBufferException e) {
+            // Nothing has been processed; fall back to a new output buffer
+            // for a cipher that holds back more than expected.
+        }
+        bufout = cipherLite.update(bufin, 0, len);
         return max_pos = (bufout == null ? 0 : bufout.length);
     }
 
@@ -159,7 +159,9 @@ public class CryptoModuleDispatcher extends S3CryptoModule<MultipartUploadContex
      * N-1 in order to encrypt block N, parts uploaded with the
      * AmazonS3EncryptionClient (as opposed to the normal AmazonS3Client) must
      * be uploaded serially, and in order. Otherwise, the previous encryption
-     * context isn't available to use when encrypting the current part.
+     * context isn't available to use when encrypting the current part. The
+     * exception is an upload initiated with parallel part upload in the
+     * authenticated encryption modes.
      */
     @Override
     public UploadPartResult uploadPartSecurely(UploadPartRequest req)
@@ -170,6 +172,11 @@ public class CryptoModuleDispatcher extends S3CryptoModule<MultipartUploadContex
              ;
     }
 
+    @Override
+    public boolean isParallelPartUploadSupported() {
+        return defaultCryptoMode != EncryptionOnly;
+    }
+
     @Override
     public CopyPartResult copyPartSecurely(CopyPartRequest req) {
         return defaultCryptoMode == EncryptionOnly 
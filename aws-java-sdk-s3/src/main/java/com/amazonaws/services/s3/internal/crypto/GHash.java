@@ -0,0 +1,273 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+/**
+ * The GHASH function of AES/GCM, computed over a stream of ciphertext. See <a
+ * href=
+ * "http://csrc.nist.gov/publications/nistpubs/800-38D/SP-800-38D.pdf">
+ * NIST Special Publication 800-38D</a>.
+ * <p>
+ * GHASH is linear, so the hash of a ciphertext can be computed from the hashes
+ * of its parts computed independently (see {@link #combine}), which is what
+ * allows the parts of an AES/GCM encrypted multipart upload to be encrypted in
+ * parallel.
+ * <p>
+ * A 128-bit block is represented by two longs, the first one holding the
+ * leftmost 8 bytes of the block in big-endian order.
+ */
+final class GHash implements Cloneable {
+    private static final int BLOCK_SIZE = 16;
+    /** The reduction polynomial of GF(2^128) */
+    private static final long R = 0xE100000000000000L;
+    /**
+     * The reduction of the 4 rightmost bits of a block that are shifted out
+     * when the block is multiplied by x^4, indexed by the value of these bits.
+     */
+    private static final long[] REDUCTION = new long[16];
+    static {
+        for (int i = 0; i < REDUCTION.length; i++) {
+            long[] block = {0, i};
+            for (int j = 0; j < 4; j++)
+                multiplyByX(block);
+            REDUCTION[i] = block[0];
+        }
+    }
+    /**
+     * The products of the hash subkey H by the 16 polynomials of degree less
+     * than 4, indexed by the value of the 4 bits representing the polynomial.
+     * Shared by clones.
+     */
+    private final long[][] table;
+    private long hashHi;
+    private long hashLo;
+    /** The bytes of the current incomplete block */
+    private byte[] partialBlock = new byte[BLOCK_SIZE];
+    private int partialBlockLength;
+    private long length;
+
+    /**
+     * @param hashSubkey
+     *            the 16 byte hash subkey H, which is the block of zeros
+     *            encrypted with the content encrypting key
+     */
+    GHash(byte[] hashSubkey) {
+        if (hashSubkey.length != BLOCK_SIZE)
+            throw new IllegalArgumentException();
+        table = new long[16][];
+        table[0] = new long[2];
+        long[] h = toBlock(hashSubkey, 0);
+        for (int bit = 8; bit > 0; bit >>= 1) {
+            table[bit] = h.clone();
+            multiplyByX(h);
+        }
+        for (int i = 1; i < 16; i++) {
+            if (table[i] == null) {
+                int highestBit = Integer.highestOneBit(i);
+                long[] a = table[highestBit];
+                long[] b = table[i ^ highestBit];
+                table[i] = new long[] {a[0] ^ b[0], a[1] ^ b[1]};
+            }
+        }
+    }
+
+    /**
+     * Hashes the given bytes of ciphertext.
+     */
+    void update(byte[] b, int off, int len) {
+        length += len;
+        if (partialBlockLength > 0) {
+            int n = Math.min(len, BLOCK_SIZE - partialBlockLength);
+            System.arraycopy(b, off, partialBlock, partialBlockLength, n);
+            partialBlockLength += n;
+            off += n;
+            len -= n;
+            if (partialBlockLength < BLOCK_SIZE)
+                return;
+            hashBlock(toLong(partialBlock, 0), toLong(partialBlock, 8));
+            partialBlockLength = 0;
+        }
+        while (len >= BLOCK_SIZE) {
+            hashBlock(toLong(b, off), toLong(b, off + 8));
+            off += BLOCK_SIZE;
+            len -= BLOCK_SIZE;
+        }
+        if (len > 0) {
+            System.arraycopy(b, off, partialBlock, 0, len);
+            partialBlockLength = len;
+        }
+    }
+
+    /**
+     * Returns the number of bytes hashed so far.
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the hash of the bytes hashed so far, with the last incomplete
+     * block, if any, padded with zeros.
+     */
+    long[] getHash() {
+        if (partialBlockLength == 0)
+            return new long[] {hashHi, hashLo};
+        GHash copy = clone();
+        for (int i = partialBlockLength; i < BLOCK_SIZE; i++)
+            copy.partialBlock[i] = 0;
+        copy.hashBlock(toLong(copy.partialBlock, 0),
+                toLong(copy.partialBlock, 8));
+        return new long[] {copy.hashHi, copy.hashLo};
+    }
+
+    @Override
+    public GHash clone() {
+        try {
+            GHash clone = (GHash) super.clone();
+            clone.partialBlock = partialBlock.clone();
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the hash of a ciphertext, computed from the hash of its first
+     * part and the hash of the following part.
+     *
+     * @param hash
+     *            the hash of the first part of the ciphertext
+     * @param hashSubkeyPower
+     *            the hash subkey H raised to the number of blocks in the
+     *            following part; see {@link #power(byte[], long)}
+     * @param nextHash
+     *            the hash of the following part of the ciphertext
+     */
+    static long[] combine(long[] hash, long[] hashSubkeyPower, long[] nextHash) {
+        long[] product = multiply(hash, hashSubkeyPower);
+        product[0] ^= nextHash[0];
+        product[1] ^= nextHash[1];
+        return product;
+    }
+
+    /**
+     * Returns the GCM authentication tag of a ciphertext without additional
+     * authenticated data.
+     *
+     * @param hashSubkey
+     *            the hash subkey H
+     * @param hash
+     *            the hash of the whole ciphertext
+     * @param ciphertextLength
+     *            the length in bytes of the ciphertext
+     * @param encryptedPreCounterBlock
+     *            the pre-counter block J0 encrypted with the content
+     *            encrypting key
+     */
+    static byte[] tag(byte[] hashSubkey, long[] hash, long ciphertextLength,
+            byte[] encryptedPreCounterBlock) {
+        long[] lengthBlock = {hash[0], hash[1] ^ (ciphertextLength << 3)};
+        long[] s = multiply(lengthBlock, toBlock(hashSubkey, 0));
+        byte[] tag = new byte[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            long word = i < 8 ? s[0] : s[1];
+            tag[i] = (byte) (encryptedPreCounterBlock[i]
+                    ^ (word >>> (56 - ((i & 7) << 3))));
+        }
+        return tag;
+    }
+
+    /**
+     * Returns the hash subkey H raised to the given power.
+     */
+    static long[] power(byte[] hashSubkey, long exponent) {
+        long[] result = {Long.MIN_VALUE, 0}; // the polynomial 1
+        long[] square = toBlock(hashSubkey, 0);
+        for (long e = exponent; e > 0; e >>>= 1) {
+            if ((e & 1) != 0)
+                result = multiply(result, square);
+            square = multiply(square, square);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of blocks in a ciphertext of the given length, the
+     * last incomplete block included.
+     */
+    static long blocks(long length) {
+        return (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Multiplies the current hash, added with the given block, by the hash
+     * subkey H, using the table of the products of H by 4-bit polynomials.
+     */
+    private void hashBlock(long blockHi, long blockLo) {
+        long xHi = hashHi ^ blockHi;
+        long xLo = hashLo ^ blockLo;
+        long zHi = 0;
+        long zLo = 0;
+        for (int i = 0; i < 32; i++) {
+            int nibble = i < 16
+                       ? (int) (xLo >>> (i << 2)) & 0xF
+                       : (int) (xHi >>> ((i - 16) << 2)) & 0xF;
+            // z = z * x^4
+            int shiftedOut = (int) zLo & 0xF;
+            zLo = (zLo >>> 4) | (zHi << 60);
+            zHi = (zHi >>> 4) ^ REDUCTION[shiftedOut];
+            long[] product = table[nibble];
+            zHi ^= product[0];
+            zLo ^= product[1];
+        }
+        hashHi = zHi;
+        hashLo = zLo;
+    }
+
+    /**
+     * Returns the product of the given blocks in GF(2^128).
+     */
+    private static long[] multiply(long[] x, long[] y) {
+        long zHi = 0;
+        long zLo = 0;
+        long[] v = y.clone();
+        for (int i = 0; i < 128; i++) {
+            long bit = i < 64 ? x[0] >>> (63 - i) : x[1] >>> (127 - i);
+            if ((bit & 1) != 0) {
+                zHi ^= v[0];
+                zLo ^= v[1];
+            }
+            multiplyByX(v);
+        }
+        return new long[] {zHi, zLo};
+    }
+
+    private static void multiplyByX(long[] block) {
+        long carry = block[1] & 1;
+        block[1] = (block[1] >>> 1) | (block[0] << 63);
+        block[0] = (block[0] >>> 1) ^ (carry == 0 ? 0 : R);
+    }
+
+    private static long[] toBlock(byte[] b, int off) {
+        return new long[] {toLong(b, off), toLong(b, off + 8)};
+    }
+
+    private static long toLong(byte[] b, int off) {
+        long value = 0;
+        for (int i = 0; i < 8; i++)
+            value = (value << 8) | (b[off + i] & 0xFF);
+        return value;
+    }
+}
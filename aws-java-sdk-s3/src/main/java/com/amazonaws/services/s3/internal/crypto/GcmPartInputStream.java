@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.amazonaws.internal.SdkFilterInputStream;
+
+/**
+ * The ciphertext of a part of an AES/GCM encrypted multipart upload whose
+ * parts are uploaded in parallel. Computes the GHASH of the ciphertext read
+ * from the wrapped input stream, and appends the authentication tag of the
+ * whole object after the ciphertext of the last part.
+ *
+ * @see MultipartUploadParallelCryptoContext
+ */
+class GcmPartInputStream extends SdkFilterInputStream {
+    private final MultipartUploadParallelCryptoContext uploadContext;
+    private final int partNumber;
+    private final boolean isLastPart;
+    private GHash hash;
+    /** The authentication tag, computed at the end of the last part. */
+    private byte[] tag;
+    private int tagPosition;
+    /** The buffer of {@link #read()}. */
+    private final byte[] singleByte = new byte[1];
+
+    private GHash markedHash;
+    private byte[] markedTag;
+    private int markedTagPosition;
+
+    GcmPartInputStream(InputStream in,
+            MultipartUploadParallelCryptoContext uploadContext, int partNumber,
+            boolean isLastPart) {
+        super(in);
+        this.uploadContext = uploadContext;
+        this.partNumber = partNumber;
+        this.isLastPart = isLastPart;
+        this.hash = uploadContext.newPartHash();
+        this.markedHash = hash.clone();
+    }
+
+    int getPartNumber() {
+        return partNumber;
+    }
+
+    boolean isLastPart() {
+        return isLastPart;
+    }
+
+    /**
+     * Returns the hash of the ciphertext read so far.
+     */
+    GHash getHash() {
+        return hash;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n;
+        while ((n = read(singleByte, 0, 1)) == 0)
+            ;
+        return n == -1 ? -1 : (singleByte[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (tag == null) {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                hash.update(b, off, n);
+                return n;
+            }
+            if (n == 0 || !isLastPart)
+                return n;
+            tag = uploadContext.computeTag(partNumber, hash);
+        }
+        if (tagPosition == tag.length)
+            return -1;
+        int n = Math.min(len, tag.length - tagPosition);
+        System.arraycopy(tag, tagPosition, b, off, n);
+        tagPosition += n;
+        return n;
+    }
+
+    /**
+     * Skips by reading, so that the skipped ciphertext is hashed.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0)
+            return 0;
+        byte[] b = new byte[(int) Math.min(n, 512)];
+        int count = read(b, 0, b.length);
+        return count == -1 ? 0 : count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return tag == null ? super.available() : tag.length - tagPosition;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        super.mark(readlimit);
+        markedHash = hash.clone();
+        markedTag = tag;
+        markedTagPosition = tagPosition;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        super.reset();
+        hash = markedHash.clone();
+        tag = markedTag;
+        tagPosition = markedTagPosition;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.crypto.Cipher;
+
+import org.apache.http.annotation.GuardedBy;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Contextual information for an AES/GCM encrypted multipart upload whose parts
+ * are encrypted and uploaded in parallel.
+ * <p>
+ * Each part is encrypted independently with AES/CTR, starting from the counter
+ * block AES/GCM would have reached at the beginning of the part, and the GHASH
+ * of its ciphertext is recorded once it has been uploaded. The authentication
+ * tag is computed from these hashes and appended to the last part, which must
+ * therefore be uploaded after all the other parts. The resulting object is
+ * identical to one encrypted with AES/GCM in a single pass.
+ * <p>
+ * All the parts but the last must have the same size, so that the position of
+ * a part in the plaintext can be computed from its part number.
+ */
+final class MultipartUploadParallelCryptoContext extends
+        MultipartUploadCryptoContext {
+    /** The hash subkey H of AES/GCM. */
+    private final byte[] hashSubkey;
+    /** The pre-counter block J0 encrypted with the content encrypting key. */
+    private final byte[] encryptedPreCounterBlock;
+    /** The hashes of the ciphertext of the uploaded parts by part number. */
+    @GuardedBy("this")
+    private final Map<Integer, GHash> partHashes = new TreeMap<Integer, GHash>();
+
+    MultipartUploadParallelCryptoContext(String bucketName, String key,
+            ContentCryptoMaterial cekMaterial) {
+        super(bucketName, key, cekMaterial);
+        CipherLite cipherLite = cekMaterial.getCipherLite();
+        byte[] iv = cipherLite.getIV();
+        if (iv.length != 12) {
+            throw new AmazonClientException("Encrypting the parts of a"
+                    + " multipart upload in parallel requires an IV of 12"
+                    + " bytes, but got " + iv.length + " bytes");
+        }
+        byte[] preCounterBlock = new byte[16];
+        System.arraycopy(iv, 0, preCounterBlock, 0, iv.length);
+        preCounterBlock[15] = 1;
+        this.hashSubkey = encryptBlock(cipherLite, new byte[16]);
+        this.encryptedPreCounterBlock = encryptBlock(cipherLite, preCounterBlock);
+    }
+
+    /**
+     * Encrypts a single block with AES/CTR, which amounts to encrypting the
+     * counter block with the underlying block cipher.
+     */
+    private static byte[] encryptBlock(CipherLite cipherLite, byte[] block) {
+        CipherLite ctr = ContentCryptoScheme.AES_CTR.createCipherLite(
+                cipherLite.getSecretKey(), block, Cipher.ENCRYPT_MODE,
+                cipherLite.getCipherProvider());
+        return ctr.update(new byte[16], 0, 16);
+    }
+
+    /**
+     * Parts may be uploaded in any order and in parallel.
+     */
+    @Override
+    void beginPartUpload(int nextPartNumber) {
+        if (nextPartNumber < 1)
+            throw new IllegalArgumentException("part number must be at least 1");
+    }
+
+    @Override
+    void endPartUpload() {
+    }
+
+    /**
+     * Returns a new hash for the ciphertext of a part.
+     */
+    GHash newPartHash() {
+        return new GHash(hashSubkey);
+    }
+
+    /**
+     * Returns the cipher lite to encrypt the given part with.
+     *
+     * @throws AmazonClientException
+     *             if the part is the last, but not all the previous parts have
+     *             been uploaded; or if the part is not the last and its size
+     *             is not a multiple of the AES block size or differs from the
+     *             size of the parts already uploaded.
+     */
+    CipherLite cipherLiteForPart(int partNumber, long partSize,
+            boolean isLastPart) {
+        long offset;
+        synchronized (this) {
+            offset = isLastPart
+                   ? previousPartsLength(partNumber)
+                   : checkPartSize(partNumber, partSize) * (partNumber - 1);
+        }
+        try {
+            return getCipherLite().createAuxiliary(offset);
+        } catch (Exception e) {
+            throw new AmazonClientException(
+                    "Unable to create cipher for part " + partNumber, e);
+        }
+    }
+
+    /**
+     * Records the hash of the ciphertext of an uploaded part.
+     */
+    synchronized void partUploaded(int partNumber, GHash partHash) {
+        partHashes.put(partNumber, partHash);
+    }
+
+    /**
+     * Returns the authentication tag of the whole ciphertext, whose last part
+     * has the given hash.
+     */
+    synchronized byte[] computeTag(int lastPartNumber, GHash lastPartHash) {
+        long previousPartsLength = previousPartsLength(lastPartNumber);
+        long[] hash = {0, 0};
+        long[] partSubkeyPower = null;
+        for (int partNumber = 1; partNumber < lastPartNumber; partNumber++) {
+            GHash partHash = partHashes.get(partNumber);
+            if (partSubkeyPower == null) {
+                partSubkeyPower = GHash.power(hashSubkey,
+                        GHash.blocks(partHash.getLength()));
+            }
+            hash = GHash.combine(hash, partSubkeyPower, partHash.getHash());
+        }
+        long[] lastPartSubkeyPower = GHash.power(hashSubkey,
+                GHash.blocks(lastPartHash.getLength()));
+        hash = GHash.combine(hash, lastPartSubkeyPower, lastPartHash.getHash());
+        return GHash.tag(hashSubkey, hash,
+                previousPartsLength + lastPartHash.getLength(),
+                encryptedPreCounterBlock);
+    }
+
+    /**
+     * Returns the size of the parts preceding the given last part, all of
+     * which must have been uploaded with the same size.
+     */
+    @GuardedBy("this")
+    private long previousPartsLength(int lastPartNumber) {
+        long partSize = -1;
+        for (int partNumber = 1; partNumber < lastPartNumber; partNumber++) {
+            GHash partHash = partHashes.get(partNumber);
+            if (partHash == null) {
+                throw new AmazonClientException("Part " + partNumber
+                        + " must be uploaded before the last part "
+                        + lastPartNumber + " of an encrypted multipart upload"
+                        + " whose parts are uploaded in parallel");
+            }
+            if (partSize == -1)
+                partSize = partHash.getLength();
+            else if (partSize != partHash.getLength())
+                throw newPartSizeMismatchException(partSize, partHash.getLength());
+        }
+        return partSize == -1 ? 0 : partSize * (lastPartNumber - 1);
+    }
+
+    /**
+     * Returns the given size of a part that is not the last, after checking
+     * it is a multiple of the AES block size and the same as the size of the
+     * parts already uploaded.
+     */
+    @GuardedBy("this")
+    private long checkPartSize(int partNumber, long partSize) {
+        if (partSize % 16 != 0) {
+            throw new AmazonClientException("All the parts but the last of an"
+                    + " encrypted multipart upload whose parts are uploaded in"
+                    + " parallel must have a size that is a multiple of 16 bytes"
+                    + " (got " + partSize + " bytes for part " + partNumber + ")");
+        }
+        for (Map.Entry<Integer, GHash> e : partHashes.entrySet()) {
+            long uploadedPartSize = e.getValue().getLength();
+            if (e.getKey() != partNumber && uploadedPartSize != partSize)
+                throw newPartSizeMismatchException(uploadedPartSize, partSize);
+        }
+        return partSize;
+    }
+
+    private static AmazonClientException newPartSizeMismatchException(
+            long expectedPartSize, long partSize) {
+        return new AmazonClientException("All the parts but the last of an"
+                + " encrypted multipart upload whose parts are uploaded in"
+                + " parallel must have the same size (expected " + expectedPartSize
+                + " bytes, but got " + partSize + " bytes)");
+    }
+}
@@ -90,4 +90,12 @@ public abstract class S3CryptoModule<T extends MultipartUploadContext> {
      */
     public abstract void putLocalObjectSecurely(UploadObjectRequest req,
             String uploadId, OutputStream os) throws IOException;
+
+    /**
+     * Returns true if the parts of a multipart upload can be encrypted and
+     * uploaded in parallel; false otherwise.
+     */
+    public boolean isParallelPartUploadSupported() {
+        return false;
+    }
 }
@@ -362,19 +362,38 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
     @Override
     final MultipartUploadCryptoContext newUploadContext(
             InitiateMultipartUploadRequest req, ContentCryptoMaterial cekMaterial) {
-        return new MultipartUploadCryptoContext(
-                req.getBucketName(), req.getKey(), cekMaterial);
+        return isParallelPartUpload(req)
+             ? new MultipartUploadParallelCryptoContext(
+                     req.getBucketName(), req.getKey(), cekMaterial)
+             : new MultipartUploadCryptoContext(
+                     req.getBucketName(), req.getKey(), cekMaterial);
+    }
+
+    @Override
+    public boolean isParallelPartUploadSupported() {
+        return true;
     }
 
     //// specific overrides for uploading parts.
     @Override
     final CipherLite cipherLiteForNextPart(
-            MultipartUploadCryptoContext uploadContext) {
+            MultipartUploadCryptoContext uploadContext, UploadPartRequest req) {
+        if (uploadContext instanceof MultipartUploadParallelCryptoContext) {
+            return ((MultipartUploadParallelCryptoContext) uploadContext)
+                .cipherLiteForPart(req.getPartNumber(), req.getPartSize(),
+                        req.isLastPart());
+        }
         return uploadContext.getCipherLite();
     }
     @Override
     final SdkFilterInputStream wrapForMultipart(
-            CipherLiteInputStream  is, long partSize) {
+            MultipartUploadCryptoContext uploadContext,
+            CipherLiteInputStream  is, UploadPartRequest req) {
+        if (uploadContext instanceof MultipartUploadParallelCryptoContext) {
+            return new GcmPartInputStream(is,
+                    (MultipartUploadParallelCryptoContext) uploadContext,
+                    req.getPartNumber(), req.isLastPart());
+        }
         return is;
     }
     @Override
@@ -385,6 +404,13 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
     @Override
     final void updateUploadContext(MultipartUploadCryptoContext uploadContext,
             SdkFilterInputStream is) {
+        if (is instanceof GcmPartInputStream) {
+            GcmPartInputStream gis = (GcmPartInputStream) is;
+            if (gis.isLastPart())
+                return;
+            ((MultipartUploadParallelCryptoContext) uploadContext)
+                .partUploaded(gis.getPartNumber(), gis.getHash());
+        }
     }
 
     /*
@@ -407,7 +433,7 @@ class S3CryptoModuleAE extends S3CryptoModuleBase<MultipartUploadCryptoContext>
         wrapper.setObjectContent(new S3ObjectInputStream(
                 new CipherLiteInputStream(objectContent, 
                     cekMaterial.getCipherLite(),
-                    DEFAULT_BUFFER_SIZE),
+                    cryptoConfig.getCipherBufferSize()),
                     objectContent.getHttpRequest()));
         return wrapper;
     }
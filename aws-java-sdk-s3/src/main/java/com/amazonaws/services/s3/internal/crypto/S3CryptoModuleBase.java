@@ -67,6 +67,7 @@ import com.amazonaws.services.s3.model.CopyPartRequest;
 import com.amazonaws.services.s3.model.CopyPartResult;
 import com.amazonaws.services.s3.model.CryptoConfiguration;
 import com.amazonaws.services.s3.model.CryptoMode;
+import com.amazonaws.services.s3.model.EncryptedInitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.EncryptionMaterials;
 import com.amazonaws.services.s3.model.EncryptionMaterialsFactory;
 import com.amazonaws.services.s3.model.EncryptionMaterialsProvider;
@@ -238,10 +239,24 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
     abstract T newUploadContext(InitiateMultipartUploadRequest req,
             ContentCryptoMaterial cekMaterial);
 
+    /**
+     * Returns true if the parts of the given upload are to be encrypted and
+     * uploaded in parallel; false otherwise.
+     */
+    static boolean isParallelPartUpload(InitiateMultipartUploadRequest req) {
+        return req instanceof EncryptedInitiateMultipartUploadRequest
+            && ((EncryptedInitiateMultipartUploadRequest) req).isParallelPartUpload();
+    }
+
     @Override
     public InitiateMultipartUploadResult initiateMultipartUploadSecurely(
             InitiateMultipartUploadRequest req) {
         appendUserAgent(req, USER_AGENT);
+        if (isParallelPartUpload(req) && !isParallelPartUploadSupported()) {
+            throw new UnsupportedOperationException(
+                "Parallel part upload is not supported in the crypto mode "
+                    + cryptoConfig.getCryptoMode());
+        }
         // Generate a one-time use symmetric key and initialize a cipher to
         // encrypt object data
         ContentCryptoMaterial cekMaterial = createContentCryptoMaterial(req);
@@ -264,10 +279,11 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
     }
 
     //// specific crypto module behavior for uploading parts.
-    abstract CipherLite cipherLiteForNextPart(T uploadContext);
+    abstract CipherLite cipherLiteForNextPart(T uploadContext,
+            UploadPartRequest req);
     abstract long computeLastPartSize(UploadPartRequest req);
     abstract <I extends CipherLiteInputStream> SdkFilterInputStream wrapForMultipart(
-            I is, long partSize);
+            T uploadContext, I is, UploadPartRequest req);
     abstract void updateUploadContext(T uploadContext, SdkFilterInputStream is);
     /**
      * {@inheritDoc}
@@ -277,7 +293,10 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
      * previous blocks, parts uploaded with the AmazonS3EncryptionClient (as
      * opposed to the normal AmazonS3Client) must be uploaded serially, and in
      * order. Otherwise, the previous encryption context isn't available to use
-     * when encrypting the current part.
+     * when encrypting the current part. The exception is an upload initiated
+     * with parallel part upload in the authenticated encryption modes.
+     *
+     * @see EncryptedInitiateMultipartUploadRequest#setParallelPartUpload(boolean)
      */
     @Override
     public UploadPartResult uploadPartSecurely(UploadPartRequest req) {
@@ -302,7 +321,7 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         final UploadPartResult result;
         // Checks the parts are uploaded in series
         uploadContext.beginPartUpload(req.getPartNumber());
-        CipherLite cipherLite = cipherLiteForNextPart(uploadContext);
+        CipherLite cipherLite = cipherLiteForNextPart(uploadContext, req);
         final File fileOrig = req.getFile();
         final InputStream isOrig = req.getInputStream();
         SdkFilterInputStream isCurr = null;
@@ -310,7 +329,7 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
             CipherLiteInputStream clis = newMultipartS3CipherInputStream(req, cipherLite);
             isCurr = clis; // so the clis will be closed (in the finally block below) upon
                        // unexpected failure should we opened a file undereath
-            isCurr = wrapForMultipart(clis, partSize);
+            isCurr = wrapForMultipart(uploadContext, clis, req);
             req.setInputStream(isCurr);
             // Treat all encryption requests as input stream upload requests,
             // not as file upload requests.
@@ -362,10 +381,10 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
                     req.isLastPart());
             return cipherLite.markSupported()
                  ? new CipherLiteInputStream(isCurr, cipherLite,
-                       DEFAULT_BUFFER_SIZE,
+                       cryptoConfig.getCipherBufferSize(),
                        IS_MULTI_PART, req.isLastPart())
                  : new RenewableCipherLiteInputStream(isCurr, cipherLite,
-                        DEFAULT_BUFFER_SIZE,
+                        cryptoConfig.getCipherBufferSize(),
                         IS_MULTI_PART, req.isLastPart());
         } catch (Exception e) {
             cleanupDataSource(req, fileOrig, isOrig, isCurr, log);
@@ -655,10 +674,10 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
 
             if (cipherLite.markSupported()) {
                 return new CipherLiteInputStream(isCurr, cipherLite,
-                        DEFAULT_BUFFER_SIZE);
+                        cryptoConfig.getCipherBufferSize());
             } else {
                 return new RenewableCipherLiteInputStream(isCurr, cipherLite,
-                        DEFAULT_BUFFER_SIZE);
+                        cryptoConfig.getCipherBufferSize());
             }
         } catch (Exception e) {
             cleanupDataSource(req, fileOrig, isOrig, isCurr, log);
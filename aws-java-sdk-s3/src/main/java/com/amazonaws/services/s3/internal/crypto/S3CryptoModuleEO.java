@@ -105,7 +105,9 @@ class S3CryptoModuleEO extends S3CryptoModuleBase<MultipartUploadCbcContext> {
 
     @Override
     final ByteRangeCapturingInputStream wrapForMultipart(
-            CipherLiteInputStream is, long partSize) {
+            MultipartUploadCbcContext uploadContext, CipherLiteInputStream is,
+            UploadPartRequest req) {
+        long partSize = req.getPartSize();
         int blockSize = contentCryptoScheme.getBlockSizeInBytes();
         return new ByteRangeCapturingInputStream(is, 
                 partSize - blockSize,
@@ -132,7 +134,7 @@ class S3CryptoModuleEO extends S3CryptoModuleBase<MultipartUploadCbcContext> {
 
     @Override
     final CipherLite cipherLiteForNextPart(
-            MultipartUploadCbcContext uploadContext) {
+            MultipartUploadCbcContext uploadContext, UploadPartRequest req) {
         CipherLite cipherLite = uploadContext.getCipherLite();
         byte[] nextIV = uploadContext.getNextInitializationVector();
         return cipherLite.createUsingIV(nextIV);
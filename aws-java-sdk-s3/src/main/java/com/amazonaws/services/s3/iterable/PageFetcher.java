@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Fetches the pages of a paginated Amazon S3 listing in order.
+ * <p>
+ * If an executor is given, up to <code>prefetchDepth</code> pages are fetched
+ * ahead in the background while the caller consumes the current page.
+ * Because each request carries the marker returned with the previous page,
+ * the pages of a single listing are still requested one after another; the
+ * prefetching only takes the request latency out of the caller's thread.
+ * Since no more than <code>prefetchDepth</code> pages are ever held, an
+ * abandoned fetcher does not keep a thread busy; {@link #cancel()} also drops
+ * the pages it holds and stops it from fetching any more. Otherwise, each page
+ * is fetched in the caller's thread when it is needed.
+ *
+ * @param <P>
+ *            The type of the listing page.
+ */
+abstract class PageFetcher<P> {
+
+    private final Executor executor;
+    private final int prefetchDepth;
+
+    /** Fetched pages that haven't been handed out yet; guarded by this. */
+    private final LinkedList<P> pages = new LinkedList<P>();
+    /** The most recently fetched page; guarded by this. */
+    private P lastPage;
+    /** Whether a fetch is in progress in the background; guarded by this. */
+    private boolean fetching;
+    /** Whether the last page has been fetched; guarded by this. */
+    private boolean done;
+    /** The failure of the last background fetch, if any; guarded by this. */
+    private RuntimeException failure;
+    /** Whether the fetcher has been cancelled; guarded by this. */
+    private boolean cancelled;
+
+    private final Runnable fetchTask = new Runnable() {
+        @Override
+        public void run() {
+            P page;
+            try {
+                page = fetch(lastPage());
+            } catch (RuntimeException e) {
+                synchronized (PageFetcher.this) {
+                    failure = e;
+                    fetching = false;
+                    PageFetcher.this.notifyAll();
+                }
+                return;
+            }
+            synchronized (PageFetcher.this) {
+                if (!cancelled) {
+                    fetched(page);
+                }
+                fetching = false;
+                PageFetcher.this.notifyAll();
+                prefetch();
+            }
+        }
+    };
+
+    /**
+     * @param executor
+     *            The executor to fetch pages in the background with; or null
+     *            to fetch each page in the caller's thread.
+     * @param prefetchDepth
+     *            The maximum number of pages to fetch ahead of the caller.
+     */
+    PageFetcher(Executor executor, int prefetchDepth) {
+        this.executor = prefetchDepth > 0 ? executor : null;
+        this.prefetchDepth = prefetchDepth;
+    }
+
+    /**
+     * Fetches the first page of the listing.
+     */
+    protected abstract P fetchFirstPage();
+
+    /**
+     * Fetches the page following the given one.
+     */
+    protected abstract P fetchNextPage(P previousPage);
+
+    /**
+     * Returns whether there are more pages after the given one.
+     */
+    protected abstract boolean isTruncated(P page);
+
+    /**
+     * Starts fetching pages in the background, if prefetching is enabled;
+     * otherwise does nothing.
+     */
+    synchronized void start() {
+        prefetch();
+    }
+
+    /**
+     * Returns the next page of the listing, waiting for it to be fetched if
+     * needed; or null if all the pages have been returned.
+     */
+    P nextPage() {
+        if (executor == null) {
+            synchronized (this) {
+                if (done) {
+                    return null;
+                }
+                P page = fetch(lastPage);
+                fetched(page);
+                return pages.poll();
+            }
+        }
+        synchronized (this) {
+            prefetch();
+            try {
+                while (pages.isEmpty()) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    if (done) {
+                        return null;
+                    }
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException(
+                        "Interrupted while waiting for the next page of the listing", e);
+            }
+            P page = pages.poll();
+            prefetch();
+            return page;
+        }
+    }
+
+    /**
+     * Stops fetching pages, and drops the ones that haven't been returned
+     * yet. A fetch already in progress is allowed to complete, but its page
+     * is discarded. Subsequent calls to {@link #nextPage()} return null.
+     */
+    synchronized void cancel() {
+        cancelled = true;
+        done = true;
+        pages.clear();
+        lastPage = null;
+        notifyAll();
+    }
+
+    private P fetch(P previousPage) {
+        return previousPage == null ? fetchFirstPage() : fetchNextPage(previousPage);
+    }
+
+    private synchronized P lastPage() {
+        return lastPage;
+    }
+
+    /** Must be called while holding the lock. */
+    private void fetched(P page) {
+        pages.add(page);
+        lastPage = page;
+        done = !isTruncated(page);
+    }
+
+    /**
+     * Submits the next background fetch if there is room for another page.
+     * Must be called while holding the lock.
+     */
+    private void prefetch() {
+        if (executor == null || fetching || done || failure != null
+                || pages.size() >= prefetchDepth) {
+            return;
+        }
+        fetching = true;
+        try {
+            executor.execute(fetchTask);
+        } catch (RejectedExecutionException e) {
+            fetching = false;
+            failure = e;
+        }
+    }
+}
@@ -14,7 +14,15 @@
  */
 package com.amazonaws.services.s3.iterable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
@@ -34,6 +42,23 @@ import com.amazonaws.services.s3.model.S3ObjectSummary;
  * The list of {@link S3ObjectSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
  * {@link S3Objects#withBatchSize(int)} method.
+ * <p>
+ * To keep the caller from waiting on each page, the following pages can be
+ * fetched in the background with {@link #withPrefetch(int, ExecutorService)}.
+ * Large listings can additionally be split across the common prefixes under a
+ * delimiter, and the partitions listed concurrently, with
+ * {@link #withPartitions(String, int)}:
+ *
+ * <pre class="brush: java">
+ * ExecutorService executor = Executors.newFixedThreadPool(8);
+ * S3Objects objects = S3Objects.inBucket(s3, &quot;my-bucket&quot;)
+ *         .withPrefetch(2, executor)
+ *         .withPartitions(&quot;/&quot;, 8);
+ * </pre>
+ *
+ * In either case the summaries are still returned in key order. An iterator
+ * that is abandoned before the end of such a listing keeps its fetched pages
+ * until {@link #cancel()} is called.
  */
 public class S3Objects implements Iterable<S3ObjectSummary> {
 
@@ -41,6 +66,19 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
     private String prefix = null;
     private String bucketName;
     private Integer batchSize = null;
+    private int prefetchDepth = 0;
+    private ExecutorService executorService = null;
+    private String partitionDelimiter = null;
+    private int maxConcurrentPartitions = 0;
+
+    /**
+     * The page fetchers created for the iterators of this iterable, which
+     * {@link #cancel()} stops; guarded by itself.
+     */
+    private final Set<PageFetcher<?>> fetchers =
+            Collections.newSetFromMap(new WeakHashMap<PageFetcher<?>, Boolean>());
+    /** Whether {@link #cancel()} has been called; guarded by fetchers. */
+    private boolean cancelled = false;
 
     private S3Objects(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -91,10 +129,86 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
         return this;
     }
 
+    /**
+     * Enables fetching up to the given number of pages ahead in the
+     * background, using the given executor, while the caller consumes the
+     * current page.
+     *
+     * @param prefetchDepth
+     *            How many pages to fetch ahead; zero disables prefetching.
+     * @param executorService
+     *            The executor to fetch the pages with. It is not shut down by
+     *            this class.
+     */
+    public S3Objects withPrefetch(int prefetchDepth, ExecutorService executorService) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("The prefetch depth must not be negative");
+        }
+        this.prefetchDepth = prefetchDepth;
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Enables listing the objects under each common prefix of the given
+     * delimiter as a separate partition, with up to the given number of
+     * partitions being fetched concurrently. The objects directly under the
+     * prefix are returned along with them, in key order.
+     * <p>
+     * This requires an executor to be set with
+     * {@link #withPrefetch(int, ExecutorService)}; each partition prefetches
+     * at least one page.
+     *
+     * @param delimiter
+     *            The delimiter that determines the partitions, e.g. "/".
+     * @param maxConcurrentPartitions
+     *            How many partitions to fetch concurrently.
+     */
+    public S3Objects withPartitions(String delimiter, int maxConcurrentPartitions) {
+        if (maxConcurrentPartitions < 1) {
+            throw new IllegalArgumentException("At least one partition must be fetched at a time");
+        }
+        this.partitionDelimiter = delimiter;
+        this.maxConcurrentPartitions = maxConcurrentPartitions;
+        return this;
+    }
+
+    /**
+     * Stops fetching pages for every iterator of this iterable, including
+     * the partitions they list, and drops the pages fetched ahead. Each
+     * iterator may still return the summaries it already holds, and then
+     * has no more elements; iterators created afterwards are empty.
+     */
+    public void cancel() {
+        synchronized ( fetchers ) {
+            cancelled = true;
+            for ( PageFetcher<?> fetcher : fetchers ) {
+                fetcher.cancel();
+            }
+            fetchers.clear();
+        }
+    }
+
     public Integer getBatchSize() {
         return batchSize;
     }
 
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public String getPartitionDelimiter() {
+        return partitionDelimiter;
+    }
+
+    public int getMaxConcurrentPartitions() {
+        return maxConcurrentPartitions;
+    }
+
     public String getPrefix() {
         return prefix;
     }
@@ -109,10 +223,14 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
 
     private class S3ObjectIterator implements Iterator<S3ObjectSummary> {
 
-        private ObjectListing currentListing = null;
+        private final PageFetcher<ObjectListing> pages;
 
         private Iterator<S3ObjectSummary> currentIterator = null;
 
+        S3ObjectIterator(PageFetcher<ObjectListing> pages) {
+            this.pages = pages;
+        }
+
         @Override
         public boolean hasNext() {
             prepareCurrentListing();
@@ -131,27 +249,235 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
         }
 
         private void prepareCurrentListing() {
-            while ( currentListing == null || (!currentIterator.hasNext() && currentListing.isTruncated()) ) {
-
+            while ( currentIterator == null || !currentIterator.hasNext() ) {
+                ObjectListing currentListing = pages.nextPage();
                 if ( currentListing == null ) {
-                    ListObjectsRequest req = new ListObjectsRequest();
-                    req.setBucketName(getBucketName());
-                    req.setPrefix(getPrefix());
-                    req.setMaxKeys(getBatchSize());
-                    currentListing = getS3().listObjects(req);
+                    if ( currentIterator == null ) {
+                        currentIterator = Collections.<S3ObjectSummary>emptyList().iterator();
+                    }
+                    return;
+                }
+                currentIterator = currentListing.getObjectSummaries().iterator();
+            }
+        }
+
+    }
+
+    /**
+     * Lists the objects directly under the prefix and the common prefixes a
+     * page at a time, and lists each common prefix as a separate partition as
+     * it appears, fetching up to {@link #getMaxConcurrentPartitions()} of them
+     * ahead of the caller.
+     */
+    private class PartitionedObjectIterator implements Iterator<S3ObjectSummary> {
+
+        /** The pages of the listing under the delimiter. */
+        private PageFetcher<ObjectListing> topLevel = null;
+        /**
+         * Runs of objects directly under the prefix, and common prefixes, of
+         * the current top level page that haven't been considered yet, in key
+         * order.
+         */
+        private final LinkedList<Object> pending = new LinkedList<Object>();
+        /**
+         * Runs of objects and started partitions, in key order, that come
+         * before everything in {@link #pending}.
+         */
+        private final LinkedList<Object> ready = new LinkedList<Object>();
+        /** The number of started partitions in {@link #ready}. */
+        private int startedPartitions = 0;
+
+        private PageFetcher<ObjectListing> currentPartition = null;
+        private Iterator<S3ObjectSummary> currentIterator = null;
+
+        @Override
+        public boolean hasNext() {
+            return prepareCurrentIterator();
+        }
+
+        @Override
+        public S3ObjectSummary next() {
+            if ( !prepareCurrentIterator() ) {
+                throw new NoSuchElementException();
+            }
+            return currentIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean prepareCurrentIterator() {
+            if ( topLevel == null ) {
+                topLevel = newPageFetcher(getPrefix(), getPartitionDelimiter(), getPrefetchDepth());
+                topLevel.start();
+            }
+            while ( currentIterator == null || !currentIterator.hasNext() ) {
+                if ( currentPartition != null ) {
+                    ObjectListing listing = currentPartition.nextPage();
+                    if ( listing != null ) {
+                        currentIterator = listing.getObjectSummaries().iterator();
+                        continue;
+                    }
+                    currentPartition = null;
+                }
+                Object segment = nextSegment();
+                if ( segment == null ) {
+                    return false;
+                }
+                if ( segment instanceof PageFetcher ) {
+                    currentPartition = (PageFetcher<ObjectListing>) segment;
+                    startedPartitions--;
+                    startPartitions();
                 } else {
-                    currentListing = getS3().listNextBatchOfObjects(currentListing);
+                    currentIterator = ((List<S3ObjectSummary>) segment).iterator();
                 }
+            }
+            return true;
+        }
 
-                currentIterator = currentListing.getObjectSummaries().iterator();
+        /**
+         * Returns the next run of objects or started partition; or null if
+         * the listing is exhausted.
+         */
+        private Object nextSegment() {
+            while ( ready.isEmpty() ) {
+                if ( !pending.isEmpty() ) {
+                    advance();
+                } else if ( !readTopLevelPage() ) {
+                    return null;
+                }
+            }
+            return ready.poll();
+        }
+
+        private void startPartitions() {
+            while ( startedPartitions < getMaxConcurrentPartitions() && !pending.isEmpty() ) {
+                advance();
+            }
+        }
+
+        /**
+         * Moves the first pending segment to the ready ones, starting the
+         * partition if it is a common prefix.
+         */
+        private void advance() {
+            Object segment = pending.poll();
+            if ( segment instanceof String ) {
+                PageFetcher<ObjectListing> partition = newPageFetcher(
+                        (String) segment, null, Math.max(1, getPrefetchDepth()));
+                partition.start();
+                segment = partition;
+                startedPartitions++;
+            }
+            ready.add(segment);
+        }
+
+        /**
+         * Merges the objects and the common prefixes of the next top level
+         * page into the pending segments.
+         *
+         * @return false if there are no more pages
+         */
+        private boolean readTopLevelPage() {
+            ObjectListing listing = topLevel.nextPage();
+            if ( listing == null ) {
+                return false;
+            }
+            // Both lists are in key order, and come after everything on the
+            // previous pages; merge them, grouping adjacent objects together.
+            List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+            List<String> commonPrefixes = listing.getCommonPrefixes();
+            List<S3ObjectSummary> run = null;
+            int i = 0;
+            int j = 0;
+            while ( i < summaries.size() || j < commonPrefixes.size() ) {
+                if ( j == commonPrefixes.size() || (i < summaries.size()
+                        && compareKeys(summaries.get(i).getKey(), commonPrefixes.get(j)) < 0) ) {
+                    if ( run == null ) {
+                        run = new ArrayList<S3ObjectSummary>();
+                        pending.add(run);
+                    }
+                    run.add(summaries.get(i++));
+                } else {
+                    run = null;
+                    pending.add(commonPrefixes.get(j++));
+                }
+            }
+            startPartitions();
+            return true;
+        }
+
+    }
+
+    /**
+     * Compares two keys the way Amazon S3 orders them, i.e. by their UTF-8
+     * bytes, which is the same as comparing their code points.
+     */
+    private static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while ( i < a.length() && j < b.length() ) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if ( x != y ) {
+                return x < y ? -1 : 1;
             }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
         }
+        return (a.length() - i) - (b.length() - j);
+    }
+
+    private PageFetcher<ObjectListing> newPageFetcher(final String prefix,
+            final String delimiter, int prefetchDepth) {
+        PageFetcher<ObjectListing> fetcher = new PageFetcher<ObjectListing>(
+                getExecutorService(), prefetchDepth) {
+            @Override
+            protected ObjectListing fetchFirstPage() {
+                ListObjectsRequest req = new ListObjectsRequest();
+                req.setBucketName(getBucketName());
+                req.setPrefix(prefix);
+                req.setDelimiter(delimiter);
+                req.setMaxKeys(getBatchSize());
+                return getS3().listObjects(req);
+            }
+
+            @Override
+            protected ObjectListing fetchNextPage(ObjectListing previousPage) {
+                return getS3().listNextBatchOfObjects(previousPage);
+            }
 
+            @Override
+            protected boolean isTruncated(ObjectListing page) {
+                return page.isTruncated();
+            }
+        };
+        synchronized ( fetchers ) {
+            if ( cancelled ) {
+                fetcher.cancel();
+            } else {
+                fetchers.add(fetcher);
+            }
+        }
+        return fetcher;
     }
 
     @Override
     public Iterator<S3ObjectSummary> iterator() {
-        return new S3ObjectIterator();
+        if ( getPartitionDelimiter() != null ) {
+            if ( getExecutorService() == null ) {
+                throw new IllegalStateException(
+                        "An executor service is required to list partitions concurrently");
+            }
+            return new PartitionedObjectIterator();
+        }
+        if ( getPrefetchDepth() > 0 && getExecutorService() == null ) {
+            throw new IllegalStateException("An executor service is required to prefetch pages");
+        }
+        return new S3ObjectIterator(newPageFetcher(getPrefix(), null, getPrefetchDepth()));
     }
 
 }
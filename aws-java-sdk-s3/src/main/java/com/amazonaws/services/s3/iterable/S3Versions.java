@@ -14,7 +14,11 @@
  */
 package com.amazonaws.services.s3.iterable;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.ListVersionsRequest;
@@ -33,7 +37,11 @@ import com.amazonaws.services.s3.model.VersionListing;
  * <p>
  * The list of {@link S3VersionSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
- * {@link S3Versions#withBatchSize(int)} method.
+ * {@link S3Versions#withBatchSize(int)} method, and the following pages can
+ * be fetched in the background with the
+ * {@link S3Versions#withPrefetch(int, ExecutorService)} method. An iterator
+ * that is abandoned before the end of a prefetched listing keeps its fetched
+ * pages until {@link #cancel()} is called.
  */
 public class S3Versions implements Iterable<S3VersionSummary> {
 
@@ -42,6 +50,17 @@ public class S3Versions implements Iterable<S3VersionSummary> {
     private String prefix;
     private String key;
     private Integer batchSize;
+    private int prefetchDepth;
+    private ExecutorService executorService;
+
+    /**
+     * The page fetchers created for the iterators of this iterable, which
+     * {@link #cancel()} stops; guarded by itself.
+     */
+    private final Set<PageFetcher<?>> fetchers =
+            Collections.newSetFromMap(new WeakHashMap<PageFetcher<?>, Boolean>());
+    /** Whether {@link #cancel()} has been called; guarded by fetchers. */
+    private boolean cancelled = false;
 
     private S3Versions(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -111,10 +130,54 @@ public class S3Versions implements Iterable<S3VersionSummary> {
         return this;
     }
 
+    /**
+     * Enables fetching up to the given number of pages ahead in the
+     * background, using the given executor, while the caller consumes the
+     * current page.
+     *
+     * @param prefetchDepth
+     *            How many pages to fetch ahead; zero disables prefetching.
+     * @param executorService
+     *            The executor to fetch the pages with. It is not shut down by
+     *            this class.
+     */
+    public S3Versions withPrefetch(int prefetchDepth, ExecutorService executorService) {
+        if (prefetchDepth < 0) {
+            throw new IllegalArgumentException("The prefetch depth must not be negative");
+        }
+        this.prefetchDepth = prefetchDepth;
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Stops fetching pages for every iterator of this iterable, and drops the
+     * pages fetched ahead. Each iterator may still return the summaries it
+     * already holds, and then has no more elements; iterators created
+     * afterwards are empty.
+     */
+    public void cancel() {
+        synchronized (fetchers) {
+            cancelled = true;
+            for (PageFetcher<?> fetcher : fetchers) {
+                fetcher.cancel();
+            }
+            fetchers.clear();
+        }
+    }
+
     public Integer getBatchSize() {
         return batchSize;
     }
 
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
     public String getPrefix() {
         return prefix;
     }
@@ -133,10 +196,14 @@ public class S3Versions implements Iterable<S3VersionSummary> {
 
     private class VersionIterator implements Iterator<S3VersionSummary> {
 
-        private VersionListing currentListing = null;
+        private final PageFetcher<VersionListing> pages;
         private Iterator<S3VersionSummary> currentIterator = null;
         private S3VersionSummary nextSummary = null;
 
+        VersionIterator(PageFetcher<VersionListing> pages) {
+            this.pages = pages;
+        }
+
         @Override
         public boolean hasNext() {
             prepareCurrentListing();
@@ -167,24 +234,11 @@ public class S3Versions implements Iterable<S3VersionSummary> {
         }
 
         private void prepareCurrentListing() {
-            while (currentListing == null
-                    || (!currentIterator.hasNext() && currentListing
-                            .isTruncated())) {
+            while (nextSummary == null
+                    && (currentIterator == null || !currentIterator.hasNext())) {
+                VersionListing currentListing = pages.nextPage();
                 if (currentListing == null) {
-                    ListVersionsRequest req = new ListVersionsRequest();
-                    req.setBucketName(getBucketName());
-
-                    if (getKey() != null) {
-                        req.setPrefix(getKey());
-                    } else {
-                        req.setPrefix(getPrefix());
-                    }
-
-                    req.setMaxResults(getBatchSize());
-                    currentListing = getS3().listVersions(req);
-                } else {
-                    currentListing = getS3().listNextBatchOfVersions(
-                            currentListing);
+                    return;
                 }
                 currentIterator = currentListing.getVersionSummaries()
                         .iterator();
@@ -197,9 +251,50 @@ public class S3Versions implements Iterable<S3VersionSummary> {
 
     }
 
+    private PageFetcher<VersionListing> newPageFetcher() {
+        PageFetcher<VersionListing> fetcher = new PageFetcher<VersionListing>(
+                getExecutorService(), getPrefetchDepth()) {
+            @Override
+            protected VersionListing fetchFirstPage() {
+                ListVersionsRequest req = new ListVersionsRequest();
+                req.setBucketName(getBucketName());
+
+                if (getKey() != null) {
+                    req.setPrefix(getKey());
+                } else {
+                    req.setPrefix(getPrefix());
+                }
+
+                req.setMaxResults(getBatchSize());
+                return getS3().listVersions(req);
+            }
+
+            @Override
+            protected VersionListing fetchNextPage(VersionListing previousPage) {
+                return getS3().listNextBatchOfVersions(previousPage);
+            }
+
+            @Override
+            protected boolean isTruncated(VersionListing page) {
+                return page.isTruncated();
+            }
+        };
+        synchronized (fetchers) {
+            if (cancelled) {
+                fetcher.cancel();
+            } else {
+                fetchers.add(fetcher);
+            }
+        }
+        return fetcher;
+    }
+
     @Override
     public Iterator<S3VersionSummary> iterator() {
-        return new VersionIterator();
+        if (getPrefetchDepth() > 0 && getExecutorService() == null) {
+            throw new IllegalStateException("An executor service is required to prefetch pages");
+        }
+        return new VersionIterator(newPageFetcher());
     }
 
 }
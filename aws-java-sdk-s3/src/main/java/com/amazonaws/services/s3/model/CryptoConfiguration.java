@@ -27,6 +27,11 @@ import com.amazonaws.services.s3.internal.crypto.CryptoRuntime;
  * used during encryption and decryption.
  */
 public class CryptoConfiguration implements Cloneable {
+    /**
+     * The default size in bytes of the chunks of content that are encrypted or
+     * decrypted at a time.
+     */
+    public static final int DEFAULT_CIPHER_BUFFER_SIZE = 1024 * 16;
     private CryptoMode cryptoMode;
     private CryptoStorageMode storageMode;
     private Provider cryptoProvider;
@@ -43,6 +48,11 @@ public class CryptoConfiguration implements Cloneable {
      * null if no explicit KMS region is specified.
      */
     private Regions kmsRegion;
+    /**
+     * The size in bytes of the chunks of content that are encrypted or
+     * decrypted at a time.
+     */
+    private int cipherBufferSize = DEFAULT_CIPHER_BUFFER_SIZE;
 
     /**
      * Creates a new CryptoConfiguration object with default storage mode and
@@ -283,6 +293,12 @@ public class CryptoConfiguration implements Cloneable {
         @Override public CryptoConfiguration withKmsRegion(Regions kmsRegion) {
             throw new UnsupportedOperationException();
         }
+        @Override public void setCipherBufferSize(int cipherBufferSize) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withCipherBufferSize(int cipherBufferSize) {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
@@ -305,6 +321,7 @@ public class CryptoConfiguration implements Cloneable {
         that.cryptoProvider = this.cryptoProvider;
         that.ignoreMissingInstructionFile = this.ignoreMissingInstructionFile;
         that.kmsRegion = this.kmsRegion;
+        that.cipherBufferSize = this.cipherBufferSize;
         return that;
     }
 
@@ -342,4 +359,40 @@ public class CryptoConfiguration implements Cloneable {
         this.kmsRegion = kmsRegion;
         return this;
     }
+
+    /**
+     * Returns the size in bytes of the chunks of content that are encrypted or
+     * decrypted at a time. Default is {@link #DEFAULT_CIPHER_BUFFER_SIZE}.
+     */
+    public int getCipherBufferSize() {
+        return cipherBufferSize;
+    }
+
+    /**
+     * Sets the size in bytes of the chunks of content that are encrypted or
+     * decrypted at a time. A larger size reduces the per-chunk overhead of the
+     * cipher at the cost of memory held by each encrypted or decrypted stream.
+     *
+     * @param cipherBufferSize
+     *            a positive multiple of 512
+     */
+    public void setCipherBufferSize(int cipherBufferSize) {
+        if (cipherBufferSize <= 0 || cipherBufferSize % 512 != 0) {
+            throw new IllegalArgumentException("cipherBufferSize ("
+                    + cipherBufferSize + ") must be a positive multiple of 512");
+        }
+        this.cipherBufferSize = cipherBufferSize;
+    }
+
+    /**
+     * Fluent API for setting the size in bytes of the chunks of content that
+     * are encrypted or decrypted at a time.
+     *
+     * @param cipherBufferSize
+     *            a positive multiple of 512
+     */
+    public CryptoConfiguration withCipherBufferSize(int cipherBufferSize) {
+        setCipherBufferSize(cipherBufferSize);
+        return this;
+    }
 }
@@ -30,6 +30,8 @@ import com.amazonaws.services.s3.AmazonS3EncryptionClient;
  * <li>specify encryption material description on a per-request basis;</li>
  * <li>specify whether a new set of encryption material is to be created for the
  * upload or not;</li>
+ * <li>specify whether the parts of the upload are to be encrypted and uploaded
+ * in parallel or not;</li>
  * </ul>
  * In particular, {@link EncryptedInitiateMultipartUploadRequest} is only
  * recognized by {@link AmazonS3EncryptionClient}.
@@ -50,6 +52,11 @@ public class EncryptedInitiateMultipartUploadRequest extends
      * otherwise. Default is true.
      */
     private boolean createEncryptionMaterial = true;
+    /**
+     * True if the parts of the upload are to be encrypted and uploaded in
+     * parallel; false otherwise. Default is false.
+     */
+    private boolean parallelPartUpload;
     
     public EncryptedInitiateMultipartUploadRequest(String bucketName, String key) {
         super(bucketName, key);
@@ -111,4 +118,41 @@ public class EncryptedInitiateMultipartUploadRequest extends
         this.createEncryptionMaterial = createEncryptionMaterial;
         return this;
     }
+
+    /**
+     * Returns true if the parts of the upload are to be encrypted and uploaded
+     * in parallel; false otherwise. Default is false.
+     */
+    public boolean isParallelPartUpload() {
+        return parallelPartUpload;
+    }
+
+    /**
+     * Specifies whether the parts of the upload are to be encrypted and
+     * uploaded in parallel, and in any order, rather than in series. This is
+     * only supported in the authenticated encryption modes, and requires all
+     * the parts but the last to have the same size, which must be a multiple
+     * of 16 bytes (the AES block size), and the last part to be uploaded after
+     * all the other parts. A part that breaks any of these rules fails to
+     * upload with an {@link com.amazonaws.AmazonClientException}, before any
+     * of its content is sent. The encrypted object is the same as if its parts
+     * had been uploaded in series.
+     *
+     * @param parallelPartUpload
+     *            true if the parts of the upload are to be encrypted and
+     *            uploaded in parallel; false otherwise.
+     * @see AmazonS3EncryptionClient#isParallelPartUploadSupported()
+     */
+    public void setParallelPartUpload(boolean parallelPartUpload) {
+        this.parallelPartUpload = parallelPartUpload;
+    }
+
+    /**
+     * Fluent API for {@link #setParallelPartUpload(boolean)}.
+     */
+    public EncryptedInitiateMultipartUploadRequest withParallelPartUpload(
+            boolean parallelPartUpload) {
+        setParallelPartUpload(parallelPartUpload);
+        return this;
+    }
 }
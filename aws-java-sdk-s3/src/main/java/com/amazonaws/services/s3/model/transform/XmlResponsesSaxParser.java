@@ -17,13 +17,8 @@
  */
 package com.amazonaws.services.s3.model.transform;
 
-import static com.amazonaws.util.StringUtils.UTF8;
-
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -42,6 +37,7 @@ import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.internal.CarriageReturnEscapingInputStream;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.ObjectExpirationResult;
@@ -99,7 +95,14 @@ import com.amazonaws.util.DateUtils;
 public class XmlResponsesSaxParser {
     private static final Log log = LogFactory.getLog(XmlResponsesSaxParser.class);
 
-    private XMLReader xr = null;
+    /**
+     * XML readers are expensive to look up and create, but not thread safe, so
+     * each thread reuses its own.
+     */
+    private static final ThreadLocal<XMLReader> xmlReaders = new ThreadLocal<XMLReader>();
+
+    /** Handler set on an idle XML reader, so it won't hold on to the last one. */
+    private static final DefaultHandler NO_OP_HANDLER = new DefaultHandler();
 
     private boolean sanitizeXmlDocument = true;
 
@@ -110,11 +113,23 @@ public class XmlResponsesSaxParser {
      */
     public XmlResponsesSaxParser() throws AmazonClientException {
         // Ensure we can load the XML Reader.
-        try {
-            xr = XMLReaderFactory.createXMLReader();
-        } catch (SAXException e) {
-            throw new AmazonClientException("Couldn't initialize a SAX driver to create an XMLReader", e);
+        getXmlReader();
+    }
+
+    /**
+     * Returns the XML reader of the current thread, creating it if necessary.
+     */
+    private static XMLReader getXmlReader() throws AmazonClientException {
+        XMLReader xr = xmlReaders.get();
+        if (xr == null) {
+            try {
+                xr = XMLReaderFactory.createXMLReader();
+            } catch (SAXException e) {
+                throw new AmazonClientException("Couldn't initialize a SAX driver to create an XMLReader", e);
+            }
+            xmlReaders.set(xr);
         }
+        return xr;
     }
 
     /**
@@ -138,16 +153,25 @@ public class XmlResponsesSaxParser {
                 log.debug("Parsing XML response document with handler: " + handler.getClass());
             }
 
-            BufferedReader breader = new BufferedReader(new InputStreamReader(inputStream,
-                Constants.DEFAULT_ENCODING));
+            InputSource source = new InputSource(inputStream);
+            source.setEncoding(Constants.DEFAULT_ENCODING);
+            XMLReader xr = getXmlReader();
             xr.setContentHandler(handler);
             xr.setErrorHandler(handler);
-            xr.parse(new InputSource(breader));
+            try {
+                xr.parse(source);
+            } finally {
+                xr.setContentHandler(NO_OP_HANDLER);
+                xr.setErrorHandler(NO_OP_HANDLER);
+            }
 
         } catch (IOException e) {
+            // Don't reuse a reader that failed mid-document
+            xmlReaders.remove();
             throw e;
 
         } catch (Throwable t) {
+            xmlReaders.remove();
             try {
                 inputStream.close();
             } catch (IOException e) {
@@ -171,52 +195,13 @@ public class XmlResponsesSaxParser {
                 log.debug("Sanitizing XML document destined for handler " + handler.getClass());
             }
 
-            InputStream sanitizedInputStream = null;
-
-            try {
-
-                /*
-                 * Read object listing XML document from input stream provided into a
-                 * string buffer, so we can replace troublesome characters before
-                 * sending the document to the XML parser.
-                 */
-                StringBuilder listingDocBuffer = new StringBuilder();
-                BufferedReader br = new BufferedReader(
-                    new InputStreamReader(inputStream, Constants.DEFAULT_ENCODING));
-
-                char[] buf = new char[8192];
-                int read = -1;
-                while ((read = br.read(buf)) != -1) {
-                    listingDocBuffer.append(buf, 0, read);
-                }
-                br.close();
-
-                /*
-                 * Replace any carriage return (\r) characters with explicit XML
-                 * character entities, to prevent the SAX parser from
-                 * misinterpreting 0x0D characters as 0x0A and being unable to
-                 * parse the XML.
-                 */
-                String listingDoc = listingDocBuffer.toString().replaceAll("\r", "&#013;");
-
-                sanitizedInputStream = new ByteArrayInputStream(
-                    listingDoc.getBytes(UTF8));
-
-            } catch (IOException e) {
-                throw e;
-
-            } catch (Throwable t) {
-                try {
-                    inputStream.close();
-                } catch (IOException e) {
-                    if (log.isErrorEnabled()) {
-                        log.error("Unable to close response InputStream after failure sanitizing XML document", e);
-                    }
-                }
-                throw new AmazonClientException("Failed to sanitize XML document destined for handler "
-                    + handler.getClass(), t);
-            }
-            return sanitizedInputStream;
+            /*
+             * Replace any carriage return (\r) characters with explicit XML
+             * character entities as the document is parsed, to prevent the SAX
+             * parser from misinterpreting 0x0D characters as 0x0A and being
+             * unable to parse the XML.
+             */
+            return new CarriageReturnEscapingInputStream(inputStream);
         }
     }
 
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventFilter;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.internal.FileLocks;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.services.s3.transfer.exception.FileLockException;
+import com.amazonaws.services.s3.transfer.internal.AbstractTransfer;
+import com.amazonaws.services.s3.transfer.internal.DownloadImpl;
+
+/**
+ * Downloads an object in byte ranges that are fetched concurrently, and
+ * written directly to their offsets in the destination file.
+ * <p>
+ * Each range is requested with the ETag of the object as a matching
+ * constraint, so the download fails instead of mixing the contents of
+ * different versions if the object is modified meanwhile. Parts that have
+ * already been downloaded, as recorded when a download is paused, are skipped.
+ * <p>
+ * Each part writes through its own channel to the file. A thread interrupted
+ * while writing, e.g. by the download being paused, closes its channel, which
+ * would fail every other part if the channel were shared. The other parts are
+ * stopped by aborting their contents and checking {@link #aborted} instead.
+ */
+final class ParallelDownloadCallable implements Callable<File> {
+    private static final Log log = LogFactory.getLog(ParallelDownloadCallable.class);
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    /**
+     * Blocks the STARTED events of the part requests; the download publishes
+     * a single one itself.
+     */
+    private static final ProgressEventFilter PART_STARTED_FILTER = new ProgressEventFilter() {
+        @Override
+        public ProgressEvent filter(ProgressEvent progressEvent) {
+            return progressEvent.getEventType() == ProgressEventType.TRANSFER_STARTED_EVENT
+                 ? null
+                 : progressEvent
+                 ;
+        }
+    };
+
+    private final AmazonS3 s3;
+    private final ExecutorService threadPool;
+    private final CountDownLatch latch;
+    private final GetObjectRequest req;
+    private final DownloadImpl download;
+    private final File dstfile;
+    private final String eTag;
+    private final long startingByte;
+    private final long lastByte;
+    private final long partSize;
+    private final Collection<Integer> downloadedParts;
+    private final boolean resumeExistingDownload;
+    /** The listener of the part requests. */
+    private final ProgressListener partListener;
+    /** Set once the parts still running should stop writing to the file. */
+    private volatile boolean aborted;
+
+    ParallelDownloadCallable(AmazonS3 s3, ExecutorService threadPool,
+            CountDownLatch latch, GetObjectRequest req, DownloadImpl download,
+            File dstfile, String eTag, long startingByte, long lastByte,
+            long partSize, Collection<Integer> downloadedParts,
+            boolean resumeExistingDownload) {
+        if (s3 == null || threadPool == null || latch == null || req == null
+                || dstfile == null || download == null || eTag == null)
+            throw new IllegalArgumentException();
+        this.s3 = s3;
+        this.threadPool = threadPool;
+        this.latch = latch;
+        this.req = req;
+        this.download = download;
+        this.dstfile = dstfile;
+        this.eTag = eTag;
+        this.startingByte = startingByte;
+        this.lastByte = lastByte;
+        this.partSize = partSize;
+        this.downloadedParts = downloadedParts;
+        this.resumeExistingDownload = resumeExistingDownload;
+        // The listener of the request already blocks the COMPLETED events
+        this.partListener = new ProgressListenerChain(PART_STARTED_FILTER,
+                req.getGeneralProgressListener());
+    }
+
+    /**
+     * This method must return a non-null object, or else the existing
+     * implementation in {@link AbstractTransfer#waitForCompletion()}
+     * would block forever.
+     *
+     * @return the downloaded file
+     */
+    @Override
+    public File call() throws Exception {
+        try {
+            latch.await();
+            download.setState(TransferState.InProgress);
+            publishProgress(req.getGeneralProgressListener(),
+                    ProgressEventType.TRANSFER_STARTED_EVENT);
+            downloadInParts();
+            download.setState(TransferState.Completed);
+            return dstfile;
+        } catch (Throwable t) {
+            // Downloads aren't allowed to move from canceled to failed
+            if (download.getState() != TransferState.Canceled) {
+                download.setState(TransferState.Failed);
+            }
+            if (t instanceof Exception)
+                throw (Exception) t;
+            else
+                throw (Error) t;
+        }
+    }
+
+    private void downloadInParts() throws Exception {
+        // attempt to create the parent if it doesn't exist
+        File parentDirectory = dstfile.getParentFile();
+        if ( parentDirectory != null && !parentDirectory.exists() ) {
+            if (!(parentDirectory.mkdirs())) {
+                throw new AmazonClientException(
+                        "Unable to create directory in the path"
+                                + parentDirectory.getAbsolutePath());
+            }
+        }
+
+        if (!FileLocks.lock(dstfile)) {
+            throw new FileLockException("Fail to lock " + dstfile
+                    + " for parallel download");
+        }
+        RandomAccessFile raf = null;
+        List<FutureTask<Void>> parts = new ArrayList<FutureTask<Void>>();
+        try {
+            long totalBytes = lastByte - startingByte + 1;
+            raf = new RandomAccessFile(dstfile, "rw");
+            if (!resumeExistingDownload || raf.length() != totalBytes) {
+                raf.setLength(totalBytes);
+            }
+
+            int numberOfParts = (int) ((totalBytes + partSize - 1) / partSize);
+            for (int i = 0; i < numberOfParts; i++) {
+                if (downloadedParts.contains(i)) {
+                    continue;
+                }
+                final int partIndex = i;
+                final long offset = i * partSize;
+                final long length = Math.min(partSize, totalBytes - offset);
+                FutureTask<Void> part = new FutureTask<Void>(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        downloadPart(partIndex, offset, length);
+                        return null;
+                    }
+                });
+                parts.add(part);
+                threadPool.execute(part);
+            }
+
+            for (FutureTask<Void> part : parts) {
+                // Download the part in this thread if the pool hasn't started
+                // it yet, so a small or busy thread pool can't stall us
+                part.run();
+                try {
+                    part.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+            raf.getChannel().force(false);
+        } finally {
+            // Interrupting the parts would only stop those blocked on their
+            // channel, and reading the contents isn't interruptible anyway
+            aborted = true;
+            for (FutureTask<Void> part : parts) {
+                part.cancel(false);
+            }
+            download.abortPartDownloads();
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close file " + dstfile, e);
+                }
+            }
+            FileLocks.unlock(dstfile);
+        }
+    }
+
+    /**
+     * Downloads the given range of the object into the file, retrying once if
+     * the content could not be read completely.
+     */
+    private void downloadPart(int partIndex, long offset, long length)
+            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(dstfile, "rw");
+        try {
+            downloadPart(raf.getChannel(), partIndex, offset, length);
+        } finally {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                log.debug("Unable to close file " + dstfile, e);
+            }
+        }
+    }
+
+    private void downloadPart(FileChannel channel, int partIndex, long offset,
+            long length) throws IOException {
+        boolean hasRetried = false;
+        for (;;) {
+            S3Object s3Object = s3.getObject(newPartRequest(offset, length));
+            if (s3Object == null) {
+                throw new AmazonClientException("Unable to download "
+                        + req.getBucketName() + "/" + req.getKey()
+                        + ": the object has been modified since the download started");
+            }
+            try {
+                if (!download.partDownloadStarted(s3Object)) {
+                    throw new AmazonClientException("Unable to download "
+                            + req.getBucketName() + "/" + req.getKey()
+                            + ": the download has been aborted");
+                }
+                String partETag = s3Object.getObjectMetadata().getETag();
+                if (partETag != null && !eTag.equals(partETag)) {
+                    throw new AmazonClientException("Unable to download "
+                            + req.getBucketName() + "/" + req.getKey()
+                            + ": expected ETag " + eTag + " but got " + partETag);
+                }
+                writePart(s3Object.getObjectContent(), channel, offset, length);
+                download.partDownloaded(partIndex);
+                return;
+            } catch (ClosedByInterruptException e) {
+                throw e;
+            } catch (IOException e) {
+                if (hasRetried || aborted || Thread.currentThread().isInterrupted())
+                    throw e;
+                log.info("Retry the download of range " + offset + "-"
+                        + (offset + length - 1) + " of object " + req.getKey()
+                        + " (bucket " + req.getBucketName() + ")", e);
+                hasRetried = true;
+            } finally {
+                download.partDownloadEnded(s3Object);
+                s3Object.getObjectContent().abort();
+            }
+        }
+    }
+
+    private void writePart(InputStream content, FileChannel channel,
+            long offset, long length) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = offset;
+        long end = offset + length;
+        int bytesRead;
+        while (position < end && (bytesRead = content.read(buffer)) > -1) {
+            if (aborted) {
+                throw new AmazonClientException("Unable to download "
+                        + req.getBucketName() + "/" + req.getKey()
+                        + ": the download has been aborted");
+            }
+            ByteBuffer bb = ByteBuffer.wrap(buffer, 0,
+                    (int) Math.min(bytesRead, end - position));
+            while (bb.hasRemaining()) {
+                position += channel.write(bb, position);
+            }
+        }
+        if (position != end) {
+            throw new IOException("Expected " + length + " bytes at offset "
+                    + offset + " but received " + (position - offset));
+        }
+    }
+
+    private GetObjectRequest newPartRequest(long offset, long length) {
+        GetObjectRequest partReq = new GetObjectRequest(req.getBucketName(),
+                req.getKey(), req.getVersionId())
+            .withMatchingETagConstraint(eTag)
+            .withResponseHeaders(req.getResponseHeaders())
+            .withSSECustomerKey(req.getSSECustomerKey())
+            .withGeneralProgressListener(partListener)
+            .withRequestMetricCollector(req.getRequestMetricCollector())
+            ;
+        partReq.setRequesterPays(req.isRequesterPays());
+        partReq.setRange(startingByte + offset, startingByte + offset + length - 1);
+        return partReq;
+    }
+}
@@ -63,10 +63,37 @@ public final class PersistableDownload extends PersistableTransfer {
     @JsonProperty
     private final String file;
 
+    /**
+     * The ETag of the object, if it is downloaded in parallel parts.
+     */
+    @JsonProperty
+    private final String eTag;
+
+    /**
+     * The size of the parts, if the object is downloaded in parallel parts;
+     * otherwise zero.
+     */
+    @JsonProperty
+    private final long partSize;
+
+    /**
+     * The (zero-based) indexes of the parts that have already been written to
+     * the file, if the object is downloaded in parallel parts.
+     */
+    @JsonProperty
+    private final int[] downloadedParts;
+
     public PersistableDownload() {
         this(null, null, null, null, null, false, null);
     }
 
+    public PersistableDownload(String bucketName, String key, String versionId,
+            long[] range, ResponseHeaderOverrides responseHeaders,
+            boolean isRequesterPays, String file) {
+        this(bucketName, key, versionId, range, responseHeaders,
+                isRequesterPays, file, null, 0, null);
+    }
+
     public PersistableDownload(
             @JsonProperty(value = "bucketName") String bucketName,
             @JsonProperty(value = "key") String key,
@@ -74,7 +101,10 @@ public final class PersistableDownload extends PersistableTransfer {
             @JsonProperty(value = "range") long[] range,
             @JsonProperty(value = "responseHeaders") ResponseHeaderOverrides responseHeaders,
             @JsonProperty(value = "isRequesterPays") boolean isRequesterPays,
-            @JsonProperty(value = "file") String file) {
+            @JsonProperty(value = "file") String file,
+            @JsonProperty(value = "eTag") String eTag,
+            @JsonProperty(value = "partSize") long partSize,
+            @JsonProperty(value = "downloadedParts") int[] downloadedParts) {
         this.bucketName = bucketName;
         this.key = key;
         this.versionId = versionId;
@@ -82,6 +112,9 @@ public final class PersistableDownload extends PersistableTransfer {
         this.responseHeaders = responseHeaders;
         this.isRequesterPays = isRequesterPays;
         this.file = file;
+        this.eTag = eTag;
+        this.partSize = partSize;
+        this.downloadedParts = downloadedParts == null ? null : downloadedParts.clone();
     }
 
     /**
@@ -134,6 +167,29 @@ public final class PersistableDownload extends PersistableTransfer {
         return file;
     }
 
+    /**
+     * Returns the ETag of the object, if it is downloaded in parallel parts.
+     */
+    String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Returns the size of the parts, if the object is downloaded in parallel
+     * parts; otherwise zero.
+     */
+    long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Returns the indexes of the parts that have already been downloaded, if
+     * the object is downloaded in parallel parts.
+     */
+    int[] getDownloadedParts() {
+        return downloadedParts == null ? null : downloadedParts.clone();
+    }
+
     String getPauseType() {
         return pauseType;
     }
@@ -21,8 +21,10 @@ import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -46,6 +48,7 @@ import com.amazonaws.event.ProgressListener;
 import com.amazonaws.event.ProgressListenerChain;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.AmazonS3Encryption;
 import com.amazonaws.services.s3.internal.FileLocks;
 import com.amazonaws.services.s3.internal.Mimetypes;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
@@ -59,6 +62,7 @@ import com.amazonaws.services.s3.model.MultipartUploadListing;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
 import com.amazonaws.services.s3.transfer.exception.FileLockException;
@@ -688,7 +692,7 @@ public class TransferManager {
      *             request.
      */
     public Download download(final GetObjectRequest getObjectRequest, final File file) {
-        return doDownload(getObjectRequest, file, null, null, OVERWRITE_MODE);
+        return doDownload(getObjectRequest, file, null, null, OVERWRITE_MODE, null);
     }
 
     /**
@@ -730,7 +734,7 @@ public class TransferManager {
     public Download download(final GetObjectRequest getObjectRequest,
             final File file, final S3ProgressListener progressListener) {
         return doDownload(getObjectRequest, file, null, progressListener,
-                OVERWRITE_MODE);
+                OVERWRITE_MODE, null);
     }
 
     /**
@@ -742,7 +746,8 @@ public class TransferManager {
     private Download doDownload(final GetObjectRequest getObjectRequest,
             final File file, final TransferStateChangeListener stateListener,
             final S3ProgressListener s3progressListener,
-            final boolean resumeExistingDownload)
+            final boolean resumeExistingDownload,
+            final PersistableDownload persistableDownload)
     {
         appendSingleObjectUserAgent(getObjectRequest);
         String description = "Downloading from " + getObjectRequest.getBucketName() + "/" + getObjectRequest.getKey();
@@ -763,6 +768,7 @@ public class TransferManager {
 
         long startingByte = 0;
         long lastByte;
+        ObjectMetadata objectMetadata = null;
 
         long[] range = getObjectRequest.getRange();
         if (range != null
@@ -770,16 +776,24 @@ public class TransferManager {
             startingByte = range[0];
             lastByte = range[1];
         } else {
-            GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
-                    getObjectRequest.getBucketName(), getObjectRequest.getKey());
-            if (getObjectRequest.getSSECustomerKey() != null)
-                getObjectMetadataRequest.setSSECustomerKey(getObjectRequest.getSSECustomerKey());
-            if (getObjectRequest.getVersionId() != null)
-                getObjectMetadataRequest.setVersionId(getObjectRequest.getVersionId());
-            final ObjectMetadata objectMetadata = s3.getObjectMetadata(getObjectMetadataRequest);
+            objectMetadata = getObjectMetadata(getObjectRequest);
 
             lastByte = objectMetadata.getContentLength() - 1;
         }
+
+        boolean isParallelResume = resumeExistingDownload
+                && persistableDownload != null
+                && persistableDownload.getPartSize() > 0;
+        if (isParallelResume
+                || (!resumeExistingDownload
+                        && !(s3 instanceof AmazonS3Encryption)
+                        && lastByte - startingByte + 1 > configuration.getMultipartDownloadThreshold())) {
+            return doParallelDownload(getObjectRequest, file, description,
+                    transferProgress, listenerChain, stateListener,
+                    startingByte, lastByte, objectMetadata,
+                    isParallelResume ? persistableDownload : null);
+        }
+
         final long origStartingByte = startingByte;
         // We still pass the unfiltered listener chain into DownloadImpl
         final DownloadImpl download = new DownloadImpl(description,
@@ -831,6 +845,84 @@ public class TransferManager {
         return download;
     }
 
+    /**
+     * Schedules the download of an object in parallel byte ranges, resuming
+     * from the given state if not null.
+     */
+    private Download doParallelDownload(final GetObjectRequest getObjectRequest,
+            final File file, final String description,
+            final TransferProgress transferProgress,
+            final S3ProgressListenerChain listenerChain,
+            final TransferStateChangeListener stateListener,
+            final long startingByte, final long lastByte,
+            ObjectMetadata objectMetadata,
+            final PersistableDownload persistableDownload)
+    {
+        if (objectMetadata == null) {
+            objectMetadata = getObjectMetadata(getObjectRequest);
+        }
+        String eTag = objectMetadata.getETag();
+        long totalBytesToDownload = lastByte - startingByte + 1;
+        long partSize;
+        int[] downloadedParts = null;
+
+        if (persistableDownload != null) {
+            if (!eTag.equals(persistableDownload.getETag())) {
+                throw new AmazonClientException("Unable to resume the download of "
+                        + getObjectRequest.getBucketName() + "/" + getObjectRequest.getKey()
+                        + ": the object has been modified since the download was paused");
+            }
+            partSize = persistableDownload.getPartSize();
+            // The downloaded parts are only valid if the file still has the
+            // length it was given when the download started
+            if (file.length() == totalBytesToDownload) {
+                downloadedParts = persistableDownload.getDownloadedParts();
+            }
+        } else {
+            partSize = TransferManagerUtils.calculateOptimalPartSizeForDownload(
+                    totalBytesToDownload, configuration);
+        }
+
+        // The parts are read from their own objects, this one only describes
+        // the whole object being downloaded
+        S3Object s3Object = new S3Object();
+        s3Object.setBucketName(getObjectRequest.getBucketName());
+        s3Object.setKey(getObjectRequest.getKey());
+        s3Object.setObjectMetadata(objectMetadata);
+        final DownloadImpl download = new DownloadImpl(description,
+                transferProgress, listenerChain, s3Object, stateListener,
+                getObjectRequest, file, eTag, partSize, downloadedParts);
+        transferProgress.setTotalBytesToTransfer(totalBytesToDownload);
+
+        Set<Integer> partsToSkip = new HashSet<Integer>();
+        if (downloadedParts != null) {
+            for (int part : downloadedParts) {
+                partsToSkip.add(part);
+                transferProgress.updateProgress(Math.min(partSize,
+                        totalBytesToDownload - part * partSize));
+            }
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<?> future = threadPool.submit(
+            new ParallelDownloadCallable(s3, threadPool, latch,
+                getObjectRequest, download, file, eTag, startingByte,
+                lastByte, partSize, partsToSkip, persistableDownload != null));
+        download.setMonitor(new DownloadMonitor(download, future));
+        latch.countDown();
+        return download;
+    }
+
+    private ObjectMetadata getObjectMetadata(GetObjectRequest getObjectRequest) {
+        GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
+                getObjectRequest.getBucketName(), getObjectRequest.getKey());
+        if (getObjectRequest.getSSECustomerKey() != null)
+            getObjectMetadataRequest.setSSECustomerKey(getObjectRequest.getSSECustomerKey());
+        if (getObjectRequest.getVersionId() != null)
+            getObjectMetadataRequest.setVersionId(getObjectRequest.getVersionId());
+        return s3.getObjectMetadata(getObjectMetadataRequest);
+    }
+
     /**
      * Downloads all objects in the virtual directory designated by the
      * keyPrefix given to the destination directory given. All virtual
@@ -935,7 +1027,7 @@ public class TransferManager {
                                     .<GetObjectRequest>withGeneralProgressListener(
                                             listener),
                             f,
-                            transferListener, null, false));
+                            transferListener, null, false, null));
         }
 
         if ( downloads.isEmpty() ) {
@@ -1546,7 +1638,7 @@ public class TransferManager {
         request.setResponseHeaders(persistableDownload.getResponseHeaders());
 
         return doDownload(request, new File(persistableDownload.getFile()), null, null,
-                APPEND_MODE);
+                APPEND_MODE, persistableDownload);
     }
 
     /**
@@ -39,6 +39,12 @@ public class TransferManagerConfiguration {
     /** Default minimum size of each part for multi-part copy. */
     private static final long DEFAULT_MINIMUM_COPY_PART_SIZE = 100 * MB;
 
+    /** Default limit on the memory used to buffer the parts of a stream upload. */
+    private static final long DEFAULT_UPLOAD_BUFFER_MEMORY_LIMIT = 128 * MB;
+
+    /** Default size threshold for parallel ranged downloads; disabled by default. */
+    private static final long DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD = Long.MAX_VALUE;
+
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size
      * will cause multipart uploads to be split into a larger number of smaller
@@ -77,6 +83,25 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * The maximum amount of memory, in bytes, used to buffer the parts of an
+     * input stream of unknown length while they are uploaded in parallel.
+     * Such an upload fails once a part would be larger than this limit.
+     */
+    private long uploadBufferMemoryLimit = DEFAULT_UPLOAD_BUFFER_MEMORY_LIMIT;
+
+    /**
+     * The size threshold, in bytes, for when to download an object in
+     * parallel byte ranges instead of a single request.
+     */
+    private long multipartDownloadThreshold = DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD;
+
+    /**
+     * Whether the parts of a file upload with client-side authenticated
+     * encryption are encrypted and uploaded in parallel; disabled by default.
+     */
+    private boolean parallelEncryptedPartUpload;
+
     /**
      * Returns the minimum part size for upload parts.
      * Decreasing the minimum part size causes
@@ -192,4 +217,99 @@ public class TransferManagerConfiguration {
     public void setMultipartCopyThreshold(long multipartCopyThreshold) {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the maximum amount of memory, in bytes, used by each upload of
+     * an input stream of unknown length to buffer its parts.
+     * <p>
+     * Such a stream is read into a pool of reusable buffers, and each part is
+     * uploaded in parallel as soon as it has been read; reading pauses when
+     * the buffers are all in use. The part size starts at the minimum upload
+     * part size and grows as the upload goes on, so that streams up to the
+     * maximum object size fit within the maximum number of parts. The upload
+     * fails with an {@link com.amazonaws.AmazonClientException} once a part
+     * would be larger than this limit, so the limit also bounds the size of
+     * such an upload.
+     *
+     * @return The maximum amount of memory used to buffer the parts of a
+     *         stream upload.
+     */
+    public long getUploadBufferMemoryLimit() {
+        return uploadBufferMemoryLimit;
+    }
+
+    /**
+     * Sets the maximum amount of memory, in bytes, used by each upload of an
+     * input stream of unknown length to buffer its parts. Values below the
+     * minimum upload part size allow a single part to be uploaded at a time.
+     *
+     * @param uploadBufferMemoryLimit
+     *            The maximum amount of memory used to buffer the parts of a
+     *            stream upload.
+     */
+    public void setUploadBufferMemoryLimit(long uploadBufferMemoryLimit) {
+        this.uploadBufferMemoryLimit = uploadBufferMemoryLimit;
+    }
+
+    /**
+     * Returns the size threshold in bytes for when to download an object in
+     * parallel parts. Downloads over this size are split into byte ranges,
+     * sized like upload parts, that are fetched concurrently and written
+     * directly to their offsets in the destination file. Each range is only
+     * fetched if the object's ETag still matches, and a paused download
+     * resumes with the ranges that are missing.
+     * <p>
+     * Parallel downloads are disabled by default, and are never used with
+     * client-side encryption.
+     *
+     * @return The size threshold in bytes for when to download an object in
+     *         parallel parts.
+     */
+    public long getMultipartDownloadThreshold() {
+        return multipartDownloadThreshold;
+    }
+
+    /**
+     * Sets the size threshold in bytes for when to download an object in
+     * parallel parts.
+     *
+     * @param multipartDownloadThreshold
+     *            The size threshold in bytes for when to download an object
+     *            in parallel parts.
+     * @see #getMultipartDownloadThreshold()
+     */
+    public void setMultipartDownloadThreshold(long multipartDownloadThreshold) {
+        this.multipartDownloadThreshold = multipartDownloadThreshold;
+    }
+
+    /**
+     * Returns true if the parts of a file upload with client-side
+     * authenticated encryption are encrypted and uploaded in parallel; false
+     * if they are encrypted and uploaded in series, as with other encryption
+     * modes. Default is false.
+     * <p>
+     * Parallel encrypted uploads are only used with an
+     * {@link com.amazonaws.services.s3.AmazonS3EncryptionClient} that supports
+     * them, and cannot be paused and resumed.
+     *
+     * @return True if the parts of an encrypted file upload are uploaded in
+     *         parallel.
+     * @see com.amazonaws.services.s3.model.EncryptedInitiateMultipartUploadRequest#setParallelPartUpload(boolean)
+     */
+    public boolean isParallelEncryptedPartUpload() {
+        return parallelEncryptedPartUpload;
+    }
+
+    /**
+     * Sets whether the parts of a file upload with client-side authenticated
+     * encryption are encrypted and uploaded in parallel.
+     *
+     * @param parallelEncryptedPartUpload
+     *            True if the parts of an encrypted file upload are to be
+     *            uploaded in parallel.
+     * @see #isParallelEncryptedPartUpload()
+     */
+    public void setParallelEncryptedPartUpload(boolean parallelEncryptedPartUpload) {
+        this.parallelEncryptedPartUpload = parallelEncryptedPartUpload;
+    }
+}
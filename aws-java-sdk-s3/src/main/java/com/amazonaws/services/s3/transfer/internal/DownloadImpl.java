@@ -16,6 +16,13 @@ package com.amazonaws.services.s3.transfer.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.event.ProgressListenerChain;
@@ -35,12 +42,60 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      */
     private final PersistableDownload persistableDownload;
 
+    private final GetObjectRequest getObjectRequest;
+    private final File file;
+
+    /** The ETag of the object, if it is downloaded in parallel parts. */
+    private final String eTag;
+
+    /** The size of the parts, if the object is downloaded in parallel parts. */
+    private final long partSize;
+
+    /** The indexes of the parts that have been written to the file. */
+    private final SortedSet<Integer> downloadedParts = new TreeSet<Integer>();
+
+    /** The objects of the parts being downloaded in parallel. */
+    private final Set<S3Object> partObjects =
+            Collections.newSetFromMap(new IdentityHashMap<S3Object, Boolean>());
+
+    /** Whether the parts being downloaded in parallel have been aborted. */
+    private boolean partsAborted;
+
     public DownloadImpl(String description, TransferProgress transferProgress,
             ProgressListenerChain progressListenerChain, S3Object s3Object,
             TransferStateChangeListener listener,
             GetObjectRequest getObjectRequest, File file) {
+        this(description, transferProgress, progressListenerChain, s3Object,
+                listener, getObjectRequest, file, null, 0, null);
+    }
+
+    /**
+     * Constructs a download of an object in parallel parts of the given size.
+     *
+     * @param eTag
+     *            The ETag of the object.
+     * @param partSize
+     *            The size of the parts.
+     * @param downloadedParts
+     *            The indexes of the parts that have already been downloaded,
+     *            if the download is resumed; or null.
+     */
+    public DownloadImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, S3Object s3Object,
+            TransferStateChangeListener listener,
+            GetObjectRequest getObjectRequest, File file,
+            String eTag, long partSize, int[] downloadedParts) {
         super(description, transferProgress, progressListenerChain, listener);
         this.s3Object = s3Object;
+        this.getObjectRequest = getObjectRequest;
+        this.file = file;
+        this.eTag = eTag;
+        this.partSize = partSize;
+        if (downloadedParts != null) {
+            for (int part : downloadedParts) {
+                this.downloadedParts.add(part);
+            }
+        }
         this.persistableDownload = captureDownloadState(getObjectRequest, file);
         S3ProgressPublisher.publishTransferPersistable(progressListenerChain,
                 persistableDownload);
@@ -82,9 +137,10 @@ public class DownloadImpl extends AbstractTransfer implements Download {
 
         this.monitor.getFuture().cancel(true);
 
-        if ( s3Object != null ) {
+        if ( s3Object != null && s3Object.getObjectContent() != null ) {
               s3Object.getObjectContent().abort();
         }
+        abortPartDownloads();
         setState(TransferState.Canceled);
     }
 
@@ -95,6 +151,7 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      */
     public synchronized void abortWithoutNotifyingStateChangeListener() throws IOException {
         this.monitor.getFuture().cancel(true);
+        abortPartDownloads();
         this.state = TransferState.Canceled;
     }
 
@@ -105,6 +162,61 @@ public class DownloadImpl extends AbstractTransfer implements Download {
         this.s3Object = s3Object;
     }
 
+    /**
+     * Records that the given object of a part of a parallel download is being
+     * read, so that its content is aborted if the download is aborted, paused
+     * or fails.
+     *
+     * @return false if the parts have already been aborted, in which case the
+     *         content of the object is aborted.
+     */
+    public boolean partDownloadStarted(S3Object partObject) {
+        synchronized (partObjects) {
+            if (!partsAborted) {
+                partObjects.add(partObject);
+                return true;
+            }
+        }
+        partObject.getObjectContent().abort();
+        return false;
+    }
+
+    /**
+     * Records that the given object of a part of a parallel download is no
+     * longer read.
+     */
+    public void partDownloadEnded(S3Object partObject) {
+        synchronized (partObjects) {
+            partObjects.remove(partObject);
+        }
+    }
+
+    /**
+     * Aborts the contents of all the parts being downloaded in parallel, and
+     * of those to be downloaded afterwards.
+     */
+    public void abortPartDownloads() {
+        List<S3Object> toAbort;
+        synchronized (partObjects) {
+            partsAborted = true;
+            toAbort = new ArrayList<S3Object>(partObjects);
+            partObjects.clear();
+        }
+        for (S3Object partObject : toAbort) {
+            partObject.getObjectContent().abort();
+        }
+    }
+
+    /**
+     * Records that the given part of a parallel download has been written to
+     * the file, so that it is skipped if the download is paused and resumed.
+     */
+    public void partDownloaded(int partIndex) {
+        synchronized (downloadedParts) {
+            downloadedParts.add(partIndex);
+        }
+    }
+
     /**
      * This method is also responsible for firing COMPLETED signal to the
      * listeners.
@@ -125,12 +237,23 @@ public class DownloadImpl extends AbstractTransfer implements Download {
     private PersistableDownload captureDownloadState(
             final GetObjectRequest getObjectRequest, final File file) {
         if (getObjectRequest.getSSECustomerKey() == null) {
+            int[] parts = null;
+            if (partSize > 0) {
+                synchronized (downloadedParts) {
+                    parts = new int[downloadedParts.size()];
+                    int i = 0;
+                    for (int part : downloadedParts) {
+                        parts[i++] = part;
+                    }
+                }
+            }
             return new PersistableDownload(
                     getObjectRequest.getBucketName(),
                     getObjectRequest.getKey(), getObjectRequest.getVersionId(),
                     getObjectRequest.getRange(),
                     getObjectRequest.getResponseHeaders(),
-                    getObjectRequest.isRequesterPays(), file.getAbsolutePath());
+                    getObjectRequest.isRequesterPays(), file.getAbsolutePath(),
+                    eTag, partSize, parts);
         }
         return null;
     }
@@ -145,11 +268,16 @@ public class DownloadImpl extends AbstractTransfer implements Download {
         boolean forceCancel = true;
         TransferState currentState = getState();
         this.monitor.getFuture().cancel(true);
+        abortPartDownloads();
 
         if (persistableDownload == null) {
             throw new PauseException(TransferManagerUtils.determinePauseStatus(
                     currentState, forceCancel));
         }
+        if (partSize > 0) {
+            // Capture the parts that have been downloaded so far
+            return captureDownloadState(getObjectRequest, file);
+        }
         return persistableDownload;
     }
-}
\ No newline at end of file
+}
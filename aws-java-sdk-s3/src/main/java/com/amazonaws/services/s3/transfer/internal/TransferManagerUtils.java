@@ -32,6 +32,9 @@ import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
  */
 public class TransferManagerUtils {
 
+    /** The number of parts after which the part size of a stream upload doubles. */
+    public static final int STREAM_PART_SIZE_DOUBLING_INTERVAL = 500;
+
     /**
      * Returns a new thread pool configured with the default settings.
      *
@@ -114,6 +117,65 @@ public class TransferManagerUtils {
         return (long)Math.max(optimalPartSize, configuration.getMinimumUploadPartSize());
     }
 
+    /**
+     * Returns true if the specified request uploads an input stream of unknown
+     * length, which can be read into buffers and uploaded in parallel parts.
+     *
+     * @param putObjectRequest
+     *            The request to check.
+     * @param isUsingEncryption
+     *            True if the upload is an encrypted upload, otherwise false.
+     *
+     * @return True if this request should be uploaded as a buffered stream.
+     */
+    public static boolean isBufferedStreamUpload(PutObjectRequest putObjectRequest, boolean isUsingEncryption) {
+        // Encrypted parts must be uploaded in order
+        if (isUsingEncryption) return false;
+
+        return putObjectRequest.getInputStream() != null
+                && getContentLength(putObjectRequest) == -1;
+    }
+
+    /**
+     * Returns the size, in bytes, of the given part of a buffered stream
+     * upload. The part size starts at the configured minimum, and doubles every
+     * {@link #STREAM_PART_SIZE_DOUBLING_INTERVAL} parts, so that even the
+     * largest objects fit within the maximum number of parts.
+     *
+     * @param partNumber
+     *            The (one-based) part number.
+     * @param configuration
+     *            Configuration values to use when calculating size.
+     * @param maxPartSize
+     *            The maximum size of a part.
+     *
+     * @return The size of the given part.
+     */
+    public static long calculatePartSizeForStream(int partNumber,
+            TransferManagerConfiguration configuration, long maxPartSize) {
+        int doublings = Math.min((partNumber - 1) / STREAM_PART_SIZE_DOUBLING_INTERVAL, 30);
+        long partSize = configuration.getMinimumUploadPartSize() << doublings;
+        return Math.min(partSize, maxPartSize);
+    }
+
+    /**
+     * Returns the size, in bytes, of the byte ranges to download an object of
+     * the given size in; like upload parts, an object never needs more than
+     * the maximum number of parts.
+     *
+     * @param contentLength
+     *            The number of bytes to download.
+     * @param configuration
+     *            Configuration values to use when calculating size.
+     *
+     * @return The size of each byte range.
+     */
+    public static long calculateOptimalPartSizeForDownload(long contentLength,
+            TransferManagerConfiguration configuration) {
+        long optimalPartSize = (long) Math.ceil((double) contentLength / (double) MAXIMUM_UPLOAD_PARTS);
+        return Math.max(optimalPartSize, configuration.getMinimumUploadPartSize());
+    }
+
     /**
      * Returns true if the the specified request should be processed as a
      * multipart upload (instead of a single part upload).
@@ -15,24 +15,35 @@
 package com.amazonaws.services.s3.transfer.internal;
 
 import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
+import static com.amazonaws.services.s3.internal.Constants.GB;
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+import static com.amazonaws.services.s3.internal.Constants.MB;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.event.ProgressListenerChain;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Encryption;
+import com.amazonaws.services.s3.AmazonS3EncryptionClient;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
@@ -40,6 +51,7 @@ import com.amazonaws.services.s3.model.EncryptedInitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.EncryptedPutObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PartListing;
 import com.amazonaws.services.s3.model.PartSummary;
@@ -54,15 +66,23 @@ import com.amazonaws.services.s3.transfer.TransferProgress;
 import com.amazonaws.services.s3.transfer.model.UploadResult;
 
 public class UploadCallable implements Callable<UploadResult> {
+    /** The size of the arrays that the parts of a stream upload are buffered in. */
+    private static final int STREAM_BUFFER_CHUNK_SIZE = MB;
+
+    /** The maximum size of an upload part. */
+    private static final long MAXIMUM_UPLOAD_PART_SIZE = 5 * GB;
+
     private final AmazonS3 s3;
     private final ExecutorService threadPool;
     private final PutObjectRequest origReq;
-    private String multipartUploadId;
+    /** Read by the monitor of the upload to abort it. */
+    private volatile String multipartUploadId;
     private final UploadImpl upload;
 
     private static final Log log = LogFactory.getLog(UploadCallable.class);
     private final TransferManagerConfiguration configuration;
-    private final List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
+    private final List<Future<PartETag>> futures =
+            Collections.synchronizedList(new ArrayList<Future<PartETag>>());
     private final ProgressListenerChain listener;
     private final TransferProgress transferProgress;
 
@@ -74,6 +94,12 @@ public class UploadCallable implements Callable<UploadResult> {
 
     private PersistableUpload persistableUpload;
 
+    /**
+     * True once a stream upload of unknown length has turned out to need a
+     * multipart upload.
+     */
+    private volatile boolean isMultipartStreamUpload;
+
     public UploadCallable(TransferManager transferManager,
             ExecutorService threadPool, UploadImpl upload,
             PutObjectRequest origReq,
@@ -111,7 +137,8 @@ public class UploadCallable implements Callable<UploadResult> {
      * @return True if this UploadCallable is processing a multipart upload.
      */
     public boolean isMultipartUpload() {
-        return TransferManagerUtils.shouldUseMultipartUpload(origReq, configuration);
+        return isMultipartStreamUpload
+                || TransferManagerUtils.shouldUseMultipartUpload(origReq, configuration);
     }
 
     public UploadResult call() throws Exception {
@@ -119,6 +146,8 @@ public class UploadCallable implements Callable<UploadResult> {
         if ( isMultipartUpload() ) {
             publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
             return uploadInParts();
+        } else if ( TransferManagerUtils.isBufferedStreamUpload(origReq, s3 instanceof AmazonS3Encryption) ) {
+            return uploadBufferedStream();
         } else {
             return uploadInOneChunk();
         }
@@ -174,16 +203,21 @@ public class UploadCallable implements Callable<UploadResult> {
         long optimalPartSize = getOptimalPartSize(isUsingEncryption);
 
         try {
+            boolean isParallelizable = isUploadParallelizable(isUsingEncryption);
             if (multipartUploadId == null) {
                 multipartUploadId = initiateMultipartUpload(origReq,
-                        isUsingEncryption);
+                        isUsingEncryption, isParallelizable);
             }
 
             UploadPartRequestFactory requestFactory = new UploadPartRequestFactory(origReq, multipartUploadId, optimalPartSize);
 
-            if (TransferManagerUtils.isUploadParallelizable(origReq, isUsingEncryption)) {
-                captureUploadStateIfPossible();
-                uploadPartsInParallel(requestFactory, multipartUploadId);
+            if (isParallelizable) {
+                // An encrypted upload can't be resumed from its persisted
+                // state, as its encryption context is only held by the client
+                if (!isUsingEncryption)
+                    captureUploadStateIfPossible();
+                uploadPartsInParallel(requestFactory, multipartUploadId,
+                        isUsingEncryption);
                 return null;
             } else {
                 return uploadPartsInSeries(requestFactory);
@@ -201,6 +235,22 @@ public class UploadCallable implements Callable<UploadResult> {
         }
     }
 
+    /**
+     * Returns true if the parts of the upload can be uploaded in parallel. The
+     * parts of an encrypted upload can only be, if the upload is initiated here
+     * by an encryption client that supports it.
+     */
+    private boolean isUploadParallelizable(boolean isUsingEncryption) {
+        if (isUsingEncryption) {
+            return configuration.isParallelEncryptedPartUpload()
+                && multipartUploadId == null
+                && s3 instanceof AmazonS3EncryptionClient
+                && ((AmazonS3EncryptionClient) s3).isParallelPartUploadSupported()
+                && TransferManagerUtils.getRequestFile(origReq) != null;
+        }
+        return TransferManagerUtils.isUploadParallelizable(origReq, isUsingEncryption);
+    }
+
     /**
      * Performs an
      * {@link AmazonS3#abortMultipartUpload(AbortMultipartUploadRequest)}
@@ -255,6 +305,14 @@ public class UploadCallable implements Callable<UploadResult> {
             partETags.add(s3.uploadPart(uploadPartRequest).getPartETag());
         }
 
+        return completeMultipartUpload(partETags);
+    }
+
+    /**
+     * Completes the multipart upload with the given parts, and returns the
+     * result.
+     */
+    private UploadResult completeMultipartUpload(List<PartETag> partETags) {
         CompleteMultipartUploadRequest req =
             new CompleteMultipartUploadRequest(
                 origReq.getBucketName(), origReq.getKey(), multipartUploadId,
@@ -272,11 +330,233 @@ public class UploadCallable implements Callable<UploadResult> {
         return uploadResult;
     }
 
+    /**
+     * Uploads an input stream of unknown length. The stream is read, a part at
+     * a time, into buffers from a pool bounded by the configured memory limit,
+     * and each part is submitted to the thread pool as soon as it has been
+     * read. When all the buffers are in use, reading waits for the oldest part
+     * to be uploaded, so the stream is never buffered beyond the limit; the
+     * upload fails once a single part would be larger than the limit. If the
+     * stream ends within the first part, it is uploaded in a single request.
+     * The parts are also recorded in {@link #getFutures()}, so that they are
+     * cancelled if the upload is paused or aborted.
+     */
+    private UploadResult uploadBufferedStream() throws Exception {
+        final UploadPartBufferPool bufferPool = new UploadPartBufferPool(
+                (int) Math.min(STREAM_BUFFER_CHUNK_SIZE, configuration.getMinimumUploadPartSize()),
+                Math.max(configuration.getUploadBufferMemoryLimit(), configuration.getMinimumUploadPartSize()));
+        long maxPartSize = MAXIMUM_UPLOAD_PART_SIZE;
+        PushbackInputStream input = new PushbackInputStream(origReq.getInputStream(), 1);
+        LinkedList<FutureTask<PartETag>> pendingParts = new LinkedList<FutureTask<PartETag>>();
+        List<PartETag> partETags = new ArrayList<PartETag>();
+
+        try {
+            for (int partNumber = 1; ; partNumber++) {
+                if (threadPool.isShutdown()) throw new CancellationException("TransferManager has been shutdown");
+                long partSize = TransferManagerUtils.calculatePartSizeForStream(partNumber, configuration, maxPartSize);
+                if (partSize > bufferPool.getCapacity()) {
+                    throw new AmazonClientException("Unable to buffer part " + partNumber
+                            + " of " + partSize + " bytes within the upload buffer memory limit of "
+                            + bufferPool.getCapacity() + " bytes; raise the limit with "
+                            + "TransferManagerConfiguration.setUploadBufferMemoryLimit");
+                }
+                List<byte[]> chunks = new ArrayList<byte[]>();
+                long bytesRead = readPart(input, bufferPool, chunks, partSize, pendingParts, partETags);
+                boolean isLastPart = bytesRead < partSize || isEndOfStream(input);
+
+                if (partNumber == 1 && isLastPart) {
+                    try {
+                        return uploadBufferedStreamInOneChunk(new UploadPartBufferInputStream(
+                                chunks, bufferPool.getChunkSize(), bytesRead), bytesRead);
+                    } finally {
+                        bufferPool.release(chunks);
+                    }
+                }
+                if (partNumber == 1) {
+                    multipartUploadId = initiateMultipartUpload(origReq, false, false);
+                    isMultipartStreamUpload = true;
+                    publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+                }
+                if (partNumber == MAXIMUM_UPLOAD_PARTS && !isLastPart) {
+                    throw new AmazonClientException("Unable to upload the stream within "
+                            + MAXIMUM_UPLOAD_PARTS + " parts of at most " + maxPartSize
+                            + " bytes");
+                }
+
+                FutureTask<PartETag> part = new FutureTask<PartETag>(
+                        new BufferedUploadPartCallable(newBufferedUploadPartRequest(
+                                partNumber, chunks, bufferPool.getChunkSize(), bytesRead, isLastPart),
+                                bufferPool, chunks));
+                pendingParts.add(part);
+                futures.add(part);
+                threadPool.execute(part);
+
+                if (isLastPart) {
+                    break;
+                }
+            }
+
+            while (!pendingParts.isEmpty()) {
+                partETags.add(waitForPart(pendingParts.removeFirst()));
+            }
+            return completeMultipartUpload(partETags);
+        } catch (Exception e) {
+            for (FutureTask<PartETag> part : pendingParts) {
+                part.cancel(true);
+            }
+            if (isMultipartStreamUpload) {
+                publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+                performAbortMultipartUpload();
+            }
+            throw e;
+        } finally {
+            try { input.close(); } catch (Exception e) {
+                log.warn("Unable to cleanly close input stream: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads up to the given number of bytes of the stream into buffers from
+     * the pool, waiting for the oldest pending parts to be uploaded whenever
+     * the pool is exhausted; the part must fit in the pool. Returns the number
+     * of bytes read, which is less than requested only if the end of the
+     * stream was reached.
+     */
+    private long readPart(InputStream input, UploadPartBufferPool bufferPool,
+            List<byte[]> chunks, long partSize,
+            LinkedList<FutureTask<PartETag>> pendingParts,
+            List<PartETag> partETags) throws Exception {
+        long bytesRead = 0;
+        while (bytesRead < partSize) {
+            byte[] chunk = bufferPool.tryAcquire();
+            while (chunk == null) {
+                if (pendingParts.isEmpty()) {
+                    throw new IllegalStateException("Upload part buffers exhausted");
+                }
+                partETags.add(waitForPart(pendingParts.removeFirst()));
+                chunk = bufferPool.tryAcquire();
+            }
+            chunks.add(chunk);
+            int length = (int) Math.min(chunk.length, partSize - bytesRead);
+            int offset = 0;
+            int n = 0;
+            while (offset < length && (n = input.read(chunk, offset, length - offset)) != -1) {
+                offset += n;
+            }
+            bytesRead += offset;
+            if (n == -1) {
+                break;
+            }
+        }
+        return bytesRead;
+    }
+
+    private static boolean isEndOfStream(PushbackInputStream input) throws IOException {
+        int b = input.read();
+        if (b == -1) {
+            return true;
+        }
+        input.unread(b);
+        return false;
+    }
+
+    /**
+     * Waits for the given part to be uploaded and returns its ETag. If the
+     * part hasn't been picked up by the thread pool yet, it is uploaded in the
+     * current thread instead, so a small or busy thread pool can't stall the
+     * upload.
+     */
+    private static PartETag waitForPart(FutureTask<PartETag> part) throws Exception {
+        part.run();
+        try {
+            return part.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new AmazonClientException("Unable to upload part", cause);
+        }
+    }
+
+    /**
+     * Uploads the buffered content of a stream that turned out to fit in a
+     * single part, in a single request.
+     */
+    private UploadResult uploadBufferedStreamInOneChunk(InputStream content, long contentLength) {
+        // Set the length on a copy of the metadata, never on the caller's
+        ObjectMetadata metadata = origReq.getMetadata() == null
+                ? new ObjectMetadata()
+                : origReq.getMetadata().clone();
+        metadata.setContentLength(contentLength);
+        PutObjectRequest req = origReq.clone()
+            .withInputStream(content)
+            .withMetadata(metadata);
+        req.getRequestClientOptions().setReadLimit(origReq.getReadLimit());
+        PutObjectResult putObjectResult = s3.putObject(req);
+
+        UploadResult uploadResult = new UploadResult();
+        uploadResult.setBucketName(origReq.getBucketName());
+        uploadResult.setKey(origReq.getKey());
+        uploadResult.setETag(putObjectResult.getETag());
+        uploadResult.setVersionId(putObjectResult.getVersionId());
+        return uploadResult;
+    }
+
+    private UploadPartRequest newBufferedUploadPartRequest(int partNumber,
+            List<byte[]> chunks, int chunkSize, long partSize, boolean isLastPart) {
+        UploadPartRequest req = new UploadPartRequest()
+            .withBucketName(origReq.getBucketName())
+            .withKey(origReq.getKey())
+            .withUploadId(multipartUploadId)
+            .withInputStream(new UploadPartBufferInputStream(chunks, chunkSize, partSize))
+            .withPartNumber(partNumber)
+            .withPartSize(partSize);
+        TransferManager.appendMultipartUserAgent(req);
+
+        if (origReq.getSSECustomerKey() != null) req.setSSECustomerKey(origReq.getSSECustomerKey());
+
+        req.setLastPart(isLastPart);
+
+        req.withGeneralProgressListener(origReq.getGeneralProgressListener())
+           .withRequestMetricCollector(origReq.getRequestMetricCollector())
+           ;
+        req.getRequestClientOptions().setReadLimit(origReq.getReadLimit());
+        return req;
+    }
+
+    /**
+     * Uploads a buffered part, and returns its buffers to the pool once done.
+     */
+    private final class BufferedUploadPartCallable implements Callable<PartETag> {
+        private final UploadPartRequest request;
+        private final UploadPartBufferPool bufferPool;
+        private final List<byte[]> chunks;
+
+        BufferedUploadPartCallable(UploadPartRequest request,
+                UploadPartBufferPool bufferPool, List<byte[]> chunks) {
+            this.request = request;
+            this.bufferPool = bufferPool;
+            this.chunks = chunks;
+        }
+
+        public PartETag call() throws Exception {
+            try {
+                return s3.uploadPart(request).getPartETag();
+            } finally {
+                bufferPool.release(chunks);
+            }
+        }
+    }
+
     /**
      * Submits a callable for each part to upload to our thread pool and records its corresponding Future.
+     * The last part of an encrypted upload, which carries the authentication
+     * tag of the whole object, waits for all the other parts to be uploaded.
      */
     private void uploadPartsInParallel(UploadPartRequestFactory requestFactory,
-            String uploadId) {
+            String uploadId, boolean isUsingEncryption) {
 
         Map<Integer,PartSummary> partNumbers = identifyExistingPartsForResume(uploadId);
 
@@ -290,7 +570,10 @@ public class UploadCallable implements Callable<UploadResult> {
                 transferProgress.updateProgress(summary.getSize());
                 continue;
             }
-            futures.add(threadPool.submit(new UploadPartCallable(s3, request)));
+            UploadPartCallable callable = isUsingEncryption && request.isLastPart()
+                ? new UploadPartCallable(s3, request, new ArrayList<Future<PartETag>>(futures))
+                : new UploadPartCallable(s3, request);
+            futures.add(threadPool.submit(callable));
         }
     }
 
@@ -320,16 +603,24 @@ public class UploadCallable implements Callable<UploadResult> {
     /**
      * Initiates a multipart upload and returns the upload id
      * @param isUsingEncryption
+     * @param isParallelizable
+     *            true if the parts of the upload are to be uploaded in parallel
      */
-    private String initiateMultipartUpload(PutObjectRequest origReq, boolean isUsingEncryption) {
+    private String initiateMultipartUpload(PutObjectRequest origReq,
+            boolean isUsingEncryption, boolean isParallelizable) {
 
         InitiateMultipartUploadRequest req = null;
-        if (isUsingEncryption && origReq instanceof EncryptedPutObjectRequest) {
+        if (isUsingEncryption
+                && (origReq instanceof EncryptedPutObjectRequest || isParallelizable)) {
             req = new EncryptedInitiateMultipartUploadRequest(
                     origReq.getBucketName(), origReq.getKey()).withCannedACL(
                     origReq.getCannedAcl()).withObjectMetadata(origReq.getMetadata());
+            if (origReq instanceof EncryptedPutObjectRequest) {
+                ((EncryptedInitiateMultipartUploadRequest) req)
+                        .setMaterialsDescription(((EncryptedPutObjectRequest) origReq).getMaterialsDescription());
+            }
             ((EncryptedInitiateMultipartUploadRequest) req)
-                    .setMaterialsDescription(((EncryptedPutObjectRequest) origReq).getMaterialsDescription());
+                    .setParallelPartUpload(isParallelizable);
         } else {
             req = new InitiateMultipartUploadRequest(origReq.getBucketName(), origReq.getKey())
                 .withCannedACL(origReq.getCannedAcl())
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * An input stream over a part that has been buffered into fixed-size arrays
+ * from an {@link UploadPartBufferPool}. All the arrays but the last one are
+ * full. Supports unlimited mark and reset, so the part can be retried.
+ */
+class UploadPartBufferInputStream extends InputStream {
+    private final List<byte[]> chunks;
+    private final int chunkSize;
+    private final long length;
+    private long position;
+    private long markedPosition;
+
+    UploadPartBufferInputStream(List<byte[]> chunks, int chunkSize, long length) {
+        this.chunks = chunks;
+        this.chunkSize = chunkSize;
+        this.length = length;
+    }
+
+    @Override
+    public int read() {
+        if (position >= length) {
+            return -1;
+        }
+        byte b = chunks.get((int) (position / chunkSize))[(int) (position % chunkSize)];
+        position++;
+        return b & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int count = 0;
+        while (count < len && position < length) {
+            int offsetInChunk = (int) (position % chunkSize);
+            int n = (int) Math.min(Math.min(len - count, chunkSize - offsetInChunk),
+                    length - position);
+            System.arraycopy(chunks.get((int) (position / chunkSize)),
+                    offsetInChunk, b, off + count, n);
+            count += n;
+            position += n;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, length - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        markedPosition = position;
+    }
+
+    @Override
+    public void reset() {
+        position = markedPosition;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A bounded pool of fixed-size byte arrays, used to buffer the parts of a
+ * stream upload. Arrays are allocated lazily, up to the memory limit, and
+ * reused once the parts they hold have been uploaded.
+ */
+class UploadPartBufferPool {
+    private final int chunkSize;
+    private final int maxChunks;
+    private final LinkedList<byte[]> freeChunks = new LinkedList<byte[]>();
+    private int allocatedChunks;
+
+    /**
+     * @param chunkSize
+     *            The size of each array.
+     * @param memoryLimit
+     *            The maximum total size of the arrays, rounded up to a whole
+     *            number of arrays.
+     */
+    UploadPartBufferPool(int chunkSize, long memoryLimit) {
+        this.chunkSize = chunkSize;
+        this.maxChunks = (int) Math.max(1,
+                Math.min(Integer.MAX_VALUE, (memoryLimit + chunkSize - 1) / chunkSize));
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the total size of the arrays the pool may allocate, i.e. the
+     * largest part it can buffer.
+     */
+    long getCapacity() {
+        return (long) chunkSize * maxChunks;
+    }
+
+    /**
+     * Returns a free array, allocating it if the limit allows; or null if all
+     * the arrays are in use.
+     */
+    synchronized byte[] tryAcquire() {
+        if (!freeChunks.isEmpty()) {
+            return freeChunks.removeFirst();
+        }
+        if (allocatedChunks < maxChunks) {
+            allocatedChunks++;
+            return new byte[chunkSize];
+        }
+        return null;
+    }
+
+    /**
+     * Returns the given arrays to the pool.
+     */
+    synchronized void release(List<byte[]> chunks) {
+        freeChunks.addAll(chunks);
+    }
+}
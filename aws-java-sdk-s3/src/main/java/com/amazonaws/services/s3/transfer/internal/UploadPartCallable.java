@@ -14,7 +14,10 @@
  */
 package com.amazonaws.services.s3.transfer.internal;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.PartETag;
@@ -23,13 +26,29 @@ import com.amazonaws.services.s3.model.UploadPartRequest;
 public class UploadPartCallable implements Callable<PartETag> {
     private final AmazonS3 s3;
     private final UploadPartRequest request;
+    /** The uploads of the parts that must complete before this part's. */
+    private final List<Future<PartETag>> precedingParts;
 
     public UploadPartCallable(AmazonS3 s3, UploadPartRequest request) {
+        this(s3, request, Collections.<Future<PartETag>>emptyList());
+    }
+
+    /**
+     * @param precedingParts
+     *            the uploads of the parts that must complete before the
+     *            given part is uploaded
+     */
+    public UploadPartCallable(AmazonS3 s3, UploadPartRequest request,
+            List<Future<PartETag>> precedingParts) {
         this.s3 = s3;
         this.request = request;
+        this.precedingParts = precedingParts;
     }
 
     public PartETag call() throws Exception {
+        for (Future<PartETag> precedingPart : precedingParts) {
+            precedingPart.get();
+        }
         PartETag partETag = s3.uploadPart(request).getPartETag();
         return partETag;
     }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.http.SharedConnectionPool;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+
+public class AmazonS3ClientSharedConnectionPoolTest {
+
+    private SharedConnectionPool pool;
+    private ClientConfiguration config;
+
+    @Before
+    public void setUp() {
+        pool = new SharedConnectionPool();
+        config = new ClientConfiguration().withSharedConnectionPool(pool);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testDefaultPoolVerifiesS3EndpointsOnlyLeniently() {
+        AmazonS3Client s3 = new AmazonS3Client(
+                new BasicAWSCredentials("access", "secret"), config);
+
+        assertTrue(pool.isStrictHostnameVerification());
+        assertFalse(pool.isStrictHostnameVerification("s3.amazonaws.com"));
+        assertFalse(pool.isStrictHostnameVerification("my.bucket.s3.amazonaws.com"));
+        assertTrue(pool.isStrictHostnameVerification("dynamodb.us-east-1.amazonaws.com"));
+
+        s3.setRegion(Region.getRegion(Regions.EU_WEST_1));
+        assertFalse(pool.isStrictHostnameVerification("my.bucket.s3-eu-west-1.amazonaws.com"));
+
+        s3.setEndpoint("s3.eu-central-1.amazonaws.com");
+        assertFalse(pool.isStrictHostnameVerification("my.bucket.s3.eu-central-1.amazonaws.com"));
+        assertTrue(pool.isStrictHostnameVerification("sqs.eu-central-1.amazonaws.com"));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+public class CarriageReturnEscapingInputStreamTest {
+
+    private static CarriageReturnEscapingInputStream stream(String s) {
+        return new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream(s.getBytes(StringUtils.UTF8)));
+    }
+
+    @Test
+    public void testEscapesCarriageReturns() throws IOException {
+        assertEquals("<Key>a&#013;b&#013;</Key>",
+                IOUtils.toString(stream("<Key>a\rb\r</Key>")));
+    }
+
+    @Test
+    public void testSkipNonPositiveReturnsZero() throws IOException {
+        CarriageReturnEscapingInputStream in = stream("a\rb");
+        assertEquals(0, in.skip(-1));
+        assertEquals(0, in.skip(0));
+        assertEquals("a&#013;b", IOUtils.toString(in));
+    }
+
+    @Test
+    public void testSkipCountsEscapedBytes() throws IOException {
+        CarriageReturnEscapingInputStream in = stream("a\rb");
+        // skip "a" and the first half of the entity
+        assertEquals(4, in.skip(4));
+        assertEquals("13;b", IOUtils.toString(in));
+        assertEquals(0, in.skip(10));
+    }
+
+    @Test
+    public void testSingleByteReads() throws IOException {
+        CarriageReturnEscapingInputStream in = stream("a\rb");
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            sb.append((char) b);
+        }
+        assertEquals("a&#013;b", sb.toString());
+        assertEquals(-1, in.read());
+    }
+}
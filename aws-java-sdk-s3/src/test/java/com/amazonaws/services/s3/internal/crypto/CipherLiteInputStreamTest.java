@@ -0,0 +1,288 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Security;
+import java.util.Random;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.amazonaws.services.s3.model.CryptoConfiguration;
+
+/**
+ * Tests that content encrypted and decrypted through a
+ * {@link CipherLiteInputStream}, with the chunk sizes allowed by
+ * {@link CryptoConfiguration#setCipherBufferSize(int)}, matches the output of
+ * the underlying JCE cipher applied in a single pass.
+ */
+public class CipherLiteInputStreamTest {
+    private static final int[] BUFFER_SIZES = { 512, 1024, 4096,
+            CryptoConfiguration.DEFAULT_CIPHER_BUFFER_SIZE };
+    private static final int[] CONTENT_LENGTHS = { 0, 1, 15, 16, 511, 512,
+            513, 10000, 70001 };
+
+    private final Random random = new Random(42);
+    private SecretKey key;
+
+    @BeforeClass
+    public static void addBouncyCastleProvider() {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    @Before
+    public void setUp() {
+        byte[] keyBytes = new byte[32];
+        random.nextBytes(keyBytes);
+        key = new SecretKeySpec(keyBytes, "AES");
+    }
+
+    @Test
+    public void testCbcRoundTrip() throws Exception {
+        assertRoundTrip(ContentCryptoScheme.AES_CBC, 16, false);
+    }
+
+    @Test
+    public void testCtrRoundTrip() throws Exception {
+        assertRoundTrip(ContentCryptoScheme.AES_CTR, 16, false);
+    }
+
+    @Test
+    public void testGcmRoundTrip() throws Exception {
+        assertRoundTrip(ContentCryptoScheme.AES_GCM, 12, false);
+    }
+
+    @Test
+    public void testCbcRoundTripWithShortOutputBuffers() throws Exception {
+        assertRoundTrip(ContentCryptoScheme.AES_CBC, 16, true);
+    }
+
+    @Test
+    public void testCtrRoundTripWithShortOutputBuffers() throws Exception {
+        assertRoundTrip(ContentCryptoScheme.AES_CTR, 16, true);
+    }
+
+    @Test
+    public void testGcmRoundTripWithShortOutputBuffers() throws Exception {
+        assertRoundTrip(ContentCryptoScheme.AES_GCM, 12, true);
+    }
+
+    @Test
+    public void testGcmResetToTheStart() throws Exception {
+        for (int bufferSize : BUFFER_SIZES) {
+            for (boolean shortBuffers : new boolean[] { false, true }) {
+                byte[] iv = randomBytes(12);
+                byte[] plaintext = randomBytes(3 * bufferSize + 7);
+                byte[] expected = jceCipher(ContentCryptoScheme.AES_GCM, iv,
+                        Cipher.ENCRYPT_MODE).doFinal(plaintext);
+                CipherLiteInputStream in = new CipherLiteInputStream(
+                        new ByteArrayInputStream(plaintext),
+                        cipherLite(ContentCryptoScheme.AES_GCM, iv,
+                                Cipher.ENCRYPT_MODE, shortBuffers),
+                        bufferSize);
+                assertTrue(in.markSupported());
+                in.mark(plaintext.length);
+                byte[] partial = new byte[2 * bufferSize + 100];
+                assertEquals(partial.length, readFully(in, partial));
+                in.reset();
+
+                assertArrayEquals("bufferSize=" + bufferSize, expected,
+                        readAll(in));
+            }
+        }
+    }
+
+    @Test
+    public void testGcmResetToAChunkBoundary() throws Exception {
+        for (int bufferSize : BUFFER_SIZES) {
+            for (boolean shortBuffers : new boolean[] { false, true }) {
+                byte[] iv = randomBytes(12);
+                byte[] plaintext = randomBytes(4 * bufferSize + 7);
+                byte[] expected = jceCipher(ContentCryptoScheme.AES_GCM, iv,
+                        Cipher.ENCRYPT_MODE).doFinal(plaintext);
+                CipherLiteInputStream in = new CipherLiteInputStream(
+                        new ByteArrayInputStream(plaintext),
+                        cipherLite(ContentCryptoScheme.AES_GCM, iv,
+                                Cipher.ENCRYPT_MODE, shortBuffers),
+                        bufferSize);
+                // consume the first chunk entirely, so that nothing is
+                // buffered by the stream when marking
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                out.write(in.read());
+                while (in.available() > 0) {
+                    out.write(in.read());
+                }
+                in.mark(plaintext.length);
+                byte[] partial = new byte[bufferSize + 100];
+                assertEquals(partial.length, readFully(in, partial));
+                in.reset();
+                out.write(readAll(in));
+
+                assertArrayEquals("bufferSize=" + bufferSize, expected,
+                        out.toByteArray());
+            }
+        }
+    }
+
+    private void assertRoundTrip(ContentCryptoScheme scheme, int ivLength,
+            boolean shortBuffers) throws Exception {
+        for (int bufferSize : BUFFER_SIZES) {
+            for (int length : CONTENT_LENGTHS) {
+                String message = scheme.getCipherAlgorithm() + ", bufferSize="
+                        + bufferSize + ", length=" + length;
+                byte[] iv = randomBytes(ivLength);
+                byte[] plaintext = randomBytes(length);
+                byte[] expected = jceCipher(scheme, iv, Cipher.ENCRYPT_MODE)
+                        .doFinal(plaintext);
+
+                byte[] ciphertext = readAll(new CipherLiteInputStream(
+                        new ByteArrayInputStream(plaintext),
+                        cipherLite(scheme, iv, Cipher.ENCRYPT_MODE, shortBuffers),
+                        bufferSize));
+                assertArrayEquals(message, expected, ciphertext);
+
+                byte[] decrypted = readAll(new CipherLiteInputStream(
+                        new ByteArrayInputStream(ciphertext),
+                        cipherLite(scheme, iv, Cipher.DECRYPT_MODE, shortBuffers),
+                        bufferSize));
+                assertArrayEquals(message, plaintext, decrypted);
+            }
+        }
+    }
+
+    private CipherLite cipherLite(ContentCryptoScheme scheme, byte[] iv,
+            int cipherMode, boolean shortBuffers) {
+        CipherLite cipherLite = scheme.createCipherLite(key, iv, cipherMode, null);
+        return shortBuffers ? new ShortBufferCipherLite(cipherLite) : cipherLite;
+    }
+
+    /**
+     * Returns a JCE cipher of the given scheme, initialized the same way as
+     * the cipher lite under test.
+     */
+    private Cipher jceCipher(ContentCryptoScheme scheme, byte[] iv, int cipherMode) {
+        return scheme.createCipherLite(key, iv, cipherMode, null).getCipher();
+    }
+
+    /**
+     * Reads the stream to the end, alternating single byte reads with reads
+     * of random lengths.
+     */
+    private byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[3000];
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                break;
+            }
+            out.write(b);
+            int len = in.read(buf, 1, 1 + random.nextInt(buf.length - 1));
+            if (len == -1) {
+                break;
+            }
+            out.write(buf, 1, len);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static int readFully(InputStream in, byte[] buf) throws IOException {
+        int total = 0;
+        while (total < buf.length) {
+            int len = in.read(buf, total, buf.length - total);
+            if (len == -1) {
+                break;
+            }
+            total += len;
+        }
+        return total;
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * A cipher lite that rejects every other output buffer as too short, so
+     * that the stream falls back to the allocating update; everything else is
+     * delegated.
+     */
+    private static final class ShortBufferCipherLite extends CipherLite {
+        private final CipherLite delegate;
+        private boolean reject;
+
+        ShortBufferCipherLite(CipherLite delegate) {
+            super(delegate.getCipher(), delegate.getContentCryptoScheme(),
+                    delegate.getSecretKey(), delegate.getCipherMode());
+            this.delegate = delegate;
+        }
+
+        @Override
+        int update(byte[] input, int inputOffset, int inputLen, byte[] output,
+                int outputOffset) throws ShortBufferException {
+            reject = !reject;
+            if (reject) {
+                throw new ShortBufferException();
+            }
+            return delegate.update(input, inputOffset, inputLen, output,
+                    outputOffset);
+        }
+
+        @Override
+        byte[] update(byte[] input, int inputOffset, int inputLen) {
+            return delegate.update(input, inputOffset, inputLen);
+        }
+
+        @Override
+        byte[] doFinal() throws IllegalBlockSizeException, BadPaddingException {
+            return delegate.doFinal();
+        }
+
+        @Override
+        boolean markSupported() {
+            return delegate.markSupported();
+        }
+
+        @Override
+        long mark() {
+            return delegate.mark();
+        }
+
+        @Override
+        void reset() {
+            delegate.reset();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Tests that the parts of an AES/GCM encrypted multipart upload, encrypted in
+ * parallel and in any order, add up to the same ciphertext and tag as the
+ * whole object encrypted in a single pass by JCE.
+ */
+public class MultipartUploadParallelCryptoContextTest {
+    private static final int PART_SIZE = 1024;
+    private static final int LAST_PART_SIZE = 1000;
+    private static final int PARTS = 4;
+
+    private final Random random = new Random(42);
+    private SecretKey key;
+    private byte[] iv;
+    private byte[] plaintext;
+
+    @BeforeClass
+    public static void addBouncyCastleProvider() {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    @Before
+    public void setUp() {
+        byte[] keyBytes = new byte[16];
+        random.nextBytes(keyBytes);
+        key = new SecretKeySpec(keyBytes, "AES");
+        iv = new byte[12];
+        random.nextBytes(iv);
+        plaintext = new byte[PART_SIZE * (PARTS - 1) + LAST_PART_SIZE];
+        random.nextBytes(plaintext);
+    }
+
+    private MultipartUploadParallelCryptoContext newUploadContext(byte[] iv) {
+        CipherLite cipherLite = ContentCryptoScheme.AES_GCM.createCipherLite(
+                key, iv, Cipher.ENCRYPT_MODE, null);
+        return new MultipartUploadParallelCryptoContext("bucket", "key",
+                new ContentCryptoMaterial(Collections.<String, String>emptyMap(),
+                        new byte[0], null, cipherLite));
+    }
+
+    private GcmPartInputStream newPartStream(
+            MultipartUploadParallelCryptoContext uploadContext, int partNumber) {
+        boolean isLastPart = partNumber == PARTS;
+        int partSize = isLastPart ? LAST_PART_SIZE : PART_SIZE;
+        InputStream is = new ByteArrayInputStream(plaintext,
+                (partNumber - 1) * PART_SIZE, partSize);
+        CipherLite cipherLite = uploadContext.cipherLiteForPart(partNumber,
+                partSize, isLastPart);
+        return new GcmPartInputStream(
+                new RenewableCipherLiteInputStream(is, cipherLite, 512, true,
+                        isLastPart),
+                uploadContext, partNumber, isLastPart);
+    }
+
+    private byte[] encryptWithJce() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        return cipher.doFinal(plaintext);
+    }
+
+    @Test
+    public void testPartsEncryptedOutOfOrderMatchJce() throws Exception {
+        MultipartUploadParallelCryptoContext uploadContext = newUploadContext(iv);
+        byte[][] ciphertexts = new byte[PARTS][];
+        for (int partNumber : new int[] {3, 1, 2, 4}) {
+            GcmPartInputStream is = newPartStream(uploadContext, partNumber);
+            if (partNumber == 2) {
+                // as when the request is retried after a partial upload
+                is.mark(PART_SIZE);
+                byte[] partial = new byte[700];
+                for (int n = 0; n < partial.length; ) {
+                    n += is.read(partial, n, partial.length - n);
+                }
+                is.reset();
+            }
+            ciphertexts[partNumber - 1] = IOUtils.toByteArray(is);
+            if (partNumber != PARTS)
+                uploadContext.partUploaded(partNumber, is.getHash());
+        }
+
+        byte[] expected = encryptWithJce();
+        byte[] actual = new byte[expected.length];
+        int offset = 0;
+        for (byte[] ciphertext : ciphertexts) {
+            System.arraycopy(ciphertext, 0, actual, offset, ciphertext.length);
+            offset += ciphertext.length;
+        }
+        assertEquals(expected.length, offset);
+        // the ciphertext
+        assertArrayEquals(Arrays.copyOf(expected, plaintext.length),
+                Arrays.copyOf(actual, plaintext.length));
+        // the tag
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testSingleByteReadsMatchJce() throws Exception {
+        MultipartUploadParallelCryptoContext uploadContext = newUploadContext(iv);
+        for (int partNumber = 1; partNumber < PARTS; partNumber++) {
+            GcmPartInputStream is = newPartStream(uploadContext, partNumber);
+            IOUtils.toByteArray(is);
+            uploadContext.partUploaded(partNumber, is.getHash());
+        }
+        GcmPartInputStream is = newPartStream(uploadContext, PARTS);
+        byte[] expected = encryptWithJce();
+        int offset = PART_SIZE * (PARTS - 1);
+        int b;
+        while ((b = is.read()) != -1)
+            assertEquals(expected[offset++] & 0xFF, b);
+        assertEquals(expected.length, offset);
+    }
+
+    @Test
+    public void testLastPartBeforeOtherPartsFails() throws IOException {
+        MultipartUploadParallelCryptoContext uploadContext = newUploadContext(iv);
+        try {
+            IOUtils.toByteArray(newPartStream(uploadContext, PARTS));
+            fail("AmazonClientException is expected");
+        } catch (AmazonClientException expected) {
+        }
+    }
+
+    @Test
+    public void testIvOtherThan12BytesFails() {
+        try {
+            newUploadContext(new byte[16]);
+            fail("AmazonClientException is expected");
+        } catch (AmazonClientException expected) {
+        }
+    }
+}
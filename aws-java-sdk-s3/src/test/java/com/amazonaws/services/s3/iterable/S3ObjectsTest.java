@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+public class S3ObjectsTest {
+
+    private static final String BUCKET = "bucket";
+
+    private ExecutorService executor;
+    private final TreeSet<String> keys = new TreeSet<String>();
+    /** The number of top level (delimited) pages listed so far. */
+    private final AtomicInteger topLevelPages = new AtomicInteger();
+    /** The number of pages listed so far. */
+    private final AtomicInteger pages = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 20; i++) {
+            keys.add(String.format("flat-%02d", i));
+            keys.add(String.format("dir-%02d/a", i));
+            keys.add(String.format("dir-%02d/b", i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPartitionedListingReturnsAllKeysInOrder() {
+        S3Objects objects = S3Objects.inBucket(s3(), BUCKET)
+                .withBatchSize(3)
+                .withPrefetch(2, executor)
+                .withPartitions("/", 4);
+        List<String> listed = new ArrayList<String>();
+        for (S3ObjectSummary summary : objects) {
+            listed.add(summary.getKey());
+        }
+        assertEquals(new ArrayList<String>(keys), listed);
+    }
+
+    @Test
+    public void testPartitionedListingStreamsTopLevelPages() {
+        S3Objects objects = S3Objects.inBucket(s3(), BUCKET)
+                .withBatchSize(3)
+                .withPartitions("/", 2)
+                .withPrefetch(1, executor);
+        Iterator<S3ObjectSummary> it = objects.iterator();
+        assertEquals("dir-00/a", it.next().getKey());
+        // 40 top level entries, 3 per page; only the first pages are needed
+        assertTrue(topLevelPages.get() < 40 / 3);
+    }
+
+    @Test
+    public void testCancelStopsPrefetching() throws InterruptedException {
+        S3Objects objects = S3Objects.inBucket(s3(), BUCKET)
+                .withBatchSize(3)
+                .withPrefetch(2, executor);
+        Iterator<S3ObjectSummary> it = objects.iterator();
+        it.next();
+        objects.cancel();
+        // only the rest of the current page is returned
+        int remaining = 0;
+        while (it.hasNext()) {
+            it.next();
+            remaining++;
+        }
+        assertTrue(remaining <= 2);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // the current page, the two fetched ahead and one in progress
+        assertTrue(pages.get() <= 4);
+        assertFalse(objects.iterator().hasNext());
+    }
+
+    @Test
+    public void testCancelStopsPartitions() throws InterruptedException {
+        S3Objects objects = S3Objects.inBucket(s3(), BUCKET)
+                .withBatchSize(3)
+                .withPrefetch(1, executor)
+                .withPartitions("/", 2);
+        Iterator<S3ObjectSummary> it = objects.iterator();
+        it.next();
+        objects.cancel();
+        int remaining = 0;
+        while (it.hasNext()) {
+            it.next();
+            remaining++;
+        }
+        assertTrue(remaining < keys.size() / 2);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        int listed = pages.get();
+        assertFalse(objects.iterator().hasNext());
+        assertEquals(listed, pages.get());
+    }
+
+    /**
+     * Returns a client backed by the keys, which only supports listing.
+     */
+    private AmazonS3 s3() {
+        return (AmazonS3) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AmazonS3.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("listObjects")) {
+                            ListObjectsRequest req = (ListObjectsRequest) args[0];
+                            return list(req.getPrefix(), req.getDelimiter(),
+                                    null, req.getMaxKeys());
+                        }
+                        if (method.getName().equals("listNextBatchOfObjects")) {
+                            ObjectListing previous = (ObjectListing) args[0];
+                            return list(previous.getPrefix(), previous.getDelimiter(),
+                                    previous.getNextMarker(), previous.getMaxKeys());
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private ObjectListing list(String prefix, String delimiter, String marker, Integer maxKeys) {
+        pages.incrementAndGet();
+        if (delimiter != null) {
+            topLevelPages.incrementAndGet();
+        }
+        int max = maxKeys == null ? 1000 : maxKeys;
+        ObjectListing listing = new ObjectListing();
+        listing.setBucketName(BUCKET);
+        listing.setPrefix(prefix);
+        listing.setDelimiter(delimiter);
+        listing.setMaxKeys(max);
+        String last = null;
+        int count = 0;
+        for (String key : keys) {
+            if ((prefix != null && !key.startsWith(prefix))
+                    || (marker != null && key.compareTo(marker) <= 0)) {
+                continue;
+            }
+            String commonPrefix = null;
+            if (delimiter != null) {
+                int end = key.indexOf(delimiter, prefix == null ? 0 : prefix.length());
+                if (end != -1) {
+                    commonPrefix = key.substring(0, end + delimiter.length());
+                    if (commonPrefix.equals(last)) {
+                        continue;
+                    }
+                }
+            }
+            if (count == max) {
+                listing.setTruncated(true);
+                break;
+            }
+            count++;
+            if (commonPrefix != null) {
+                listing.getCommonPrefixes().add(commonPrefix);
+                // the next page starts after every key under the prefix
+                last = commonPrefix;
+                listing.setNextMarker(commonPrefix + Character.MAX_VALUE);
+            } else {
+                S3ObjectSummary summary = new S3ObjectSummary();
+                summary.setBucketName(BUCKET);
+                summary.setKey(key);
+                listing.getObjectSummaries().add(summary);
+                last = key;
+                listing.setNextMarker(key);
+            }
+        }
+        return listing;
+    }
+}
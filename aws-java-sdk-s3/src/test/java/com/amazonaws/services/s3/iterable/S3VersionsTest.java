@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListVersionsRequest;
+import com.amazonaws.services.s3.model.S3VersionSummary;
+import com.amazonaws.services.s3.model.VersionListing;
+
+public class S3VersionsTest {
+
+    private static final String BUCKET = "bucket";
+
+    private ExecutorService executor;
+    /** The versions in listing order, as "key@versionId". */
+    private final List<String> versions = new ArrayList<String>();
+    /** The number of pages listed so far. */
+    private final AtomicInteger pages = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 20; i++) {
+            for (int v = 2; v >= 0; v--) {
+                versions.add(String.format("key-%02d@v%d", i, v));
+            }
+            versions.add(String.format("key-%02d-other@v0", i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPrefetchedListingReturnsAllVersionsInOrder() {
+        S3Versions all = S3Versions.inBucket(s3(), BUCKET)
+                .withBatchSize(3)
+                .withPrefetch(2, executor);
+        assertEquals(versions, toStrings(all));
+    }
+
+    @Test
+    public void testForKeyReturnsOnlyTheVersionsOfTheKey() {
+        S3Versions key = S3Versions.forKey(s3(), BUCKET, "key-05")
+                .withBatchSize(2)
+                .withPrefetch(1, executor);
+        List<String> expected = new ArrayList<String>();
+        expected.add("key-05@v2");
+        expected.add("key-05@v1");
+        expected.add("key-05@v0");
+        assertEquals(expected, toStrings(key));
+    }
+
+    @Test
+    public void testCancelStopsPrefetching() throws InterruptedException {
+        S3Versions all = S3Versions.inBucket(s3(), BUCKET)
+                .withBatchSize(3)
+                .withPrefetch(2, executor);
+        Iterator<S3VersionSummary> it = all.iterator();
+        it.next();
+        all.cancel();
+        // only the rest of the current page is returned
+        int remaining = 0;
+        while (it.hasNext()) {
+            it.next();
+            remaining++;
+        }
+        assertTrue(remaining <= 2);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // the current page, the two fetched ahead and one in progress
+        assertTrue(pages.get() <= 4);
+        assertFalse(all.iterator().hasNext());
+    }
+
+    private static List<String> toStrings(S3Versions iterable) {
+        List<String> listed = new ArrayList<String>();
+        for (S3VersionSummary summary : iterable) {
+            listed.add(summary.getKey() + "@" + summary.getVersionId());
+        }
+        return listed;
+    }
+
+    /**
+     * Returns a client backed by the versions, which only supports listing
+     * versions.
+     */
+    private AmazonS3 s3() {
+        return (AmazonS3) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AmazonS3.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("listVersions")) {
+                            ListVersionsRequest req = (ListVersionsRequest) args[0];
+                            return list(req.getPrefix(), 0, req.getMaxResults());
+                        }
+                        if (method.getName().equals("listNextBatchOfVersions")) {
+                            VersionListing previous = (VersionListing) args[0];
+                            int start = versions.indexOf(previous.getNextKeyMarker()
+                                    + "@" + previous.getNextVersionIdMarker()) + 1;
+                            return list(previous.getPrefix(), start, previous.getMaxKeys());
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private VersionListing list(String prefix, int start, Integer maxResults) {
+        pages.incrementAndGet();
+        int max = maxResults == null ? 1000 : maxResults;
+        VersionListing listing = new VersionListing();
+        listing.setBucketName(BUCKET);
+        listing.setPrefix(prefix);
+        listing.setMaxKeys(max);
+        for (int i = start; i < versions.size(); i++) {
+            String[] version = versions.get(i).split("@");
+            if (prefix != null && !version[0].startsWith(prefix)) {
+                continue;
+            }
+            if (listing.getVersionSummaries().size() == max) {
+                listing.setTruncated(true);
+                break;
+            }
+            S3VersionSummary summary = new S3VersionSummary();
+            summary.setBucketName(BUCKET);
+            summary.setKey(version[0]);
+            summary.setVersionId(version[1]);
+            listing.getVersionSummaries().add(summary);
+            listing.setNextKeyMarker(version[0]);
+            listing.setNextVersionIdMarker(version[1]);
+        }
+        return listing;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.util.IOUtils;
+
+public class ParallelDownloadCallableTest {
+
+    private static final String ETAG = "etag";
+    private static final int PART_SIZE = 1000;
+    private static final int PARTS = 10;
+    /** The parts from this one on block until they are aborted. */
+    private static final int FIRST_BLOCKING_PART = 5;
+    /** One thread runs the download itself, and also downloads parts. */
+    private static final int THREADS = 4;
+
+    private final byte[] content = new byte[PART_SIZE * PARTS - 123];
+    /** The start of the ranges requested, in bytes. */
+    private final Set<Long> requestedRanges =
+            Collections.synchronizedSet(new HashSet<Long>());
+    /** The number of part contents currently blocked in a read. */
+    private final AtomicInteger blockedReads = new AtomicInteger();
+    private volatile boolean blocking;
+
+    private TransferManager tm;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(42).nextBytes(content);
+        tm = new TransferManager(s3(), Executors.newFixedThreadPool(THREADS));
+        TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setMultipartDownloadThreshold(PART_SIZE);
+        configuration.setMinimumUploadPartSize(PART_SIZE);
+        tm.setConfiguration(configuration);
+        file = File.createTempFile("parallel-download", ".tmp");
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdownNow(false);
+        file.delete();
+    }
+
+    @Test
+    public void testReassembledFileMatchesObject() throws Exception {
+        tm.download(new GetObjectRequest("bucket", "key"), file).waitForCompletion();
+        assertEquals(PARTS, requestedRanges.size());
+        assertArrayEquals(content, readFile(file));
+    }
+
+    @Test
+    public void testPauseKeepsDownloadedPartsAndResumes() throws Exception {
+        blocking = true;
+        Download download = tm.download(new GetObjectRequest("bucket", "key"), file);
+        awaitBlockedReads(THREADS);
+
+        PersistableDownload paused = download.pause();
+        int[] downloadedParts = paused.getDownloadedParts();
+        Arrays.sort(downloadedParts);
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4 }, downloadedParts);
+        // aborting the contents releases every part, not just the interrupted one
+        awaitBlockedReads(0);
+
+        blocking = false;
+        requestedRanges.clear();
+        tm.resumeDownload(paused).waitForCompletion();
+        assertEquals(PARTS - FIRST_BLOCKING_PART, requestedRanges.size());
+        for (long start : requestedRanges) {
+            assertTrue(start >= FIRST_BLOCKING_PART * PART_SIZE);
+        }
+        assertArrayEquals(content, readFile(file));
+    }
+
+    @Test
+    public void testAbortReleasesTheThreads() throws Exception {
+        blocking = true;
+        Download download = tm.download(new GetObjectRequest("bucket", "key"), file);
+        awaitBlockedReads(THREADS);
+
+        download.abort();
+        assertEquals(TransferState.Canceled, download.getState());
+        awaitBlockedReads(0);
+
+        // every thread of the pool is available again
+        blocking = false;
+        File other = File.createTempFile("parallel-download", ".tmp");
+        try {
+            tm.download(new GetObjectRequest("bucket", "key"), other).waitForCompletion();
+            assertArrayEquals(content, readFile(other));
+        } finally {
+            other.delete();
+        }
+    }
+
+    private void awaitBlockedReads(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (blockedReads.get() != count) {
+            assertTrue("Expected " + count + " blocked reads but got " + blockedReads.get(),
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns a client serving {@link #content}. While {@link #blocking} is
+     * set, the contents of the parts from {@link #FIRST_BLOCKING_PART} on
+     * block until they are closed or their thread is interrupted.
+     */
+    private AmazonS3 s3() {
+        return (AmazonS3) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AmazonS3.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getObjectMetadata")) {
+                            return metadata(content.length);
+                        }
+                        if (method.getName().equals("getObject")) {
+                            GetObjectRequest req = (GetObjectRequest) args[0];
+                            long[] range = req.getRange();
+                            int length = (int) (range[1] - range[0] + 1);
+                            requestedRanges.add(range[0]);
+                            InputStream in = new ByteArrayInputStream(content, (int) range[0], length);
+                            if (blocking && range[0] >= FIRST_BLOCKING_PART * PART_SIZE) {
+                                in = new BlockingInputStream();
+                            }
+                            S3Object s3Object = new S3Object();
+                            s3Object.setBucketName(req.getBucketName());
+                            s3Object.setKey(req.getKey());
+                            s3Object.setObjectMetadata(metadata(length));
+                            s3Object.setObjectContent(new S3ObjectInputStream(in, new HttpGet()));
+                            return s3Object;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static ObjectMetadata metadata(long contentLength) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        metadata.setHeader(Headers.ETAG, ETAG);
+        return metadata;
+    }
+
+    /**
+     * A stream that blocks every read until it is closed.
+     */
+    private class BlockingInputStream extends InputStream {
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            return read(new byte[1], 0, 1);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            blockedReads.incrementAndGet();
+            try {
+                while (!closed) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } finally {
+                blockedReads.decrementAndGet();
+            }
+            throw new IOException("Stream closed");
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.methods.HttpGet;
+import org.junit.Test;
+
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.SDKProgressPublisher;
+import com.amazonaws.event.SyncProgressListener;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+public class ParallelDownloadProgressTest {
+
+    private static final String ETAG = "etag";
+    private static final byte[] CONTENT = new byte[300];
+
+    @Test
+    public void testPublishesOneStartedAndOneCompletedEvent() throws Exception {
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        SyncProgressListener listener = new SyncProgressListener() {
+            @Override
+            public void progressChanged(ProgressEvent progressEvent) {
+                if (progressEvent.getEventType() == ProgressEventType.TRANSFER_STARTED_EVENT) {
+                    started.incrementAndGet();
+                } else if (progressEvent.getEventType() == ProgressEventType.TRANSFER_COMPLETED_EVENT) {
+                    completed.incrementAndGet();
+                }
+            }
+        };
+        ExecutorService threadPool = Executors.newFixedThreadPool(3);
+        TransferManager tm = new TransferManager(s3(), threadPool);
+        TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setMultipartDownloadThreshold(100);
+        configuration.setMinimumUploadPartSize(100);
+        tm.setConfiguration(configuration);
+        File file = File.createTempFile("parallel-download", ".tmp");
+        try {
+            GetObjectRequest req = new GetObjectRequest("bucket", "key")
+                    .withGeneralProgressListener(listener);
+            tm.download(req, file).waitForCompletion();
+            SDKProgressPublisher.waitTillCompletion();
+            assertEquals(CONTENT.length, file.length());
+            assertEquals(1, started.get());
+            assertEquals(1, completed.get());
+        } finally {
+            tm.shutdownNow(false);
+            file.delete();
+        }
+    }
+
+    /**
+     * Returns a client serving {@link #CONTENT}, which publishes the events of
+     * each GET like the real client does.
+     */
+    private AmazonS3 s3() {
+        return (AmazonS3) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AmazonS3.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getObjectMetadata")) {
+                            return metadata(CONTENT.length);
+                        }
+                        if (method.getName().equals("getObject")) {
+                            GetObjectRequest req = (GetObjectRequest) args[0];
+                            publishProgress(req.getGeneralProgressListener(),
+                                    ProgressEventType.TRANSFER_STARTED_EVENT);
+                            long[] range = req.getRange();
+                            int length = (int) (range[1] - range[0] + 1);
+                            S3Object s3Object = new S3Object();
+                            s3Object.setBucketName(req.getBucketName());
+                            s3Object.setKey(req.getKey());
+                            s3Object.setObjectMetadata(metadata(length));
+                            s3Object.setObjectContent(new S3ObjectInputStream(
+                                    new ByteArrayInputStream(CONTENT, (int) range[0], length),
+                                    new HttpGet()));
+                            publishProgress(req.getGeneralProgressListener(),
+                                    ProgressEventType.TRANSFER_COMPLETED_EVENT);
+                            return s3Object;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static ObjectMetadata metadata(long contentLength) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        metadata.setHeader(Headers.ETAG, ETAG);
+        return metadata;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
+import com.amazonaws.services.s3.transfer.Upload;
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Tests the upload of input streams of unknown length.
+ */
+public class UploadCallableTest {
+
+    private static final String UPLOAD_ID = "upload-id";
+    private static final int PART_SIZE = 100;
+    /** The parts from this one on block until interrupted, if set. */
+    private volatile int firstBlockingPart = Integer.MAX_VALUE;
+
+    /** The content of the uploaded parts, by part number. */
+    private final Map<Integer, byte[]> parts = new ConcurrentSkipListMap<Integer, byte[]>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger blocked = new AtomicInteger();
+    private final AtomicInteger interrupted = new AtomicInteger();
+    private volatile List<PartETag> completedParts;
+    private volatile String abortedUploadId;
+
+    private TransferManager tm;
+    private TransferManagerConfiguration configuration;
+
+    @Before
+    public void setUp() {
+        tm = new TransferManager(s3(), Executors.newFixedThreadPool(4));
+        configuration = new TransferManagerConfiguration();
+        configuration.setMinimumUploadPartSize(PART_SIZE);
+        configuration.setUploadBufferMemoryLimit(3 * PART_SIZE);
+        tm.setConfiguration(configuration);
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdownNow(false);
+    }
+
+    @Test
+    public void testStreamOfUnknownLengthIsUploadedInBoundedParts() throws Exception {
+        byte[] content = randomBytes(10 * PART_SIZE + 50);
+        tm.upload("bucket", "key", new ByteArrayInputStream(content), new ObjectMetadata())
+                .waitForCompletion();
+
+        assertEquals(11, completedParts.size());
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        for (int i = 0; i < completedParts.size(); i++) {
+            assertEquals(i + 1, completedParts.get(i).getPartNumber());
+            uploaded.write(parts.get(i + 1));
+        }
+        assertArrayEquals(content, uploaded.toByteArray());
+        assertTrue("Parts in flight: " + maxInFlight.get(), maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testPartLargerThanTheMemoryLimitFails() throws Exception {
+        configuration.setUploadBufferMemoryLimit(PART_SIZE);
+        // the part size doubles after the first 500 parts
+        int length = TransferManagerUtils.STREAM_PART_SIZE_DOUBLING_INTERVAL * PART_SIZE + 3 * PART_SIZE;
+        Upload upload = tm.upload("bucket", "key",
+                new ByteArrayInputStream(randomBytes(length)), new ObjectMetadata());
+        try {
+            upload.waitForCompletion();
+            fail("Expected an AmazonClientException");
+        } catch (AmazonClientException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("upload buffer memory limit"));
+        }
+        // the last parts may be cancelled, but none beyond the limit is read
+        assertTrue(parts.size() <= TransferManagerUtils.STREAM_PART_SIZE_DOUBLING_INTERVAL);
+        assertTrue(parts.size() >= TransferManagerUtils.STREAM_PART_SIZE_DOUBLING_INTERVAL - 3);
+        assertEquals(UPLOAD_ID, abortedUploadId);
+    }
+
+    @Test
+    public void testAbortCancelsTheParts() throws Exception {
+        firstBlockingPart = 2;
+        Upload upload = tm.upload("bucket", "key",
+                new ByteArrayInputStream(randomBytes(20 * PART_SIZE)), new ObjectMetadata());
+        // three threads of the pool upload parts, the fourth reads the stream
+        awaitCount(blocked, 3);
+
+        upload.abort();
+        awaitCount(interrupted, 3);
+        assertEquals(UPLOAD_ID, abortedUploadId);
+        assertEquals(1, parts.size());
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (count.get() != expected) {
+            assertTrue("Expected " + expected + " but got " + count.get(),
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private UploadPartResult uploadPart(UploadPartRequest req) throws Exception {
+        int n = inFlight.incrementAndGet();
+        try {
+            synchronized (maxInFlight) {
+                maxInFlight.set(Math.max(maxInFlight.get(), n));
+            }
+            if (req.getPartNumber() >= firstBlockingPart) {
+                blocked.incrementAndGet();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    throw new AmazonClientException("Interrupted", e);
+                }
+            }
+            Thread.sleep(5);
+            parts.put(req.getPartNumber(), IOUtils.toByteArray(req.getInputStream()));
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(req.getPartNumber());
+            result.setETag("etag-" + req.getPartNumber());
+            return result;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a client that records the multipart uploads.
+     */
+    private AmazonS3 s3() {
+        return (AmazonS3) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AmazonS3.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                        String name = method.getName();
+                        if (name.equals("initiateMultipartUpload")) {
+                            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+                            result.setUploadId(UPLOAD_ID);
+                            return result;
+                        }
+                        if (name.equals("uploadPart")) {
+                            return uploadPart((UploadPartRequest) args[0]);
+                        }
+                        if (name.equals("completeMultipartUpload")) {
+                            completedParts = ((CompleteMultipartUploadRequest) args[0]).getPartETags();
+                            return new CompleteMultipartUploadResult();
+                        }
+                        if (name.equals("abortMultipartUpload")) {
+                            abortedUploadId = ((AbortMultipartUploadRequest) args[0]).getUploadId();
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}
@@ -22,6 +22,7 @@ import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.generic.ActivityImplementation;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOActivityImplementationFactory;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericActivityWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.TaskPollerMetrics;
 import com.amazonaws.services.simpleworkflow.model.ActivityType;
 
 public class ActivityWorker implements WorkerBase {
@@ -88,6 +89,18 @@ public class ActivityWorker implements WorkerBase {
         genericWorker.setTaskExecutorThreadPoolSize(taskExecutorThreadPoolSize);
     }
 
+    public int getTaskQueueCapacity() {
+        return genericWorker.getTaskQueueCapacity();
+    }
+
+    public void setTaskQueueCapacity(int taskQueueCapacity) {
+        genericWorker.setTaskQueueCapacity(taskQueueCapacity);
+    }
+
+    public TaskPollerMetrics getTaskPollerMetrics() {
+        return genericWorker.getTaskPollerMetrics();
+    }
+
     @Override
     public boolean shutdownAndAwaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
         return genericWorker.shutdownAndAwaitTermination(timeout, unit);
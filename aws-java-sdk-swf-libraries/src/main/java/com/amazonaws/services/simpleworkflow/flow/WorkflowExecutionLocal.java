@@ -15,7 +15,9 @@
 package com.amazonaws.services.simpleworkflow.flow;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Contains value that is bound to a currently executing workflow. Has the same
@@ -29,6 +31,21 @@ public class WorkflowExecutionLocal<T> {
         public T wrapped;
     }
 
+    /**
+     * The values of the workflow execution locals of a workflow execution,
+     * saved by {@link WorkflowExecutionLocal#save()} at the end of a decision
+     * so that a later decision of the same workflow execution can continue
+     * with them, possibly in another thread. Only used by the framework.
+     */
+    public static final class Snapshot {
+
+        private final Map<WorkflowExecutionLocal<?>, Wrapper<?>> values;
+
+        private Snapshot(Map<WorkflowExecutionLocal<?>, Wrapper<?>> values) {
+            this.values = values;
+        }
+    }
+
     /**
      * It is not good idea to rely on the fact that implementation relies on
      * ThreadLocal as it is subject to change.
@@ -68,6 +85,50 @@ public class WorkflowExecutionLocal<T> {
         }
     }
 
+    /**
+     * Returns the values of the current thread, so that they can be bound to
+     * another thread by {@link #restore(Snapshot)} when the same workflow
+     * execution is continued by a later decision. Only meant to be called by
+     * the framework, like {@link #before()} and {@link #after()}.
+     */
+    public static Snapshot save() {
+        List<WorkflowExecutionLocal<?>> currentLocals;
+        synchronized (locals) {
+            currentLocals = new ArrayList<WorkflowExecutionLocal<?>>(locals);
+        }
+        Map<WorkflowExecutionLocal<?>, Wrapper<?>> saved = new IdentityHashMap<WorkflowExecutionLocal<?>, Wrapper<?>>();
+        for (WorkflowExecutionLocal<?> local : currentLocals) {
+            Wrapper<?> w = local.value.get();
+            if (w != null) {
+                saved.put(local, w);
+            }
+        }
+        return new Snapshot(saved);
+    }
+
+    /**
+     * Must be called instead of {@link #before()} before a decision that
+     * continues the workflow execution whose values were returned by
+     * {@link #save()}. Only meant to be called by the framework, like
+     * {@link #before()} and {@link #after()}.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static void restore(Snapshot saved) {
+        Map<WorkflowExecutionLocal<?>, Wrapper<?>> savedLocals = saved.values;
+        List<WorkflowExecutionLocal<?>> currentLocals;
+        synchronized (locals) {
+            currentLocals = new ArrayList<WorkflowExecutionLocal<?>>(locals);
+        }
+        for (WorkflowExecutionLocal local : currentLocals) {
+            Wrapper w = savedLocals.get(local);
+            if (w == null) {
+                w = new Wrapper();
+                w.wrapped = local.initialValue();
+            }
+            local.set(w);
+        }
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public WorkflowExecutionLocal() {
         Wrapper w = new Wrapper();
@@ -21,7 +21,9 @@ import java.util.concurrent.TimeUnit;
 
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOWorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.flow.worker.DeciderCache;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericWorkflowWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.TaskPollerMetrics;
 
 public class WorkflowWorker implements WorkerBase {
 
@@ -161,6 +163,38 @@ public class WorkflowWorker implements WorkerBase {
         genericWorker.setPollThreadCount(threadCount);
     }
 
+    public int getDeciderCacheSize() {
+        return genericWorker.getDeciderCacheSize();
+    }
+
+    public void setDeciderCacheSize(int deciderCacheSize) {
+        genericWorker.setDeciderCacheSize(deciderCacheSize);
+    }
+
+    public DeciderCache getDeciderCache() {
+        return genericWorker.getDeciderCache();
+    }
+
+    public int getTaskExecutorThreadPoolSize() {
+        return genericWorker.getTaskExecutorThreadPoolSize();
+    }
+
+    public void setTaskExecutorThreadPoolSize(int taskExecutorThreadPoolSize) {
+        genericWorker.setTaskExecutorThreadPoolSize(taskExecutorThreadPoolSize);
+    }
+
+    public int getTaskQueueCapacity() {
+        return genericWorker.getTaskQueueCapacity();
+    }
+
+    public void setTaskQueueCapacity(int taskQueueCapacity) {
+        genericWorker.setTaskQueueCapacity(taskQueueCapacity);
+    }
+
+    public TaskPollerMetrics getTaskPollerMetrics() {
+        return genericWorker.getTaskPollerMetrics();
+    }
+
     @Override
     public void registerTypesToPoll() {
         genericWorker.registerTypesToPoll();
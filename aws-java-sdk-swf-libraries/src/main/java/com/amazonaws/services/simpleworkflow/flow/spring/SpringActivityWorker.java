@@ -25,6 +25,7 @@ import com.amazonaws.services.simpleworkflow.flow.DataConverter;
 import com.amazonaws.services.simpleworkflow.flow.WorkerBase;
 import com.amazonaws.services.simpleworkflow.flow.pojo.POJOActivityImplementationFactory;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericActivityWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.TaskPollerMetrics;
 import com.amazonaws.services.simpleworkflow.model.ActivityType;
 
 public class SpringActivityWorker implements WorkerBase, SmartLifecycle {
@@ -168,6 +169,18 @@ public class SpringActivityWorker implements WorkerBase, SmartLifecycle {
     public void setTaskExecutorThreadPoolSize(int taskExecutorThreadPoolSize) {
         genericWorker.setTaskExecutorThreadPoolSize(taskExecutorThreadPoolSize);
     }
+
+    public int getTaskQueueCapacity() {
+        return genericWorker.getTaskQueueCapacity();
+    }
+
+    public void setTaskQueueCapacity(int taskQueueCapacity) {
+        genericWorker.setTaskQueueCapacity(taskQueueCapacity);
+    }
+
+    public TaskPollerMetrics getTaskPollerMetrics() {
+        return genericWorker.getTaskPollerMetrics();
+    }
     
     public boolean isDisableServiceShutdownOnStop() {
         return genericWorker.isDisableServiceShutdownOnStop();
@@ -22,7 +22,9 @@ import org.springframework.context.SmartLifecycle;
 import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
 import com.amazonaws.services.simpleworkflow.flow.DataConverter;
 import com.amazonaws.services.simpleworkflow.flow.WorkerBase;
+import com.amazonaws.services.simpleworkflow.flow.worker.DeciderCache;
 import com.amazonaws.services.simpleworkflow.flow.worker.GenericWorkflowWorker;
+import com.amazonaws.services.simpleworkflow.flow.worker.TaskPollerMetrics;
 import com.amazonaws.services.simpleworkflow.model.WorkflowType;
 
 /**
@@ -205,6 +207,38 @@ public class SpringWorkflowWorker implements WorkerBase, SmartLifecycle {
         genericWorker.setPollThreadCount(threadCount);
     }
 
+    public int getDeciderCacheSize() {
+        return genericWorker.getDeciderCacheSize();
+    }
+
+    public void setDeciderCacheSize(int deciderCacheSize) {
+        genericWorker.setDeciderCacheSize(deciderCacheSize);
+    }
+
+    public DeciderCache getDeciderCache() {
+        return genericWorker.getDeciderCache();
+    }
+
+    public int getTaskExecutorThreadPoolSize() {
+        return genericWorker.getTaskExecutorThreadPoolSize();
+    }
+
+    public void setTaskExecutorThreadPoolSize(int taskExecutorThreadPoolSize) {
+        genericWorker.setTaskExecutorThreadPoolSize(taskExecutorThreadPoolSize);
+    }
+
+    public int getTaskQueueCapacity() {
+        return genericWorker.getTaskQueueCapacity();
+    }
+
+    public void setTaskQueueCapacity(int taskQueueCapacity) {
+        genericWorker.setTaskQueueCapacity(taskQueueCapacity);
+    }
+
+    public TaskPollerMetrics getTaskPollerMetrics() {
+        return genericWorker.getTaskPollerMetrics();
+    }
+
     @Override
     public void suspendPolling() {
         genericWorker.suspendPolling();
@@ -15,6 +15,7 @@
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -36,6 +37,8 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
 
     protected Semaphore pollSemaphore;
 
+    private final TaskPollerMetrics metrics = new TaskPollerMetrics();
+
     private UncaughtExceptionHandler uncaughtExceptionHandler = new UncaughtExceptionHandler() {
 
         @Override
@@ -54,9 +57,18 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
         return taskExecutorService;
     }
 
+    /**
+     * Polling is suspended while the executor is running or queueing as many
+     * tasks as it can hold without blocking.
+     */
     public void setTaskExecutorService(ThreadPoolExecutor taskExecutorService) {
         this.taskExecutorService = taskExecutorService;
-        pollSemaphore = new Semaphore(taskExecutorService.getMaximumPoolSize());
+        pollSemaphore = new Semaphore(BlockCallerPolicy.getTaskCapacity(taskExecutorService));
+        metrics.setTaskExecutorService(taskExecutorService);
+    }
+
+    public TaskPollerMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -78,7 +90,11 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
             }
             // we will release the semaphore in a finally clause
             semaphoreNeedsRelease = true;
-            final ActivityTask task = poll();
+            // A task polled after shutdown would never be executed
+            if (taskExecutorService.isShutdown()) {
+                return false;
+            }
+            final ActivityTask task = pollWithMetrics();
             if (task == null) {
                 return false;
             }
@@ -88,13 +104,17 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
 
                     @Override
                     public void run() {
+                        long start = System.nanoTime();
+                        boolean failed = true;
                         try {
                             execute(task);
+                            failed = false;
                         }
                         catch (Throwable ee) {
                             uncaughtExceptionHandler.uncaughtException(Thread.currentThread(), wrapFailure(task, ee));
                         }
                         finally {
+                            metrics.recordTaskExecution(System.nanoTime() - start, failed);
                             pollSemaphore.release();
                         }
                     }
@@ -116,6 +136,13 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
         return true;
     }
 
+    private ActivityTask pollWithMetrics() {
+        long start = System.nanoTime();
+        ActivityTask task = poll();
+        metrics.recordPoll(System.nanoTime() - start, task != null);
+        return task;
+    }
+
     private Exception wrapFailure(final ActivityTask task, Throwable failure) {
         WorkflowExecution execution = task.getWorkflowExecution();
 
@@ -132,7 +159,9 @@ public class ActivityTaskPoller extends SynchronousActivityTaskPoller {
 
     @Override
     public void shutdownNow() {
-        taskExecutorService.shutdownNow();
+        // The tasks that never ran still hold the permits of their polls
+        List<Runnable> droppedTasks = taskExecutorService.shutdownNow();
+        pollSemaphore.release(droppedTasks.size());
     }
 
     @Override
@@ -25,6 +25,7 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.services.simpleworkflow.flow.DecisionContext;
 import com.amazonaws.services.simpleworkflow.flow.WorkflowException;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncScope;
 import com.amazonaws.services.simpleworkflow.flow.core.AsyncTaskInfo;
 import com.amazonaws.services.simpleworkflow.flow.core.Promise;
@@ -131,7 +132,7 @@ class AsyncDecider {
 
     private WorkflowDefinition definition;
 
-    private final HistoryHelper historyHelper;
+    private HistoryHelper historyHelper;
 
     private final DecisionsHelper decisionsHelper;
 
@@ -157,6 +158,12 @@ class AsyncDecider {
 
     private Throwable failure;
 
+    private long lastDecisionTaskStartedEventId = -1;
+
+    private long lastProcessedEventId;
+
+    private WorkflowExecutionLocal.Snapshot workflowExecutionLocals;
+
     public AsyncDecider(WorkflowDefinitionFactory workflowDefinitionFactory, HistoryHelper historyHelper,
             DecisionsHelper decisionsHelper) throws Exception {
         this.workflowDefinitionFactory = workflowDefinitionFactory;
@@ -445,10 +452,95 @@ class AsyncDecider {
 
     public void decide() throws Exception {
         try {
-            definition = workflowDefinitionFactory.getWorkflowDefinition(context);
+            decideEvents();
+        }
+        finally {
+            workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+        }
+    }
+
+    /**
+     * Same as {@link #decide()}, but keeps the workflow definition, so that
+     * the decider can continue with the next decision task of the workflow
+     * execution through {@link #decideNewEvents(HistoryHelper)}.
+     * {@link #deleteWorkflowDefinition()} must be called once the decider is
+     * no longer used.
+     */
+    void decideAndKeepWorkflowDefinition() throws Exception {
+        try {
+            decideEvents();
+        }
+        finally {
+            saveWorkflowExecutionLocals();
+        }
+    }
+
+    /**
+     * Continues the workflow execution with the events of the given history
+     * that follow the last decision task processed by this decider, instead
+     * of replaying the whole history.
+     * 
+     * @return false, without processing any event, if the history doesn't
+     *         continue from the last decision task processed by this decider
+     */
+    boolean decideNewEvents(HistoryHelper historyHelper) throws Exception {
+        if (lastDecisionTaskStartedEventId < 0 || historyHelper.getLastNonReplayEventId() != lastDecisionTaskStartedEventId) {
+            return false;
+        }
+        WorkflowExecutionLocal.restore(workflowExecutionLocals);
+        try {
+            this.historyHelper = historyHelper;
+            historyHelper.getEvents().skipProcessedEvents(lastDecisionTaskStartedEventId);
+            decideEvents();
+        }
+        finally {
+            saveWorkflowExecutionLocals();
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the last decision task was decided without completing
+     *         or failing the workflow execution, so that the decider can
+     *         continue with the next decision task
+     */
+    boolean canDecideNewEvents() {
+        return !completed && !decisionsHelper.isWorkflowFailed() && lastDecisionTaskStartedEventId >= 0
+                && lastProcessedEventId == lastDecisionTaskStartedEventId;
+    }
+
+    /**
+     * Deletes the workflow definition kept by
+     * {@link #decideAndKeepWorkflowDefinition()}.
+     */
+    void deleteWorkflowDefinition() {
+        if (workflowExecutionLocals != null) {
+            WorkflowExecutionLocal.restore(workflowExecutionLocals);
+            workflowExecutionLocals = null;
+        }
+        try {
+            workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
+        }
+        finally {
+            WorkflowExecutionLocal.after();
+        }
+    }
+
+    private void saveWorkflowExecutionLocals() {
+        workflowExecutionLocals = WorkflowExecutionLocal.save();
+        WorkflowExecutionLocal.after();
+    }
+
+    private void decideEvents() throws Exception {
+        try {
             if (definition == null) {
-                throw new IllegalStateException("Unknown workflow type: " + context.getWorkflowContext().getWorkflowType());
+                definition = workflowDefinitionFactory.getWorkflowDefinition(context);
+                if (definition == null) {
+                    throw new IllegalStateException("Unknown workflow type: " + context.getWorkflowContext().getWorkflowType());
+                }
             }
+            Long startedEventId = historyHelper.getDecisionTask().getStartedEventId();
+            lastDecisionTaskStartedEventId = startedEventId == null ? -1 : startedEventId;
             long lastNonReplayedEventId = historyHelper.getLastNonReplayEventId();
             // Buffer events until the next DecisionTaskStarted and then process them
             // setting current time to the time of DecisionTaskStarted event
@@ -461,6 +553,7 @@ class AsyncDecider {
                 int lastDecisionIndex = -1;
                 while (eventsIterator.hasNext()) {
                     HistoryEvent event = eventsIterator.next();
+                    lastProcessedEventId = event.getEventId();
                     EventType eventType = EventType.valueOf(event.getEventType());
                     if (eventType == EventType.DecisionTaskCompleted) {
                         decisionsHelper.setWorkflowContextData(event.getDecisionTaskCompletedEventAttributes().getExecutionContext());
@@ -553,7 +646,6 @@ class AsyncDecider {
             catch (Throwable e) {
                 decisionsHelper.setWorkflowContextData(e.getMessage());
             }
-            workflowDefinitionFactory.deleteWorkflowDefinition(this.definition);
         }
     }
 
@@ -39,15 +39,72 @@ public class AsyncDecisionTaskHandler extends DecisionTaskHandler {
 
     private final WorkflowDefinitionFactoryFactory definitionFactoryFactory;
 
+    private final DeciderCache deciderCache;
+
     public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory) {
+        this(definitionFactoryFactory, null);
+    }
+
+    /**
+     * @param deciderCache
+     *            cache of the deciders of open workflow executions, which
+     *            avoids replaying the whole history of a workflow execution on
+     *            each of its decision tasks; or null to always replay it
+     */
+    public AsyncDecisionTaskHandler(WorkflowDefinitionFactoryFactory definitionFactoryFactory, DeciderCache deciderCache) {
         this.definitionFactoryFactory = definitionFactoryFactory;
+        this.deciderCache = deciderCache;
+    }
+
+    public DeciderCache getDeciderCache() {
+        return deciderCache;
     }
 
     @Override
     public RespondDecisionTaskCompletedRequest handleDecisionTask(Iterator<DecisionTask> decisionTaskIterator) throws Exception {
         HistoryHelper historyHelper = new HistoryHelper(decisionTaskIterator);
-        AsyncDecider decider = createDecider(historyHelper);
-        decider.decide();
+        if (deciderCache == null) {
+            AsyncDecider decider = createDecider(historyHelper);
+            decider.decide();
+            return createCompletedRequest(historyHelper, decider);
+        }
+        String runId = historyHelper.getDecisionTask().getWorkflowExecution().getRunId();
+        AsyncDecider decider = deciderCache.remove(runId);
+        boolean decided = false;
+        try {
+            if (decider != null && decider.decideNewEvents(historyHelper)) {
+                deciderCache.recordHit();
+            }
+            else {
+                if (decider != null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Replaying history as it doesn't continue from the cached decider of runId=" + runId);
+                    }
+                    deciderCache.delete(decider);
+                    decider = null;
+                }
+                deciderCache.recordMiss();
+                decider = createDecider(historyHelper);
+                decider.decideAndKeepWorkflowDefinition();
+            }
+            RespondDecisionTaskCompletedRequest completedRequest = createCompletedRequest(historyHelper, decider);
+            decided = true;
+            return completedRequest;
+        }
+        finally {
+            // The decider is cached only once it's no longer used by this task
+            if (decider != null) {
+                if (decided && decider.canDecideNewEvents()) {
+                    deciderCache.put(runId, decider);
+                }
+                else {
+                    deciderCache.delete(decider);
+                }
+            }
+        }
+    }
+
+    private RespondDecisionTaskCompletedRequest createCompletedRequest(HistoryHelper historyHelper, AsyncDecider decider) {
         DecisionsHelper decisionsHelper = decider.getDecisionsHelper();
         Collection<Decision> decisions = decisionsHelper.getDecisions();
         String context = decisionsHelper.getWorkflowContextDataToReturn();
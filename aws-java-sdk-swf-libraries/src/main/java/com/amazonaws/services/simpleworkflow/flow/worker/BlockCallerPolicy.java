@@ -21,6 +21,16 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 class BlockCallerPolicy implements RejectedExecutionHandler {
 
+    /**
+     * @return number of tasks that the executor can run or queue at the same
+     *         time, so that a poller that doesn't poll for more tasks is never
+     *         blocked by this policy
+     */
+    static int getTaskCapacity(ThreadPoolExecutor executor) {
+        long capacity = (long) executor.getMaximumPoolSize() + executor.getQueue().remainingCapacity();
+        return (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
     @Override
     public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
         try {
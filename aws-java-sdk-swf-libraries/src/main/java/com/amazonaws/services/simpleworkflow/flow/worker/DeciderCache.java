@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Size-bounded cache of the deciders of open workflow executions, keyed by run
+ * ID. A decider that is found in the cache when the next decision task of its
+ * workflow execution is received processes only the events that follow its
+ * last decision task, instead of replaying the whole history of the workflow
+ * execution. A full replay is done if the decider isn't cached, or if the
+ * history doesn't continue from its last decision task (for example because
+ * the decision task timed out, or the decisions couldn't be reported).
+ * <p>
+ * A decider is removed from the cache while it is deciding, so that it is
+ * never used by two decision tasks at the same time. The least recently used
+ * decider is evicted when the cache is full.
+ */
+public class DeciderCache {
+
+    private static final Log log = LogFactory.getLog(DeciderCache.class);
+
+    private final int maximumSize;
+
+    private final Map<String, AsyncDecider> deciders;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * @param maximumSize
+     *            maximum number of workflow executions whose deciders are
+     *            cached
+     */
+    public DeciderCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.deciders = new LinkedHashMap<String, AsyncDecider>(16, 0.75f, true);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized int size() {
+        return deciders.size();
+    }
+
+    /**
+     * @return number of decision tasks that were decided by a cached decider
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of decision tasks that required a full replay of the
+     *         workflow history
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return ratio of the decision tasks that were decided by a cached
+     *         decider; or 0 if no decision task has been received
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Removes all the cached deciders, so that the next decision task of each
+     * workflow execution replays its whole history.
+     */
+    public void invalidateAll() {
+        List<AsyncDecider> removed;
+        synchronized (this) {
+            removed = new ArrayList<AsyncDecider>(deciders.values());
+            deciders.clear();
+        }
+        for (AsyncDecider decider : removed) {
+            delete(decider);
+        }
+    }
+
+    /**
+     * Removes the decider of the given workflow execution from the cache.
+     *
+     * @return the cached decider; or null if there is none
+     */
+    synchronized AsyncDecider remove(String runId) {
+        return deciders.remove(runId);
+    }
+
+    /**
+     * Caches the decider of the given workflow execution, evicting the least
+     * recently used deciders if the cache is full.
+     */
+    void put(String runId, AsyncDecider decider) {
+        List<AsyncDecider> evicted = new ArrayList<AsyncDecider>();
+        synchronized (this) {
+            AsyncDecider previous = deciders.put(runId, decider);
+            if (previous != null && previous != decider) {
+                evicted.add(previous);
+            }
+            Iterator<AsyncDecider> iterator = deciders.values().iterator();
+            while (deciders.size() > maximumSize) {
+                evicted.add(iterator.next());
+                iterator.remove();
+            }
+        }
+        for (AsyncDecider evictedDecider : evicted) {
+            delete(evictedDecider);
+        }
+    }
+
+    void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    /**
+     * Deletes the workflow definition of a decider that is no longer cached.
+     * Must not be called while a decision is being made in the current thread.
+     */
+    void delete(AsyncDecider decider) {
+        try {
+            decider.deleteWorkflowDefinition();
+        }
+        catch (Throwable e) {
+            log.warn("Failure deleting the workflow definition of a cached decider", e);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DeciderCache[maximumSize=" + maximumSize + ", size=" + deciders.size() + ", hitCount=" + hitCount
+                + ", missCount=" + missCount + "]";
+    }
+}
@@ -14,8 +14,12 @@
  */
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.management.ManagementFactory;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -91,6 +95,20 @@ public class DecisionTaskPoller implements TaskPoller {
 
     private DecisionTaskHandler decisionTaskHandler;
 
+    private ThreadPoolExecutor taskExecutorService;
+
+    private Semaphore pollSemaphore;
+
+    private final TaskPollerMetrics metrics = new TaskPollerMetrics();
+
+    private UncaughtExceptionHandler uncaughtExceptionHandler = new UncaughtExceptionHandler() {
+
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+            log.error("Failure in thread " + t.getName(), e);
+        }
+    };
+
     public DecisionTaskPoller() {
         identity = ManagementFactory.getRuntimeMXBean().getName();
     }
@@ -143,6 +161,26 @@ public class DecisionTaskPoller implements TaskPoller {
         return taskListToPoll;
     }
 
+    public ThreadPoolExecutor getTaskExecutorService() {
+        return taskExecutorService;
+    }
+
+    /**
+     * Sets the executor that decides the polled decision tasks, so that the
+     * polling threads only poll. Polling is suspended while the executor is
+     * running or queueing as many tasks as it can hold without blocking. By
+     * default decision tasks are decided by the thread that polled them.
+     */
+    public void setTaskExecutorService(ThreadPoolExecutor taskExecutorService) {
+        this.taskExecutorService = taskExecutorService;
+        pollSemaphore = taskExecutorService == null ? null : new Semaphore(BlockCallerPolicy.getTaskCapacity(taskExecutorService));
+        metrics.setTaskExecutorService(taskExecutorService);
+    }
+
+    public TaskPollerMetrics getMetrics() {
+        return metrics;
+    }
+
     public void setTaskListToPoll(String pollTaskList) {
         this.taskListToPoll = pollTaskList;
     }
@@ -185,37 +223,94 @@ public class DecisionTaskPoller implements TaskPoller {
      * call the service multiple times to retrieve the whole history it it is
      * paginated.
      * 
-     * @return true if task was polled and decided upon, false if poll timed out
+     * @return true if task was polled and decided upon (or handed to the task
+     *         executor), false if poll timed out
      * @throws Exception
      * @throws DeciderConfigurationException
      */
     @Override
     public boolean pollAndProcessSingleTask() throws Exception {
-        DecisionTaskIterator tasks = null;
-        RespondDecisionTaskCompletedRequest taskCompletedRequest = null;
+        if (taskExecutorService == null) {
+            DecisionTaskIterator tasks = pollWithMetrics();
+            if (tasks == null) {
+                return false;
+            }
+            processTask(tasks);
+            return true;
+        }
+        boolean semaphoreNeedsRelease = false;
         try {
-            tasks = new DecisionTaskIterator();
-            if (!tasks.hasNext()) {
+            // Don't poll for a task that the executor wouldn't start before
+            // its decision task times out
+            pollSemaphore.acquire();
+            semaphoreNeedsRelease = true;
+            // A task polled after shutdown would never be decided
+            if (taskExecutorService.isShutdown()) {
+                return false;
+            }
+            final DecisionTaskIterator tasks = pollWithMetrics();
+            if (tasks == null) {
                 return false;
             }
+            taskExecutorService.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        processTask(tasks);
+                    }
+                    catch (Throwable e) {
+                        uncaughtExceptionHandler.uncaughtException(Thread.currentThread(), e);
+                    }
+                    finally {
+                        pollSemaphore.release();
+                    }
+                }
+            });
+            semaphoreNeedsRelease = false;
+        }
+        finally {
+            if (semaphoreNeedsRelease) {
+                pollSemaphore.release();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the pages of the polled decision task; or null if the poll timed
+     *         out
+     */
+    private DecisionTaskIterator pollWithMetrics() {
+        long start = System.nanoTime();
+        DecisionTaskIterator tasks = new DecisionTaskIterator();
+        boolean taskReceived = tasks.hasNext();
+        metrics.recordPoll(System.nanoTime() - start, taskReceived);
+        return taskReceived ? tasks : null;
+    }
+
+    private void processTask(DecisionTaskIterator tasks) throws Exception {
+        long start = System.nanoTime();
+        boolean failed = true;
+        RespondDecisionTaskCompletedRequest taskCompletedRequest = null;
+        try {
             taskCompletedRequest = decisionTaskHandler.handleDecisionTask(tasks);
             if (decisionsLog.isTraceEnabled()) {
                 decisionsLog.trace(WorkflowExecutionUtils.prettyPrintDecisions(taskCompletedRequest.getDecisions()));
             }
             service.respondDecisionTaskCompleted(taskCompletedRequest);
+            failed = false;
         }
         catch (Exception e) {
-            if (tasks != null) {
-                DecisionTask firstTask = tasks.getFirstDecisionTask();
-                if (firstTask != null) {
-                    if (log.isWarnEnabled()) {
-                        log.warn("DecisionTask failure: taskId= " + firstTask.getStartedEventId() + ", workflowExecution="
-                                + firstTask.getWorkflowExecution(), e);
-                    }
-                    if (log.isDebugEnabled() && firstTask.getEvents() != null) {
-                        log.debug("Failed taskId=" + firstTask.getStartedEventId() + " history: "
-                                + WorkflowExecutionUtils.prettyPrintHistory(firstTask.getEvents(), true));
-                    }
+            DecisionTask firstTask = tasks.getFirstDecisionTask();
+            if (firstTask != null) {
+                if (log.isWarnEnabled()) {
+                    log.warn("DecisionTask failure: taskId= " + firstTask.getStartedEventId() + ", workflowExecution="
+                            + firstTask.getWorkflowExecution(), e);
+                }
+                if (log.isDebugEnabled() && firstTask.getEvents() != null) {
+                    log.debug("Failed taskId=" + firstTask.getStartedEventId() + " history: "
+                            + WorkflowExecutionUtils.prettyPrintHistory(firstTask.getEvents(), true));
                 }
                 if (taskCompletedRequest != null && decisionsLog.isWarnEnabled()) {
                     decisionsLog.warn("Failed taskId=" + firstTask.getStartedEventId() + " decisions="
@@ -224,7 +319,9 @@ public class DecisionTaskPoller implements TaskPoller {
             }
             throw e;
         }
-        return true;
+        finally {
+            metrics.recordTaskExecution(System.nanoTime() - start, failed);
+        }
     }
 
     /**
@@ -256,14 +353,25 @@ public class DecisionTaskPoller implements TaskPoller {
 
     @Override
     public void shutdown() {
+        if (taskExecutorService != null) {
+            taskExecutorService.shutdown();
+        }
     }
 
     @Override
     public void shutdownNow() {
+        if (taskExecutorService != null) {
+            // The tasks that never ran still hold the permits of their polls
+            List<Runnable> droppedTasks = taskExecutorService.shutdownNow();
+            pollSemaphore.release(droppedTasks.size());
+        }
     }
 
     @Override
     public boolean awaitTermination(long left, TimeUnit milliseconds) throws InterruptedException {
+        if (taskExecutorService != null) {
+            return taskExecutorService.awaitTermination(left, milliseconds);
+        }
         //TODO: Waiting for all currently running pollAndProcessSingleTask to complete 
         return false;
     }
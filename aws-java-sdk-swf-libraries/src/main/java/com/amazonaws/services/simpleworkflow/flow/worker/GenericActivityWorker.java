@@ -15,9 +15,7 @@
 package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -45,6 +43,10 @@ public class GenericActivityWorker extends GenericWorker {
 
     private int taskExecutorThreadPoolSize = 100;
 
+    private int taskQueueCapacity;
+
+    private volatile ActivityTaskPoller activityTaskPoller;
+
     public GenericActivityWorker(AmazonSimpleWorkflow service, String domain, String taskListToPoll) {
         super(service, domain, taskListToPoll);
         if (service == null) {
@@ -76,6 +78,33 @@ public class GenericActivityWorker extends GenericWorker {
         this.taskExecutorThreadPoolSize = taskExecutorThreadPoolSize;
     }
 
+    public int getTaskQueueCapacity() {
+        return taskQueueCapacity;
+    }
+
+    /**
+     * Sets the number of polled activity tasks that can wait for a thread of
+     * the task executor. Polling stops while all the threads are busy and the
+     * queue is full. The default of 0 only polls for a task when a thread is
+     * available to execute it.
+     */
+    public void setTaskQueueCapacity(int taskQueueCapacity) {
+        if (taskQueueCapacity < 0) {
+            throw new IllegalArgumentException("negative taskQueueCapacity");
+        }
+        checkStarted();
+        this.taskQueueCapacity = taskQueueCapacity;
+    }
+
+    /**
+     * @return metrics of the polls and of the executed activity tasks; or null
+     *         if the worker isn't started
+     */
+    public TaskPollerMetrics getTaskPollerMetrics() {
+        ActivityTaskPoller poller = activityTaskPoller;
+        return poller == null ? null : poller.getMetrics();
+    }
+
     protected Semaphore createPollSemaphore() {
         return new Semaphore(taskExecutorThreadPoolSize);
     }
@@ -83,7 +112,7 @@ public class GenericActivityWorker extends GenericWorker {
     @Override
     public String toString() {
         return this.getClass().getSimpleName() + " [super=" + super.toString() + ", taskExecutorThreadPoolSize="
-                + taskExecutorThreadPoolSize + "]";
+                + taskExecutorThreadPoolSize + ", taskQueueCapacity=" + taskQueueCapacity + "]";
     }
 
     @Override
@@ -93,11 +122,11 @@ public class GenericActivityWorker extends GenericWorker {
 
     @Override
     protected TaskPoller createPoller() {
-        ThreadPoolExecutor tasksExecutor = new ThreadPoolExecutor(1, taskExecutorThreadPoolSize, 1, TimeUnit.MINUTES,
-                new SynchronousQueue<Runnable>());
-        tasksExecutor.setThreadFactory(new ExecutorThreadFactory(ACTIVITY_THREAD_NAME_PREFIX + " " + getTaskListToPoll() + " "));
-        tasksExecutor.setRejectedExecutionHandler(new BlockCallerPolicy());
-        return new ActivityTaskPoller(service, domain, getTaskListToPoll(), activityImplementationFactory, tasksExecutor);
+        ThreadPoolExecutor tasksExecutor = createTaskExecutor(taskExecutorThreadPoolSize, taskQueueCapacity,
+                ACTIVITY_THREAD_NAME_PREFIX + " " + getTaskListToPoll() + " ");
+        activityTaskPoller = new ActivityTaskPoller(service, domain, getTaskListToPoll(), activityImplementationFactory,
+                tasksExecutor);
+        return activityTaskPoller;
     }
 
     @Override
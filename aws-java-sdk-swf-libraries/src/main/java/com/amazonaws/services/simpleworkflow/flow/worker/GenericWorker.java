@@ -16,8 +16,10 @@ package com.amazonaws.services.simpleworkflow.flow.worker;
 
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -390,6 +392,37 @@ public abstract class GenericWorker implements WorkerBase {
         return pollExecutorThreadFactory;
     }
 
+    /**
+     * Creates the executor that runs the polled tasks, with up to the given
+     * number of threads. A caller submitting a task while every thread is
+     * busy, and the queue if any is full, blocks until one frees up.
+     *
+     * @param threadPoolSize
+     *            The maximum number of threads executing tasks.
+     * @param queueCapacity
+     *            The number of tasks that can wait for a free thread; zero
+     *            hands each task directly to a thread.
+     * @param threadNamePrefix
+     *            The prefix of the names of the executor threads.
+     */
+    protected ThreadPoolExecutor createTaskExecutor(int threadPoolSize, int queueCapacity, String threadNamePrefix) {
+        ThreadPoolExecutor tasksExecutor;
+        if (queueCapacity == 0) {
+            tasksExecutor = new ThreadPoolExecutor(1, threadPoolSize, 1, TimeUnit.MINUTES,
+                    new SynchronousQueue<Runnable>());
+        }
+        else {
+            // A queue only grows the pool beyond its core size once it is
+            // full, so all the threads are core threads, and time out when idle
+            BlockingQueue<Runnable> taskQueue = new LinkedBlockingQueue<Runnable>(queueCapacity);
+            tasksExecutor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 1, TimeUnit.MINUTES, taskQueue);
+            tasksExecutor.allowCoreThreadTimeOut(true);
+        }
+        tasksExecutor.setThreadFactory(new ExecutorThreadFactory(threadNamePrefix));
+        tasksExecutor.setRejectedExecutionHandler(new BlockCallerPolicy());
+        return tasksExecutor;
+    }
+
     protected abstract String getPollThreadNamePrefix();
 
     protected abstract TaskPoller createPoller();
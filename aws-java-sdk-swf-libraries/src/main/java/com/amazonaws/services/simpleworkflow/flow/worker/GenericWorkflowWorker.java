@@ -36,8 +36,20 @@ public class GenericWorkflowWorker extends GenericWorker {
 
     private static final String THREAD_NAME_PREFIX = "SWF Decider ";
 
+    private static final String DECISION_THREAD_NAME_PREFIX = "SWF Decision ";
+
     private WorkflowDefinitionFactoryFactory workflowDefinitionFactoryFactory;
 
+    private int deciderCacheSize;
+
+    private volatile DeciderCache deciderCache;
+
+    private int taskExecutorThreadPoolSize;
+
+    private int taskQueueCapacity;
+
+    private volatile DecisionTaskPoller decisionTaskPoller;
+
     public GenericWorkflowWorker() {
         setIdentity(ManagementFactory.getRuntimeMXBean().getName());
     }
@@ -57,6 +69,79 @@ public class GenericWorkflowWorker extends GenericWorker {
         this.workflowDefinitionFactoryFactory = workflowDefinitionFactoryFactory;
     }
 
+    public int getDeciderCacheSize() {
+        return deciderCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of open workflow executions whose deciders are
+     * kept in memory between their decision tasks, so that a decision task
+     * processes only the new events of the workflow history instead of
+     * replaying all of it. The default of 0 disables the cache.
+     * 
+     * @see DeciderCache
+     */
+    public void setDeciderCacheSize(int deciderCacheSize) {
+        checkStarted();
+        if (deciderCacheSize < 0) {
+            throw new IllegalArgumentException("negative deciderCacheSize: " + deciderCacheSize);
+        }
+        this.deciderCacheSize = deciderCacheSize;
+    }
+
+    /**
+     * @return the cache of the deciders, with its hit and miss counts; or null
+     *         if the worker isn't started or the cache is disabled
+     */
+    public DeciderCache getDeciderCache() {
+        return deciderCache;
+    }
+
+    public int getTaskExecutorThreadPoolSize() {
+        return taskExecutorThreadPoolSize;
+    }
+
+    /**
+     * Sets the number of threads that decide the polled decision tasks,
+     * independently of the number of polling threads. The default of 0
+     * decides each task in the thread that polled it.
+     */
+    public void setTaskExecutorThreadPoolSize(int taskExecutorThreadPoolSize) {
+        if (taskExecutorThreadPoolSize < 0) {
+            throw new IllegalArgumentException("negative taskExecutorThreadPoolSize");
+        }
+        checkStarted();
+        this.taskExecutorThreadPoolSize = taskExecutorThreadPoolSize;
+    }
+
+    public int getTaskQueueCapacity() {
+        return taskQueueCapacity;
+    }
+
+    /**
+     * Sets the number of polled decision tasks that can wait for a thread of
+     * the task executor, if {@link #setTaskExecutorThreadPoolSize(int)} is
+     * set. Polling stops while all the threads are busy and the queue is full.
+     * The default of 0 only polls for a task when a thread is available to
+     * decide it.
+     */
+    public void setTaskQueueCapacity(int taskQueueCapacity) {
+        if (taskQueueCapacity < 0) {
+            throw new IllegalArgumentException("negative taskQueueCapacity");
+        }
+        checkStarted();
+        this.taskQueueCapacity = taskQueueCapacity;
+    }
+
+    /**
+     * @return metrics of the polls and of the decided tasks; or null if the
+     *         worker isn't started
+     */
+    public TaskPollerMetrics getTaskPollerMetrics() {
+        DecisionTaskPoller poller = decisionTaskPoller;
+        return poller == null ? null : poller.getMetrics();
+    }
+
     protected DecisionTaskPoller createWorkflowPoller() {
         DecisionTaskPoller poller = new DecisionTaskPoller();
         return poller;
@@ -75,11 +160,19 @@ public class GenericWorkflowWorker extends GenericWorker {
     @Override
     protected TaskPoller createPoller() {
         DecisionTaskPoller result = new DecisionTaskPoller();
-        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory));
+        if (deciderCacheSize > 0) {
+            deciderCache = new DeciderCache(deciderCacheSize);
+        }
+        result.setDecisionTaskHandler(new AsyncDecisionTaskHandler(workflowDefinitionFactoryFactory, deciderCache));
         result.setDomain(getDomain());
         result.setIdentity(getIdentity());
         result.setService(getService());
         result.setTaskListToPoll(getTaskListToPoll());
+        if (taskExecutorThreadPoolSize > 0) {
+            result.setTaskExecutorService(createTaskExecutor(taskExecutorThreadPoolSize, taskQueueCapacity,
+                    DECISION_THREAD_NAME_PREFIX + getTaskListToPoll() + " "));
+        }
+        decisionTaskPoller = result;
         return result;
     }
 
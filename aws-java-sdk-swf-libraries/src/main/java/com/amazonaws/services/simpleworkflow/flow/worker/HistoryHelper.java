@@ -61,16 +61,37 @@ class HistoryHelper {
         @Override
         public HistoryEvent next() {
             if (index == events.size()) {
-                decisionTask = decisionTasks.next();
-                events = decisionTask.getEvents();
-                if (historyLog.isTraceEnabled()) {
-                    historyLog.trace(WorkflowExecutionUtils.prettyPrintHistory(events, true));
-                }
-                index = 0;
+                nextPage();
             }
             return events.get(index++);
         }
 
+        /**
+         * Skips the events up to and including the given one, which have
+         * already been processed by a decider that continues with this
+         * history.
+         */
+        public void skipProcessedEvents(long lastProcessedEventId) {
+            while (hasNext()) {
+                if (index == events.size()) {
+                    nextPage();
+                }
+                if (events.get(index).getEventId() > lastProcessedEventId) {
+                    return;
+                }
+                index++;
+            }
+        }
+
+        private void nextPage() {
+            decisionTask = decisionTasks.next();
+            events = decisionTask.getEvents();
+            if (historyLog.isTraceEnabled()) {
+                historyLog.trace(WorkflowExecutionUtils.prettyPrintHistory(events, true));
+            }
+            index = 0;
+        }
+
         public DecisionTask getDecisionTask() {
             return decisionTask;
         }
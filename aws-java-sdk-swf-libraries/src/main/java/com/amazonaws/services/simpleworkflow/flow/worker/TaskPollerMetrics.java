@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the polls made by a task poller and of the execution of the
+ * tasks it received.
+ */
+public class TaskPollerMetrics {
+
+    private final AtomicLong pollCount = new AtomicLong();
+
+    private final AtomicLong emptyPollCount = new AtomicLong();
+
+    private final AtomicLong pollTimeNanos = new AtomicLong();
+
+    private final AtomicLong executedTaskCount = new AtomicLong();
+
+    private final AtomicLong failedTaskCount = new AtomicLong();
+
+    private final AtomicLong taskExecutionTimeNanos = new AtomicLong();
+
+    private volatile ThreadPoolExecutor taskExecutorService;
+
+    /**
+     * @return number of polls that completed, including the ones that returned
+     *         no task
+     */
+    public long getPollCount() {
+        return pollCount.get();
+    }
+
+    /**
+     * @return number of polls that timed out without returning a task
+     */
+    public long getEmptyPollCount() {
+        return emptyPollCount.get();
+    }
+
+    /**
+     * @return average duration of a poll in milliseconds
+     */
+    public double getAveragePollLatencyMillis() {
+        return averageMillis(pollTimeNanos.get(), pollCount.get());
+    }
+
+    /**
+     * @return number of polled tasks whose execution has finished
+     */
+    public long getExecutedTaskCount() {
+        return executedTaskCount.get();
+    }
+
+    /**
+     * @return number of polled tasks whose execution threw an exception
+     */
+    public long getFailedTaskCount() {
+        return failedTaskCount.get();
+    }
+
+    /**
+     * @return average time spent executing a polled task, including reporting
+     *         its result, in milliseconds
+     */
+    public double getAverageTaskExecutionTimeMillis() {
+        return averageMillis(taskExecutionTimeNanos.get(), executedTaskCount.get());
+    }
+
+    /**
+     * @return number of polled tasks waiting for a thread of the task executor
+     */
+    public int getQueueDepth() {
+        ThreadPoolExecutor executor = taskExecutorService;
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    /**
+     * @return number of polled tasks being executed
+     */
+    public int getActiveTaskCount() {
+        ThreadPoolExecutor executor = taskExecutorService;
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    void setTaskExecutorService(ThreadPoolExecutor taskExecutorService) {
+        this.taskExecutorService = taskExecutorService;
+    }
+
+    void recordPoll(long durationNanos, boolean taskReceived) {
+        pollCount.incrementAndGet();
+        if (!taskReceived) {
+            emptyPollCount.incrementAndGet();
+        }
+        pollTimeNanos.addAndGet(durationNanos);
+    }
+
+    void recordTaskExecution(long durationNanos, boolean failed) {
+        executedTaskCount.incrementAndGet();
+        if (failed) {
+            failedTaskCount.incrementAndGet();
+        }
+        taskExecutionTimeNanos.addAndGet(durationNanos);
+    }
+
+    private static double averageMillis(long totalNanos, long count) {
+        if (count == 0) {
+            return 0;
+        }
+        return (double) totalNanos / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return "TaskPollerMetrics[pollCount=" + getPollCount() + ", emptyPollCount=" + getEmptyPollCount()
+                + ", averagePollLatencyMillis=" + getAveragePollLatencyMillis() + ", executedTaskCount="
+                + getExecutedTaskCount() + ", failedTaskCount=" + getFailedTaskCount()
+                + ", averageTaskExecutionTimeMillis=" + getAverageTaskExecutionTimeMillis() + ", queueDepth="
+                + getQueueDepth() + ", activeTaskCount=" + getActiveTaskCount() + "]";
+    }
+}
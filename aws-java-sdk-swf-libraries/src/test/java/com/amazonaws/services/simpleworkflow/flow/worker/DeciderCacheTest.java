@@ -0,0 +1,344 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.flow.DecisionContext;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowExecutionLocal;
+import com.amazonaws.services.simpleworkflow.flow.WorkflowTypeRegistrationOptions;
+import com.amazonaws.services.simpleworkflow.flow.core.Promise;
+import com.amazonaws.services.simpleworkflow.flow.core.Settable;
+import com.amazonaws.services.simpleworkflow.flow.core.Task;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinition;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactory;
+import com.amazonaws.services.simpleworkflow.flow.generic.WorkflowDefinitionFactoryFactory;
+import com.amazonaws.services.simpleworkflow.model.Decision;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.DecisionTaskCompletedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.DecisionType;
+import com.amazonaws.services.simpleworkflow.model.EventType;
+import com.amazonaws.services.simpleworkflow.model.HistoryEvent;
+import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecution;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionSignaledEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowExecutionStartedEventAttributes;
+import com.amazonaws.services.simpleworkflow.model.WorkflowType;
+
+public class DeciderCacheTest {
+
+    private static final WorkflowType WORKFLOW_TYPE = new WorkflowType().withName("Workflow").withVersion("1.0");
+
+    /** Bound to the workflow execution by {@link TestWorkflow#execute(String)}. */
+    private static final WorkflowExecutionLocal<String> input = new WorkflowExecutionLocal<String>();
+
+    /** The signals received by the workflow definitions, as "definition:signal:input". */
+    private final List<String> signals = Collections.synchronizedList(new ArrayList<String>());
+
+    private int createdDefinitions;
+
+    private int deletedDefinitions;
+
+    private ExecutorService otherThread;
+
+    @Before
+    public void setUp() {
+        otherThread = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        otherThread.shutdownNow();
+    }
+
+    @Test
+    public void testNextDecisionTaskIsDecidedByCachedDecider() throws Exception {
+        DeciderCache cache = new DeciderCache(10);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(new TestFactoryFactory(), cache);
+
+        assertEquals(0, handler.handleDecisionTask(firstTask("run")).getDecisions().size());
+        // the next decision task is received by another poll thread
+        RespondDecisionTaskCompletedRequest response = decideInOtherThread(handler, signalTask("run", "ping"));
+
+        assertEquals(0, response.getDecisions().size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertEquals(1, createdDefinitions);
+        // the workflow execution local set by the first decision is restored
+        assertEquals(Arrays.asList("1:ping:run-input"), signals);
+    }
+
+    @Test
+    public void testCachedDeciderSkipsProcessedEventsAcrossPages() throws Exception {
+        DeciderCache cache = new DeciderCache(10);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(new TestFactoryFactory(), cache);
+
+        handler.handleDecisionTask(firstTask("run"));
+        List<HistoryEvent> events = new ArrayList<HistoryEvent>();
+        addFirstDecisionEvents(events, "run");
+        addSignalDecisionEvents(events, "ping");
+        // the processed events end in the middle of the second page
+        List<DecisionTask> pages = new ArrayList<DecisionTask>();
+        pages.add(page("run", events.subList(0, 2), 3, events.size()));
+        pages.add(page("run", events.subList(2, 5), 3, events.size()));
+        pages.add(page("run", events.subList(5, events.size()), 3, events.size()));
+        handler.handleDecisionTask(pages.iterator());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, createdDefinitions);
+        assertEquals(Arrays.asList("1:ping:run-input"), signals);
+    }
+
+    @Test
+    public void testHistoryThatDoesNotContinueFromCachedDeciderIsReplayed() throws Exception {
+        DeciderCache cache = new DeciderCache(10);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(new TestFactoryFactory(), cache);
+
+        handler.handleDecisionTask(firstTask("run"));
+        // the second decision task was decided by another worker
+        handler.handleDecisionTask(thirdTask("run"));
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, createdDefinitions);
+        assertEquals(1, deletedDefinitions);
+        assertEquals(1, cache.size());
+        // only the new decider saw the signals, replaying both
+        assertEquals(Arrays.asList("2:ping:run-input", "2:pong:run-input"), signals);
+    }
+
+    @Test
+    public void testEvictedDeciderIsReplayed() throws Exception {
+        DeciderCache cache = new DeciderCache(1);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(new TestFactoryFactory(), cache);
+
+        handler.handleDecisionTask(firstTask("run-a"));
+        handler.handleDecisionTask(firstTask("run-b"));
+        assertEquals(1, cache.size());
+        assertEquals(1, deletedDefinitions);
+
+        handler.handleDecisionTask(signalTask("run-a", "ping"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, createdDefinitions);
+        assertEquals(Arrays.asList("3:ping:run-a-input"), signals);
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(createdDefinitions, deletedDefinitions);
+    }
+
+    @Test
+    public void testDeciderIsRemovedWhenWorkflowCloses() throws Exception {
+        DeciderCache cache = new DeciderCache(10);
+        AsyncDecisionTaskHandler handler = new AsyncDecisionTaskHandler(new TestFactoryFactory(), cache);
+
+        handler.handleDecisionTask(firstTask("run"));
+        RespondDecisionTaskCompletedRequest response = handler.handleDecisionTask(signalTask("run", "finish"));
+
+        List<Decision> decisions = response.getDecisions();
+        assertEquals(1, decisions.size());
+        assertEquals(DecisionType.CompleteWorkflowExecution.toString(), decisions.get(0).getDecisionType());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.size());
+        assertEquals(1, createdDefinitions);
+        assertEquals(1, deletedDefinitions);
+    }
+
+    private RespondDecisionTaskCompletedRequest decideInOtherThread(final AsyncDecisionTaskHandler handler,
+            final Iterator<DecisionTask> decisionTask) throws Exception {
+        return otherThread.submit(new Callable<RespondDecisionTaskCompletedRequest>() {
+
+            @Override
+            public RespondDecisionTaskCompletedRequest call() throws Exception {
+                return handler.handleDecisionTask(decisionTask);
+            }
+        }).get();
+    }
+
+    /**
+     * The first decision task of the workflow execution.
+     */
+    private static Iterator<DecisionTask> firstTask(String runId) {
+        List<HistoryEvent> events = new ArrayList<HistoryEvent>();
+        addFirstDecisionEvents(events, runId);
+        return decisionTask(runId, events, 0);
+    }
+
+    /**
+     * The second decision task, following a signal.
+     */
+    private static Iterator<DecisionTask> signalTask(String runId, String signalName) {
+        List<HistoryEvent> events = new ArrayList<HistoryEvent>();
+        addFirstDecisionEvents(events, runId);
+        addSignalDecisionEvents(events, signalName);
+        return decisionTask(runId, events, 3);
+    }
+
+    /**
+     * The third decision task, following a second signal.
+     */
+    private static Iterator<DecisionTask> thirdTask(String runId) {
+        List<HistoryEvent> events = new ArrayList<HistoryEvent>();
+        addFirstDecisionEvents(events, runId);
+        addSignalDecisionEvents(events, "ping");
+        addSignalDecisionEvents(events, "pong");
+        return decisionTask(runId, events, 7);
+    }
+
+    private static void addFirstDecisionEvents(List<HistoryEvent> events, String runId) {
+        events.add(event(events, EventType.WorkflowExecutionStarted)
+                .withWorkflowExecutionStartedEventAttributes(new WorkflowExecutionStartedEventAttributes()
+                        .withWorkflowType(WORKFLOW_TYPE)
+                        .withInput(runId + "-input")));
+        events.add(event(events, EventType.DecisionTaskScheduled));
+        events.add(event(events, EventType.DecisionTaskStarted));
+    }
+
+    private static void addSignalDecisionEvents(List<HistoryEvent> events, String signalName) {
+        long startedEventId = events.size();
+        events.add(event(events, EventType.DecisionTaskCompleted)
+                .withDecisionTaskCompletedEventAttributes(new DecisionTaskCompletedEventAttributes()
+                        .withScheduledEventId(startedEventId - 1)
+                        .withStartedEventId(startedEventId)));
+        events.add(event(events, EventType.WorkflowExecutionSignaled)
+                .withWorkflowExecutionSignaledEventAttributes(new WorkflowExecutionSignaledEventAttributes()
+                        .withSignalName(signalName)
+                        .withInput(signalName + "-input")));
+        events.add(event(events, EventType.DecisionTaskScheduled));
+        events.add(event(events, EventType.DecisionTaskStarted));
+    }
+
+    private static HistoryEvent event(List<HistoryEvent> events, EventType eventType) {
+        return new HistoryEvent()
+                .withEventId((long) events.size() + 1)
+                .withEventType(eventType.toString())
+                .withEventTimestamp(new Date());
+    }
+
+    private static Iterator<DecisionTask> decisionTask(String runId, List<HistoryEvent> events,
+            long previousStartedEventId) {
+        return Collections.singletonList(page(runId, events, previousStartedEventId, events.size())).iterator();
+    }
+
+    private static DecisionTask page(String runId, List<HistoryEvent> events, long previousStartedEventId,
+            long startedEventId) {
+        return new DecisionTask()
+                .withTaskToken("token-" + runId + "-" + startedEventId)
+                .withWorkflowExecution(new WorkflowExecution().withWorkflowId("workflow-" + runId).withRunId(runId))
+                .withWorkflowType(WORKFLOW_TYPE)
+                .withStartedEventId(startedEventId)
+                .withPreviousStartedEventId(previousStartedEventId)
+                .withEvents(new ArrayList<HistoryEvent>(events));
+    }
+
+    /**
+     * Waits for signals, and completes on the "finish" signal.
+     */
+    private class TestWorkflow extends WorkflowDefinition {
+
+        private final int id;
+
+        private final Settable<String> result = new Settable<String>();
+
+        TestWorkflow(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public Promise<String> execute(String workflowInput) {
+            input.set(workflowInput);
+            // keeps the workflow execution open until the result is set
+            final Settable<String> output = new Settable<String>();
+            new Task(result) {
+
+                @Override
+                protected void doExecute() {
+                    output.set(result.get());
+                }
+            };
+            return output;
+        }
+
+        @Override
+        public void signalRecieved(String signalName, String signalInput) {
+            signals.add(id + ":" + signalName + ":" + input.get());
+            if (signalName.equals("finish")) {
+                result.set(signalInput);
+            }
+        }
+
+        @Override
+        public String getWorkflowState() {
+            return null;
+        }
+    }
+
+    private class TestFactoryFactory extends WorkflowDefinitionFactoryFactory {
+
+        @Override
+        public WorkflowDefinitionFactory getWorkflowDefinitionFactory(WorkflowType workflowType) {
+            return new WorkflowDefinitionFactory() {
+
+                @Override
+                public WorkflowTypeRegistrationOptions getWorkflowRegistrationOptions() {
+                    return null;
+                }
+
+                @Override
+                public WorkflowDefinition getWorkflowDefinition(DecisionContext context) {
+                    // binds the workflow execution locals, as the POJO factory does
+                    CurrentDecisionContext.set(context);
+                    synchronized (DeciderCacheTest.this) {
+                        return new TestWorkflow(++createdDefinitions);
+                    }
+                }
+
+                @Override
+                public void deleteWorkflowDefinition(WorkflowDefinition instance) {
+                    synchronized (DeciderCacheTest.this) {
+                        deletedDefinitions++;
+                    }
+                    CurrentDecisionContext.unset();
+                }
+
+                @Override
+                public WorkflowType getWorkflowType() {
+                    return WORKFLOW_TYPE;
+                }
+            };
+        }
+
+        @Override
+        public Iterable<WorkflowType> getWorkflowTypesToRegister() {
+            return Collections.emptyList();
+        }
+    }
+}
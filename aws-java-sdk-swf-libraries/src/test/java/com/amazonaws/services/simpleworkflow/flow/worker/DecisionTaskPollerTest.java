@@ -0,0 +1,292 @@
+/*
+ * Copyright 2012-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not
+ * use this file except in compliance with the License. A copy of the License is
+ * located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.simpleworkflow.flow.worker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.simpleworkflow.AmazonSimpleWorkflow;
+import com.amazonaws.services.simpleworkflow.flow.core.AsyncTaskInfo;
+import com.amazonaws.services.simpleworkflow.model.DecisionTask;
+import com.amazonaws.services.simpleworkflow.model.RespondDecisionTaskCompletedRequest;
+
+/**
+ * Tests the polling of a {@link DecisionTaskPoller} that decides the tasks on
+ * the executor created by its {@link GenericWorkflowWorker}.
+ */
+public class DecisionTaskPollerTest {
+
+    private final AtomicInteger polls = new AtomicInteger();
+
+    private final AtomicInteger started = new AtomicInteger();
+
+    private final AtomicInteger interrupted = new AtomicInteger();
+
+    /** The task tokens of the completed decision tasks. */
+    private final List<String> completed = new CopyOnWriteArrayList<String>();
+
+    /** The names of the threads that decided the tasks. */
+    private final List<String> deciderThreads = new CopyOnWriteArrayList<String>();
+
+    /** The deciders wait for it, if set. */
+    private volatile CountDownLatch decisionLatch;
+
+    private volatile boolean failDecisions;
+
+    /** Whether the deciders keep waiting for the latch when interrupted. */
+    private volatile boolean ignoreInterrupts;
+
+    private ExecutorService pollThreads;
+
+    @Before
+    public void setUp() {
+        pollThreads = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        pollThreads.shutdownNow();
+    }
+
+    @Test
+    public void testTaskExecutorCapacity() {
+        GenericWorkflowWorker worker = new GenericWorkflowWorker();
+        ThreadPoolExecutor handOff = worker.createTaskExecutor(3, 0, "test ");
+        ThreadPoolExecutor queued = worker.createTaskExecutor(2, 5, "test ");
+        try {
+            assertEquals(3, BlockCallerPolicy.getTaskCapacity(handOff));
+            assertEquals(7, BlockCallerPolicy.getTaskCapacity(queued));
+            assertEquals(2, queued.getCorePoolSize());
+            assertTrue(queued.allowsCoreThreadTimeOut());
+        }
+        finally {
+            handOff.shutdownNow();
+            queued.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPollingStopsWhenCapacityIsExhausted() throws Exception {
+        decisionLatch = new CountDownLatch(1);
+        DecisionTaskPoller poller = createPoller(1, 1);
+        // one task runs and one is queued
+        assertTrue(poller.pollAndProcessSingleTask());
+        assertTrue(poller.pollAndProcessSingleTask());
+        awaitCount(started, 1);
+
+        Future<Boolean> thirdPoll = pollInOtherThread(poller);
+        Thread.sleep(200);
+        assertFalse(thirdPoll.isDone());
+        assertEquals(2, polls.get());
+        TaskPollerMetrics metrics = poller.getMetrics();
+        assertEquals(1, metrics.getActiveTaskCount());
+        assertEquals(1, metrics.getQueueDepth());
+
+        decisionLatch.countDown();
+        assertTrue(thirdPoll.get(10, TimeUnit.SECONDS));
+        poller.shutdown();
+        assertTrue(poller.awaitTermination(10000, TimeUnit.MILLISECONDS));
+
+        assertEquals(3, polls.get());
+        assertEquals(3, completed.size());
+        assertEquals(3, metrics.getPollCount());
+        assertEquals(0, metrics.getEmptyPollCount());
+        assertEquals(3, metrics.getExecutedTaskCount());
+        assertEquals(0, metrics.getFailedTaskCount());
+        for (String thread : deciderThreads) {
+            assertTrue(thread, thread.startsWith("SWF Decision tasks "));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailedTaskReleasesItsPermit() throws Exception {
+        failDecisions = true;
+        DecisionTaskPoller poller = createPoller(1, 0);
+        // each poll waits for the permit of the previous failed task
+        for (int i = 0; i < 3; i++) {
+            assertTrue(poller.pollAndProcessSingleTask());
+        }
+        poller.shutdown();
+        assertTrue(poller.awaitTermination(10000, TimeUnit.MILLISECONDS));
+
+        assertEquals(3, polls.get());
+        assertEquals(Collections.emptyList(), completed);
+        assertEquals(3, poller.getMetrics().getExecutedTaskCount());
+        assertEquals(3, poller.getMetrics().getFailedTaskCount());
+    }
+
+    @Test
+    public void testShutdownNowReleasesThePermitsOfQueuedTasks() throws Exception {
+        decisionLatch = new CountDownLatch(1);
+        ignoreInterrupts = true;
+        DecisionTaskPoller poller = createPoller(1, 1);
+        assertTrue(poller.pollAndProcessSingleTask());
+        assertTrue(poller.pollAndProcessSingleTask());
+        awaitCount(started, 1);
+        Future<Boolean> thirdPoll = pollInOtherThread(poller);
+        Thread.sleep(200);
+        assertFalse(thirdPoll.isDone());
+
+        // the running task keeps its permit, so only the one of the dropped
+        // queued task unblocks the poller
+        poller.shutdownNow();
+        assertFalse(thirdPoll.get(10, TimeUnit.SECONDS));
+        assertEquals(2, polls.get());
+        assertEquals(1, poller.getMetrics().getActiveTaskCount());
+
+        decisionLatch.countDown();
+        assertTrue(poller.awaitTermination(10000, TimeUnit.MILLISECONDS));
+        assertEquals(1, started.get());
+        assertEquals(1, interrupted.get());
+        assertEquals(Collections.singletonList("token-1"), completed);
+        assertFalse(poller.pollAndProcessSingleTask());
+        assertEquals(2, polls.get());
+    }
+
+    @Test
+    public void testShutdownDecidesTheQueuedTasks() throws Exception {
+        decisionLatch = new CountDownLatch(1);
+        DecisionTaskPoller poller = createPoller(1, 1);
+        assertTrue(poller.pollAndProcessSingleTask());
+        assertTrue(poller.pollAndProcessSingleTask());
+        awaitCount(started, 1);
+        Future<Boolean> thirdPoll = pollInOtherThread(poller);
+        Thread.sleep(200);
+
+        poller.shutdown();
+        decisionLatch.countDown();
+        assertFalse(thirdPoll.get(10, TimeUnit.SECONDS));
+        assertTrue(poller.awaitTermination(10000, TimeUnit.MILLISECONDS));
+
+        assertEquals(2, polls.get());
+        assertEquals(2, completed.size());
+        assertEquals(0, interrupted.get());
+    }
+
+    private DecisionTaskPoller createPoller(int threadPoolSize, int queueCapacity) {
+        GenericWorkflowWorker worker = new GenericWorkflowWorker(service(), "domain", "tasks");
+        worker.setTaskExecutorThreadPoolSize(threadPoolSize);
+        worker.setTaskQueueCapacity(queueCapacity);
+        DecisionTaskPoller poller = (DecisionTaskPoller) worker.createPoller();
+        poller.setDecisionTaskHandler(new TestDecisionTaskHandler());
+        return poller;
+    }
+
+    private Future<Boolean> pollInOtherThread(final DecisionTaskPoller poller) {
+        return pollThreads.submit(new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() throws Exception {
+                return poller.pollAndProcessSingleTask();
+            }
+        });
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (count.get() != expected) {
+            assertTrue("Expected " + expected + " but got " + count.get(), System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Returns a service that always has a decision task to poll, and records
+     * the completed ones.
+     */
+    private AmazonSimpleWorkflow service() {
+        return (AmazonSimpleWorkflow) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { AmazonSimpleWorkflow.class }, new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("pollForDecisionTask")) {
+                            int task = polls.incrementAndGet();
+                            return new DecisionTask().withTaskToken("token-" + task).withStartedEventId((long) task);
+                        }
+                        if (name.equals("respondDecisionTaskCompleted")) {
+                            completed.add(((RespondDecisionTaskCompletedRequest) args[0]).getTaskToken());
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    private class TestDecisionTaskHandler extends DecisionTaskHandler {
+
+        @Override
+        public RespondDecisionTaskCompletedRequest handleDecisionTask(Iterator<DecisionTask> decisionTaskIterator)
+                throws Exception {
+            DecisionTask task = decisionTaskIterator.next();
+            started.incrementAndGet();
+            deciderThreads.add(Thread.currentThread().getName());
+            CountDownLatch latch = decisionLatch;
+            while (latch != null) {
+                try {
+                    latch.await();
+                    break;
+                }
+                catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    if (!ignoreInterrupts) {
+                        throw e;
+                    }
+                }
+            }
+            if (failDecisions) {
+                throw new IllegalStateException("Decider failure");
+            }
+            return new RespondDecisionTaskCompletedRequest().withTaskToken(task.getTaskToken());
+        }
+
+        @Override
+        public List<AsyncTaskInfo> getAsynchronousThreadDump(Iterator<DecisionTask> decisionTaskIterator) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getAsynchronousThreadDumpAsString(Iterator<DecisionTask> decisionTaskIterator) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object loadWorkflowThroughReplay(Iterator<DecisionTask> decisionTaskIterator) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}